@@ -0,0 +1,53 @@
+package org.JustRun.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next-fire computation as the scanner does it once per claimed task: claimDueTask parses the
+ * expression and asks for the next time after the claimed fire. The pre-parsed variant isolates
+ * the parsing share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronNextFireBenchmark {
+
+    @Param({"*/10 * * * * *", "0 */5 * * * *", "0 15,45 8-18 * * MON-FRI", "0 0 0 1 * *"})
+    public String cronExpression;
+
+    private CronExpression parsed;
+    private LocalDateTime lastExecution;
+
+    @Setup
+    public void setUp() {
+        parsed = CronExpression.parse(cronExpression);
+        lastExecution = LocalDateTime.now().minusMinutes(1);
+    }
+
+    @Benchmark
+    public LocalDateTime claimDueTaskNextFire() {
+        return CronExpression.parse(cronExpression).next(lastExecution);
+    }
+
+    @Benchmark
+    public LocalDateTime preParsedNextFire() {
+        return parsed.next(lastExecution);
+    }
+}
@@ -0,0 +1,151 @@
+package org.JustRun.Benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.JustRun.TaskExecutionService.Repository.TaskRepository;
+import org.JustRun.TaskExecutionService.model.MisfirePolicy;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.model.TaskChain;
+import org.JustRun.TaskExecutionService.model.TaskPriority;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Realistic inputs shared by the benchmarks, produced by the services' own code where possible
+ * (task items are whatever TaskRepository.save writes), plus access to the private hot-path
+ * methods under measurement.
+ */
+final class Fixtures {
+
+    // Spread of schedules seen in practice: sub-minute polling, minutely/hourly jobs, business hours, nightly, monthly
+    static final String[] CRON_EXPRESSIONS = {
+            "*/10 * * * * *",
+            "0 * * * * *",
+            "0 */5 * * * *",
+            "0 0 * * * *",
+            "0 15,45 8-18 * * MON-FRI",
+            "0 30 2 * * *",
+            "0 0 0 1 * *"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * A ROOT task as the API creates it: JSON body of {@code bodyFields} top-level fields
+     * (strings, numbers, flags and nested objects), a few headers and two chains.
+     */
+    static Task task(int bodyFields) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        for (int i = 0; i < bodyFields; i++) {
+            switch (i % 4) {
+                case 0 -> body.put("field" + i, "value-" + i + "-" + UUID.randomUUID());
+                case 1 -> body.put("count" + i, i * 17.5);
+                case 2 -> body.put("enabled" + i, i % 3 == 0);
+                default -> body.put("nested" + i, Map.of("id", "n-" + i, "amount", i * 3.0, "tags", List.of("a", "b", "c")));
+            }
+        }
+
+        String id = UUID.randomUUID().toString();
+        List<TaskChain> chains = new ArrayList<>();
+        chains.add(TaskChain.builder().id(UUID.randomUUID().toString()).taskId(id).statusCode(200).nextTaskId(UUID.randomUUID().toString()).build());
+        chains.add(TaskChain.builder().id(UUID.randomUUID().toString()).taskId(id).statusCode(500).nextTaskId(UUID.randomUUID().toString()).build());
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        return Task.builder()
+                .id(id)
+                .name("Sync orders to warehouse")
+                .description("Pushes new orders to the warehouse API every five minutes")
+                .userId(UUID.randomUUID().toString())
+                .endpoint("https://api.example.com/v1/warehouse/orders/sync")
+                .method("POST")
+                .headers(Map.of("Content-Type", "application/json", "Authorization", "Bearer " + UUID.randomUUID(), "X-Request-Source", "justrun"))
+                .body(body)
+                .cronExpression("0 */5 * * * *")
+                .spreadWindowSeconds(30)
+                .misfirePolicy(MisfirePolicy.FIRE_ONCE)
+                .priority(TaskPriority.NORMAL)
+                .chains(chains)
+                .maxRetries(3)
+                .retryDelay(30)
+                .exponentialBackoff(true)
+                .webhookUrl("https://hooks.example.com/justrun")
+                .status("ACTIVE")
+                .createdAt(now.minusDays(12))
+                .updatedAt(now.minusDays(1))
+                .lastExecutedAt(now.minusMinutes(5))
+                .executionCount(3456)
+                .failureCount(12)
+                .nextExecutionTime(now.plusMinutes(5))
+                .taskType(Task.TaskType.ROOT)
+                .build();
+    }
+
+    /**
+     * The DynamoDB item TaskExecutionService's TaskRepository writes for {@code task}.
+     */
+    static Map<String, AttributeValue> taskItem(Task task) {
+        List<Map<String, AttributeValue>> captured = new ArrayList<>();
+        DynamoDbClient capturing = new DynamoDbClient() {
+            @Override
+            public PutItemResponse putItem(PutItemRequest request) {
+                captured.add(request.item());
+                return PutItemResponse.builder().build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        new TaskRepository(capturing, Optional.empty()).save(task);
+        return captured.get(0);
+    }
+
+    /**
+     * An ObjectMapper configured the way Spring Boot configures the one the services inject.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .build();
+    }
+
+    static MethodHandle privateMethod(Class<?> type, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .findVirtual(type, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot access " + type.getSimpleName() + "." + name, e);
+        }
+    }
+
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + target.getClass().getSimpleName() + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.JustRun.Benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.JustRun.TaskExecutionService.codec.TaskPayloadCodec;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.service.RequestRenderer;
+import org.JustRun.TaskExecutionService.service.TaskHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a run's outbound request from a task as it arrives on the queue (payload encoded):
+ * the way executeTask used to (decode the payload, new ObjectMapper, serialize the body, copy the
+ * headers) against RequestRenderer's cached template, with and without placeholders and values
+ * extracted by an upstream chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestRenderBenchmark {
+
+    @Param({"4", "64"})
+    public int bodyFields;
+
+    private Task queued;
+    private Task templated;
+    private Task extracted;
+    private RequestRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        queued = asQueued(Fixtures.task(bodyFields));
+
+        Task withPlaceholders = Fixtures.task(bodyFields);
+        Map<String, Object> body = new LinkedHashMap<>(withPlaceholders.getBody());
+        body.put("firedAt", "{{fireTime}}");
+        body.put("attempt", "{{attempt}}");
+        withPlaceholders.setBody(body);
+        templated = asQueued(withPlaceholders);
+
+        extracted = asQueued(Fixtures.task(bodyFields));
+        extracted.setExtractedBody(Map.of("orderId", "o-42", "field0", "replaced"));
+        extracted.setExtractedHeaders(Map.of("X-Upstream-Order", "42"));
+
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        renderer = new RequestRenderer(objectMapper, new TaskHttpClient(), 10000);
+        Fixtures.setField(renderer, "templating", true);
+    }
+
+    @Benchmark
+    public Object perExecutionSerialization() throws Exception {
+        Task task = queued.toBuilder().build();
+        TaskPayloadCodec.materialize(task);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (task.getHeaders() != null) {
+            task.getHeaders().forEach(headers::set);
+        }
+        String jsonBody = null;
+        if (task.getBody() != null) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            jsonBody = objectMapper.writeValueAsString(task.getBody());
+        }
+        HttpMethod.valueOf(task.getMethod());
+        return new HttpEntity<>(jsonBody, headers);
+    }
+
+    @Benchmark
+    public Object cachedTemplate() {
+        return renderer.render(queued.toBuilder().build(), "execution-1");
+    }
+
+    @Benchmark
+    public Object cachedTemplateWithPlaceholders() {
+        return renderer.render(templated.toBuilder().build(), "execution-1");
+    }
+
+    @Benchmark
+    public Object cachedTemplateWithExtractedValues() {
+        return renderer.render(extracted.toBuilder().build(), "execution-1");
+    }
+
+    // The message body of a task read from the store: payload encoded, body and headers not decoded
+    private static Task asQueued(Task task) {
+        task.setPayload(TaskPayloadCodec.encode(task.getBody(), new HashMap<>(task.getHeaders())));
+        task.setBody(null);
+        task.setHeaders(null);
+        return task;
+    }
+}
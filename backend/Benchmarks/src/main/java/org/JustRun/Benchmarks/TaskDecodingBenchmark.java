@@ -0,0 +1,74 @@
+package org.JustRun.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a full task item: the scanner's mapToTask on the claimDueTask response and the
+ * executor's mapToTask on findById, plus convertAttributeMap on the body alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskDecodingBenchmark {
+
+    @Param({"4", "64"})
+    public int bodyFields;
+
+    private Map<String, AttributeValue> item;
+    private Map<String, AttributeValue> body;
+
+    private org.JustRun.CronScannerService.Repository.TaskRepository scannerRepository;
+    private org.JustRun.TaskExecutionService.Repository.TaskRepository executorRepository;
+    private MethodHandle scannerMapToTask;
+    private MethodHandle executorMapToTask;
+    private MethodHandle scannerConvertAttributeMap;
+
+    @Setup
+    public void setUp() {
+        item = Fixtures.taskItem(Fixtures.task(bodyFields));
+        body = item.get("body").m();
+
+        scannerRepository = new org.JustRun.CronScannerService.Repository.TaskRepository(null, Optional.empty(), null);
+        executorRepository = new org.JustRun.TaskExecutionService.Repository.TaskRepository(null, Optional.empty());
+        scannerMapToTask = Fixtures.privateMethod(org.JustRun.CronScannerService.Repository.TaskRepository.class,
+                "mapToTask", org.JustRun.CronScannerService.Model.Task.class, Map.class);
+        executorMapToTask = Fixtures.privateMethod(org.JustRun.TaskExecutionService.Repository.TaskRepository.class,
+                "mapToTask", org.JustRun.TaskExecutionService.model.Task.class, Map.class);
+        scannerConvertAttributeMap = Fixtures.privateMethod(org.JustRun.CronScannerService.Repository.TaskRepository.class,
+                "convertAttributeMap", Map.class, Map.class);
+    }
+
+    @Benchmark
+    public Object scannerMapToTask() throws Throwable {
+        return scannerMapToTask.invoke(scannerRepository, item);
+    }
+
+    @Benchmark
+    public Object executorMapToTask() throws Throwable {
+        return executorMapToTask.invoke(executorRepository, item);
+    }
+
+    @Benchmark
+    public Object convertAttributeMap() throws Throwable {
+        return scannerConvertAttributeMap.invoke(scannerRepository, body);
+    }
+}
@@ -0,0 +1,65 @@
+package org.JustRun.Benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The queue message round trip: the scanner's QueueService.enqueueTask serializes its Task and
+ * QueueWorker deserializes the same JSON into the executor's Task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskJsonBenchmark {
+
+    @Param({"4", "64"})
+    public int bodyFields;
+
+    private ObjectMapper objectMapper;
+    private org.JustRun.CronScannerService.Model.Task scannerTask;
+    private String messageBody;
+
+    @Setup
+    public void setUp() throws Throwable {
+        objectMapper = Fixtures.objectMapper();
+
+        // The scanner enqueues what claimDueTask decoded from the stored item
+        MethodHandle mapToTask = Fixtures.privateMethod(org.JustRun.CronScannerService.Repository.TaskRepository.class,
+                "mapToTask", org.JustRun.CronScannerService.Model.Task.class, Map.class);
+        scannerTask = (org.JustRun.CronScannerService.Model.Task) mapToTask.invoke(
+                new org.JustRun.CronScannerService.Repository.TaskRepository(null, Optional.empty(), null),
+                Fixtures.taskItem(Fixtures.task(bodyFields)));
+        scannerTask.setScheduledFireTime(scannerTask.getNextExecutionTime());
+        scannerTask.setFireInstanceId(scannerTask.getId() + "@" + scannerTask.getNextExecutionTime());
+        messageBody = objectMapper.writeValueAsString(scannerTask);
+    }
+
+    @Benchmark
+    public String serializeForEnqueue() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(scannerTask);
+    }
+
+    @Benchmark
+    public org.JustRun.TaskExecutionService.model.Task deserializeInWorker() throws JsonProcessingException {
+        return objectMapper.readValue(messageBody, org.JustRun.TaskExecutionService.model.Task.class);
+    }
+}
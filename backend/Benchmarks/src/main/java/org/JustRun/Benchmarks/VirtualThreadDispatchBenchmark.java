@@ -0,0 +1,175 @@
+package org.JustRun.Benchmarks;
+
+import org.JustRun.TaskExecutionService.Worker.ExecutionDispatcher;
+import org.JustRun.TaskExecutionService.service.TaskHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A batch of received tasks, each making its outbound call through TaskHttpClient to a local
+ * endpoint that answers after {@code latencyMs}: run one after another on the polling thread (the
+ * platform-thread mode), on fixed platform pools, and through ExecutionDispatcher on virtual threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Dhttp.maxConnections=2000"})
+public class VirtualThreadDispatchBenchmark {
+
+    @Param({"500"})
+    public int tasks;
+
+    @Param({"5", "50"})
+    public int latencyMs;
+
+    private static final byte[] RESPONSE = ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n"
+            + "Content-Length: 15\r\n\r\n{\"status\":\"ok\"}").getBytes(StandardCharsets.ISO_8859_1);
+
+    private ServerSocket server;
+    private ExecutorService serverThreads;
+    private URI endpoint;
+    private TaskHttpClient taskHttpClient;
+    private ExecutionDispatcher inline;
+    private ExecutionDispatcher virtualThreads;
+    private ExecutorService pool16;
+    private ExecutorService pool200;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 4096, InetAddress.getLoopbackAddress());
+        // Platform threads, so the target does not compete with the dispatch under test for carrier threads
+        serverThreads = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().daemon().factory());
+        serverThreads.execute(this::accept);
+        endpoint = URI.create("http://127.0.0.1:" + server.getLocalPort() + "/run");
+
+        taskHttpClient = new TaskHttpClient();
+        Fixtures.setField(taskHttpClient, "connectTimeoutMs", 5000);
+        inline = new ExecutionDispatcher(false, 1000);
+        virtualThreads = new ExecutionDispatcher(true, 1000);
+        pool16 = fixedPool(16);
+        pool200 = fixedPool(200);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+        serverThreads.shutdownNow();
+        taskHttpClient.shutdown();
+        virtualThreads.shutdown();
+        pool16.shutdownNow();
+        pool200.shutdownNow();
+    }
+
+    @Benchmark
+    public int platformInline() throws InterruptedException {
+        return runBatch(inline::dispatch);
+    }
+
+    @Benchmark
+    public int platformPool16() throws InterruptedException {
+        return runBatch(pool16::execute);
+    }
+
+    @Benchmark
+    public int platformPool200() throws InterruptedException {
+        return runBatch(pool200::execute);
+    }
+
+    @Benchmark
+    public int virtualThreads() throws InterruptedException {
+        return runBatch(virtualThreads::dispatch);
+    }
+
+    private int runBatch(Consumer<Runnable> dispatch) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        AtomicInteger succeeded = new AtomicInteger();
+        HttpEntity<byte[]> request = new HttpEntity<>(null);
+        for (int i = 0; i < tasks; i++) {
+            dispatch.accept(() -> {
+                try {
+                    long deadline = System.currentTimeMillis() + 30000;
+                    if (taskHttpClient.exchange(endpoint, HttpMethod.GET, request, deadline).getStatusCode().is2xxSuccessful()) {
+                        succeeded.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return succeeded.get();
+    }
+
+    // The target: a keep-alive HTTP/1.1 endpoint with a thread per connection, so it never queues calls
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                serverThreads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            OutputStream out = socket.getOutputStream();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    continue;
+                }
+                // GET requests without a body: a blank line ends each one
+                Thread.sleep(latencyMs);
+                out.write(RESPONSE);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client closed the connection
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService fixedPool(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "platform-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
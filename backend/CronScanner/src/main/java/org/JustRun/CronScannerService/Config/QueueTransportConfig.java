@@ -0,0 +1,25 @@
+package org.JustRun.CronScannerService.Config;
+
+import org.JustRun.CronScannerService.Queue.SqsTaskQueue;
+import org.JustRun.CronScannerService.Queue.TaskQueue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.util.Optional;
+
+/**
+ * The scanner only ships the SQS transport; with queue.transport=in-process the {@link TaskQueue}
+ * comes from the single-JVM host, which shares its in-process queue with the executor.
+ */
+@Configuration
+public class QueueTransportConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "queue.transport", havingValue = "sqs", matchIfMissing = true)
+    public TaskQueue sqsTaskQueue(SqsClient sqsClient, Optional<SqsAsyncClient> sqsAsyncClient) {
+        return new SqsTaskQueue(sqsClient, sqsAsyncClient.orElse(null));
+    }
+}
@@ -0,0 +1,22 @@
+package org.JustRun.CronScannerService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A test on the response a chain fires on. With source HEADER, {@code path} is a header name; with
+ * source BODY it is a JSONPath into the response body, such as "$.order.items[0].id".
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChainCondition {
+    private String source;
+    private String path;
+    // EXISTS, EQUALS, NOT_EQUALS, or MATCHES (a regular expression the whole value must match)
+    private String operator;
+    private String value;
+}
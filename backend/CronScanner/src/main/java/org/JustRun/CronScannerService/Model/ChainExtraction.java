@@ -0,0 +1,21 @@
+package org.JustRun.CronScannerService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Copies a response value, addressed like a {@link ChainCondition}, into the next task's request:
+ * into the top-level body field {@code name} (into BODY) or the header {@code name} (into HEADER).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChainExtraction {
+    private String source;
+    private String path;
+    private String into;
+    private String name;
+}
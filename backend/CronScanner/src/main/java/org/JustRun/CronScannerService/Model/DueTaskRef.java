@@ -0,0 +1,27 @@
+package org.JustRun.CronScannerService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The handful of task attributes the scanner needs to decide whether to claim a task.
+ * The full {@link Task} is only loaded once the claim succeeds.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DueTaskRef {
+    private String id;
+    private String cronExpression;
+    private Integer spreadWindowSeconds;
+    private MisfirePolicy misfirePolicy;
+    private Integer misfireMaxCatchUp;
+    private TaskPriority priority;
+    private LocalDateTime nextExecutionTime;
+    private LocalDateTime lastExecutedAt;
+}
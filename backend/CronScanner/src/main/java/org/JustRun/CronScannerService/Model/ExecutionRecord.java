@@ -0,0 +1,22 @@
+package org.JustRun.CronScannerService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The execution attributes a rollup needs; the rest of the row (response, error) is not read.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutionRecord {
+    private LocalDateTime executionTime;
+    private String status;
+    private Integer statusCode;
+    private Long durationMs;
+}
@@ -0,0 +1,43 @@
+package org.JustRun.CronScannerService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Aggregate of one task's executions over an hour or a day (table task_execution_rollups,
+ * keyed by taskId and bucket). Latency percentiles are estimated from {@code latencyHistogram},
+ * which is kept so hourly rollups can be merged into daily ones.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutionRollup {
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    private String taskId;
+    private String userId;
+    private Granularity granularity;
+    private LocalDateTime bucketStart;
+    private long executionCount;
+    private long successCount;
+    private long failureCount;
+    private Long latencyP50Ms;
+    private Long latencyP90Ms;
+    private Long latencyP99Ms;
+    private Long latencyMaxMs;
+    // Upper bound in ms ("inf" for the overflow bucket) -> executions
+    private Map<String, Long> latencyHistogram;
+    // HTTP status code -> executions; executions without a response are not counted here
+    private Map<String, Long> statusCodes;
+    private Long expiresAt;
+}
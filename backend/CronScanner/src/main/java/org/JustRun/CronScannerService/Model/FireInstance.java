@@ -0,0 +1,20 @@
+package org.JustRun.CronScannerService.Model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Identifies one scheduled run of a task: the same task and fire time always give the same id,
+ * so every copy of that run (re-claims, re-sends, redeliveries) can be recognised downstream.
+ */
+public final class FireInstance {
+
+    private static final DateTimeFormatter FIRE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private FireInstance() {
+    }
+
+    public static String idFor(String taskId, LocalDateTime fireTime) {
+        return taskId + "@" + fireTime.format(FIRE_TIME_FORMATTER);
+    }
+}
@@ -0,0 +1,8 @@
+package org.JustRun.CronScannerService.Model;
+
+
+public enum MisfirePolicy {
+    FIRE_ONCE,   // Run once for all missed fires, then resume the schedule
+    FIRE_ALL,    // Run every missed fire, up to misfireMaxCatchUp
+    SKIP         // Drop missed fires and resume at the next scheduled time
+}
@@ -22,12 +22,18 @@ public class Task {
     private String method;
     private Map<String, String> headers;
     private Map<String, Object> body;
+    private byte[] payload;
     private String cronExpression;
+    private Integer spreadWindowSeconds;
+    private MisfirePolicy misfirePolicy;
+    private Integer misfireMaxCatchUp;
     private TaskPriority priority;
     private List<TaskChain> chains;
     private Integer maxRetries;
     private Integer retryDelay;
     private Boolean exponentialBackoff;
+    // Deadline for one run's outbound call, in ms; unset uses the executor's default for the priority
+    private Integer timeoutMs;
     private String webhookUrl;
     private String status;
     private LocalDateTime createdAt;
@@ -37,6 +43,10 @@ public class Task {
     private Integer failureCount;
     private LocalDateTime nextExecutionTime;
     private TaskType taskType;
+    // Exact time this run should fire; set for runs claimed ahead of time
+    private LocalDateTime scheduledFireTime;
+    // Stable id of this run (task id + fire time), used to drop duplicate deliveries
+    private String fireInstanceId;
 
     public enum TaskType {
         ROOT,     // Scheduled by cron
@@ -0,0 +1,20 @@
+package org.JustRun.CronScannerService.Queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A message handed to the {@link TaskQueue} transport.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueMessage {
+    private String body;
+    private String groupId;
+    private String deduplicationId;
+    private Integer delaySeconds;
+}
@@ -0,0 +1,59 @@
+package org.JustRun.CronScannerService.Queue;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link TaskQueue} on Amazon SQS.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class SqsTaskQueue implements TaskQueue {
+
+    private final SqsClient sqsClient;
+
+    // Null unless aws.async.enabled
+    private final SqsAsyncClient sqsAsyncClient;
+
+    @Override
+    public String send(String queue, QueueMessage message) {
+        SendMessageResponse response = sqsClient.sendMessage(sendRequest(queue, message));
+        log.debug("Sent message {} to {} (HTTP {})", response.messageId(), queue, response.sdkHttpResponse().statusCode());
+        return response.messageId();
+    }
+
+    @Override
+    public CompletableFuture<String> sendAsync(String queue, QueueMessage message) {
+        if (sqsAsyncClient == null) {
+            return TaskQueue.super.sendAsync(queue, message);
+        }
+        return sqsAsyncClient.sendMessage(sendRequest(queue, message)).thenApply(response -> {
+            log.debug("Sent message {} to {} (HTTP {})", response.messageId(), queue, response.sdkHttpResponse().statusCode());
+            return response.messageId();
+        });
+    }
+
+    private static SendMessageRequest sendRequest(String queue, QueueMessage message) {
+        SendMessageRequest.Builder request = SendMessageRequest.builder()
+                .queueUrl(queue)
+                .messageBody(message.getBody());
+        // Group and deduplication ids exist only on FIFO queues, which in turn reject per-message delays
+        if (queue.endsWith(".fifo")) {
+            if (message.getGroupId() != null) {
+                request.messageGroupId(message.getGroupId());
+            }
+            if (message.getDeduplicationId() != null) {
+                request.messageDeduplicationId(message.getDeduplicationId());
+            }
+        } else if (message.getDelaySeconds() != null && message.getDelaySeconds() > 0) {
+            request.delaySeconds(message.getDelaySeconds());
+        }
+        return request.build();
+    }
+}
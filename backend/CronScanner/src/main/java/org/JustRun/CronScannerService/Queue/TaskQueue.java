@@ -0,0 +1,28 @@
+package org.JustRun.CronScannerService.Queue;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport the scanner sends due tasks through. Queues are addressed by the configured queue
+ * names (SQS queue URLs for the SQS transport). In single-JVM mode the implementation is
+ * supplied by the host application and delivers straight to the executor.
+ */
+public interface TaskQueue {
+
+    /**
+     * Sends a message and returns its id.
+     */
+    String send(String queue, QueueMessage message);
+
+    /**
+     * {@link #send} without waiting for it, for transports with a non-blocking client. Others send
+     * on the calling thread and return a completed future.
+     */
+    default CompletableFuture<String> sendAsync(String queue, QueueMessage message) {
+        try {
+            return CompletableFuture.completedFuture(send(queue, message));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.JustRun.CronScannerService.Repository;
+
+import lombok.RequiredArgsConstructor;
+import org.JustRun.CronScannerService.Model.ExecutionRecord;
+import org.JustRun.CronScannerService.Model.ExecutionRollup;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads finished executions from task_executions and reads/writes their hourly and daily
+ * aggregates in task_execution_rollups (partition key taskId, sort key bucket, e.g.
+ * "HOUR#2024-05-01T13" or "DAY#2024-05-01", TTL attribute expiresAt).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExecutionRollupRepository {
+
+    private final DynamoDbClient dynamoDbClient;
+    private static final String TABLE_NAME = "task_execution_rollups";
+    private static final String EXECUTIONS_TABLE_NAME = "task_executions";
+    private static final String EXECUTIONS_INDEX = "taskId-executionTime-index";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static String bucketFor(ExecutionRollup.Granularity granularity, LocalDateTime bucketStart) {
+        return granularity.name() + "#" + bucketStart.format(granularity == ExecutionRollup.Granularity.HOUR ? HOUR_FORMATTER : DAY_FORMATTER);
+    }
+
+    /**
+     * Executions of {@code taskId} that started in [from, to).
+     */
+    public List<ExecutionRecord> findExecutions(String taskId, LocalDateTime from, LocalDateTime to) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":taskId", AttributeValue.builder().s(taskId).build());
+        expressionValues.put(":from", AttributeValue.builder().s(from.format(DATE_FORMATTER)).build());
+        expressionValues.put(":to", AttributeValue.builder().s(to.minusSeconds(1).format(DATE_FORMATTER)).build());
+
+        QueryRequest request = QueryRequest.builder()
+                .tableName(EXECUTIONS_TABLE_NAME)
+                .indexName(EXECUTIONS_INDEX)
+                .keyConditionExpression("#taskId = :taskId AND #time BETWEEN :from AND :to")
+                .projectionExpression("#time, #status, #statusCode, #duration")
+                .expressionAttributeNames(Map.of(
+                        "#taskId", "taskId",
+                        "#time", "executionTime",
+                        "#status", "status",
+                        "#statusCode", "statusCode",
+                        "#duration", "durationMs"))
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        List<ExecutionRecord> executions = new ArrayList<>();
+        for (QueryResponse page : dynamoDbClient.queryPaginator(request)) {
+            page.items().forEach(item -> executions.add(mapToExecutionRecord(item)));
+        }
+        return executions;
+    }
+
+    /**
+     * Hourly rollups of {@code taskId} for the given day.
+     */
+    public List<ExecutionRollup> findHourlyRollups(String taskId, LocalDate day) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":taskId", AttributeValue.builder().s(taskId).build());
+        expressionValues.put(":prefix", AttributeValue.builder()
+                .s(ExecutionRollup.Granularity.HOUR.name() + "#" + day.format(DAY_FORMATTER)).build());
+
+        QueryRequest request = QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                // BUCKET is a DynamoDB reserved word
+                .keyConditionExpression("taskId = :taskId AND begins_with(#bucket, :prefix)")
+                .expressionAttributeNames(Map.of("#bucket", "bucket"))
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        List<ExecutionRollup> rollups = new ArrayList<>();
+        for (QueryResponse page : dynamoDbClient.queryPaginator(request)) {
+            page.items().forEach(item -> rollups.add(mapToRollup(item)));
+        }
+        return rollups;
+    }
+
+    public void save(ExecutionRollup rollup) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("taskId", AttributeValue.builder().s(rollup.getTaskId()).build());
+        item.put("bucket", AttributeValue.builder().s(bucketFor(rollup.getGranularity(), rollup.getBucketStart())).build());
+        item.put("granularity", AttributeValue.builder().s(rollup.getGranularity().name()).build());
+        item.put("bucketStart", AttributeValue.builder().s(rollup.getBucketStart().format(DATE_FORMATTER)).build());
+        item.put("executionCount", number(rollup.getExecutionCount()));
+        item.put("successCount", number(rollup.getSuccessCount()));
+        item.put("failureCount", number(rollup.getFailureCount()));
+
+        if (rollup.getUserId() != null) {
+            item.put("userId", AttributeValue.builder().s(rollup.getUserId()).build());
+        }
+
+        if (rollup.getLatencyP50Ms() != null) {
+            item.put("latencyP50Ms", number(rollup.getLatencyP50Ms()));
+            item.put("latencyP90Ms", number(rollup.getLatencyP90Ms()));
+            item.put("latencyP99Ms", number(rollup.getLatencyP99Ms()));
+            item.put("latencyMaxMs", number(rollup.getLatencyMaxMs()));
+        }
+
+        if (rollup.getLatencyHistogram() != null && !rollup.getLatencyHistogram().isEmpty()) {
+            item.put("latencyHistogram", countMap(rollup.getLatencyHistogram()));
+        }
+
+        if (rollup.getStatusCodes() != null && !rollup.getStatusCodes().isEmpty()) {
+            item.put("statusCodes", countMap(rollup.getStatusCodes()));
+        }
+
+        if (rollup.getExpiresAt() != null) {
+            item.put("expiresAt", number(rollup.getExpiresAt()));
+        }
+
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .item(item)
+                .build());
+    }
+
+    private ExecutionRecord mapToExecutionRecord(Map<String, AttributeValue> item) {
+        ExecutionRecord.ExecutionRecordBuilder builder = ExecutionRecord.builder()
+                .executionTime(LocalDateTime.parse(item.get("executionTime").s(), DATE_FORMATTER))
+                .status(item.get("status").s());
+
+        if (item.containsKey("statusCode")) {
+            builder.statusCode(Integer.parseInt(item.get("statusCode").n()));
+        }
+
+        if (item.containsKey("durationMs")) {
+            builder.durationMs(Long.parseLong(item.get("durationMs").n()));
+        }
+
+        return builder.build();
+    }
+
+    private ExecutionRollup mapToRollup(Map<String, AttributeValue> item) {
+        ExecutionRollup.ExecutionRollupBuilder builder = ExecutionRollup.builder()
+                .taskId(item.get("taskId").s())
+                .granularity(ExecutionRollup.Granularity.valueOf(item.get("granularity").s()))
+                .bucketStart(LocalDateTime.parse(item.get("bucketStart").s(), DATE_FORMATTER))
+                .executionCount(Long.parseLong(item.get("executionCount").n()))
+                .successCount(Long.parseLong(item.get("successCount").n()))
+                .failureCount(Long.parseLong(item.get("failureCount").n()));
+
+        if (item.containsKey("userId")) {
+            builder.userId(item.get("userId").s());
+        }
+
+        if (item.containsKey("latencyMaxMs")) {
+            builder.latencyMaxMs(Long.parseLong(item.get("latencyMaxMs").n()));
+        }
+
+        if (item.containsKey("latencyHistogram")) {
+            builder.latencyHistogram(fromCountMap(item.get("latencyHistogram")));
+        }
+
+        if (item.containsKey("statusCodes")) {
+            builder.statusCodes(fromCountMap(item.get("statusCodes")));
+        }
+
+        return builder.build();
+    }
+
+    private static AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+
+    private static AttributeValue countMap(Map<String, Long> counts) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        counts.forEach((key, count) -> values.put(key, number(count)));
+        return AttributeValue.builder().m(values).build();
+    }
+
+    private static Map<String, Long> fromCountMap(AttributeValue value) {
+        Map<String, Long> counts = new HashMap<>();
+        value.m().forEach((key, count) -> counts.put(key, Long.parseLong(count.n())));
+        return counts;
+    }
+}
@@ -0,0 +1,124 @@
+package org.JustRun.CronScannerService.Repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a DynamoDB Scan split into Segment/TotalSegments on a bounded pool.
+ * Items are handed to the consumer page by page on the segment's worker thread, so a slow
+ * consumer throttles the scan and no more than one page per worker is held in memory.
+ * The consumer must therefore be thread-safe when more than one segment is used.
+ */
+@Component
+@Slf4j
+public class ParallelScanner {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ExecutorService executor;
+
+    public ParallelScanner(DynamoDbClient dynamoDbClient,
+                           @Value("${scanner.scan.max-parallelism:8}") int maxParallelism) {
+        this.dynamoDbClient = dynamoDbClient;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxParallelism), runnable -> {
+            Thread thread = new Thread(runnable, "parallel-scan-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Scans the whole table (or index) described by {@code request}, following LastEvaluatedKey
+     * in every segment. Returns the number of items handed to the consumer.
+     */
+    public long scan(ScanRequest request, int totalSegments, Consumer<Map<String, AttributeValue>> consumer) {
+        if (totalSegments <= 1) {
+            return scanSegment(request, consumer);
+        }
+
+        List<Integer> segments = new ArrayList<>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            segments.add(segment);
+        }
+        return scanSegments(request, totalSegments, segments, consumer);
+    }
+
+    /**
+     * Scans only the given segments out of {@code totalSegments}. Segment boundaries depend only on
+     * the key hash and the segment count, so a fixed count splits the table the same way every time.
+     */
+    public long scanSegments(ScanRequest request, int totalSegments, Collection<Integer> segments,
+                             Consumer<Map<String, AttributeValue>> consumer) {
+        List<Future<Long>> futures = new ArrayList<>(segments.size());
+        for (Integer segment : segments) {
+            ScanRequest segmentRequest = request.toBuilder()
+                    .segment(segment)
+                    .totalSegments(totalSegments)
+                    .build();
+            futures.add(executor.submit(() -> scanSegment(segmentRequest, consumer)));
+        }
+
+        long total = 0;
+        try {
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel scan of " + request.tableName() + " was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Parallel scan of " + request.tableName() + " failed", e.getCause());
+        }
+
+        log.info("Parallel scan of {} finished with {} of {} segment(s), {} item(s).",
+                request.tableName(), segments.size(), totalSegments, total);
+        return total;
+    }
+
+    private long scanSegment(ScanRequest request, Consumer<Map<String, AttributeValue>> consumer) {
+        long count = 0;
+        Map<String, AttributeValue> startKey = null;
+
+        do {
+            ScanRequest pageRequest = startKey == null
+                    ? request
+                    : request.toBuilder().exclusiveStartKey(startKey).build();
+
+            ScanResponse response = dynamoDbClient.scan(pageRequest);
+            for (Map<String, AttributeValue> item : response.items()) {
+                consumer.accept(item);
+                count++;
+            }
+
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey()
+                    : null;
+        } while (startKey != null && !Thread.currentThread().isInterrupted());
+
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
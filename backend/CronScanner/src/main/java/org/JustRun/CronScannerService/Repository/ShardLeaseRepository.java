@@ -0,0 +1,155 @@
+package org.JustRun.CronScannerService.Repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lease records for scanner shards. One table holds two kinds of items keyed by "leaseKey":
+ * "instance#<id>" membership heartbeats and "shard#<n>" ownership leases, both with an
+ * epoch-millis "expiresAt".
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ShardLeaseRepository {
+
+    private final DynamoDbClient dynamoDbClient;
+    private static final String TABLE_NAME = "scanner_shard_leases";
+    private static final String INSTANCE_PREFIX = "instance#";
+    private static final String SHARD_PREFIX = "shard#";
+
+    public void heartbeatInstance(String instanceId, long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("leaseKey", AttributeValue.builder().s(INSTANCE_PREFIX + instanceId).build());
+        item.put("owner", AttributeValue.builder().s(instanceId).build());
+        item.put("expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .item(item)
+                .build());
+    }
+
+    public void deleteInstance(String instanceId) {
+        dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(leaseKey(INSTANCE_PREFIX + instanceId))
+                .build());
+    }
+
+    public int countLiveInstances(long now) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":prefix", AttributeValue.builder().s(INSTANCE_PREFIX).build());
+        expressionValues.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+
+        ScanRequest request = ScanRequest.builder()
+                .tableName(TABLE_NAME)
+                .consistentRead(true)
+                .filterExpression("begins_with(leaseKey, :prefix) AND expiresAt > :now")
+                .projectionExpression("leaseKey")
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        int live = 0;
+        for (ScanResponse page : dynamoDbClient.scanPaginator(request)) {
+            live += page.count();
+        }
+        return live;
+    }
+
+    /**
+     * Takes the shard if nobody holds it or the holder's lease has run out.
+     */
+    public boolean tryAcquire(int shard, String instanceId, long now, long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("leaseKey", AttributeValue.builder().s(SHARD_PREFIX + shard).build());
+        item.put("owner", AttributeValue.builder().s(instanceId).build());
+        item.put("expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(leaseKey) OR expiresAt < :now OR #owner = :me")
+                    .expressionAttributeNames(Map.of("#owner", "owner"))
+                    .expressionAttributeValues(Map.of(
+                            ":now", AttributeValue.builder().n(Long.toString(now)).build(),
+                            ":me", AttributeValue.builder().s(instanceId).build()))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    public boolean renew(int shard, String instanceId, long expiresAt) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .key(leaseKey(SHARD_PREFIX + shard))
+                    .updateExpression("SET expiresAt = :expiresAt")
+                    .conditionExpression("#owner = :me")
+                    .expressionAttributeNames(Map.of("#owner", "owner"))
+                    .expressionAttributeValues(Map.of(
+                            ":expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build(),
+                            ":me", AttributeValue.builder().s(instanceId).build()))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Lease on shard {} was taken over by another instance.", shard);
+            return false;
+        }
+    }
+
+    public void release(int shard, String instanceId) {
+        try {
+            dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .key(leaseKey(SHARD_PREFIX + shard))
+                    .conditionExpression("#owner = :me")
+                    .expressionAttributeNames(Map.of("#owner", "owner"))
+                    .expressionAttributeValues(Map.of(":me", AttributeValue.builder().s(instanceId).build()))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Lease on shard {} was already held by another instance.", shard);
+        }
+    }
+
+    public Set<Integer> findFreeShards(int totalShards, long now) {
+        Set<Integer> free = new HashSet<>();
+        for (int shard = 0; shard < totalShards; shard++) {
+            free.add(shard);
+        }
+
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":prefix", AttributeValue.builder().s(SHARD_PREFIX).build());
+        expressionValues.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+
+        ScanRequest request = ScanRequest.builder()
+                .tableName(TABLE_NAME)
+                .consistentRead(true)
+                .filterExpression("begins_with(leaseKey, :prefix) AND expiresAt >= :now")
+                .projectionExpression("leaseKey")
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        for (ScanResponse page : dynamoDbClient.scanPaginator(request)) {
+            for (Map<String, AttributeValue> item : page.items()) {
+                free.remove(Integer.parseInt(item.get("leaseKey").s().substring(SHARD_PREFIX.length())));
+            }
+        }
+        return free;
+    }
+
+    private Map<String, AttributeValue> leaseKey(String key) {
+        return Map.of("leaseKey", AttributeValue.builder().s(key).build());
+    }
+}
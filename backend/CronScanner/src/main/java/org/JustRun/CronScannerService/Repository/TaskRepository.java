@@ -2,22 +2,30 @@ package org.JustRun.CronScannerService.Repository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.JustRun.CronScannerService.Model.ChainCondition;
+import org.JustRun.CronScannerService.Model.ChainExtraction;
+import org.JustRun.CronScannerService.Model.DueTaskRef;
+import org.JustRun.CronScannerService.Model.FireTimeSpread;
+import org.JustRun.CronScannerService.Model.MisfirePolicy;
 import org.JustRun.CronScannerService.Model.Task;
 import org.JustRun.CronScannerService.Model.TaskChain;
 import org.JustRun.CronScannerService.Model.TaskPriority;
-import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
-import org.springframework.scheduling.support.SimpleTriggerContext;
-
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Repository
 @RequiredArgsConstructor
@@ -25,79 +33,173 @@ import java.util.stream.Collectors;
 public class TaskRepository {
 
     private final DynamoDbClient dynamoDbClient;
+    // Present when aws.async.enabled
+    private final Optional<DynamoDbAsyncClient> dynamoDbAsyncClient;
+    private final ParallelScanner parallelScanner;
     private static final String TABLE_NAME = "tasks";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    // TaskManagementService writes this for tasks that have no schedule
+    private static final String UNSET_NEXT_EXECUTION_TIME = "2000-01-01T00:00:00";
+    private static final String DUE_TASK_PROJECTION = "#id, #cron, #spread, #misfire, #catchUp, #priority, #next, #last";
+    private static final Map<String, String> DUE_TASK_PROJECTION_NAMES = Map.of(
+            "#id", "id",
+            "#cron", "cronExpression",
+            "#spread", "spreadWindowSeconds",
+            "#misfire", "misfirePolicy",
+            "#catchUp", "misfireMaxCatchUp",
+            "#priority", "priority",
+            "#next", "nextExecutionTime",
+            "#last", "lastExecutedAt"
+    );
+
+    @Value("${scanner.scan.segments:1}")
+    private int scanSegments;
+
 
 
 
+    public List<DueTaskRef> findDueCronTasks() {
+        return findDueCronTasks(LocalDateTime.now().plusMinutes(1), null, 0);
+    }
 
-    public List<Task> findDueCronTasks() {
-        log.info("Starting the task scan for tasks due in the next minute...");
+    /**
+     * Finds tasks due between now and {@code horizon}, restricted to the given scan segments
+     * (virtual shards) when {@code shards} is not null.
+     */
+    public List<DueTaskRef> findDueCronTasks(LocalDateTime horizon, Set<Integer> shards, int totalShards) {
+        log.info("Starting the task scan for tasks due before {}...", horizon);
 
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime oneMinuteFromNow = now.plusMinutes(1);
 
-        // Scan for tasks where nextExecutionTime is in the next minute
+        // Scan for tasks where nextExecutionTime falls before the horizon
         Map<String, AttributeValue> expressionValues = new HashMap<>();
         expressionValues.put(":now", AttributeValue.builder().s(now.format(DATE_FORMATTER)).build());
-        expressionValues.put(":oneMinuteFromNow", AttributeValue.builder().s(oneMinuteFromNow.format(DATE_FORMATTER)).build());
-        log.info("Scanning with time range: {} to {}", now.format(DATE_FORMATTER), oneMinuteFromNow.format(DATE_FORMATTER));
+        expressionValues.put(":horizon", AttributeValue.builder().s(horizon.format(DATE_FORMATTER)).build());
+        log.info("Scanning with time range: {} to {}", now.format(DATE_FORMATTER), horizon.format(DATE_FORMATTER));
+
+        return scanDueTaskRefs("#next BETWEEN :now AND :horizon", expressionValues, shards, totalShards, task -> {
+            boolean isDue = isTaskDue(task, horizon);
+            if (isDue) {
+                log.info("Task with ID {} is due for execution.", task.getId());
+            } else {
+                log.info("Task with ID {} is not due yet.", task.getId());
+            }
+            return isDue;
+        });
+    }
+
+    /**
+     * Finds cron tasks whose nextExecutionTime already passed before {@code overdueBefore}, i.e.
+     * fires the regular due-task window can no longer see.
+     */
+    public List<DueTaskRef> findMisfiredCronTasks(LocalDateTime overdueBefore, Set<Integer> shards, int totalShards) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":unset", AttributeValue.builder().s(UNSET_NEXT_EXECUTION_TIME).build());
+        expressionValues.put(":overdueBefore", AttributeValue.builder().s(overdueBefore.format(DATE_FORMATTER)).build());
+
+        List<DueTaskRef> misfired = scanDueTaskRefs("#next > :unset AND #next < :overdueBefore", expressionValues,
+                shards, totalShards, task -> task.getCronExpression() != null && !task.getCronExpression().isEmpty());
+        log.info("Found {} misfired task(s) overdue before {}.", misfired.size(), overdueBefore);
+        return misfired;
+    }
 
+    /**
+     * Maps every task id to its owner, restricted to the given scan segments (virtual shards)
+     * when {@code shards} is not null.
+     */
+    public Map<String, String> findTaskOwners(Set<Integer> shards, int totalShards) {
         ScanRequest request = ScanRequest.builder()
                 .tableName(TABLE_NAME)
-                .filterExpression("nextExecutionTime BETWEEN :now AND :oneMinuteFromNow")
-                .expressionAttributeValues(expressionValues)
+                .projectionExpression("#id, #userId")
+                .expressionAttributeNames(Map.of("#id", "id", "#userId", "userId"))
                 .build();
 
-        ScanResponse response = dynamoDbClient.scan(request);
+        Map<String, String> owners = new ConcurrentHashMap<>();
+        Consumer<Map<String, AttributeValue>> collector = item -> {
+            if (item.containsKey("id") && item.containsKey("userId")) {
+                owners.put(item.get("id").s(), item.get("userId").s());
+            }
+        };
+        if (shards == null) {
+            parallelScanner.scan(request, scanSegments, collector);
+        } else {
+            parallelScanner.scanSegments(request, totalShards, shards, collector);
+        }
+        return owners;
+    }
 
-        log.info("Scan completed. Found {} task(s) in the next minute range.", response.items().size());
+    private List<DueTaskRef> scanDueTaskRefs(String filterExpression, Map<String, AttributeValue> expressionValues,
+                                             Set<Integer> shards, int totalShards, Predicate<DueTaskRef> filter) {
+        // Only the claim-decision attributes are read; bodies, headers and chains stay in DynamoDB
+        ScanRequest request = ScanRequest.builder()
+                .tableName(TABLE_NAME)
+                .filterExpression(filterExpression)
+                .projectionExpression(DUE_TASK_PROJECTION)
+                .expressionAttributeNames(DUE_TASK_PROJECTION_NAMES)
+                .expressionAttributeValues(expressionValues)
+                .build();
 
-        // Filter tasks by cron schedule and nextExecutionTime
-        return response.items().stream()
-                .map(this::mapToTask)
-                .filter(task -> {
-                    boolean isDue = isTaskDue(task);
-                    if (isDue) {
-                        log.info("Task with ID {} is due for execution.", task.getId());
-                    } else {
-                        log.info("Task with ID {} is not due yet.", task.getId());
-                    }
-                    return isDue;
-                })
-                .collect(Collectors.toList());
+        // Pages are followed to the end; with scanner.scan.segments > 1 the segments run in parallel
+        List<DueTaskRef> tasks = Collections.synchronizedList(new ArrayList<>());
+        Consumer<Map<String, AttributeValue>> collector = item -> {
+            DueTaskRef task = mapToDueTaskRef(item);
+            if (filter.test(task)) {
+                tasks.add(task);
+            }
+        };
+        long scanned = shards == null
+                ? parallelScanner.scan(request, scanSegments, collector)
+                : parallelScanner.scanSegments(request, totalShards, shards, collector);
+
+        log.info("Scan completed. Found {} task(s) in the scanned time range.", scanned);
+        return tasks;
     }
 
-    private boolean isTaskDue(Task task) {
+    private boolean isTaskDue(DueTaskRef task, LocalDateTime horizon) {
         log.info("Evaluating if task with ID {} is due for execution.", task.getId());
 
-        // If task has cronExpression, evaluate it
-        if (task.getCronExpression() != null && !task.getCronExpression().isEmpty()) {
-            log.info("Task with ID {} has a cron expression: {}", task.getId(), task.getCronExpression());
+        // The stored nextExecutionTime already includes the task's spread offset and is what the
+        // claim conditions on; the raw cron tick after now would skip fires whose tick has just passed
+        boolean isDue = task.getNextExecutionTime() != null && !task.getNextExecutionTime().isAfter(horizon);
+        log.info("Task with ID {} next execution time: {}. Is it due? {}", task.getId(), task.getNextExecutionTime(), isDue);
 
-            CronTrigger cronTrigger = new CronTrigger(task.getCronExpression());
-            Date nextCronExecutionDate = cronTrigger.nextExecutionTime(new org.springframework.scheduling.support.SimpleTriggerContext());
+        return isDue;
+    }
 
-            // Convert the Date to LocalDateTime
-            LocalDateTime nextCronExecution = nextCronExecutionDate.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDateTime();
+    private DueTaskRef mapToDueTaskRef(Map<String, AttributeValue> item) {
+        DueTaskRef.DueTaskRefBuilder builder = DueTaskRef.builder()
+                .id(item.get("id").s());
 
-            log.info("Task with ID {} next cron execution time: {}", task.getId(), nextCronExecution);
+        if (item.containsKey("cronExpression")) {
+            builder.cronExpression(item.get("cronExpression").s());
+        }
 
-            // If the next execution time of the cron task is less than or equal to the current time, it's due
-            return !nextCronExecution.isAfter(LocalDateTime.now().plusMinutes(1));
+        if (item.containsKey("spreadWindowSeconds")) {
+            builder.spreadWindowSeconds(Integer.parseInt(item.get("spreadWindowSeconds").n()));
         }
 
-        // For non-cron tasks, if the nextExecutionTime is in the next minute range, it's due
-        boolean isDue = task.getNextExecutionTime() != null && !task.getNextExecutionTime().isAfter(LocalDateTime.now().plusMinutes(1));
-        log.info("Task with ID {} next execution time: {}. Is it due? {}", task.getId(), task.getNextExecutionTime(), isDue);
+        if (item.containsKey("misfirePolicy")) {
+            builder.misfirePolicy(MisfirePolicy.valueOf(item.get("misfirePolicy").s()));
+        }
 
-        return isDue;
-    }
+        if (item.containsKey("misfireMaxCatchUp")) {
+            builder.misfireMaxCatchUp(Integer.parseInt(item.get("misfireMaxCatchUp").n()));
+        }
+
+        if (item.containsKey("priority")) {
+            builder.priority(TaskPriority.valueOf(item.get("priority").s()));
+        }
 
+        if (item.containsKey("nextExecutionTime")) {
+            builder.nextExecutionTime(LocalDateTime.parse(item.get("nextExecutionTime").s(), DATE_FORMATTER));
+        }
 
+        if (item.containsKey("lastExecutedAt")) {
+            builder.lastExecutedAt(LocalDateTime.parse(item.get("lastExecutedAt").s(), DATE_FORMATTER));
+        }
 
+        return builder.build();
+    }
 
     private Task mapToTask(Map<String, AttributeValue> item) {
         Task.TaskBuilder builder = Task.builder()
@@ -116,7 +218,10 @@ public class TaskRepository {
             builder.description(item.get("description").s());
         }
 
-        if (item.containsKey("body")) {
+        // Binary payloads are forwarded to the executor without being decoded here
+        if (item.containsKey("payload")) {
+            builder.payload(item.get("payload").b().asByteArray());
+        } else if (item.containsKey("body")) {
             Map<String, AttributeValue> bodyAttrMap = item.get("body").m();
             Map<String, Object> bodyMap = convertAttributeMap(bodyAttrMap);
             builder.body(bodyMap);
@@ -135,6 +240,10 @@ public class TaskRepository {
             builder.exponentialBackoff(item.get("exponentialBackoff").bool());
         }
 
+        if (item.containsKey("timeoutMs")) {
+            builder.timeoutMs(Integer.parseInt(item.get("timeoutMs").n()));
+        }
+
         if (item.containsKey("webhookUrl")) {
             builder.webhookUrl(item.get("webhookUrl").s());
         }
@@ -151,6 +260,18 @@ public class TaskRepository {
             builder.failureCount(Integer.parseInt(item.get("failureCount").n()));
         }
 
+        if (item.containsKey("spreadWindowSeconds")) {
+            builder.spreadWindowSeconds(Integer.parseInt(item.get("spreadWindowSeconds").n()));
+        }
+
+        if (item.containsKey("misfirePolicy")) {
+            builder.misfirePolicy(MisfirePolicy.valueOf(item.get("misfirePolicy").s()));
+        }
+
+        if (item.containsKey("misfireMaxCatchUp")) {
+            builder.misfireMaxCatchUp(Integer.parseInt(item.get("misfireMaxCatchUp").n()));
+        }
+
         // Extract headers
         if (item.containsKey("headers")) {
             Map<String, String> headers = new HashMap<>();
@@ -171,8 +292,11 @@ public class TaskRepository {
                 TaskChain chain = TaskChain.builder()
                         .id(chainMap.get("id").s())
                         .taskId(chainMap.get("taskId").s())
-                        .statusCode(Integer.parseInt(chainMap.get("statusCode").n()))
+                        .statusCode(chainMap.containsKey("statusCode") ? Integer.valueOf(chainMap.get("statusCode").n()) : null)
+                        .statusClass(chainMap.containsKey("statusClass") ? chainMap.get("statusClass").s() : null)
                         .nextTaskId(chainMap.get("nextTaskId").s())
+                        .conditions(mapToChainConditions(chainMap.get("conditions")))
+                        .extractions(mapToChainExtractions(chainMap.get("extractions")))
                         .build();
 
                 chains.add(chain);
@@ -223,68 +347,159 @@ public class TaskRepository {
         }
         return result;
     }
-    public boolean claimDueTask(Task task, LocalDateTime expectedNextExecutionTime) {
-        try {
-            String cron = task.getCronExpression();
-            if (cron == null || cron.isEmpty()) {
-                log.warn("Task {} has no cron expression.", task.getId());
-                return false;
-            }
+    /**
+     * Conditionally moves the task's nextExecutionTime forward. On success the full task item is
+     * returned from the same UpdateItem call, so no extra read is needed for the enqueue.
+     */
+    public Optional<Task> claimDueTask(DueTaskRef task, LocalDateTime expectedNextExecutionTime) {
+        LocalDateTime newNextExecutionTime = nextExecutionTimeAfterClaim(task, expectedNextExecutionTime);
+        if (newNextExecutionTime == null) {
+            return Optional.empty();
+        }
+        return claimWithNextExecutionTime(task, expectedNextExecutionTime, newNextExecutionTime);
+    }
 
-            LocalDateTime baseTime = task.getLastExecutedAt() != null
-                    ? task.getLastExecutedAt()
-                    : LocalDateTime.now();
+    /**
+     * Whether {@link #claimDueTaskAsync} claims without blocking (aws.async.enabled).
+     */
+    public boolean claimsAsync() {
+        return dynamoDbAsyncClient.isPresent();
+    }
 
-            CronTrigger cronTrigger = new CronTrigger(cron);
-            Date baseExecution = Date.from(baseTime.atZone(ZoneId.systemDefault()).toInstant());
+    /**
+     * {@link #claimDueTask} on the async client when there is one; otherwise claims on the calling thread.
+     */
+    public CompletableFuture<Optional<Task>> claimDueTaskAsync(DueTaskRef task, LocalDateTime expectedNextExecutionTime) {
+        if (dynamoDbAsyncClient.isEmpty()) {
+            return CompletableFuture.completedFuture(claimDueTask(task, expectedNextExecutionTime));
+        }
 
-            SimpleTriggerContext triggerContext = new SimpleTriggerContext();
-            triggerContext.update(baseExecution, baseExecution, baseExecution);
-            Date nextExecutionDate = cronTrigger.nextExecutionTime(triggerContext);
+        LocalDateTime newNextExecutionTime = nextExecutionTimeAfterClaim(task, expectedNextExecutionTime);
+        if (newNextExecutionTime == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return dynamoDbAsyncClient.get()
+                .updateItem(claimRequest(task, expectedNextExecutionTime, newNextExecutionTime))
+                .handle((response, e) -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof ConditionalCheckFailedException) {
+                        log.info("Task {} already claimed by another instance.", task.getId());
+                        return Optional.empty();
+                    } else if (cause != null) {
+                        throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+                    }
+                    log.info("Claimed task {}. Updated nextExecutionTime to {}", task.getId(), newNextExecutionTime);
+                    return Optional.of(mapToTask(response.attributes()));
+                });
+    }
 
-            if (nextExecutionDate == null) {
-                log.warn("Failed to compute nextExecutionTime for task {}", task.getId());
-                return false;
-            }
+    /**
+     * Claims the task and moves its nextExecutionTime to the given time, if nextExecutionTime still
+     * equals {@code expectedNextExecutionTime}.
+     */
+    public Optional<Task> claimWithNextExecutionTime(DueTaskRef task, LocalDateTime expectedNextExecutionTime,
+                                                     LocalDateTime newNextExecutionTime) {
+        try {
+            UpdateItemResponse response = dynamoDbClient.updateItem(
+                    claimRequest(task, expectedNextExecutionTime, newNextExecutionTime));
 
-            LocalDateTime newNextExecutionTime = nextExecutionDate.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDateTime();
+            log.info("Claimed task {}. Updated nextExecutionTime to {}", task.getId(), newNextExecutionTime);
+            return Optional.of(mapToTask(response.attributes()));
 
-            Map<String, AttributeValue> key = Map.of(
-                    "id", AttributeValue.builder().s(task.getId()).build()
-            );
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Task {} already claimed by another instance.", task.getId());
+            return Optional.empty();
+        }
+    }
 
-            Map<String, AttributeValue> expressionValues = new HashMap<>();
-            expressionValues.put(":newTime", AttributeValue.builder().s(newNextExecutionTime.format(DATE_FORMATTER)).build());
-            expressionValues.put(":lastExecutedAt", AttributeValue.builder().s(LocalDateTime.now().format(DATE_FORMATTER)).build());
+    // The fire after the claimed one, or null when the task has no usable cron expression
+    private LocalDateTime nextExecutionTimeAfterClaim(DueTaskRef task, LocalDateTime expectedNextExecutionTime) {
+        String cron = task.getCronExpression();
+        if (cron == null || cron.isEmpty()) {
+            log.warn("Task {} has no cron expression.", task.getId());
+            return null;
+        }
 
-            UpdateItemRequest.Builder updateBuilder = UpdateItemRequest.builder()
-                    .tableName(TABLE_NAME)
-                    .key(key)
-                    .updateExpression("SET nextExecutionTime = :newTime, lastExecutedAt = :lastExecutedAt");
+        LocalDateTime baseTime = task.getLastExecutedAt() != null
+                ? task.getLastExecutedAt()
+                : LocalDateTime.now();
+        // A run claimed ahead of its fire time must not be scheduled again for that same time
+        if (expectedNextExecutionTime != null && expectedNextExecutionTime.isAfter(baseTime)) {
+            baseTime = expectedNextExecutionTime;
+        }
 
-            if (expectedNextExecutionTime != null) {
-                expressionValues.put(":expectedTime", AttributeValue.builder().s(expectedNextExecutionTime.format(DATE_FORMATTER)).build());
-                updateBuilder.conditionExpression("nextExecutionTime = :expectedTime");
-            } else {
-                // First time, task has no nextExecutionTime set
-                updateBuilder.conditionExpression("attribute_not_exists(nextExecutionTime)");
-            }
+        LocalDateTime nextExecution = CronExpression.parse(cron).next(baseTime);
+        if (nextExecution == null) {
+            log.warn("Failed to compute nextExecutionTime for task {}", task.getId());
+            return null;
+        }
 
-            updateBuilder.expressionAttributeValues(expressionValues);
-            dynamoDbClient.updateItem(updateBuilder.build());
+        return nextExecution.plusSeconds(FireTimeSpread.offsetSeconds(task.getId(), task.getSpreadWindowSeconds()));
+    }
 
-            log.info("Claimed task {}. Updated nextExecutionTime to {}", task.getId(), newNextExecutionTime);
-            return true;
+    private static UpdateItemRequest claimRequest(DueTaskRef task, LocalDateTime expectedNextExecutionTime,
+                                                  LocalDateTime newNextExecutionTime) {
+        Map<String, AttributeValue> key = Map.of(
+                "id", AttributeValue.builder().s(task.getId()).build()
+        );
 
-        } catch (ConditionalCheckFailedException e) {
-            log.info("Task {} already claimed by another instance.", task.getId());
-            return false;
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":newTime", AttributeValue.builder().s(newNextExecutionTime.format(DATE_FORMATTER)).build());
+        expressionValues.put(":lastExecutedAt", AttributeValue.builder().s(LocalDateTime.now().format(DATE_FORMATTER)).build());
+
+        UpdateItemRequest.Builder updateBuilder = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(key)
+                .updateExpression("SET nextExecutionTime = :newTime, lastExecutedAt = :lastExecutedAt")
+                .returnValues(ReturnValue.ALL_NEW);
+
+        if (expectedNextExecutionTime != null) {
+            expressionValues.put(":expectedTime", AttributeValue.builder().s(expectedNextExecutionTime.format(DATE_FORMATTER)).build());
+            updateBuilder.conditionExpression("nextExecutionTime = :expectedTime");
+        } else {
+            // First time, task has no nextExecutionTime set
+            updateBuilder.conditionExpression("attribute_not_exists(nextExecutionTime)");
         }
-    }
 
+        return updateBuilder.expressionAttributeValues(expressionValues).build();
+    }
 
+    private List<ChainCondition> mapToChainConditions(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        List<ChainCondition> conditions = new ArrayList<>();
+        for (AttributeValue conditionValue : value.l()) {
+            Map<String, AttributeValue> conditionMap = conditionValue.m();
+            conditions.add(ChainCondition.builder()
+                    .source(stringOf(conditionMap, "source"))
+                    .path(stringOf(conditionMap, "path"))
+                    .operator(stringOf(conditionMap, "operator"))
+                    .value(stringOf(conditionMap, "value"))
+                    .build());
+        }
+        return conditions;
+    }
 
+    private List<ChainExtraction> mapToChainExtractions(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        List<ChainExtraction> extractions = new ArrayList<>();
+        for (AttributeValue extractionValue : value.l()) {
+            Map<String, AttributeValue> extractionMap = extractionValue.m();
+            extractions.add(ChainExtraction.builder()
+                    .source(stringOf(extractionMap, "source"))
+                    .path(stringOf(extractionMap, "path"))
+                    .into(stringOf(extractionMap, "into"))
+                    .name(stringOf(extractionMap, "name"))
+                    .build());
+        }
+        return extractions;
+    }
 
+    private static String stringOf(Map<String, AttributeValue> map, String key) {
+        AttributeValue value = map.get(key);
+        return value != null ? value.s() : null;
+    }
 }
@@ -2,17 +2,27 @@ package org.JustRun.CronScannerService.Service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.JustRun.CronScannerService.Model.DueTaskRef;
+import org.JustRun.CronScannerService.Model.FireInstance;
 import org.JustRun.CronScannerService.Model.Task;
 import org.JustRun.CronScannerService.Repository.TaskRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 @Service
 @RequiredArgsConstructor
@@ -22,17 +32,43 @@ public class CronScannerService {
     private final TaskRepository taskRepository;
     private final QueueService queueService;
     private final PostHogService postHogService;
+    private final ShardLeaseService shardLeaseService;
+    private final ReleasePacer releasePacer;
 
 
+    // Lookahead mode: claim tasks due within this many seconds and deliver them at their fire time
+    @Value("${scanner.lookahead.seconds:0}")
+    private int lookaheadSeconds;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Due tasks claimed and enqueued at once when running on virtual threads or the async clients
+    @Value("${scanner.claim.max-concurrency:32}")
+    private int claimConcurrency;
+
     //    @Scheduled(cron = "0 * * * * ?")  // Executes every minute
-    @Scheduled(fixedRate = 2*30000)
+    @Scheduled(fixedRateString = "${scanner.scan.interval-ms:60000}")
     public void scanAndEnqueueDueTasks() {
         log.info("Starting to scan for due tasks...");
         Map<String, Object> properties = new HashMap<>();
         properties.put("action", "DB check");
         properties.put("service", "CronScannerService");
         postHogService.trackEvent("CronScannerService", "DB Checked", properties);
-        List<Task> dueTasks = taskRepository.findDueCronTasks();
+        LocalDateTime horizon = lookaheadSeconds > 0
+                ? LocalDateTime.now().plusSeconds(lookaheadSeconds)
+                : LocalDateTime.now().plusMinutes(1);
+        List<DueTaskRef> dueTasks;
+        if (shardLeaseService.isEnabled()) {
+            Set<Integer> shards = shardLeaseService.getOwnedShards();
+            if (shards.isEmpty()) {
+                log.info("No shard leases held by this instance, skipping scan.");
+                return;
+            }
+            dueTasks = taskRepository.findDueCronTasks(horizon, shards, shardLeaseService.getVirtualShards());
+        } else {
+            dueTasks = taskRepository.findDueCronTasks(horizon, null, 0);
+        }
 
         if (dueTasks.isEmpty()) {
             log.info("No tasks are due for execution.");
@@ -40,29 +76,107 @@ public class CronScannerService {
             log.info("Found {} due task(s).", dueTasks.size());
 
             // Enqueue each due task to the queue
-            for (Task task : dueTasks) {
-                log.info("Trying to claim task: {}", task.getId());
-
-                LocalDateTime oldNextTime = task.getNextExecutionTime();
-
-                boolean claimed = taskRepository.claimDueTask(task, oldNextTime);
+            if (taskRepository.claimsAsync() && dueTasks.size() > 1) {
+                claimAndEnqueueAsync(dueTasks);
+            } else if (virtualThreads && dueTasks.size() > 1) {
+                claimAndEnqueueConcurrently(dueTasks);
+            } else {
+                for (DueTaskRef dueTask : dueTasks) {
+                    claimAndEnqueue(dueTask);
+                }
+            }
+        }
+    }
 
-                if(claimed) {
-                    Map<String, Object> taskProperties = new HashMap<>();
-                    taskProperties.put("taskId", task.getId());
-                    taskProperties.put("taskName", task.getName());
-                    taskProperties.put("priority", task.getPriority().name());
-                    taskProperties.put("cron", task.getCronExpression());
+    // Each claim and enqueue waits on its own round trips; on virtual threads they overlap instead of adding up
+    private void claimAndEnqueueConcurrently(List<DueTaskRef> dueTasks) {
+        Semaphore permits = new Semaphore(Math.max(1, claimConcurrency));
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("scan-claim-", 0).factory())) {
+            for (DueTaskRef dueTask : dueTasks) {
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        claimAndEnqueue(dueTask);
+                    } catch (Exception e) {
+                        log.error("Error claiming task {}: {}", dueTask.getId(), e.getMessage(), e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
 
-                    // Track event for each task being claimed
-                    postHogService.trackEvent(task.getId(), "task_claimed", taskProperties);
-                    System.out.println("[Analytics] Event 'task_claimed' sent to PostHog successfully.");
+    // Claims and sends are issued without a thread each; tracking and pacing stay on the scan thread, in scan order
+    private void claimAndEnqueueAsync(List<DueTaskRef> dueTasks) {
+        Semaphore permits = new Semaphore(Math.max(1, claimConcurrency));
+        List<CompletableFuture<Optional<Task>>> claims = new ArrayList<>(dueTasks.size());
+        for (DueTaskRef dueTask : dueTasks) {
+            permits.acquireUninterruptibly();
+            log.info("Trying to claim task: {}", dueTask.getId());
+            claims.add(taskRepository.claimDueTaskAsync(dueTask, dueTask.getNextExecutionTime())
+                    .whenComplete((claimed, e) -> permits.release()));
+        }
 
+        List<QueueService.PendingEnqueue> sends = new ArrayList<>();
+        for (int i = 0; i < dueTasks.size(); i++) {
+            DueTaskRef dueTask = dueTasks.get(i);
+            try {
+                Optional<Task> claimed = claims.get(i).join();
+                if (claimed.isPresent()) {
+                    Task task = prepareClaimed(claimed.get(), dueTask.getNextExecutionTime());
+                    releasePacer.acquire();
                     log.info("calling queueservice for task: {}", task.getId());
-                    queueService.enqueueTask(task);
+                    sends.add(queueService.enqueueTaskAsync(task));
                 }
+            } catch (Exception e) {
+                log.error("Error claiming task {}: {}", dueTask.getId(), e.getMessage(), e);
             }
         }
+
+        for (QueueService.PendingEnqueue send : sends) {
+            try {
+                queueService.awaitEnqueued(send);
+            } catch (Exception e) {
+                log.error("Error enqueuing task {}: {}", send.task().getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void claimAndEnqueue(DueTaskRef dueTask) {
+        log.info("Trying to claim task: {}", dueTask.getId());
+
+        LocalDateTime oldNextTime = dueTask.getNextExecutionTime();
+
+        Optional<Task> claimed = taskRepository.claimDueTask(dueTask, oldNextTime);
+
+        if(claimed.isPresent()) {
+            Task task = prepareClaimed(claimed.get(), oldNextTime);
+
+            releasePacer.acquire();
+            log.info("calling queueservice for task: {}", task.getId());
+            queueService.enqueueTask(task);
+        }
+    }
+
+    // Tracks the claim and stamps the task with its fire instance
+    private Task prepareClaimed(Task task, LocalDateTime oldNextTime) {
+        Map<String, Object> taskProperties = new HashMap<>();
+        taskProperties.put("taskId", task.getId());
+        taskProperties.put("taskName", task.getName());
+        taskProperties.put("priority", task.getPriority().name());
+        taskProperties.put("cron", task.getCronExpression());
+
+        // Track event for each task being claimed
+        postHogService.trackEvent(task.getId(), "task_claimed", taskProperties);
+        System.out.println("[Analytics] Event 'task_claimed' sent to PostHog successfully.");
+
+        if (lookaheadSeconds > 0) {
+            task.setScheduledFireTime(oldNextTime);
+        }
+        task.setFireInstanceId(FireInstance.idFor(task.getId(), oldNextTime != null ? oldNextTime : LocalDateTime.now()));
+        return task;
     }
 
 }
@@ -0,0 +1,200 @@
+package org.JustRun.CronScannerService.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.CronScannerService.Model.ExecutionRecord;
+import org.JustRun.CronScannerService.Model.ExecutionRollup;
+import org.JustRun.CronScannerService.Repository.ExecutionRollupRepository;
+import org.JustRun.CronScannerService.Repository.TaskRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compacts raw executions into hourly and daily aggregates before their TTL removes them.
+ * Each pass re-aggregates the last scanner.rollup.lookback-hours settled hours of every task
+ * this instance owns (all tasks when sharding is off), so passes are idempotent and a missed
+ * pass or a shard handover is made up by the next one. A day's rollup is built from its
+ * hourly rollups once its last hour has been rolled up.
+ */
+@Service
+@Slf4j
+public class ExecutionRollupService {
+
+    private static final String SUCCESS_STATUS = "COMPLETED";
+    private static final Set<String> UNFINISHED_STATUSES = Set.of("RUNNING", "PENDING");
+
+    private final TaskRepository taskRepository;
+    private final ExecutionRollupRepository rollupRepository;
+    private final ShardLeaseService shardLeaseService;
+
+    @Value("${scanner.rollup.enabled:true}")
+    private boolean enabled;
+
+    // Executions still running when their hour ends are given this long to finish
+    @Value("${scanner.rollup.settle-minutes:15}")
+    private long settleMinutes;
+
+    @Value("${scanner.rollup.lookback-hours:3}")
+    private long lookbackHours;
+
+    @Value("${scanner.rollup.hourly-retention-days:90}")
+    private long hourlyRetentionDays;
+
+    @Value("${scanner.rollup.daily-retention-days:730}")
+    private long dailyRetentionDays;
+
+    public ExecutionRollupService(TaskRepository taskRepository,
+                                  ExecutionRollupRepository rollupRepository,
+                                  ShardLeaseService shardLeaseService) {
+        this.taskRepository = taskRepository;
+        this.rollupRepository = rollupRepository;
+        this.shardLeaseService = shardLeaseService;
+    }
+
+    @Scheduled(fixedDelayString = "${scanner.rollup.interval-ms:3600000}",
+            initialDelayString = "${scanner.rollup.initial-delay-ms:60000}")
+    public void rollUpExecutions() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime until = LocalDateTime.now().minusMinutes(settleMinutes).truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime from = until.minusHours(Math.max(1, lookbackHours));
+
+            Map<String, String> owners;
+            if (shardLeaseService.isEnabled()) {
+                Set<Integer> shards = shardLeaseService.getOwnedShards();
+                if (shards.isEmpty()) {
+                    return;
+                }
+                owners = taskRepository.findTaskOwners(shards, shardLeaseService.getVirtualShards());
+            } else {
+                owners = taskRepository.findTaskOwners(null, 0);
+            }
+
+            // Days whose last hour falls in this pass are complete
+            List<LocalDate> completedDays = new ArrayList<>();
+            for (LocalDateTime hour = from; hour.isBefore(until); hour = hour.plusHours(1)) {
+                if (hour.getHour() == 23) {
+                    completedDays.add(hour.toLocalDate());
+                }
+            }
+
+            int hourly = 0;
+            int daily = 0;
+            for (Map.Entry<String, String> owner : owners.entrySet()) {
+                try {
+                    hourly += rollUpHours(owner.getKey(), owner.getValue(), from, until);
+                    for (LocalDate day : completedDays) {
+                        daily += rollUpDay(owner.getKey(), owner.getValue(), day);
+                    }
+                } catch (Exception e) {
+                    log.warn("Execution rollup failed for task {}: {}", owner.getKey(), e.getMessage());
+                }
+            }
+            log.info("Rolled up executions of {} task(s) for {} to {}: {} hourly and {} daily rollup(s) written.",
+                    owners.size(), from, until, hourly, daily);
+        } catch (Exception e) {
+            log.error("Execution rollup pass failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private int rollUpHours(String taskId, String userId, LocalDateTime from, LocalDateTime until) {
+        Map<LocalDateTime, Accumulator> hours = new TreeMap<>();
+        for (ExecutionRecord execution : rollupRepository.findExecutions(taskId, from, until)) {
+            if (UNFINISHED_STATUSES.contains(execution.getStatus())) {
+                continue;
+            }
+            hours.computeIfAbsent(execution.getExecutionTime().truncatedTo(ChronoUnit.HOURS), hour -> new Accumulator())
+                    .add(execution);
+        }
+
+        hours.forEach((hour, accumulator) -> rollupRepository.save(accumulator.toRollup(taskId, userId,
+                ExecutionRollup.Granularity.HOUR, hour, expiresAt(hour, hourlyRetentionDays))));
+        return hours.size();
+    }
+
+    private int rollUpDay(String taskId, String userId, LocalDate day) {
+        List<ExecutionRollup> hours = rollupRepository.findHourlyRollups(taskId, day);
+        if (hours.isEmpty()) {
+            return 0;
+        }
+
+        Accumulator accumulator = new Accumulator();
+        hours.forEach(accumulator::merge);
+        LocalDateTime dayStart = day.atStartOfDay();
+        rollupRepository.save(accumulator.toRollup(taskId, userId, ExecutionRollup.Granularity.DAY, dayStart,
+                expiresAt(dayStart, dailyRetentionDays)));
+        return 1;
+    }
+
+    private static Long expiresAt(LocalDateTime bucketStart, long retentionDays) {
+        if (retentionDays <= 0) {
+            return null;
+        }
+        return bucketStart.plusDays(retentionDays).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static final class Accumulator {
+        private long count;
+        private long successes;
+        private final Map<String, Long> statusCodes = new HashMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void add(ExecutionRecord execution) {
+            count++;
+            if (SUCCESS_STATUS.equals(execution.getStatus())) {
+                successes++;
+            }
+            if (execution.getStatusCode() != null) {
+                statusCodes.merge(execution.getStatusCode().toString(), 1L, Long::sum);
+            }
+            if (execution.getDurationMs() != null) {
+                latency.record(execution.getDurationMs());
+            }
+        }
+
+        void merge(ExecutionRollup rollup) {
+            count += rollup.getExecutionCount();
+            successes += rollup.getSuccessCount();
+            if (rollup.getStatusCodes() != null) {
+                rollup.getStatusCodes().forEach((code, executions) -> statusCodes.merge(code, executions, Long::sum));
+            }
+            latency.merge(rollup.getLatencyHistogram(), rollup.getLatencyMaxMs());
+        }
+
+        ExecutionRollup toRollup(String taskId, String userId, ExecutionRollup.Granularity granularity,
+                                 LocalDateTime bucketStart, Long expiresAt) {
+            ExecutionRollup.ExecutionRollupBuilder rollup = ExecutionRollup.builder()
+                    .taskId(taskId)
+                    .userId(userId)
+                    .granularity(granularity)
+                    .bucketStart(bucketStart)
+                    .executionCount(count)
+                    .successCount(successes)
+                    .failureCount(count - successes)
+                    .statusCodes(statusCodes)
+                    .expiresAt(expiresAt);
+            if (!latency.isEmpty()) {
+                rollup.latencyP50Ms(latency.percentile(50))
+                        .latencyP90Ms(latency.percentile(90))
+                        .latencyP99Ms(latency.percentile(99))
+                        .latencyMaxMs(latency.max())
+                        .latencyHistogram(latency.toMap());
+            }
+            return rollup.build();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.JustRun.CronScannerService.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-bucket latency histogram. Buckets add up, so hourly histograms merge into an exact
+ * daily one; percentiles are interpolated within the bucket they fall in.
+ */
+final class LatencyHistogram {
+
+    static final long[] BOUNDS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+    static final String OVERFLOW = "inf";
+
+    private final long[] counts = new long[BOUNDS_MS.length + 1];
+    private long total;
+    private long max;
+
+    void record(long latencyMs) {
+        int bucket = 0;
+        while (bucket < BOUNDS_MS.length && latencyMs > BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        total++;
+        max = Math.max(max, latencyMs);
+    }
+
+    void merge(Map<String, Long> buckets, Long bucketsMax) {
+        if (buckets == null) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            Long count = buckets.get(label(i));
+            if (count != null) {
+                counts[i] += count;
+                total += count;
+            }
+        }
+        if (bucketsMax != null) {
+            max = Math.max(max, bucketsMax);
+        }
+    }
+
+    boolean isEmpty() {
+        return total == 0;
+    }
+
+    long max() {
+        return max;
+    }
+
+    Long percentile(double percentile) {
+        if (total == 0) {
+            return null;
+        }
+        double rank = percentile / 100.0 * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (seen + counts[i] >= rank) {
+                long lower = i == 0 ? 0 : BOUNDS_MS[i - 1];
+                long upper = i < BOUNDS_MS.length ? Math.min(BOUNDS_MS[i], max) : max;
+                double within = (rank - seen) / counts[i];
+                return Math.round(lower + (Math.max(upper, lower) - lower) * within);
+            }
+            seen += counts[i];
+        }
+        return max;
+    }
+
+    Map<String, Long> toMap() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buckets.put(label(i), counts[i]);
+            }
+        }
+        return buckets;
+    }
+
+    private static String label(int bucket) {
+        return bucket < BOUNDS_MS.length ? Long.toString(BOUNDS_MS[bucket]) : OVERFLOW;
+    }
+}
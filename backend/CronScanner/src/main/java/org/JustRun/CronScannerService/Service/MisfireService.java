@@ -0,0 +1,154 @@
+package org.JustRun.CronScannerService.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.CronScannerService.Model.DueTaskRef;
+import org.JustRun.CronScannerService.Model.FireInstance;
+import org.JustRun.CronScannerService.Model.FireTimeSpread;
+import org.JustRun.CronScannerService.Model.MisfirePolicy;
+import org.JustRun.CronScannerService.Model.Task;
+import org.JustRun.CronScannerService.Repository.TaskRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Picks up cron tasks whose nextExecutionTime slipped into the past (scanner down or behind),
+ * applies each task's misfire policy and moves the task back onto its schedule.
+ * Catch-up runs are released at scanner.misfire.max-per-second so a backlog drains gradually.
+ */
+@Service
+@Slf4j
+public class MisfireService {
+
+    private final TaskRepository taskRepository;
+    private final QueueService queueService;
+    private final PostHogService postHogService;
+    private final ShardLeaseService shardLeaseService;
+    private final ReleasePacer catchUpPacer;
+
+    @Value("${scanner.misfire.enabled:false}")
+    private boolean enabled;
+
+    // Only tasks this far past their fire time count as misfired, so the regular scan is not raced
+    @Value("${scanner.misfire.grace-seconds:120}")
+    private long graceSeconds;
+
+    @Value("${scanner.misfire.default-max-catch-up:10}")
+    private int defaultMaxCatchUp;
+
+    @Value("${scanner.misfire.batch-size:500}")
+    private int batchSize;
+
+    public MisfireService(TaskRepository taskRepository,
+                          QueueService queueService,
+                          PostHogService postHogService,
+                          ShardLeaseService shardLeaseService,
+                          @Value("${scanner.misfire.max-per-second:10}") double maxPerSecond) {
+        this.taskRepository = taskRepository;
+        this.queueService = queueService;
+        this.postHogService = postHogService;
+        this.shardLeaseService = shardLeaseService;
+        this.catchUpPacer = new ReleasePacer(maxPerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${scanner.misfire.interval-ms:60000}")
+    public void recoverMisfiredTasks() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<DueTaskRef> misfired;
+            if (shardLeaseService.isEnabled()) {
+                Set<Integer> shards = shardLeaseService.getOwnedShards();
+                if (shards.isEmpty()) {
+                    return;
+                }
+                misfired = taskRepository.findMisfiredCronTasks(now.minusSeconds(graceSeconds), shards, shardLeaseService.getVirtualShards());
+            } else {
+                misfired = taskRepository.findMisfiredCronTasks(now.minusSeconds(graceSeconds), null, 0);
+            }
+
+            int recovered = 0;
+            for (DueTaskRef task : misfired) {
+                if (recovered >= batchSize) {
+                    log.info("Misfire batch limit {} reached; remaining tasks are picked up next pass.", batchSize);
+                    break;
+                }
+                if (recover(task, LocalDateTime.now())) {
+                    recovered++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Misfire recovery pass failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean recover(DueTaskRef ref, LocalDateTime now) {
+        CronExpression cron;
+        try {
+            cron = CronExpression.parse(ref.getCronExpression());
+        } catch (IllegalArgumentException e) {
+            log.warn("Task {} has an invalid cron expression '{}', skipping misfire recovery.", ref.getId(), ref.getCronExpression());
+            return false;
+        }
+
+        MisfirePolicy policy = ref.getMisfirePolicy() != null ? ref.getMisfirePolicy() : MisfirePolicy.FIRE_ONCE;
+        int maxCatchUp = ref.getMisfireMaxCatchUp() != null ? ref.getMisfireMaxCatchUp() : defaultMaxCatchUp;
+
+        // Missed fires: the stored time plus every cron time after it up to now
+        List<LocalDateTime> missed = new ArrayList<>();
+        missed.add(ref.getNextExecutionTime());
+        int limit = policy == MisfirePolicy.FIRE_ALL ? Math.max(1, maxCatchUp) : 1;
+        LocalDateTime cursor = cron.next(ref.getNextExecutionTime());
+        while (cursor != null && !cursor.isAfter(now) && missed.size() < limit) {
+            missed.add(cursor);
+            cursor = cron.next(cursor);
+        }
+
+        LocalDateTime resumeAt = cron.next(now);
+        if (resumeAt == null) {
+            log.warn("Task {} has no future fire time, leaving it as is.", ref.getId());
+            return false;
+        }
+        resumeAt = resumeAt.plusSeconds(FireTimeSpread.offsetSeconds(ref.getId(), ref.getSpreadWindowSeconds()));
+
+        Optional<Task> claimed = taskRepository.claimWithNextExecutionTime(ref, ref.getNextExecutionTime(), resumeAt);
+        if (claimed.isEmpty()) {
+            return false;
+        }
+
+        Task task = claimed.get();
+        int fired = 0;
+        if (policy != MisfirePolicy.SKIP) {
+            for (LocalDateTime fireTime : missed) {
+                catchUpPacer.acquire();
+                task.setScheduledFireTime(fireTime);
+                task.setFireInstanceId(FireInstance.idFor(task.getId(), fireTime));
+                queueService.enqueueTask(task);
+                fired++;
+            }
+        }
+
+        log.info("Recovered misfired task {} with policy {}: {} catch-up run(s), resuming at {}",
+                ref.getId(), policy, fired, resumeAt);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("taskId", ref.getId());
+        properties.put("policy", policy.name());
+        properties.put("missedSince", ref.getNextExecutionTime().toString());
+        properties.put("catchUpRuns", fired);
+        postHogService.trackEvent(ref.getId(), "task_misfire_recovered", properties);
+        return true;
+    }
+}
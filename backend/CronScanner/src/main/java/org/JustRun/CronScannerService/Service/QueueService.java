@@ -7,23 +7,29 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.JustRun.CronScannerService.Model.Task;
 import org.JustRun.CronScannerService.Model.TaskPriority;
+import org.JustRun.CronScannerService.Queue.QueueMessage;
+import org.JustRun.CronScannerService.Queue.TaskQueue;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class QueueService {
 
-    private final SqsClient sqsClient;
+    private final TaskQueue taskQueue;
     private final ObjectMapper objectMapper;
     private final PostHogService postHogService;
+    private static final long MAX_DELAY_SECONDS = 900;
 
     @Value("${aws.sqs.high-priority-queue}")
     private String highPriorityQueueUrl;
@@ -35,46 +41,77 @@ public class QueueService {
     private String lowPriorityQueueUrl;
 
     public void enqueueTask(Task task) {
+        awaitEnqueued(enqueueTaskAsync(task));
+    }
+
+    /**
+     * Starts sending the task without waiting for it when the queue has a non-blocking client;
+     * {@link #awaitEnqueued} finishes the enqueue. Serialization errors are thrown right away.
+     */
+    public PendingEnqueue enqueueTaskAsync(Task task) {
         log.info("Enqueuing task with ID: {} and priority: {}", task.getId(), task.getPriority());
 
+        String queueUrl = getQueueUrlForPriority(task.getPriority());
+        log.debug("Determined SQS queue URL: {}", queueUrl);
         try {
-            String queueUrl = getQueueUrlForPriority(task.getPriority());
-            log.debug("Determined SQS queue URL: {}", queueUrl);
-
             String messageBody = objectMapper.writeValueAsString(task);
             log.debug("Serialized task to JSON: {}", messageBody);
-            String deduplicationId = task.getId() + "-" + System.currentTimeMillis();
-
-            SendMessageRequest sendMessageRequest = SendMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .messageBody(messageBody)
-                    .messageGroupId(task.getId())
-                    .messageDeduplicationId(deduplicationId)
+            // Same run, same id: lets FIFO deduplication drop re-sends of one fire
+            String deduplicationId = task.getFireInstanceId() != null
+                    ? deduplicationIdFor(task.getFireInstanceId())
+                    : task.getId() + "-" + System.currentTimeMillis();
+
+            QueueMessage message = QueueMessage.builder()
+                    .body(messageBody)
+                    .groupId(task.getId())
+                    .deduplicationId(deduplicationId)
                     .build();
 
-            SendMessageResponse response = sqsClient.sendMessage(sendMessageRequest);
-
-            log.info("Task [{}] successfully sent to SQS queue [{}]. Message ID: {}, HTTP Status: {}",
-                    task.getId(), queueUrl, response.messageId(), response.sdkHttpResponse().statusCode());
-            Map<String, Object> taskProperties = new HashMap<>();
-            taskProperties.put("taskId", task.getId());
-            taskProperties.put("taskName", task.getName());
-            taskProperties.put("priority", task.getPriority().name());
-            taskProperties.put("queue", queueUrl);
-
-            postHogService.trackEvent(task.getId(), "task_enqueued", taskProperties);
+            // Delayed until the fire time where the transport supports it; otherwise the executor holds the task
+            if (task.getScheduledFireTime() != null) {
+                long delaySeconds = Duration.between(LocalDateTime.now(), task.getScheduledFireTime()).getSeconds();
+                message.setDelaySeconds((int) Math.max(0, Math.min(delaySeconds, MAX_DELAY_SECONDS)));
+            }
 
+            return new PendingEnqueue(task, queueUrl, taskQueue.sendAsync(queueUrl, message));
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize task [{}]: {}", task.getId(), e.getMessage(), e);
             trackFailure(task, "task_enqueuing_failed", "Serialization error");
             throw new RuntimeException("Failed to serialize task", e);
+        }
+    }
+
+    /**
+     * Waits for a send started by {@link #enqueueTaskAsync} and records its outcome.
+     */
+    public void awaitEnqueued(PendingEnqueue pending) {
+        Task task = pending.task();
+        String messageId;
+        try {
+            messageId = pending.messageId().join();
         } catch (Exception e) {
-            log.error("Unexpected error while enqueuing task [{}]: {}", task.getId(), e.getMessage(), e);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Unexpected error while enqueuing task [{}]: {}", task.getId(), cause.getMessage(), cause);
             trackFailure(task, "task_enqueuing_failed", "Unexpected error");
-
-            throw new RuntimeException("Failed to enqueue task", e);
+            throw new RuntimeException("Failed to enqueue task", cause);
         }
+
+        log.info("Task [{}] successfully sent to queue [{}]. Message ID: {}", task.getId(), pending.queueUrl(), messageId);
+        Map<String, Object> taskProperties = new HashMap<>();
+        taskProperties.put("taskId", task.getId());
+        taskProperties.put("taskName", task.getName());
+        taskProperties.put("priority", task.getPriority().name());
+        taskProperties.put("queue", pending.queueUrl());
+
+        postHogService.trackEvent(task.getId(), "task_enqueued", taskProperties);
     }
+
+    /**
+     * A send in flight: the task, its queue and the future message id.
+     */
+    public record PendingEnqueue(Task task, String queueUrl, CompletableFuture<String> messageId) {
+    }
+
     private void trackFailure(Task task, String eventName, String errorMessage) {
         // Track failure event in PostHog
         Map<String, Object> taskProperties = new HashMap<>();
@@ -86,6 +123,14 @@ public class QueueService {
         postHogService.trackEvent(task.getId(), eventName, taskProperties);
     }
 
+    private String deduplicationIdFor(String fireInstanceId) {
+        // SQS caps deduplication ids at 128 characters
+        if (fireInstanceId.length() <= 128) {
+            return fireInstanceId;
+        }
+        return DigestUtils.md5DigestAsHex(fireInstanceId.getBytes(StandardCharsets.UTF_8));
+    }
+
     private String getQueueUrlForPriority(TaskPriority priority) {
         switch (priority) {
             case HIGH:
@@ -0,0 +1,122 @@
+package org.JustRun.CronScannerService.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.CronScannerService.Repository.ShardLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Keeps this scanner instance's share of the virtual shards. Each heartbeat renews the
+ * instance record and held leases, then gives up or takes shards until this instance
+ * holds its fair share (ceil(shards / live instances)).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShardLeaseService {
+
+    private final ShardLeaseRepository shardLeaseRepository;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${scanner.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${scanner.sharding.virtual-shards:64}")
+    private int virtualShards;
+
+    @Value("${scanner.sharding.lease-ttl-ms:30000}")
+    private long leaseTtlMs;
+
+    private volatile Set<Integer> ownedShards = Collections.emptySet();
+    private volatile long ownedUntil;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getVirtualShards() {
+        return virtualShards;
+    }
+
+    public Set<Integer> getOwnedShards() {
+        // Never report shards whose leases may already have lapsed
+        return System.currentTimeMillis() < ownedUntil ? ownedShards : Collections.emptySet();
+    }
+
+    @Scheduled(fixedDelayString = "${scanner.sharding.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            long expiresAt = now + leaseTtlMs;
+            shardLeaseRepository.heartbeatInstance(instanceId, expiresAt);
+
+            TreeSet<Integer> held = new TreeSet<>();
+            for (Integer shard : ownedShards) {
+                if (shardLeaseRepository.renew(shard, instanceId, expiresAt)) {
+                    held.add(shard);
+                }
+            }
+
+            int liveInstances = Math.max(1, shardLeaseRepository.countLiveInstances(now));
+            int target = (virtualShards + liveInstances - 1) / liveInstances;
+
+            while (held.size() > target) {
+                Integer shard = held.pollLast();
+                shardLeaseRepository.release(shard, instanceId);
+                log.info("Released shard {} to rebalance across {} instance(s).", shard, liveInstances);
+            }
+
+            if (held.size() < target) {
+                List<Integer> free = new ArrayList<>(shardLeaseRepository.findFreeShards(virtualShards, now));
+                Collections.shuffle(free);
+                for (Integer shard : free) {
+                    if (held.size() >= target) {
+                        break;
+                    }
+                    if (shardLeaseRepository.tryAcquire(shard, instanceId, now, expiresAt)) {
+                        held.add(shard);
+                    }
+                }
+            }
+
+            ownedShards = Collections.unmodifiableSet(held);
+            ownedUntil = expiresAt;
+            log.info("Instance {} holds {} of {} shard(s) ({} live instance(s)).",
+                    instanceId, held.size(), virtualShards, liveInstances);
+        } catch (Exception e) {
+            // Leases keep their old expiry; if this keeps failing they lapse and others take over
+            log.error("Shard lease heartbeat failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        if (!enabled) {
+            return;
+        }
+
+        Set<Integer> held = ownedShards;
+        ownedShards = Collections.emptySet();
+        try {
+            held.forEach(shard -> shardLeaseRepository.release(shard, instanceId));
+            shardLeaseRepository.deleteInstance(instanceId);
+            log.info("Instance {} released {} shard(s) on shutdown.", instanceId, held.size());
+        } catch (Exception e) {
+            log.warn("Failed to release shard leases on shutdown: {}", e.getMessage());
+        }
+    }
+}
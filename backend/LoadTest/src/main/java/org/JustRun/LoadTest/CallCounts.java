@@ -0,0 +1,32 @@
+package org.JustRun.LoadTest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named call counters for the storage and queue clients the services share.
+ */
+public class CallCounts {
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long amount) {
+        counts.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((name, count) -> snapshot.put(name, count.sum()));
+        return snapshot;
+    }
+
+    public void reset() {
+        counts.values().forEach(LongAdder::reset);
+    }
+}
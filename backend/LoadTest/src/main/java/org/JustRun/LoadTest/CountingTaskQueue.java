@@ -0,0 +1,62 @@
+package org.JustRun.LoadTest;
+
+import org.JustRun.TaskExecutionService.queue.InProcessTaskQueue;
+import org.JustRun.TaskExecutionService.queue.QueueMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The single-node in-process queue, counting calls and messages per operation the way SQS bills
+ * them (one request per call, regardless of batch size).
+ */
+public class CountingTaskQueue extends InProcessTaskQueue {
+
+    private final CallCounts callCounts;
+
+    public CountingTaskQueue(int capacity, CallCounts callCounts) {
+        super(capacity);
+        this.callCounts = callCounts;
+    }
+
+    @Override
+    public String send(String queue, QueueMessage message) {
+        callCounts.increment("queue.SendMessage");
+        return super.send(queue, message);
+    }
+
+    @Override
+    public List<String> sendBatch(String queue, List<QueueMessage> messages) {
+        callCounts.increment("queue.SendMessageBatch");
+        callCounts.add("queue.SendMessageBatch.messages", messages.size());
+        List<String> messageIds = new ArrayList<>(messages.size());
+        for (QueueMessage message : messages) {
+            messageIds.add(super.send(queue, message));
+        }
+        return messageIds;
+    }
+
+    @Override
+    public List<QueueMessage> receive(String queue, int maxMessages, int visibilityTimeoutSeconds, int waitTimeSeconds) {
+        List<QueueMessage> messages = super.receive(queue, maxMessages, visibilityTimeoutSeconds, waitTimeSeconds);
+        callCounts.increment("queue.ReceiveMessage");
+        if (messages.isEmpty()) {
+            callCounts.increment("queue.ReceiveMessage.empty");
+        }
+        return messages;
+    }
+
+    @Override
+    public List<String> delete(String queue, List<String> receiptHandles) {
+        callCounts.increment("queue.DeleteMessageBatch");
+        callCounts.add("queue.DeleteMessageBatch.messages", receiptHandles.size());
+        return super.delete(queue, receiptHandles);
+    }
+
+    @Override
+    public List<String> changeVisibility(String queue, List<String> receiptHandles, int visibilityTimeoutSeconds) {
+        callCounts.increment("queue.ChangeMessageVisibilityBatch");
+        callCounts.add("queue.ChangeMessageVisibilityBatch.messages", receiptHandles.size());
+        return super.changeVisibility(queue, receiptHandles, visibilityTimeoutSeconds);
+    }
+}
@@ -0,0 +1,107 @@
+package org.JustRun.LoadTest;
+
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Matches each request the target farm receives to the fire it delivers. Every seeded task has a
+ * known schedule (its first nextExecutionTime, then the cron sequence); an arrival is matched to
+ * the nearest still-pending fire time, fire times it skipped over count as missed, and the signed
+ * difference is the fire lag (negative when the scanner released a run before its fire time).
+ */
+@Component
+public class FireLagTracker {
+
+    private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+    private final List<Long> lagsMs = new ArrayList<>();
+    private final LongAdder unmatched = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private static final class Schedule {
+        private final CronExpression cron;
+        private LocalDateTime nextExpected;
+
+        private Schedule(CronExpression cron, LocalDateTime firstFire) {
+            this.cron = cron;
+            this.nextExpected = firstFire;
+        }
+    }
+
+    public void expect(String key, String cronExpression, LocalDateTime firstFire) {
+        schedules.put(key, new Schedule(CronExpression.parse(cronExpression), firstFire));
+    }
+
+    public void recordArrival(String key, long arrivedAtMs) {
+        Schedule schedule = key != null ? schedules.get(key) : null;
+        if (schedule == null) {
+            unmatched.increment();
+            return;
+        }
+
+        LocalDateTime arrival = LocalDateTime.ofInstant(Instant.ofEpochMilli(arrivedAtMs), ZoneId.systemDefault());
+        long lagMs;
+        synchronized (schedule) {
+            // Walk past fire times already behind the arrival, then take whichever neighbour is nearer
+            LocalDateTime candidate = schedule.nextExpected;
+            int passed = 0;
+            LocalDateTime next = schedule.cron.next(candidate);
+            while (next != null && !next.isAfter(arrival)) {
+                candidate = next;
+                next = schedule.cron.next(next);
+                passed++;
+            }
+            if (next != null && candidate.isBefore(arrival)
+                    && Duration.between(arrival, next).abs().compareTo(Duration.between(candidate, arrival)) < 0) {
+                candidate = next;
+                passed++;
+            }
+            skipped.add(passed);
+            schedule.nextExpected = schedule.cron.next(candidate);
+            lagMs = Duration.between(candidate, arrival).toMillis();
+        }
+        synchronized (lagsMs) {
+            lagsMs.add(lagMs);
+        }
+    }
+
+    /**
+     * Fire times that were due before {@code dueBefore} and were never delivered.
+     */
+    public long missedBefore(LocalDateTime dueBefore) {
+        long missed = skipped.sum();
+        for (Schedule schedule : schedules.values()) {
+            synchronized (schedule) {
+                LocalDateTime fire = schedule.nextExpected;
+                while (fire != null && fire.isBefore(dueBefore)) {
+                    missed++;
+                    fire = schedule.cron.next(fire);
+                }
+            }
+        }
+        return missed;
+    }
+
+    public long[] lagsMs() {
+        synchronized (lagsMs) {
+            return lagsMs.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    public long unmatched() {
+        return unmatched.sum();
+    }
+
+    public int scheduledTasks() {
+        return schedules.size();
+    }
+}
@@ -0,0 +1,87 @@
+package org.JustRun.LoadTest;
+
+import org.JustRun.CronScannerService.Queue.TaskQueue;
+import org.JustRun.SingleNode.storage.EmbeddedStorageConfig;
+import org.JustRun.TaskExecutionService.queue.InProcessTaskQueue;
+import org.JustRun.TaskExecutionService.queue.QueueMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Parent context of the load test: the single-node shared beans (embedded store, in-process
+ * queue), instrumented so every storage and queue call the services make is counted.
+ */
+@Configuration
+@Import(EmbeddedStorageConfig.class)
+@ComponentScan
+public class LoadTestConfig {
+
+    @Bean
+    public static CallCounts callCounts() {
+        return new CallCounts();
+    }
+
+    @Bean
+    public static BeanPostProcessor dynamoDbCallCounting(CallCounts callCounts) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DynamoDbClient client ? counting(client, callCounts) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public InProcessTaskQueue inProcessTaskQueue(@Value("${queue.in-process.capacity:100000}") int capacity,
+                                                 CallCounts callCounts) {
+        return new CountingTaskQueue(capacity, callCounts);
+    }
+
+    @Bean
+    public TaskQueue scannerTaskQueue(InProcessTaskQueue inProcessTaskQueue) {
+        return (queue, message) -> inProcessTaskQueue.send(queue, QueueMessage.builder()
+                .body(message.getBody())
+                .groupId(message.getGroupId())
+                .deduplicationId(message.getDeduplicationId())
+                .delaySeconds(message.getDelaySeconds())
+                .build());
+    }
+
+    private static DynamoDbClient counting(DynamoDbClient target, CallCounts callCounts) {
+        return (DynamoDbClient) Proxy.newProxyInstance(DynamoDbClient.class.getClassLoader(),
+                new Class<?>[]{DynamoDbClient.class}, (proxy, method, args) -> {
+                    // Paginators must call back through the proxy so each page is counted
+                    switch (method.getName()) {
+                        case "scanPaginator":
+                            return new ScanIterable((DynamoDbClient) proxy, (ScanRequest) args[0]);
+                        case "queryPaginator":
+                            return new QueryIterable((DynamoDbClient) proxy, (QueryRequest) args[0]);
+                        case "serviceName":
+                        case "close":
+                        case "toString":
+                        case "hashCode":
+                        case "equals":
+                            break;
+                        default:
+                            callCounts.increment("dynamodb." + method.getName());
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,135 @@
+package org.JustRun.LoadTest;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the services the way SingleNode does, under an instrumented parent context, starts the
+ * target farm, seeds the tasks and lets the scheduler run for loadtest.duration-seconds before
+ * reporting. Every run uses a fresh embedded store unless storage.embedded.data-dir is set.
+ */
+public class LoadTestMain {
+    public static void main(String[] args) throws Exception {
+        System.out.println("Hello , starting JustRun load test!");
+        String dataDir = Files.createTempDirectory("justrun-loadtest").toString();
+        SpringApplicationBuilder executor = new SpringApplicationBuilder(LoadTestConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "queue.transport=in-process",
+                        "storage.engine=embedded",
+                        "storage.embedded.data-dir=" + dataDir,
+                        "aws.accessKey=loadtest",
+                        "aws.secretKey=loadtest",
+                        "aws.region=us-east-1",
+                        "aws.sqs.high-priority-queue=high",
+                        "aws.sqs.normal-priority-queue=normal",
+                        "aws.sqs.low-priority-queue=low",
+                        "jwt.secret=" + UUID.randomUUID() + UUID.randomUUID(),
+                        "jwt.expiration=86400000",
+                        "posthog.api.key=loadtest",
+                        "posthog.api.url=http://127.0.0.1:${loadtest.farm.port:18090}/sink",
+                        "logging.level.root=WARN")
+                .child(org.JustRun.TaskExecutionService.Main.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=${singlenode.executor-port:8082}");
+
+        // The farm must be up before the services start calling the analytics sink
+        ApplicationContext parent = executor.run(args).getParent();
+        TargetFarm targetFarm = parent.getBean(TargetFarm.class);
+        targetFarm.start();
+
+        executor.sibling(org.JustRun.CronScannerService.Main.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        executor.sibling(org.JustRun.AuthService.Main.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=${singlenode.auth-port:8080}")
+                .run(args);
+        executor.sibling(org.JustRun.TaskManagementService.Main.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=${singlenode.management-port:8081}")
+                .run(args);
+
+        Environment environment = parent.getEnvironment();
+        long durationSeconds = environment.getProperty("loadtest.duration-seconds", Long.class, 600L);
+        long progressSeconds = environment.getProperty("loadtest.progress-seconds", Long.class, 30L);
+        String reportFile = environment.getProperty("loadtest.report-file", "loadtest-report.json");
+
+        TaskSeeder seeder = parent.getBean(TaskSeeder.class);
+        FireLagTracker tracker = parent.getBean(FireLagTracker.class);
+        CallCounts callCounts = parent.getBean(CallCounts.class);
+
+        long seedStart = System.nanoTime();
+        int created = seeder.seed();
+        System.out.printf("Seeded %d of %d task(s) in %d ms%n", created, seeder.getTaskCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+        // Measure the steady state only, not the seeding traffic
+        callCounts.reset();
+        targetFarm.resetCounts();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(progressSeconds),
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+            long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+            long delivered = tracker.lagsMs().length;
+            System.out.printf("t=%ds fires=%d (%.2f/s)%n", elapsed, delivered, delivered / (double) elapsed);
+        }
+
+        long elapsedSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        // Fires due within the last scan interval plus misfire grace may still be on their way
+        long settleSeconds = environment.getProperty("loadtest.settle-seconds", Long.class, 180L);
+        LoadTestReport report = report(tracker, targetFarm, callCounts, created, elapsedSeconds,
+                LocalDateTime.now().minusSeconds(settleSeconds));
+
+        System.out.println(report.toText());
+        report.writeJson(new File(reportFile));
+        System.out.println("Report written to " + new File(reportFile).getAbsolutePath());
+
+        targetFarm.stop();
+        System.exit(0);
+    }
+
+    private static LoadTestReport report(FireLagTracker tracker, TargetFarm targetFarm, CallCounts callCounts,
+                                         int created, long elapsedSeconds, LocalDateTime missedBefore) {
+        long[] lags = tracker.lagsMs();
+
+        Map<String, Map<String, Long>> targets = new LinkedHashMap<>();
+        targetFarm.profiles().forEach((name, profile) -> {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("requests", profile.requests().sum());
+            counts.put("errors", profile.errors().sum());
+            counts.put("requestBytes", profile.requestBytes().sum());
+            targets.put(name, counts);
+        });
+
+        Map<String, Long> calls = callCounts.snapshot();
+        Map<String, Double> perSecond = new LinkedHashMap<>();
+        calls.forEach((name, count) -> perSecond.put(name, count / (double) elapsedSeconds));
+
+        return LoadTestReport.builder()
+                .tasks(created)
+                .durationSeconds(elapsedSeconds)
+                .deliveredFires(lags.length)
+                .missedFires(tracker.missedBefore(missedBefore))
+                .unmatchedRequests(tracker.unmatched())
+                .executionsPerSecond(lags.length / (double) elapsedSeconds)
+                .fireLagMs(LoadTestReport.percentiles(lags))
+                .targets(targets)
+                .sideCallRequests(targetFarm.sinkRequests())
+                .callCounts(calls)
+                .callsPerSecond(perSecond)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package org.JustRun.LoadTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of one load-test run, printed as text and written as JSON.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadTestReport {
+
+    private int tasks;
+    private long durationSeconds;
+    private long deliveredFires;
+    private long missedFires;
+    private long unmatchedRequests;
+    private double executionsPerSecond;
+    private Map<String, Long> fireLagMs;
+    private Map<String, Map<String, Long>> targets;
+    private long sideCallRequests;
+    private Map<String, Long> callCounts;
+    private Map<String, Double> callsPerSecond;
+
+    static Map<String, Long> percentiles(long[] values) {
+        Map<String, Long> percentiles = new LinkedHashMap<>();
+        if (values.length == 0) {
+            return percentiles;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        percentiles.put("min", sorted[0]);
+        percentiles.put("p50", percentile(sorted, 0.50));
+        percentiles.put("p90", percentile(sorted, 0.90));
+        percentiles.put("p99", percentile(sorted, 0.99));
+        percentiles.put("p99.9", percentile(sorted, 0.999));
+        percentiles.put("max", sorted[sorted.length - 1]);
+        return percentiles;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append("==== JustRun load test ====\n");
+        text.append(String.format("tasks: %d, measured for %d s%n", tasks, durationSeconds));
+        text.append(String.format("fires delivered: %d, missed: %d, unmatched requests: %d%n",
+                deliveredFires, missedFires, unmatchedRequests));
+        text.append(String.format("executions/sec: %.2f%n", executionsPerSecond));
+        text.append("fire lag (ms, negative = early): ").append(fireLagMs).append('\n');
+        text.append("targets:\n");
+        targets.forEach((name, counts) -> text.append("  ").append(name).append(' ').append(counts).append('\n'));
+        text.append("side calls (analytics): ").append(sideCallRequests).append('\n');
+        text.append("storage and queue calls (total, per second):\n");
+        callCounts.forEach((name, count) -> text.append(String.format("  %-45s %10d %10.2f%n",
+                name, count, callsPerSecond.getOrDefault(name, 0.0))));
+        return text.toString();
+    }
+
+    public void writeJson(File file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, this);
+    }
+}
@@ -0,0 +1,173 @@
+package org.JustRun.LoadTest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Synthetic HTTP targets for the seeded tasks. Each profile is served at /farm/{name} with its own
+ * latency (uniform between half and one and a half times the configured mean), error rate
+ * (HTTP 500) and response body size. /sink answers instantly and stands in for third-party
+ * endpoints the services call on the side (analytics), so they do not skew the target numbers.
+ */
+@Component
+@Slf4j
+public class TargetFarm {
+
+    public static final String KEY_HEADER = "X-LoadTest-Key";
+
+    private final FireLagTracker fireLagTracker;
+    private final int port;
+    private final int threads;
+    private final Map<String, Profile> profiles = new LinkedHashMap<>();
+    private final LongAdder sinkRequests = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public record Profile(String name, long latencyMs, double errorRate, byte[] body,
+                          LongAdder requests, LongAdder errors, LongAdder requestBytes) {
+    }
+
+    public TargetFarm(FireLagTracker fireLagTracker,
+                      @Value("${loadtest.farm.port:18090}") int port,
+                      @Value("${loadtest.farm.threads:256}") int threads,
+                      @Value("${loadtest.farm.profiles:fast:20:0.0:256,typical:150:0.01:2048,slow:1200:0.02:16384,flaky:300:0.2:512}") String profileSpec) {
+        this.fireLagTracker = fireLagTracker;
+        this.port = port;
+        this.threads = threads;
+        // name:latencyMs:errorRate:bodyBytes, comma separated
+        for (String spec : profileSpec.split(",")) {
+            String[] parts = spec.trim().split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid farm profile '" + spec + "', expected name:latencyMs:errorRate:bodyBytes");
+            }
+            // {"data":"xxx..."} padded to the configured size
+            int size = Math.max(12, Integer.parseInt(parts[3]));
+            byte[] body = new byte[size];
+            Arrays.fill(body, (byte) 'x');
+            byte[] prefix = "{\"data\":\"".getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(prefix, 0, body, 0, prefix.length);
+            body[size - 2] = '"';
+            body[size - 1] = '}';
+            profiles.put(parts[0], new Profile(parts[0], Long.parseLong(parts[1]), Double.parseDouble(parts[2]), body,
+                    new LongAdder(), new LongAdder(), new LongAdder()));
+        }
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 4096);
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "target-farm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/farm/", this::handleTarget);
+        server.createContext("/sink", this::handleSink);
+        server.start();
+        log.warn("Target farm listening on port {} with profiles {}", port, profiles.keySet());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String endpoint(String profile) {
+        return "http://127.0.0.1:" + port + "/farm/" + profile;
+    }
+
+    public String sinkUrl() {
+        return "http://127.0.0.1:" + port + "/sink";
+    }
+
+    public List<String> profileNames() {
+        return List.copyOf(profiles.keySet());
+    }
+
+    public Map<String, Profile> profiles() {
+        return profiles;
+    }
+
+    public long sinkRequests() {
+        return sinkRequests.sum();
+    }
+
+    public void resetCounts() {
+        sinkRequests.reset();
+        profiles.values().forEach(profile -> {
+            profile.requests().reset();
+            profile.errors().reset();
+            profile.requestBytes().reset();
+        });
+    }
+
+    private void handleTarget(HttpExchange exchange) throws IOException {
+        long arrivedAt = System.currentTimeMillis();
+        try (exchange) {
+            Profile profile = profiles.get(exchange.getRequestURI().getPath().substring("/farm/".length()));
+            if (profile == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            long requestBytes;
+            try (InputStream in = exchange.getRequestBody()) {
+                requestBytes = in.transferTo(OutputStream.nullOutputStream());
+            }
+            profile.requests().increment();
+            profile.requestBytes().add(requestBytes);
+            fireLagTracker.recordArrival(exchange.getRequestHeaders().getFirst(KEY_HEADER), arrivedAt);
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long latencyMs = (long) (profile.latencyMs() * (0.5 + random.nextDouble()));
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+
+            if (random.nextDouble() < profile.errorRate()) {
+                profile.errors().increment();
+                respond(exchange, 500, "{\"error\":\"injected failure\"}".getBytes(StandardCharsets.UTF_8));
+            } else {
+                respond(exchange, 200, profile.body());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleSink(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            sinkRequests.increment();
+            respond(exchange, 200, "{}".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
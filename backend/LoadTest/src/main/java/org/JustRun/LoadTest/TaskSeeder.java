@@ -0,0 +1,198 @@
+package org.JustRun.LoadTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Registers a load-test user and creates the tasks through the public API, the same way the
+ * frontend does, so TaskManagementService's write path and nextExecutionTime computation are
+ * part of the run. Crons and priorities are drawn from weighted mixes; targets rotate through
+ * the farm profiles.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TaskSeeder {
+
+    private final TargetFarm targetFarm;
+    private final FireLagTracker fireLagTracker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Value("${singlenode.auth-port:8080}")
+    private int authPort;
+
+    @Value("${singlenode.management-port:8081}")
+    private int managementPort;
+
+    @Value("${loadtest.tasks:1000}")
+    private int taskCount;
+
+    @Value("${loadtest.seed-threads:8}")
+    private int seedThreads;
+
+    @Value("${loadtest.random-seed:42}")
+    private long randomSeed;
+
+    // Weighted "cron=weight" pairs separated by ';' (cron fields contain commas)
+    @Value("${loadtest.cron-mix:0 * * * * *=40;0 */5 * * * *=30;0 */15 * * * *=15;0 0 * * * *=10;*/30 * * * * *=5}")
+    private String cronMix;
+
+    @Value("${loadtest.priority-mix:HIGH=10;NORMAL=70;LOW=20}")
+    private String priorityMix;
+
+    @Value("${loadtest.task.body-bytes:512}")
+    private int bodyBytes;
+
+    @Value("${loadtest.task.spread-window-seconds:0}")
+    private int spreadWindowSeconds;
+
+    // Retries reach the farm as extra requests, which would blur the fire-lag matching
+    @Value("${loadtest.task.max-retries:0}")
+    private int maxRetries;
+
+    /**
+     * Creates the tasks and registers each one's schedule with the tracker; returns how many were created.
+     */
+    public int seed() throws Exception {
+        String token = authenticate();
+        List<Map.Entry<String, Integer>> crons = weighted(cronMix);
+        List<Map.Entry<String, Integer>> priorities = weighted(priorityMix);
+        List<String> profiles = targetFarm.profileNames();
+        Random random = new Random(randomSeed);
+        String padding = "x".repeat(Math.max(0, bodyBytes));
+
+        ExecutorService pool = Executors.newFixedThreadPool(seedThreads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                String key = "t" + i;
+                String cron = pick(crons, random);
+                String priority = pick(priorities, random);
+                String profile = profiles.get(i % profiles.size());
+                results.add(pool.submit(() -> createTask(token, key, cron, priority, profile, padding)));
+            }
+
+            int created = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    created++;
+                }
+            }
+            return created;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private boolean createTask(String token, String key, String cron, String priority, String profile, String padding) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("key", key);
+        body.put("payload", padding);
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("name", "loadtest-" + key);
+        request.put("endpoint", targetFarm.endpoint(profile));
+        request.put("method", "POST");
+        request.put("headers", Map.of("Content-Type", "application/json", TargetFarm.KEY_HEADER, key));
+        request.put("body", body);
+        request.put("cronExpression", cron);
+        request.put("priority", priority);
+        request.put("taskType", "ROOT");
+        request.put("maxRetries", maxRetries);
+        if (spreadWindowSeconds > 0) {
+            request.put("spreadWindowSeconds", spreadWindowSeconds);
+        }
+
+        try {
+            HttpResponse<String> response = post("http://127.0.0.1:" + managementPort + "/api/tasks", request, token);
+            if (response.statusCode() / 100 != 2) {
+                log.warn("Creating task {} failed with HTTP {}: {}", key, response.statusCode(), response.body());
+                return false;
+            }
+            JsonNode task = objectMapper.readTree(response.body());
+            fireLagTracker.expect(key, cron, LocalDateTime.parse(task.get("nextExecutionTime").asText()));
+            return true;
+        } catch (Exception e) {
+            log.warn("Creating task {} failed: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private String authenticate() throws IOException, InterruptedException {
+        String username = "loadtest" + UUID.randomUUID().toString().substring(0, 8);
+        String password = UUID.randomUUID().toString();
+        HttpResponse<String> registered = post("http://127.0.0.1:" + authPort + "/api/auth/register",
+                Map.of("username", username, "email", username + "@loadtest.local", "password", password), null);
+        if (registered.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Registering the load-test user failed with HTTP " + registered.statusCode());
+        }
+        HttpResponse<String> login = post("http://127.0.0.1:" + authPort + "/api/auth/login",
+                Map.of("username", username, "password", password), null);
+        if (login.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Logging in the load-test user failed with HTTP " + login.statusCode());
+        }
+        return objectMapper.readTree(login.body()).get("token").asText();
+    }
+
+    private HttpResponse<String> post(String url, Object payload, String token) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static List<Map.Entry<String, Integer>> weighted(String spec) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for (String pair : spec.split(";")) {
+            int separator = pair.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid weighted entry '" + pair + "', expected value=weight");
+            }
+            entries.add(Map.entry(pair.substring(0, separator).trim(), Integer.parseInt(pair.substring(separator + 1).trim())));
+        }
+        return entries;
+    }
+
+    private static String pick(List<Map.Entry<String, Integer>> entries, Random random) {
+        int total = entries.stream().mapToInt(Map.Entry::getValue).sum();
+        int roll = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : entries) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return entries.get(entries.size() - 1).getKey();
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+}
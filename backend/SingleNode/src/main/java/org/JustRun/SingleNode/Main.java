@@ -0,0 +1,36 @@
+package org.JustRun.SingleNode;
+
+import org.JustRun.SingleNode.storage.EmbeddedStorageConfig;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/**
+ * Starts all four services as sibling contexts under a shared parent that owns the in-process
+ * queue and, with storage.engine=embedded, the embedded store. Due tasks go from the scanner to
+ * the executor without leaving the JVM, and nothing needs AWS. Every service reads the same
+ * application.properties; only the HTTP ports are set per service.
+ */
+public class Main {
+    public static void main(String[] args) {
+        System.out.printf("Hello , starting JustRun single-node!");
+        SpringApplicationBuilder executor = new SpringApplicationBuilder(SharedQueueConfig.class, EmbeddedStorageConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties("queue.transport=in-process", "storage.engine=embedded")
+                .child(org.JustRun.TaskExecutionService.Main.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=${singlenode.executor-port:8082}");
+        executor.run(args);
+
+        executor.sibling(org.JustRun.CronScannerService.Main.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        executor.sibling(org.JustRun.AuthService.Main.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=${singlenode.auth-port:8080}")
+                .run(args);
+        executor.sibling(org.JustRun.TaskManagementService.Main.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=${singlenode.management-port:8081}")
+                .run(args);
+    }
+}
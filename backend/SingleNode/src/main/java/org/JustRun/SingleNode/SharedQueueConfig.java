@@ -0,0 +1,31 @@
+package org.JustRun.SingleNode;
+
+import org.JustRun.CronScannerService.Queue.TaskQueue;
+import org.JustRun.TaskExecutionService.queue.InProcessTaskQueue;
+import org.JustRun.TaskExecutionService.queue.QueueMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Parent-context beans visible to both services: one in-process queue, exposed to the executor
+ * as its own transport and to the scanner through a thin adapter.
+ */
+@Configuration
+public class SharedQueueConfig {
+
+    @Bean
+    public InProcessTaskQueue inProcessTaskQueue(@Value("${queue.in-process.capacity:100000}") int capacity) {
+        return new InProcessTaskQueue(capacity);
+    }
+
+    @Bean
+    public TaskQueue scannerTaskQueue(InProcessTaskQueue inProcessTaskQueue) {
+        return (queue, message) -> inProcessTaskQueue.send(queue, QueueMessage.builder()
+                .body(message.getBody())
+                .groupId(message.getGroupId())
+                .deduplicationId(message.getDeduplicationId())
+                .delaySeconds(message.getDelaySeconds())
+                .build());
+    }
+}
@@ -0,0 +1,176 @@
+package org.JustRun.SingleNode.storage;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of DynamoDB items used by the log and snapshot files:
+ * a count followed by (name, tagged value) pairs, nested for maps and lists.
+ */
+final class AttributeValueCodec {
+
+    private static final byte S = 1;
+    private static final byte N = 2;
+    private static final byte B = 3;
+    private static final byte BOOL = 4;
+    private static final byte NUL = 5;
+    private static final byte M = 6;
+    private static final byte L = 7;
+    private static final byte SS = 8;
+    private static final byte NS = 9;
+    private static final byte BS = 10;
+
+    private AttributeValueCodec() {
+    }
+
+    static void writeItem(DataOutputStream out, Map<String, AttributeValue> item) throws IOException {
+        out.writeInt(item.size());
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    static Map<String, AttributeValue> readItem(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, AttributeValue> item = new LinkedHashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            String name = in.readUTF();
+            item.put(name, readValue(in));
+        }
+        return item;
+    }
+
+    private static void writeValue(DataOutputStream out, AttributeValue value) throws IOException {
+        if (value.s() != null) {
+            out.writeByte(S);
+            writeString(out, value.s());
+        } else if (value.n() != null) {
+            out.writeByte(N);
+            out.writeUTF(value.n());
+        } else if (value.b() != null) {
+            out.writeByte(B);
+            writeBytes(out, value.b());
+        } else if (value.bool() != null) {
+            out.writeByte(BOOL);
+            out.writeBoolean(value.bool());
+        } else if (Boolean.TRUE.equals(value.nul())) {
+            out.writeByte(NUL);
+        } else if (value.hasM()) {
+            out.writeByte(M);
+            writeItem(out, value.m());
+        } else if (value.hasL()) {
+            out.writeByte(L);
+            out.writeInt(value.l().size());
+            for (AttributeValue element : value.l()) {
+                writeValue(out, element);
+            }
+        } else if (value.hasSs()) {
+            out.writeByte(SS);
+            out.writeInt(value.ss().size());
+            for (String element : value.ss()) {
+                writeString(out, element);
+            }
+        } else if (value.hasNs()) {
+            out.writeByte(NS);
+            out.writeInt(value.ns().size());
+            for (String element : value.ns()) {
+                out.writeUTF(element);
+            }
+        } else if (value.hasBs()) {
+            out.writeByte(BS);
+            out.writeInt(value.bs().size());
+            for (SdkBytes element : value.bs()) {
+                writeBytes(out, element);
+            }
+        } else {
+            throw new IOException("Unsupported attribute value: " + value);
+        }
+    }
+
+    private static AttributeValue readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case S:
+                return AttributeValue.builder().s(readString(in)).build();
+            case N:
+                return AttributeValue.builder().n(in.readUTF()).build();
+            case B:
+                return AttributeValue.builder().b(readBytes(in)).build();
+            case BOOL:
+                return AttributeValue.builder().bool(in.readBoolean()).build();
+            case NUL:
+                return AttributeValue.builder().nul(true).build();
+            case M:
+                return AttributeValue.builder().m(readItem(in)).build();
+            case L: {
+                int size = in.readInt();
+                List<AttributeValue> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return AttributeValue.builder().l(list).build();
+            }
+            case SS: {
+                int size = in.readInt();
+                List<String> set = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    set.add(readString(in));
+                }
+                return AttributeValue.builder().ss(set).build();
+            }
+            case NS: {
+                int size = in.readInt();
+                List<String> set = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    set.add(in.readUTF());
+                }
+                return AttributeValue.builder().ns(set).build();
+            }
+            case BS: {
+                int size = in.readInt();
+                List<SdkBytes> set = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    set.add(readBytes(in));
+                }
+                return AttributeValue.builder().bs(set).build();
+            }
+            default:
+                throw new IOException("Unknown attribute type tag " + type);
+        }
+    }
+
+    // writeUTF is limited to 64 KB, string attributes (bodies, responses) can be larger
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, SdkBytes value) throws IOException {
+        byte[] bytes = value.asByteArrayUnsafe();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static SdkBytes readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return SdkBytes.fromByteArray(bytes);
+    }
+}
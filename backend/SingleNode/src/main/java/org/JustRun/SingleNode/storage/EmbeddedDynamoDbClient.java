@@ -0,0 +1,299 @@
+package org.JustRun.SingleNode.storage;
+
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DynamoDbClient} backed by an {@link EmbeddedStore}, so the services' repositories run
+ * unchanged without AWS. Covers the operations they use (GetItem, PutItem, UpdateItem,
+ * DeleteItem, Query and Scan, including parallel scan segments) with condition, filter, update
+ * and projection expressions. Every read is strongly consistent. Query pages by Limit and
+ * ExclusiveStartKey; a Scan result always fits in one page, so it never sets LastEvaluatedKey.
+ */
+public class EmbeddedDynamoDbClient implements DynamoDbClient {
+
+    private static final SdkHttpResponse OK = SdkHttpResponse.builder().statusCode(200).build();
+
+    private final EmbeddedStore store;
+
+    public EmbeddedDynamoDbClient(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        Expressions.Context context = new Expressions.Context(request.expressionAttributeNames(), null);
+        Map<String, AttributeValue> item = store.get(request.tableName(), request.key());
+        GetItemResponse.Builder response = GetItemResponse.builder();
+        if (item != null) {
+            response.item(project(item, request.projectionExpression(), context));
+        }
+        return ok(response);
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        Expressions.Context context = context(request.expressionAttributeNames(), request.expressionAttributeValues());
+        Map<String, AttributeValue> previous = store.put(request.tableName(), request.item(),
+                condition(request.conditionExpression()), context);
+        PutItemResponse.Builder response = PutItemResponse.builder();
+        if (request.returnValues() == ReturnValue.ALL_OLD && previous != null) {
+            response.attributes(previous);
+        }
+        return ok(response);
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        Expressions.Context context = context(request.expressionAttributeNames(), request.expressionAttributeValues());
+        Expressions.Update update = request.updateExpression() != null ? Expressions.update(request.updateExpression()) : null;
+        List<Map<String, AttributeValue>> result = store.update(request.tableName(), request.key(), update,
+                condition(request.conditionExpression()), context);
+        Map<String, AttributeValue> previous = result.get(0);
+        Map<String, AttributeValue> updated = result.get(1);
+
+        UpdateItemResponse.Builder response = UpdateItemResponse.builder();
+        ReturnValue returnValue = request.returnValues() != null ? request.returnValues() : ReturnValue.NONE;
+        switch (returnValue) {
+            case ALL_NEW -> response.attributes(updated);
+            case ALL_OLD -> {
+                if (previous != null) {
+                    response.attributes(previous);
+                }
+            }
+            case UPDATED_NEW -> response.attributes(select(updated, update, context));
+            case UPDATED_OLD -> {
+                if (previous != null) {
+                    response.attributes(select(previous, update, context));
+                }
+            }
+            default -> {
+            }
+        }
+        return ok(response);
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        Expressions.Context context = context(request.expressionAttributeNames(), request.expressionAttributeValues());
+        Map<String, AttributeValue> previous = store.delete(request.tableName(), request.key(),
+                condition(request.conditionExpression()), context);
+        DeleteItemResponse.Builder response = DeleteItemResponse.builder();
+        if (request.returnValues() == ReturnValue.ALL_OLD && previous != null) {
+            response.attributes(previous);
+        }
+        return ok(response);
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        Expressions.Context context = context(request.expressionAttributeNames(), request.expressionAttributeValues());
+        EmbeddedStore.Table table = store.table(request.tableName());
+        String partitionKey = table.schema.partitionKey();
+        String sortKey = table.schema.sortKey();
+        if (request.indexName() != null) {
+            TableSchema.GlobalIndex index = table.schema.globalIndexes().get(request.indexName());
+            if (index == null) {
+                throw Expressions.validation("The table does not have the specified index: " + request.indexName());
+            }
+            partitionKey = index.partitionKey();
+            sortKey = index.sortKey();
+        }
+        if (request.keyConditionExpression() == null) {
+            throw Expressions.validation("Query requires a KeyConditionExpression");
+        }
+
+        Expressions.Condition keyCondition = Expressions.condition(request.keyConditionExpression());
+        Expressions.Condition filter = condition(request.filterExpression());
+        List<Map<String, AttributeValue>> matches = new ArrayList<>();
+        int scanned = 0;
+        for (Map.Entry<String, Map<String, AttributeValue>> entry : store.candidates(table, keyCondition, context)) {
+            Map<String, AttributeValue> item = entry.getValue();
+            // Items without the index keys are not in the index
+            if (!item.containsKey(partitionKey) || (sortKey != null && !item.containsKey(sortKey))) {
+                continue;
+            }
+            if (!keyCondition.test(item, context)) {
+                continue;
+            }
+            scanned++;
+            if (filter == null || filter.test(item, context)) {
+                matches.add(item);
+            }
+        }
+
+        // Items with equal sort keys are ordered by primary key, so pages do not overlap
+        Comparator<Map<String, AttributeValue>> order = Comparator.comparing(table::keyOf);
+        if (sortKey != null) {
+            String attribute = sortKey;
+            Comparator<Map<String, AttributeValue>> bySortKey = (a, b) -> {
+                Integer result = Expressions.compare(a.get(attribute), b.get(attribute));
+                return result != null ? result : 0;
+            };
+            order = bySortKey.thenComparing(order);
+        }
+        if (Boolean.FALSE.equals(request.scanIndexForward())) {
+            order = order.reversed();
+        }
+        matches.sort(order);
+        if (request.hasExclusiveStartKey()) {
+            Map<String, AttributeValue> start = request.exclusiveStartKey();
+            Comparator<Map<String, AttributeValue>> pageOrder = order;
+            matches.removeIf(item -> pageOrder.compare(item, start) <= 0);
+        }
+
+        QueryResponse.Builder response = QueryResponse.builder();
+        if (request.limit() != null && matches.size() > request.limit()) {
+            matches = matches.subList(0, request.limit());
+            response.lastEvaluatedKey(keyAttributes(matches.get(matches.size() - 1), table.schema, partitionKey, sortKey));
+        }
+
+        return ok(response
+                .items(project(matches, request.projectionExpression(), context))
+                .count(matches.size())
+                .scannedCount(scanned));
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+        Expressions.Context context = context(request.expressionAttributeNames(), request.expressionAttributeValues());
+        EmbeddedStore.Table table = store.table(request.tableName());
+        Expressions.Condition filter = condition(request.filterExpression());
+        Integer totalSegments = request.totalSegments();
+        int segment = request.segment() != null ? request.segment() : 0;
+
+        List<Map<String, AttributeValue>> matches = new ArrayList<>();
+        int scanned = 0;
+        for (Map.Entry<String, Map<String, AttributeValue>> entry : store.candidates(table, filter, context)) {
+            if (totalSegments != null && totalSegments > 1
+                    && Math.floorMod(entry.getKey().hashCode(), totalSegments) != segment) {
+                continue;
+            }
+            scanned++;
+            if (filter == null || filter.test(entry.getValue(), context)) {
+                matches.add(entry.getValue());
+                if (request.limit() != null && matches.size() >= request.limit()) {
+                    break;
+                }
+            }
+        }
+
+        return ok(ScanResponse.builder()
+                .items(project(matches, request.projectionExpression(), context))
+                .count(matches.size())
+                .scannedCount(scanned));
+    }
+
+    @Override
+    public ScanIterable scanPaginator(ScanRequest request) {
+        return new ScanIterable(this, request);
+    }
+
+    @Override
+    public QueryIterable queryPaginator(QueryRequest request) {
+        return new QueryIterable(this, request);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close the embedded store", e);
+        }
+    }
+
+    private static Expressions.Context context(Map<String, String> names, Map<String, AttributeValue> values) {
+        return new Expressions.Context(names, values);
+    }
+
+    private static Expressions.Condition condition(String expression) {
+        return expression != null && !expression.isBlank() ? Expressions.condition(expression) : null;
+    }
+
+    private static List<Map<String, AttributeValue>> project(List<Map<String, AttributeValue>> items, String projection,
+                                                             Expressions.Context context) {
+        if (projection == null || projection.isBlank()) {
+            return items;
+        }
+        List<Map<String, AttributeValue>> projected = new ArrayList<>(items.size());
+        items.forEach(item -> projected.add(project(item, projection, context)));
+        return projected;
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projection,
+                                                       Expressions.Context context) {
+        if (projection == null || projection.isBlank()) {
+            return item;
+        }
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (String name : Expressions.projection(projection, context)) {
+            AttributeValue value = item.get(name);
+            if (value != null) {
+                projected.put(name, value);
+            }
+        }
+        return projected;
+    }
+
+    // The table key plus the index key of item, which is what a LastEvaluatedKey holds
+    private static Map<String, AttributeValue> keyAttributes(Map<String, AttributeValue> item, TableSchema schema,
+                                                             String partitionKey, String sortKey) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String attribute : new String[]{schema.partitionKey(), schema.sortKey(), partitionKey, sortKey}) {
+            if (attribute != null) {
+                key.put(attribute, item.get(attribute));
+            }
+        }
+        return key;
+    }
+
+    private static Map<String, AttributeValue> select(Map<String, AttributeValue> item, Expressions.Update update,
+                                                      Expressions.Context context) {
+        Map<String, AttributeValue> selected = new HashMap<>();
+        if (update != null) {
+            for (String name : update.attributeNames(context)) {
+                AttributeValue value = item.get(name);
+                if (value != null) {
+                    selected.put(name, value);
+                }
+            }
+        }
+        return selected;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends SdkResponse> T ok(SdkResponse.Builder response) {
+        return (T) response.sdkHttpResponse(OK).build();
+    }
+}
@@ -0,0 +1,50 @@
+package org.JustRun.SingleNode.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Parent-context storage for single-node mode. With storage.engine=embedded every hosted service
+ * gets this client instead of building its own AWS one (their AwsConfig beans back off), so all
+ * of them share one on-disk store.
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.engine", havingValue = "embedded")
+public class EmbeddedStorageConfig {
+
+    @Value("${storage.embedded.data-dir:./justrun-data}")
+    private String dataDir;
+
+    @Value("${storage.embedded.log-region-mb:64}")
+    private int logRegionMb;
+
+    @Value("${storage.embedded.sync-interval-ms:1000}")
+    private long syncIntervalMs;
+
+    @Value("${storage.embedded.snapshot-interval-ms:300000}")
+    private long snapshotIntervalMs;
+
+    // How often items past their TTL attribute are deleted
+    @Value("${storage.embedded.expiry-interval-ms:60000}")
+    private long expiryIntervalMs;
+
+    // The services' async AWS clients would send their writes to AWS while reads hit this store
+    @Value("${aws.async.enabled:false}")
+    private boolean asyncClients;
+
+    @Bean(destroyMethod = "close")
+    public DynamoDbClient dynamoDbClient() throws IOException {
+        if (asyncClients) {
+            throw new IllegalStateException("aws.async.enabled=true is not supported with storage.engine=embedded");
+        }
+        EmbeddedStore store = new EmbeddedStore(Path.of(dataDir), TableSchema.justRunTables().values(),
+                logRegionMb * 1024 * 1024, syncIntervalMs, snapshotIntervalMs, expiryIntervalMs);
+        return new EmbeddedDynamoDbClient(store);
+    }
+}
@@ -0,0 +1,736 @@
+package org.JustRun.SingleNode.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Single-process store behind {@link EmbeddedDynamoDbClient}. Items live in memory with hash and
+ * sorted indexes; every write is first appended to a memory-mapped log
+ * ([length][crc32][op][table][item]) and the whole state is periodically written to a snapshot,
+ * after which older logs are dropped. Recovery loads the snapshot and replays the logs after it,
+ * stopping at the first torn record.
+ * <p>
+ * Writes are serialized by one lock, which is what makes conditional writes atomic; reads do not
+ * take it. The log is forced to disk every sync interval, so an OS crash can lose at most that
+ * much; a JVM crash loses nothing that was acknowledged.
+ * <p>
+ * Like DynamoDB TTL, expired items stay readable until the periodic expiry sweep deletes them.
+ */
+@Slf4j
+final class EmbeddedStore implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x4A52534E;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String LOG_PREFIX = "log-";
+    private static final String LOG_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int regionBytes;
+    private final Map<String, Table> tables = new HashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService maintenance;
+
+    private FileChannel logChannel;
+    private MappedByteBuffer logBuffer;
+    private long regionStart;
+    private int generation;
+    private volatile long bytesSinceSnapshot;
+
+    EmbeddedStore(Path directory, Collection<TableSchema> schemas, int regionBytes,
+                  long syncIntervalMs, long snapshotIntervalMs, long expiryIntervalMs) throws IOException {
+        this.directory = directory;
+        this.regionBytes = regionBytes;
+        schemas.forEach(schema -> tables.put(schema.name(), new Table(schema)));
+
+        Files.createDirectories(directory);
+        recover();
+        // Start every run from a fresh snapshot so the log is never appended to after a restart
+        snapshot();
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::snapshotIfChanged, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::expire, expiryIntervalMs, expiryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // ---- Tables and indexes ----
+
+    static final class Table {
+        final TableSchema schema;
+        final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+        final Map<String, Map<String, Set<String>>> hashIndexes = new HashMap<>();
+        final Map<String, NavigableMap<String, Set<String>>> stringIndexes = new HashMap<>();
+        final Map<String, NavigableMap<BigDecimal, Set<String>>> numberIndexes = new HashMap<>();
+
+        Table(TableSchema schema) {
+            this.schema = schema;
+            schema.hashIndexes().forEach(attribute -> hashIndexes.put(attribute, new ConcurrentHashMap<>()));
+            schema.globalIndexes().values().forEach(index -> hashIndexes.putIfAbsent(index.partitionKey(), new ConcurrentHashMap<>()));
+            schema.sortedIndexes().forEach(attribute -> {
+                stringIndexes.put(attribute, new ConcurrentSkipListMap<>());
+                numberIndexes.put(attribute, new ConcurrentSkipListMap<>());
+            });
+        }
+
+        String keyOf(Map<String, AttributeValue> item) {
+            String partition = indexKey(item.get(schema.partitionKey()));
+            if (partition == null) {
+                throw Expressions.validation("Missing or invalid key attribute " + schema.partitionKey() + " for table " + schema.name());
+            }
+            if (schema.sortKey() == null) {
+                return partition;
+            }
+            String sort = indexKey(item.get(schema.sortKey()));
+            if (sort == null) {
+                throw Expressions.validation("Missing or invalid key attribute " + schema.sortKey() + " for table " + schema.name());
+            }
+            return partition + '\u0000' + sort;
+        }
+
+        void index(String key, Map<String, AttributeValue> item) {
+            hashIndexes.forEach((attribute, index) -> {
+                String value = indexKey(item.get(attribute));
+                if (value != null) {
+                    index.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+                }
+            });
+            stringIndexes.forEach((attribute, index) -> {
+                AttributeValue value = item.get(attribute);
+                if (value != null && value.s() != null) {
+                    index.computeIfAbsent(value.s(), v -> ConcurrentHashMap.newKeySet()).add(key);
+                }
+            });
+            numberIndexes.forEach((attribute, index) -> {
+                AttributeValue value = item.get(attribute);
+                if (value != null && value.n() != null) {
+                    index.computeIfAbsent(new BigDecimal(value.n()), v -> ConcurrentHashMap.newKeySet()).add(key);
+                }
+            });
+        }
+
+        void unindex(String key, Map<String, AttributeValue> item) {
+            hashIndexes.forEach((attribute, index) -> {
+                String value = indexKey(item.get(attribute));
+                if (value != null) {
+                    removeFrom(index, value, key);
+                }
+            });
+            stringIndexes.forEach((attribute, index) -> {
+                AttributeValue value = item.get(attribute);
+                if (value != null && value.s() != null) {
+                    removeFrom(index, value.s(), key);
+                }
+            });
+            numberIndexes.forEach((attribute, index) -> {
+                AttributeValue value = item.get(attribute);
+                if (value != null && value.n() != null) {
+                    removeFrom(index, new BigDecimal(value.n()), key);
+                }
+            });
+        }
+
+        private static <K> void removeFrom(Map<K, Set<String>> index, K value, String key) {
+            Set<String> keys = index.get(value);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    index.remove(value, keys);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalized form of a scalar for hash lookups; null for non-scalar or missing values.
+     */
+    static String indexKey(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.s() != null) {
+            return "S" + value.s();
+        }
+        if (value.n() != null) {
+            return "N" + new BigDecimal(value.n()).stripTrailingZeros().toPlainString();
+        }
+        if (value.b() != null) {
+            return "B" + Base64.getEncoder().encodeToString(value.b().asByteArrayUnsafe());
+        }
+        return null;
+    }
+
+    Table table(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            throw ResourceNotFoundException.builder().message("Requested resource not found: table " + name).build();
+        }
+        return table;
+    }
+
+    // ---- Reads ----
+
+    Map<String, AttributeValue> get(String tableName, Map<String, AttributeValue> key) {
+        Table table = table(tableName);
+        return table.items.get(table.keyOf(key));
+    }
+
+    /**
+     * Items that may satisfy {@code condition}, narrowed with an index when one of its top-level
+     * conjuncts is an equality or range test on an indexed attribute. Callers still evaluate
+     * the full condition on every returned item.
+     */
+    Collection<Map.Entry<String, Map<String, AttributeValue>>> candidates(Table table, Expressions.Condition condition,
+                                                                          Expressions.Context context) {
+        Set<String> keys = condition != null ? plan(table, condition, context) : null;
+        if (keys == null) {
+            return table.items.entrySet();
+        }
+
+        List<Map.Entry<String, Map<String, AttributeValue>>> entries = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Map<String, AttributeValue> item = table.items.get(key);
+            if (item != null) {
+                entries.add(Map.entry(key, item));
+            }
+        }
+        return entries;
+    }
+
+    private Set<String> plan(Table table, Expressions.Condition condition, Expressions.Context context) {
+        List<Expressions.Condition> conjuncts = condition instanceof Expressions.And and ? and.conditions() : List.of(condition);
+        // Use the narrowest usable conjunct, e.g. "#next < :overdueBefore" rather than "#next > :unset"
+        Set<String> best = null;
+        for (Expressions.Condition conjunct : conjuncts) {
+            Set<String> keys = planConjunct(table, conjunct, context);
+            if (keys != null && (best == null || keys.size() < best.size())) {
+                best = keys;
+            }
+        }
+        return best;
+    }
+
+    private Set<String> planConjunct(Table table, Expressions.Condition conjunct, Expressions.Context context) {
+        if (conjunct instanceof Expressions.Between between
+                && between.operand() instanceof Expressions.Path path
+                && between.low() instanceof Expressions.Placeholder low
+                && between.high() instanceof Expressions.Placeholder high) {
+            return range(table, context.name(path.raw()), context.value(low.raw()), true, context.value(high.raw()), true);
+        }
+
+        if (!(conjunct instanceof Expressions.Comparison comparison)) {
+            return null;
+        }
+        Expressions.Path path;
+        AttributeValue value;
+        String operator = comparison.operator();
+        if (comparison.left() instanceof Expressions.Path left && comparison.right() instanceof Expressions.Placeholder right) {
+            path = left;
+            value = context.value(right.raw());
+        } else if (comparison.left() instanceof Expressions.Placeholder left && comparison.right() instanceof Expressions.Path right) {
+            path = right;
+            value = context.value(left.raw());
+            operator = switch (operator) {
+                case "<" -> ">";
+                case "<=" -> ">=";
+                case ">" -> "<";
+                case ">=" -> "<=";
+                default -> operator;
+            };
+        } else {
+            return null;
+        }
+
+        String attribute = context.name(path.raw());
+        switch (operator) {
+            case "=": {
+                if (attribute.equals(table.schema.partitionKey()) && table.schema.sortKey() == null) {
+                    String key = indexKey(value);
+                    return key != null && table.items.containsKey(key) ? Set.of(key) : Set.of();
+                }
+                Map<String, Set<String>> index = table.hashIndexes.get(attribute);
+                if (index != null) {
+                    String key = indexKey(value);
+                    Set<String> keys = key != null ? index.get(key) : null;
+                    return keys != null ? new LinkedHashSet<>(keys) : Set.of();
+                }
+                return range(table, attribute, value, true, value, true);
+            }
+            case "<":
+                return range(table, attribute, null, false, value, false);
+            case "<=":
+                return range(table, attribute, null, false, value, true);
+            case ">":
+                return range(table, attribute, value, false, null, false);
+            case ">=":
+                return range(table, attribute, value, true, null, false);
+            default:
+                return null;
+        }
+    }
+
+    private Set<String> range(Table table, String attribute, AttributeValue low, boolean lowInclusive,
+                              AttributeValue high, boolean highInclusive) {
+        AttributeValue bound = low != null ? low : high;
+        NavigableMap<?, Set<String>> range;
+        if (bound.s() != null && table.stringIndexes.containsKey(attribute)) {
+            range = slice(table.stringIndexes.get(attribute),
+                    low != null ? low.s() : null, lowInclusive, high != null ? high.s() : null, highInclusive);
+        } else if (bound.n() != null && table.numberIndexes.containsKey(attribute)) {
+            range = slice(table.numberIndexes.get(attribute),
+                    low != null ? new BigDecimal(low.n()) : null, lowInclusive,
+                    high != null ? new BigDecimal(high.n()) : null, highInclusive);
+        } else {
+            return null;
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        range.values().forEach(keys::addAll);
+        return keys;
+    }
+
+    private static <K extends Comparable<K>> NavigableMap<K, Set<String>> slice(NavigableMap<K, Set<String>> index,
+                                                                              K low, boolean lowInclusive,
+                                                                              K high, boolean highInclusive) {
+        if (low != null && high != null) {
+            return low.compareTo(high) > 0 ? new TreeMap<>() : index.subMap(low, lowInclusive, high, highInclusive);
+        }
+        return low != null ? index.tailMap(low, lowInclusive) : index.headMap(high, highInclusive);
+    }
+
+    // ---- Writes ----
+
+    /**
+     * Writes {@code item} if {@code condition} holds for the current item; returns the previous item.
+     */
+    Map<String, AttributeValue> put(String tableName, Map<String, AttributeValue> item,
+                                    Expressions.Condition condition, Expressions.Context context) {
+        Table table = table(tableName);
+        String key = table.keyOf(item);
+        writeLock.lock();
+        try {
+            Map<String, AttributeValue> previous = table.items.get(key);
+            check(condition, previous, context);
+            Map<String, AttributeValue> stored = Map.copyOf(item);
+            append(OP_PUT, tableName, stored);
+            apply(table, key, previous, stored);
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies {@code update} to the item with {@code key} (creating it when absent) if
+     * {@code condition} holds; returns the item before and after the update.
+     */
+    List<Map<String, AttributeValue>> update(String tableName, Map<String, AttributeValue> key,
+                                             Expressions.Update update, Expressions.Condition condition,
+                                             Expressions.Context context) {
+        Table table = table(tableName);
+        String itemKey = table.keyOf(key);
+        writeLock.lock();
+        try {
+            Map<String, AttributeValue> previous = table.items.get(itemKey);
+            check(condition, previous, context);
+
+            Map<String, AttributeValue> base = new HashMap<>();
+            base.put(table.schema.partitionKey(), key.get(table.schema.partitionKey()));
+            if (table.schema.sortKey() != null) {
+                base.put(table.schema.sortKey(), key.get(table.schema.sortKey()));
+            }
+            if (previous != null) {
+                base.putAll(previous);
+            }
+            Map<String, AttributeValue> updated = update != null ? update.apply(base, context) : base;
+            if (!itemKey.equals(table.keyOf(updated))) {
+                throw Expressions.validation("Cannot update attribute that is part of the key");
+            }
+
+            Map<String, AttributeValue> stored = Map.copyOf(updated);
+            append(OP_PUT, tableName, stored);
+            apply(table, itemKey, previous, stored);
+            List<Map<String, AttributeValue>> result = new ArrayList<>(2);
+            result.add(previous);
+            result.add(stored);
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the item with {@code key} if {@code condition} holds; returns the deleted item.
+     */
+    Map<String, AttributeValue> delete(String tableName, Map<String, AttributeValue> key,
+                                       Expressions.Condition condition, Expressions.Context context) {
+        Table table = table(tableName);
+        String itemKey = table.keyOf(key);
+        writeLock.lock();
+        try {
+            Map<String, AttributeValue> previous = table.items.get(itemKey);
+            check(condition, previous, context);
+            if (previous != null) {
+                append(OP_DELETE, tableName, previous);
+                apply(table, itemKey, previous, null);
+            }
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void check(Expressions.Condition condition, Map<String, AttributeValue> current, Expressions.Context context) {
+        if (condition != null && !condition.test(current, context)) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+    }
+
+    private void apply(Table table, String key, Map<String, AttributeValue> previous, Map<String, AttributeValue> next) {
+        // Index the new version before publishing it and unindex the old one after, so a concurrent
+        // index lookup always finds the key under at least one of its values
+        if (next != null) {
+            table.index(key, next);
+            table.items.put(key, next);
+        } else {
+            table.items.remove(key);
+        }
+        if (previous != null) {
+            table.unindex(key, previous);
+            if (next != null) {
+                table.index(key, next);
+            }
+        }
+    }
+
+    // ---- Expiry ----
+
+    private void expire() {
+        BigDecimal now = BigDecimal.valueOf(System.currentTimeMillis() / 1000);
+        for (Table table : tables.values()) {
+            String attribute = table.schema.ttlAttribute();
+            if (attribute == null) {
+                continue;
+            }
+            int expired = 0;
+            for (Map.Entry<String, Map<String, AttributeValue>> entry : table.items.entrySet()) {
+                if (!isExpired(entry.getValue(), attribute, now)) {
+                    continue;
+                }
+                writeLock.lock();
+                try {
+                    // Re-read under the lock: the item may have been rewritten with a later expiry
+                    Map<String, AttributeValue> current = table.items.get(entry.getKey());
+                    if (current != null && isExpired(current, attribute, now)) {
+                        append(OP_DELETE, table.schema.name(), current);
+                        apply(table, entry.getKey(), current, null);
+                        expired++;
+                    }
+                } catch (Exception e) {
+                    log.error("Embedded store expiry failed for table {}: {}", table.schema.name(), e.getMessage(), e);
+                    return;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            if (expired > 0) {
+                log.debug("Expired {} items from embedded table {}", expired, table.schema.name());
+            }
+        }
+    }
+
+    private static boolean isExpired(Map<String, AttributeValue> item, String attribute, BigDecimal now) {
+        AttributeValue value = item.get(attribute);
+        // Like DynamoDB, anything that is not a number is ignored
+        if (value == null || value.n() == null) {
+            return false;
+        }
+        try {
+            return new BigDecimal(value.n()).compareTo(now) < 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // ---- Log ----
+
+    private void append(byte op, String tableName, Map<String, AttributeValue> item) {
+        byte[] body = encode(op, tableName, item);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        int needed = 8 + body.length;
+        try {
+            // Keep at least four zero bytes after the last record as the end marker
+            if (logBuffer.remaining() < needed + 4) {
+                mapRegion(regionStart + logBuffer.position(), Math.max(regionBytes, needed + 4));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extend the embedded store log", e);
+        }
+        logBuffer.putInt(body.length);
+        logBuffer.putInt((int) crc.getValue());
+        logBuffer.put(body);
+        bytesSinceSnapshot += needed;
+    }
+
+    private static byte[] encode(byte op, String tableName, Map<String, AttributeValue> item) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            out.writeUTF(tableName);
+            AttributeValueCodec.writeItem(out, item);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void mapRegion(long start, int size) throws IOException {
+        if (logBuffer != null) {
+            logBuffer.force();
+        }
+        regionStart = start;
+        logBuffer = logChannel.map(FileChannel.MapMode.READ_WRITE, start, size);
+    }
+
+    private void openLog(int newGeneration) throws IOException {
+        if (logChannel != null) {
+            closeLog();
+        }
+        generation = newGeneration;
+        logChannel = FileChannel.open(logPath(newGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logBuffer = null;
+        mapRegion(0, regionBytes);
+    }
+
+    private void closeLog() throws IOException {
+        logBuffer.force();
+        long end = regionStart + logBuffer.position();
+        logChannel.truncate(end);
+        logChannel.close();
+    }
+
+    private Path logPath(int logGeneration) {
+        return directory.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+    }
+
+    private void sync() {
+        MappedByteBuffer buffer = logBuffer;
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    // ---- Snapshots and recovery ----
+
+    private void snapshotIfChanged() {
+        if (bytesSinceSnapshot == 0) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (Exception e) {
+            log.error("Embedded store snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void snapshot() throws IOException {
+        int snapshotGeneration;
+        Map<String, List<Map<String, AttributeValue>>> state = new HashMap<>();
+        writeLock.lock();
+        try {
+            // Writes from here on go to the next log, which is replayed on top of this snapshot
+            openLog(generation + 1);
+            snapshotGeneration = generation;
+            tables.forEach((name, table) -> state.put(name, new ArrayList<>(table.items.values())));
+            bytesSinceSnapshot = 0;
+        } finally {
+            writeLock.unlock();
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        long itemCount = 0;
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(snapshotGeneration);
+            out.writeInt(state.size());
+            for (Map.Entry<String, List<Map<String, AttributeValue>>> table : state.entrySet()) {
+                out.writeUTF(table.getKey());
+                out.writeInt(table.getValue().size());
+                for (Map<String, AttributeValue> item : table.getValue()) {
+                    AttributeValueCodec.writeItem(out, item);
+                }
+                itemCount += table.getValue().size();
+            }
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (int old : logGenerations()) {
+            if (old < snapshotGeneration) {
+                Files.deleteIfExists(logPath(old));
+            }
+        }
+        log.info("Embedded store snapshot at generation {} with {} item(s).", snapshotGeneration, itemCount);
+    }
+
+    private void recover() throws IOException {
+        int snapshotGeneration = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not an embedded store snapshot: " + snapshot);
+                }
+                snapshotGeneration = in.readInt();
+                int tableCount = in.readInt();
+                for (int t = 0; t < tableCount; t++) {
+                    String name = in.readUTF();
+                    int count = in.readInt();
+                    Table table = tables.get(name);
+                    for (int i = 0; i < count; i++) {
+                        Map<String, AttributeValue> item = Map.copyOf(AttributeValueCodec.readItem(in));
+                        if (table != null) {
+                            apply(table, table.keyOf(item), null, item);
+                        }
+                    }
+                }
+            }
+        }
+
+        int lastGeneration = snapshotGeneration;
+        long replayed = 0;
+        for (int logGeneration : logGenerations()) {
+            if (logGeneration >= snapshotGeneration) {
+                replayed += replay(logPath(logGeneration));
+                lastGeneration = Math.max(lastGeneration, logGeneration);
+            }
+        }
+        generation = lastGeneration;
+        log.info("Embedded store recovered from {} (snapshot generation {}, {} log record(s) replayed).",
+                directory, snapshotGeneration, replayed);
+    }
+
+    private long replay(Path logFile) throws IOException {
+        long records = 0;
+        long remaining = Files.size(logFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] body;
+                try {
+                    length = in.readInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    // A torn length could ask for more than the file holds
+                    if (length > remaining - 8) {
+                        log.warn("Stopping replay of {} at a torn record after {} record(s).", logFile, records);
+                        break;
+                    }
+                    checksum = in.readInt();
+                    body = new byte[length];
+                    in.readFully(body);
+                    remaining -= 8 + length;
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Stopping replay of {} at a torn record after {} record(s).", logFile, records);
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                byte op = record.readByte();
+                Table table = tables.get(record.readUTF());
+                Map<String, AttributeValue> item = Map.copyOf(AttributeValueCodec.readItem(record));
+                if (table != null) {
+                    String key = table.keyOf(item);
+                    apply(table, key, table.items.get(key), op == OP_PUT ? item : null);
+                }
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private List<Integer> logGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            if (logChannel != null) {
+                closeLog();
+                logChannel = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
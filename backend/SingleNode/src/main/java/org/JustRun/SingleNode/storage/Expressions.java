@@ -0,0 +1,544 @@
+package org.JustRun.SingleNode.storage;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parser and evaluator for the DynamoDB expression language: condition, filter and key-condition
+ * expressions (comparisons, BETWEEN, IN, AND/OR/NOT, attribute_exists, attribute_not_exists,
+ * begins_with, contains), update expressions (SET with +, - and if_not_exists, REMOVE) and
+ * projections. Paths are top-level attribute names or #placeholders. Parsed expressions are
+ * cached, since repositories reuse a handful of expression strings.
+ */
+final class Expressions {
+
+    private static final Map<String, Condition> CONDITIONS = new ConcurrentHashMap<>();
+    private static final Map<String, Update> UPDATES = new ConcurrentHashMap<>();
+
+    private Expressions() {
+    }
+
+    /**
+     * Expression attribute names and values of one request.
+     */
+    record Context(Map<String, String> names, Map<String, AttributeValue> values) {
+
+        String name(String path) {
+            if (!path.startsWith("#")) {
+                return path;
+            }
+            String name = names != null ? names.get(path) : null;
+            if (name == null) {
+                throw validation("Undefined expression attribute name " + path);
+            }
+            return name;
+        }
+
+        AttributeValue value(String placeholder) {
+            AttributeValue value = values != null ? values.get(placeholder) : null;
+            if (value == null) {
+                throw validation("Undefined expression attribute value " + placeholder);
+            }
+            return value;
+        }
+    }
+
+    // ---- AST ----
+
+    interface Operand {
+        AttributeValue resolve(Map<String, AttributeValue> item, Context context);
+    }
+
+    record Path(String raw) implements Operand {
+        @Override
+        public AttributeValue resolve(Map<String, AttributeValue> item, Context context) {
+            return item != null ? item.get(context.name(raw)) : null;
+        }
+    }
+
+    record Placeholder(String raw) implements Operand {
+        @Override
+        public AttributeValue resolve(Map<String, AttributeValue> item, Context context) {
+            return context.value(raw);
+        }
+    }
+
+    interface Condition {
+        boolean test(Map<String, AttributeValue> item, Context context);
+    }
+
+    record And(List<Condition> conditions) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            for (Condition condition : conditions) {
+                if (!condition.test(item, context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    record Or(List<Condition> conditions) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            for (Condition condition : conditions) {
+                if (condition.test(item, context)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    record Not(Condition condition) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            return !condition.test(item, context);
+        }
+    }
+
+    record Comparison(Operand left, String operator, Operand right) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            AttributeValue a = left.resolve(item, context);
+            AttributeValue b = right.resolve(item, context);
+            if (a == null || b == null) {
+                return "<>".equals(operator);
+            }
+            if ("=".equals(operator)) {
+                return valueEquals(a, b);
+            }
+            if ("<>".equals(operator)) {
+                return !valueEquals(a, b);
+            }
+            Integer order = compare(a, b);
+            if (order == null) {
+                return false;
+            }
+            switch (operator) {
+                case "<":
+                    return order < 0;
+                case "<=":
+                    return order <= 0;
+                case ">":
+                    return order > 0;
+                default:
+                    return order >= 0;
+            }
+        }
+    }
+
+    record Between(Operand operand, Operand low, Operand high) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            AttributeValue value = operand.resolve(item, context);
+            if (value == null) {
+                return false;
+            }
+            Integer fromLow = compare(value, low.resolve(item, context));
+            Integer toHigh = compare(value, high.resolve(item, context));
+            return fromLow != null && toHigh != null && fromLow >= 0 && toHigh <= 0;
+        }
+    }
+
+    record In(Operand operand, List<Operand> candidates) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            AttributeValue value = operand.resolve(item, context);
+            if (value == null) {
+                return false;
+            }
+            for (Operand candidate : candidates) {
+                if (valueEquals(value, candidate.resolve(item, context))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    record Function(String name, List<Operand> arguments) implements Condition {
+        @Override
+        public boolean test(Map<String, AttributeValue> item, Context context) {
+            AttributeValue first = arguments.get(0).resolve(item, context);
+            switch (name) {
+                case "attribute_exists":
+                    return first != null;
+                case "attribute_not_exists":
+                    return first == null;
+                case "begins_with": {
+                    AttributeValue prefix = arguments.get(1).resolve(item, context);
+                    return first != null && first.s() != null && prefix.s() != null && first.s().startsWith(prefix.s());
+                }
+                default: {
+                    // contains
+                    AttributeValue needle = arguments.get(1).resolve(item, context);
+                    if (first == null) {
+                        return false;
+                    }
+                    if (first.s() != null) {
+                        return needle.s() != null && first.s().contains(needle.s());
+                    }
+                    if (first.hasSs()) {
+                        return first.ss().contains(needle.s());
+                    }
+                    if (first.hasNs()) {
+                        return needle.n() != null && first.ns().stream().anyMatch(n -> new BigDecimal(n).compareTo(new BigDecimal(needle.n())) == 0);
+                    }
+                    if (first.hasL()) {
+                        return first.l().stream().anyMatch(element -> valueEquals(element, needle));
+                    }
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Right-hand side of a SET action.
+     */
+    interface ValueExpression {
+        AttributeValue evaluate(Map<String, AttributeValue> item, Context context);
+    }
+
+    record OperandValue(Operand operand) implements ValueExpression {
+        @Override
+        public AttributeValue evaluate(Map<String, AttributeValue> item, Context context) {
+            AttributeValue value = operand.resolve(item, context);
+            if (value == null) {
+                throw validation("The provided expression refers to an attribute that does not exist in the item");
+            }
+            return value;
+        }
+    }
+
+    record IfNotExists(Path path, Operand fallback) implements ValueExpression {
+        @Override
+        public AttributeValue evaluate(Map<String, AttributeValue> item, Context context) {
+            AttributeValue existing = path.resolve(item, context);
+            return existing != null ? existing : fallback.resolve(item, context);
+        }
+    }
+
+    record Arithmetic(ValueExpression left, char operator, ValueExpression right) implements ValueExpression {
+        @Override
+        public AttributeValue evaluate(Map<String, AttributeValue> item, Context context) {
+            AttributeValue a = left.evaluate(item, context);
+            AttributeValue b = right.evaluate(item, context);
+            if (a.n() == null || b.n() == null) {
+                throw validation("An operand in the update expression has an incorrect data type");
+            }
+            BigDecimal result = operator == '+'
+                    ? new BigDecimal(a.n()).add(new BigDecimal(b.n()))
+                    : new BigDecimal(a.n()).subtract(new BigDecimal(b.n()));
+            return AttributeValue.builder().n(result.toPlainString()).build();
+        }
+    }
+
+    record Update(Map<Path, ValueExpression> sets, List<Path> removes) {
+
+        Map<String, AttributeValue> apply(Map<String, AttributeValue> item, Context context) {
+            Map<String, AttributeValue> updated = new LinkedHashMap<>(item);
+            // All right-hand sides see the item as it was before the update
+            for (Map.Entry<Path, ValueExpression> set : sets.entrySet()) {
+                updated.put(context.name(set.getKey().raw()), set.getValue().evaluate(item, context));
+            }
+            for (Path remove : removes) {
+                updated.remove(context.name(remove.raw()));
+            }
+            return updated;
+        }
+
+        List<String> attributeNames(Context context) {
+            List<String> names = new ArrayList<>();
+            sets.keySet().forEach(path -> names.add(context.name(path.raw())));
+            removes.forEach(path -> names.add(context.name(path.raw())));
+            return names;
+        }
+    }
+
+    // ---- Entry points ----
+
+    static Condition condition(String expression) {
+        return CONDITIONS.computeIfAbsent(expression, text -> {
+            Parser parser = new Parser(text);
+            Condition condition = parser.parseOr();
+            parser.expectEnd();
+            return condition;
+        });
+    }
+
+    static Update update(String expression) {
+        return UPDATES.computeIfAbsent(expression, text -> new Parser(text).parseUpdate());
+    }
+
+    static List<String> projection(String expression, Context context) {
+        List<String> names = new ArrayList<>();
+        for (String path : expression.split(",")) {
+            names.add(context.name(path.trim()));
+        }
+        return names;
+    }
+
+    static boolean valueEquals(AttributeValue a, AttributeValue b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        Integer order = compare(a, b);
+        return order != null ? order == 0 : a.equals(b);
+    }
+
+    /**
+     * Orders two scalars of the same type (S, N or B); null when they cannot be compared.
+     */
+    static Integer compare(AttributeValue a, AttributeValue b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        if (a.s() != null && b.s() != null) {
+            return Integer.signum(a.s().compareTo(b.s()));
+        }
+        if (a.n() != null && b.n() != null) {
+            return new BigDecimal(a.n()).compareTo(new BigDecimal(b.n()));
+        }
+        if (a.b() != null && b.b() != null) {
+            return Integer.signum(Arrays.compareUnsigned(a.b().asByteArrayUnsafe(), b.b().asByteArrayUnsafe()));
+        }
+        return null;
+    }
+
+    static DynamoDbException validation(String message) {
+        return (DynamoDbException) DynamoDbException.builder().message(message).statusCode(400).build();
+    }
+
+    // ---- Parser ----
+
+    private static final class Parser {
+
+        private final List<String> tokens;
+        private int position;
+
+        private Parser(String text) {
+            this.tokens = tokenize(text);
+        }
+
+        private static List<String> tokenize(String text) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isLetterOrDigit(c) || c == '_' || c == '#' || c == ':') {
+                    int start = i++;
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+                        i++;
+                    }
+                    tokens.add(text.substring(start, i));
+                } else if ((c == '<' || c == '>') && i + 1 < text.length() && (text.charAt(i + 1) == '=' || (c == '<' && text.charAt(i + 1) == '>'))) {
+                    tokens.add(text.substring(i, i + 2));
+                    i += 2;
+                } else if ("()=<>,+-".indexOf(c) >= 0) {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else {
+                    throw validation("Invalid character '" + c + "' in expression: " + text);
+                }
+            }
+            return tokens;
+        }
+
+        private String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private boolean peekKeyword(String keyword) {
+            String token = peek();
+            return token != null && token.equalsIgnoreCase(keyword);
+        }
+
+        private String next() {
+            if (position >= tokens.size()) {
+                throw validation("Unexpected end of expression");
+            }
+            return tokens.get(position++);
+        }
+
+        private void expect(String token) {
+            String actual = next();
+            if (!actual.equalsIgnoreCase(token)) {
+                throw validation("Expected '" + token + "' but found '" + actual + "'");
+            }
+        }
+
+        private void expectEnd() {
+            if (position < tokens.size()) {
+                throw validation("Unexpected token '" + tokens.get(position) + "'");
+            }
+        }
+
+        private Condition parseOr() {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(parseAnd());
+            while (peekKeyword("OR")) {
+                next();
+                conditions.add(parseAnd());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new Or(conditions);
+        }
+
+        private Condition parseAnd() {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(parseNot());
+            while (peekKeyword("AND")) {
+                next();
+                conditions.add(parseNot());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new And(conditions);
+        }
+
+        private Condition parseNot() {
+            if (peekKeyword("NOT")) {
+                next();
+                return new Not(parseNot());
+            }
+            return parsePrimary();
+        }
+
+        private Condition parsePrimary() {
+            if ("(".equals(peek())) {
+                next();
+                Condition condition = parseOr();
+                expect(")");
+                return condition;
+            }
+
+            String token = peek();
+            String function = token != null ? token.toLowerCase(Locale.ROOT) : null;
+            if (position + 1 < tokens.size() && "(".equals(tokens.get(position + 1))
+                    && List.of("attribute_exists", "attribute_not_exists", "begins_with", "contains").contains(function)) {
+                next();
+                expect("(");
+                List<Operand> arguments = new ArrayList<>();
+                arguments.add(parseOperand());
+                while (",".equals(peek())) {
+                    next();
+                    arguments.add(parseOperand());
+                }
+                expect(")");
+                int expected = function.startsWith("attribute_") ? 1 : 2;
+                if (arguments.size() != expected) {
+                    throw validation(function + " takes " + expected + " argument(s)");
+                }
+                return new Function(function, arguments);
+            }
+
+            Operand left = parseOperand();
+            if (peekKeyword("BETWEEN")) {
+                next();
+                Operand low = parseOperand();
+                expect("AND");
+                return new Between(left, low, parseOperand());
+            }
+            if (peekKeyword("IN")) {
+                next();
+                expect("(");
+                List<Operand> candidates = new ArrayList<>();
+                candidates.add(parseOperand());
+                while (",".equals(peek())) {
+                    next();
+                    candidates.add(parseOperand());
+                }
+                expect(")");
+                return new In(left, candidates);
+            }
+
+            String operator = next();
+            if (!List.of("=", "<>", "<", "<=", ">", ">=").contains(operator)) {
+                throw validation("Expected a comparison operator but found '" + operator + "'");
+            }
+            return new Comparison(left, operator, parseOperand());
+        }
+
+        private Operand parseOperand() {
+            String token = next();
+            if (token.startsWith(":")) {
+                return new Placeholder(token);
+            }
+            if (token.startsWith("#") || Character.isLetter(token.charAt(0)) || token.charAt(0) == '_') {
+                return new Path(token);
+            }
+            throw validation("Expected an attribute or value but found '" + token + "'");
+        }
+
+        private Update parseUpdate() {
+            Map<Path, ValueExpression> sets = new LinkedHashMap<>();
+            List<Path> removes = new ArrayList<>();
+            while (peek() != null) {
+                String clause = next().toUpperCase(Locale.ROOT);
+                if ("SET".equals(clause)) {
+                    do {
+                        Path path = parsePath();
+                        expect("=");
+                        sets.put(path, parseValueExpression());
+                    } while (consumeComma());
+                } else if ("REMOVE".equals(clause)) {
+                    do {
+                        removes.add(parsePath());
+                    } while (consumeComma());
+                } else {
+                    throw validation("Unsupported update clause " + clause);
+                }
+            }
+            return new Update(sets, removes);
+        }
+
+        private boolean consumeComma() {
+            if (",".equals(peek())) {
+                next();
+                return true;
+            }
+            return false;
+        }
+
+        private Path parsePath() {
+            Operand operand = parseOperand();
+            if (!(operand instanceof Path path)) {
+                throw validation("Expected an attribute name");
+            }
+            return path;
+        }
+
+        private ValueExpression parseValueExpression() {
+            ValueExpression left = parseValueTerm();
+            while ("+".equals(peek()) || "-".equals(peek())) {
+                char operator = next().charAt(0);
+                left = new Arithmetic(left, operator, parseValueTerm());
+            }
+            return left;
+        }
+
+        private ValueExpression parseValueTerm() {
+            if (peekKeyword("if_not_exists") && position + 1 < tokens.size() && "(".equals(tokens.get(position + 1))) {
+                next();
+                expect("(");
+                Path path = parsePath();
+                expect(",");
+                Operand fallback = parseOperand();
+                expect(")");
+                return new IfNotExists(path, fallback);
+            }
+            return new OperandValue(parseOperand());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.JustRun.SingleNode.storage;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Key and index layout of one embedded table. {@code hashIndexes} serve equality lookups,
+ * {@code sortedIndexes} serve range lookups, and {@code globalIndexes} maps a DynamoDB index
+ * name to its partition and (optional) sort attribute for Query. Items whose numeric
+ * {@code ttlAttribute} (epoch seconds) has passed are deleted by the store's expiry sweep.
+ */
+record TableSchema(String name,
+                   String partitionKey,
+                   String sortKey,
+                   Set<String> hashIndexes,
+                   Set<String> sortedIndexes,
+                   Map<String, GlobalIndex> globalIndexes,
+                   String ttlAttribute) {
+
+    record GlobalIndex(String partitionKey, String sortKey) {
+    }
+
+    static TableSchema of(String name, String partitionKey) {
+        return new TableSchema(name, partitionKey, null, Set.of(), Set.of(), Map.of(), null);
+    }
+
+    TableSchema withTtl(String attribute) {
+        return new TableSchema(name, partitionKey, sortKey, hashIndexes, sortedIndexes, globalIndexes, attribute);
+    }
+
+    /**
+     * The tables the JustRun services use, with the indexes their access patterns need.
+     */
+    static Map<String, TableSchema> justRunTables() {
+        return Map.of(
+                "tasks", new TableSchema("tasks", "id", null,
+                        Set.of("userId"), Set.of("nextExecutionTime"), Map.of(), null),
+                "task_executions", new TableSchema("task_executions", "id", null,
+                        Set.of("taskId"), Set.of(),
+                        Map.of("taskId-executionTime-index", new GlobalIndex("taskId", "executionTime"),
+                                "workflowRunId-executionTime-index", new GlobalIndex("workflowRunId", "executionTime")),
+                        "expiresAt"),
+                "task_execution_rollups", new TableSchema("task_execution_rollups", "taskId", "bucket",
+                        Set.of("taskId"), Set.of(), Map.of(), "expiresAt"),
+                "users_auth", new TableSchema("users_auth", "id", null,
+                        Set.of("username", "email"), Set.of(), Map.of(), null),
+                "scanner_shard_leases", of("scanner_shard_leases", "leaseKey"),
+                "task_fire_instances", of("task_fire_instances", "fireInstanceId").withTtl("expiresAt"),
+                "workflow_instances", of("workflow_instances", "instanceId").withTtl("expiresAt"));
+    }
+}
@@ -0,0 +1,79 @@
+package org.JustRun.SingleNode.storage;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AttributeValueCodecTest {
+
+    private static byte[] write(Map<String, AttributeValue> item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        AttributeValueCodec.writeItem(out, item);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, AttributeValue> read(byte[] bytes) throws IOException {
+        return AttributeValueCodec.readItem(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void roundTripsEveryAttributeType() throws IOException {
+        Map<String, AttributeValue> item = new LinkedHashMap<>();
+        item.put("s", AttributeValue.builder().s("héllo").build());
+        item.put("n", AttributeValue.builder().n("-12.50").build());
+        item.put("b", AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[]{0, 1, (byte) 0xFF})).build());
+        item.put("bool", AttributeValue.builder().bool(false).build());
+        item.put("nul", AttributeValue.builder().nul(true).build());
+        item.put("m", AttributeValue.builder().m(Map.of(
+                "inner", AttributeValue.builder().l(AttributeValue.builder().n("1").build()).build())).build());
+        item.put("l", AttributeValue.builder().l(
+                AttributeValue.builder().s("a").build(), AttributeValue.builder().bool(true).build()).build());
+        item.put("ss", AttributeValue.builder().ss("x", "y").build());
+        item.put("ns", AttributeValue.builder().ns("1", "2.5").build());
+        item.put("bs", AttributeValue.builder().bs(SdkBytes.fromUtf8String("p"), SdkBytes.fromUtf8String("q")).build());
+        item.put("emptyList", AttributeValue.builder().l(List.of()).build());
+
+        assertThat(read(write(item))).isEqualTo(item);
+    }
+
+    @Test
+    void roundTripsStringsLongerThanWriteUtfAllows() throws IOException {
+        char[] body = new char[100_000];
+        Arrays.fill(body, 'é');
+        Map<String, AttributeValue> item = Map.of("responseBody", AttributeValue.builder().s(new String(body)).build());
+
+        assertThat(read(write(item))).isEqualTo(item);
+    }
+
+    @Test
+    void truncatedInputFailsRatherThanReturningPartialItems() throws IOException {
+        byte[] bytes = write(Map.of("a", AttributeValue.builder().s("value").build()));
+
+        assertThatThrownBy(() -> read(Arrays.copyOf(bytes, bytes.length - 2))).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void unknownTypeTagsAreRejected() throws IOException {
+        byte[] bytes = write(Map.of("a", AttributeValue.builder().bool(true).build()));
+        // count (4) + name "a" (2 + 1), then the tag
+        bytes[7] = 42;
+
+        assertThatThrownBy(() -> read(bytes)).isInstanceOf(IOException.class).hasMessageContaining("42");
+    }
+}
@@ -0,0 +1,533 @@
+package org.JustRun.SingleNode.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedStoreTest {
+
+    private static final long NEVER = 3_600_000;
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path crashImage;
+
+    private final List<EmbeddedStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() throws IOException {
+        for (EmbeddedStore store : opened) {
+            store.close();
+        }
+    }
+
+    private EmbeddedDynamoDbClient open(Path dataDir) throws IOException {
+        // Background sync, snapshot and expiry stay out of the way; tests drive them through restarts
+        EmbeddedStore store = new EmbeddedStore(dataDir, TableSchema.justRunTables().values(), 64 * 1024, NEVER, NEVER, NEVER);
+        opened.add(store);
+        return new EmbeddedDynamoDbClient(store);
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(String value) {
+        return AttributeValue.builder().n(value).build();
+    }
+
+    private static Map<String, AttributeValue> get(EmbeddedDynamoDbClient client, String table, String keyName, String key) {
+        Map<String, AttributeValue> item = client.getItem(GetItemRequest.builder()
+                .tableName(table).key(Map.of(keyName, s(key))).build()).item();
+        return item.isEmpty() ? null : item;
+    }
+
+    private static void putTask(EmbeddedDynamoDbClient client, String id, String userId, String nextExecutionTime) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", s(id));
+        item.put("userId", s(userId));
+        if (nextExecutionTime != null) {
+            item.put("nextExecutionTime", s(nextExecutionTime));
+        }
+        client.putItem(PutItemRequest.builder().tableName("tasks").item(item).build());
+    }
+
+    private static void putExecution(EmbeddedDynamoDbClient client, String id, String taskId, String executionTime) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", s(id));
+        item.put("taskId", s(taskId));
+        if (executionTime != null) {
+            item.put("executionTime", s(executionTime));
+        }
+        client.putItem(PutItemRequest.builder().tableName("task_executions").item(item).build());
+    }
+
+    // Copies the data directory as it is on disk right now, as a crash would leave it
+    private void crash() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, crashImage.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    private Path newestLog() throws IOException {
+        try (Stream<Path> files = Files.list(crashImage)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("log-"))
+                    .max((a, b) -> Integer.compare(generation(a), generation(b)))
+                    .orElseThrow();
+        }
+    }
+
+    private static int generation(Path log) {
+        String name = log.getFileName().toString();
+        return Integer.parseInt(name.substring("log-".length(), name.length() - ".dat".length()));
+    }
+
+    // Start offsets of the records in a log, followed by the offset of the end marker
+    private static List<Integer> recordOffsets(Path log) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(log));
+        List<Integer> offsets = new ArrayList<>();
+        while (buffer.remaining() >= 4) {
+            offsets.add(buffer.position());
+            int length = buffer.getInt();
+            if (length <= 0) {
+                break;
+            }
+            buffer.position(buffer.position() + 4 + length);
+        }
+        return offsets;
+    }
+
+    // ---- Conditional writes ----
+
+    @Test
+    void conditionalPutFailsWhenTheItemExists() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        PutItemRequest claim = PutItemRequest.builder()
+                .tableName("task_fire_instances")
+                .item(Map.of("fireInstanceId", s("f1"), "owner", s("a")))
+                .conditionExpression("attribute_not_exists(fireInstanceId)")
+                .build();
+        client.putItem(claim);
+
+        PutItemRequest second = claim.toBuilder()
+                .item(Map.of("fireInstanceId", s("f1"), "owner", s("b")))
+                .build();
+
+        assertThatThrownBy(() -> client.putItem(second)).isInstanceOf(ConditionalCheckFailedException.class);
+        assertThat(get(client, "task_fire_instances", "fireInstanceId", "f1")).containsEntry("owner", s("a"));
+    }
+
+    @Test
+    void failedConditionalUpdateLeavesTheItemAndTheLogUntouched() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", "2024-01-01T00:00:00");
+        UpdateItemRequest advance = UpdateItemRequest.builder()
+                .tableName("tasks")
+                .key(Map.of("id", s("t1")))
+                .updateExpression("SET nextExecutionTime = :newTime, lastExecutedAt = :lastExecutedAt")
+                .conditionExpression("nextExecutionTime = :expectedTime")
+                .expressionAttributeValues(Map.of(
+                        ":newTime", s("2024-01-01T00:05:00"),
+                        ":lastExecutedAt", s("2024-01-01T00:00:01"),
+                        ":expectedTime", s("2023-12-31T23:55:00")))
+                .build();
+
+        assertThatThrownBy(() -> client.updateItem(advance)).isInstanceOf(ConditionalCheckFailedException.class);
+        crash();
+
+        assertThat(get(client, "tasks", "id", "t1")).containsEntry("nextExecutionTime", s("2024-01-01T00:00:00"))
+                .doesNotContainKey("lastExecutedAt");
+        assertThat(get(open(crashImage), "tasks", "id", "t1"))
+                .containsEntry("nextExecutionTime", s("2024-01-01T00:00:00"))
+                .doesNotContainKey("lastExecutedAt");
+    }
+
+    @Test
+    void conditionalUpdateMovesTheSortedIndex() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", "2024-01-01T00:00:00");
+        client.updateItem(UpdateItemRequest.builder()
+                .tableName("tasks")
+                .key(Map.of("id", s("t1")))
+                .updateExpression("SET nextExecutionTime = :newTime")
+                .conditionExpression("nextExecutionTime = :expectedTime")
+                .expressionAttributeValues(Map.of(
+                        ":newTime", s("2024-01-01T00:05:00"),
+                        ":expectedTime", s("2024-01-01T00:00:00")))
+                .build());
+
+        ScanRequest due = ScanRequest.builder()
+                .tableName("tasks")
+                .filterExpression("nextExecutionTime <= :now")
+                .expressionAttributeValues(Map.of(":now", s("2024-01-01T00:01:00")))
+                .build();
+        assertThat(client.scan(due).items()).isEmpty();
+        assertThat(client.scan(due.toBuilder()
+                .expressionAttributeValues(Map.of(":now", s("2024-01-01T00:05:00")))
+                .build()).items()).extracting(item -> item.get("id")).containsExactly(s("t1"));
+    }
+
+    @Test
+    void updateWithAttributeNotExistsCreatesTheItemOnce() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        UpdateItemRequest initialize = UpdateItemRequest.builder()
+                .tableName("tasks")
+                .key(Map.of("id", s("t1")))
+                .updateExpression("SET nextExecutionTime = :newTime")
+                .conditionExpression("attribute_not_exists(nextExecutionTime)")
+                .expressionAttributeValues(Map.of(":newTime", s("2024-01-01T00:00:00")))
+                .returnValues(ReturnValue.ALL_NEW)
+                .build();
+
+        assertThat(client.updateItem(initialize).attributes())
+                .containsEntry("id", s("t1"))
+                .containsEntry("nextExecutionTime", s("2024-01-01T00:00:00"));
+        assertThatThrownBy(() -> client.updateItem(initialize)).isInstanceOf(ConditionalCheckFailedException.class);
+    }
+
+    @Test
+    void updateReturnsOnlyTheUpdatedAttributesWhenAsked() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        client.putItem(PutItemRequest.builder()
+                .tableName("task_fire_instances")
+                .item(Map.of("fireInstanceId", s("f1"), "status", s("RUNNING"), "leaseUntil", n("10"), "owner", s("a")))
+                .build());
+
+        Map<String, AttributeValue> updated = client.updateItem(UpdateItemRequest.builder()
+                .tableName("task_fire_instances")
+                .key(Map.of("fireInstanceId", s("f1")))
+                .updateExpression("SET #status = :completed, expiresAt = :expiresAt REMOVE leaseUntil")
+                .conditionExpression("#owner = :me AND #status = :running")
+                .expressionAttributeNames(Map.of("#status", "status", "#owner", "owner"))
+                .expressionAttributeValues(Map.of(":completed", s("COMPLETED"), ":expiresAt", n("99"),
+                        ":me", s("a"), ":running", s("RUNNING")))
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build()).attributes();
+
+        assertThat(updated).containsOnlyKeys("status", "expiresAt");
+        assertThat(get(client, "task_fire_instances", "fireInstanceId", "f1"))
+                .doesNotContainKey("leaseUntil").containsEntry("owner", s("a"));
+    }
+
+    @Test
+    void updatingAKeyAttributeIsRejected() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", null);
+
+        assertThatThrownBy(() -> client.updateItem(UpdateItemRequest.builder()
+                .tableName("tasks")
+                .key(Map.of("id", s("t1")))
+                .updateExpression("SET id = :other")
+                .expressionAttributeValues(Map.of(":other", s("t2")))
+                .build()))
+                .isInstanceOf(DynamoDbException.class)
+                .isNotInstanceOf(ConditionalCheckFailedException.class);
+        assertThat(get(client, "tasks", "id", "t1")).isNotNull();
+        assertThat(get(client, "tasks", "id", "t2")).isNull();
+    }
+
+    @Test
+    void conditionalDeleteFailsWhenTheConditionDoesNotHold() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        client.putItem(PutItemRequest.builder()
+                .tableName("scanner_shard_leases")
+                .item(Map.of("leaseKey", s("shard#0"), "owner", s("a")))
+                .build());
+        DeleteItemRequest release = DeleteItemRequest.builder()
+                .tableName("scanner_shard_leases")
+                .key(Map.of("leaseKey", s("shard#0")))
+                .conditionExpression("#owner = :me")
+                .expressionAttributeNames(Map.of("#owner", "owner"))
+                .expressionAttributeValues(Map.of(":me", s("b")))
+                .build();
+
+        assertThatThrownBy(() -> client.deleteItem(release)).isInstanceOf(ConditionalCheckFailedException.class);
+        assertThat(get(client, "scanner_shard_leases", "leaseKey", "shard#0")).isNotNull();
+
+        client.deleteItem(release.toBuilder().expressionAttributeValues(Map.of(":me", s("a"))).build());
+        assertThat(get(client, "scanner_shard_leases", "leaseKey", "shard#0")).isNull();
+    }
+
+    @Test
+    void hashIndexFollowsAttributeChanges() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", null);
+        putTask(client, "t2", "u1", null);
+        putTask(client, "t1", "u2", null);
+
+        ScanRequest byUser = ScanRequest.builder()
+                .tableName("tasks")
+                .filterExpression("userId = :userId")
+                .expressionAttributeValues(Map.of(":userId", s("u1")))
+                .build();
+        assertThat(client.scan(byUser).items()).extracting(item -> item.get("id")).containsExactly(s("t2"));
+    }
+
+    // ---- Queries ----
+
+    @Test
+    void globalIndexQueryPagesThroughEveryItemInOrder() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        for (int i = 0; i < 25; i++) {
+            // Pairs of executions share a time, so paging has to break ties by primary key
+            putExecution(client, "e" + i, "t1", String.format("2024-01-01T00:%02d:00", i / 2));
+        }
+        putExecution(client, "other", "t2", "2024-01-01T00:00:00");
+        // Without the sort key the item is not in the index
+        putExecution(client, "sparse", "t1", null);
+
+        QueryRequest newestFirst = QueryRequest.builder()
+                .tableName("task_executions")
+                .indexName("taskId-executionTime-index")
+                .keyConditionExpression("taskId = :taskId AND executionTime >= :since")
+                .expressionAttributeValues(Map.of(":taskId", s("t1"), ":since", s("2024-01-01T00:00:00")))
+                .scanIndexForward(false)
+                .limit(4)
+                .build();
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        int pages = 0;
+        for (QueryResponse page : client.queryPaginator(newestFirst)) {
+            items.addAll(page.items());
+            pages++;
+        }
+
+        assertThat(pages).isEqualTo(7);
+        assertThat(items).hasSize(25);
+        assertThat(items).extracting(item -> item.get("id").s()).doesNotHaveDuplicates().doesNotContain("other", "sparse");
+        for (int i = 1; i < items.size(); i++) {
+            assertThat(items.get(i - 1).get("executionTime").s())
+                    .isGreaterThanOrEqualTo(items.get(i).get("executionTime").s());
+        }
+    }
+
+    @Test
+    void queryWithoutLimitFitsInOnePage() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putExecution(client, "e1", "t1", "2024-01-01T00:00:00");
+        putExecution(client, "e2", "t1", "2024-01-01T00:01:00");
+
+        QueryResponse response = client.query(QueryRequest.builder()
+                .tableName("task_executions")
+                .indexName("taskId-executionTime-index")
+                .keyConditionExpression("taskId = :taskId")
+                .expressionAttributeValues(Map.of(":taskId", s("t1")))
+                .build());
+
+        assertThat(response.items()).extracting(item -> item.get("id")).containsExactly(s("e1"), s("e2"));
+        assertThat(response.hasLastEvaluatedKey()).isFalse();
+    }
+
+    @Test
+    void sortKeyConditionsSelectRollupBuckets() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        for (String bucket : List.of("2024-01-01T22", "2024-01-01T23", "2024-01-02T00", "2024-01-02T01")) {
+            client.putItem(PutItemRequest.builder()
+                    .tableName("task_execution_rollups")
+                    .item(Map.of("taskId", s("t1"), "bucket", s(bucket), "count", n("1")))
+                    .build());
+        }
+        client.putItem(PutItemRequest.builder()
+                .tableName("task_execution_rollups")
+                .item(Map.of("taskId", s("t2"), "bucket", s("2024-01-02T00"), "count", n("1")))
+                .build());
+
+        QueryRequest between = QueryRequest.builder()
+                .tableName("task_execution_rollups")
+                .keyConditionExpression("taskId = :taskId AND #bucket BETWEEN :from AND :to")
+                .expressionAttributeNames(Map.of("#bucket", "bucket"))
+                .expressionAttributeValues(Map.of(":taskId", s("t1"), ":from", s("2024-01-01T23"), ":to", s("2024-01-02T00")))
+                .build();
+        assertThat(client.query(between).items()).extracting(item -> item.get("bucket").s())
+                .containsExactly("2024-01-01T23", "2024-01-02T00");
+
+        QueryRequest day = QueryRequest.builder()
+                .tableName("task_execution_rollups")
+                .keyConditionExpression("taskId = :taskId AND begins_with(#bucket, :prefix)")
+                .expressionAttributeNames(Map.of("#bucket", "bucket"))
+                .expressionAttributeValues(Map.of(":taskId", s("t1"), ":prefix", s("2024-01-02")))
+                .scanIndexForward(false)
+                .build();
+        assertThat(client.query(day).items()).extracting(item -> item.get("bucket").s())
+                .containsExactly("2024-01-02T01", "2024-01-02T00");
+    }
+
+    @Test
+    void queryOnAnUnknownIndexIsRejected() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+
+        assertThatThrownBy(() -> client.query(QueryRequest.builder()
+                .tableName("task_executions")
+                .indexName("missing-index")
+                .keyConditionExpression("taskId = :taskId")
+                .expressionAttributeValues(Map.of(":taskId", s("t1")))
+                .build()))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("missing-index");
+    }
+
+    // ---- Recovery ----
+
+    @Test
+    void recoversFromTheSnapshotPlusTheLogAfterACrash() throws IOException {
+        EmbeddedDynamoDbClient first = open(directory);
+        putTask(first, "t1", "u1", "2024-01-01T00:00:00");
+        putTask(first, "t2", "u1", null);
+        opened.remove(opened.size() - 1).close();
+
+        // This run starts from a snapshot holding t1 and t2 and logs everything after it
+        EmbeddedDynamoDbClient second = open(directory);
+        putTask(second, "t3", "u2", null);
+        second.deleteItem(DeleteItemRequest.builder().tableName("tasks").key(Map.of("id", s("t2"))).build());
+        second.updateItem(UpdateItemRequest.builder()
+                .tableName("tasks")
+                .key(Map.of("id", s("t1")))
+                .updateExpression("SET nextExecutionTime = :newTime")
+                .expressionAttributeValues(Map.of(":newTime", s("2024-01-01T00:05:00")))
+                .build());
+        crash();
+
+        EmbeddedDynamoDbClient recovered = open(crashImage);
+        assertThat(get(recovered, "tasks", "id", "t1")).containsEntry("nextExecutionTime", s("2024-01-01T00:05:00"));
+        assertThat(get(recovered, "tasks", "id", "t2")).isNull();
+        assertThat(get(recovered, "tasks", "id", "t3")).containsEntry("userId", s("u2"));
+        // Indexes are rebuilt too
+        assertThat(recovered.scan(ScanRequest.builder()
+                .tableName("tasks")
+                .filterExpression("userId = :userId")
+                .expressionAttributeValues(Map.of(":userId", s("u1")))
+                .build()).items()).extracting(item -> item.get("id")).containsExactly(s("t1"));
+    }
+
+    @Test
+    void recoversRecordsSpanningSeveralLogRegions() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        String body = "x".repeat(20_000);
+        for (int i = 0; i < 10; i++) {
+            client.putItem(PutItemRequest.builder()
+                    .tableName("task_executions")
+                    .item(Map.of("id", s("e" + i), "taskId", s("t1"), "responseBody", s(body)))
+                    .build());
+        }
+        crash();
+
+        EmbeddedDynamoDbClient recovered = open(crashImage);
+        for (int i = 0; i < 10; i++) {
+            assertThat(get(recovered, "task_executions", "id", "e" + i)).containsEntry("responseBody", s(body));
+        }
+    }
+
+    @Test
+    void replayStopsAtATornRecord() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", null);
+        putTask(client, "t2", "u1", null);
+        crash();
+
+        // The last record was only partly written: the file ends in the middle of its body
+        Path log = newestLog();
+        List<Integer> offsets = recordOffsets(log);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(offsets.get(1) + 12);
+        }
+
+        EmbeddedDynamoDbClient recovered = open(crashImage);
+        assertThat(get(recovered, "tasks", "id", "t1")).isNotNull();
+        assertThat(get(recovered, "tasks", "id", "t2")).isNull();
+    }
+
+    @Test
+    void replayStopsAtATornLengthPastTheEndOfTheLog() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", null);
+        putTask(client, "t2", "u1", null);
+        crash();
+
+        Path log = newestLog();
+        List<Integer> offsets = recordOffsets(log);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.seek(offsets.get(1));
+            file.writeInt(Integer.MAX_VALUE);
+        }
+
+        EmbeddedDynamoDbClient recovered = open(crashImage);
+        assertThat(get(recovered, "tasks", "id", "t1")).isNotNull();
+        assertThat(get(recovered, "tasks", "id", "t2")).isNull();
+    }
+
+    @Test
+    void replayStopsAtARecordWithABadChecksum() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", null);
+        putTask(client, "t2", "u1", null);
+        putTask(client, "t3", "u1", null);
+        crash();
+
+        // Corrupt the middle record; nothing after it can be trusted either
+        Path log = newestLog();
+        List<Integer> offsets = recordOffsets(log);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            long last = offsets.get(2) - 1;
+            file.seek(last);
+            int original = file.read();
+            file.seek(last);
+            file.write(original ^ 0xFF);
+        }
+
+        EmbeddedDynamoDbClient recovered = open(crashImage);
+        assertThat(get(recovered, "tasks", "id", "t1")).isNotNull();
+        assertThat(get(recovered, "tasks", "id", "t2")).isNull();
+        assertThat(get(recovered, "tasks", "id", "t3")).isNull();
+    }
+
+    @Test
+    void recoveryAfterATornRecordKeepsAcceptingWrites() throws IOException {
+        EmbeddedDynamoDbClient client = open(directory);
+        putTask(client, "t1", "u1", null);
+        putTask(client, "t2", "u1", null);
+        crash();
+        Path log = newestLog();
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(recordOffsets(log).get(1) + 3);
+        }
+
+        // The recovered run starts a fresh snapshot and log, so its writes survive the next crash
+        EmbeddedDynamoDbClient recovered = open(crashImage);
+        putTask(recovered, "t3", "u1", null);
+        opened.remove(opened.size() - 1).close();
+
+        EmbeddedDynamoDbClient reopened = open(crashImage);
+        assertThat(get(reopened, "tasks", "id", "t1")).isNotNull();
+        assertThat(get(reopened, "tasks", "id", "t2")).isNull();
+        assertThat(get(reopened, "tasks", "id", "t3")).isNotNull();
+    }
+}
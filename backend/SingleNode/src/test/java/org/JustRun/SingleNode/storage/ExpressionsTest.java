@@ -0,0 +1,181 @@
+package org.JustRun.SingleNode.storage;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpressionsTest {
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(String value) {
+        return AttributeValue.builder().n(value).build();
+    }
+
+    private static boolean test(String expression, Map<String, AttributeValue> item,
+                                Map<String, String> names, Map<String, AttributeValue> values) {
+        return Expressions.condition(expression).test(item, new Expressions.Context(names, values));
+    }
+
+    @Test
+    void attributeNotExistsHoldsForMissingItemsAndAttributes() {
+        String expression = "attribute_not_exists(#branch)";
+        Map<String, String> names = Map.of("#branch", "branch_a");
+
+        assertThat(test(expression, null, names, null)).isTrue();
+        assertThat(test(expression, Map.of("instanceId", s("i")), names, null)).isTrue();
+        assertThat(test(expression, Map.of("branch_a", s("done")), names, null)).isFalse();
+    }
+
+    @Test
+    void claimConditionCombinesOrAndParentheses() {
+        // FireInstanceRepository's claim: new, or a running claim whose lease ran out
+        String expression = "attribute_not_exists(fireInstanceId) OR (#status = :running AND leaseUntil < :now)";
+        Map<String, String> names = Map.of("#status", "status");
+        Map<String, AttributeValue> values = Map.of(":running", s("RUNNING"), ":now", n("1000"));
+
+        assertThat(test(expression, null, names, values)).isTrue();
+        assertThat(test(expression, Map.of("fireInstanceId", s("f"), "status", s("RUNNING"), "leaseUntil", n("999")),
+                names, values)).isTrue();
+        assertThat(test(expression, Map.of("fireInstanceId", s("f"), "status", s("RUNNING"), "leaseUntil", n("1000")),
+                names, values)).isFalse();
+        assertThat(test(expression, Map.of("fireInstanceId", s("f"), "status", s("COMPLETED"), "leaseUntil", n("1")),
+                names, values)).isFalse();
+    }
+
+    @Test
+    void beginsWithMatchesStringPrefixesOnly() {
+        String expression = "begins_with(leaseKey, :prefix) AND expiresAt > :now";
+        Map<String, AttributeValue> values = Map.of(":prefix", s("shard#"), ":now", n("10"));
+
+        assertThat(test(expression, Map.of("leaseKey", s("shard#3"), "expiresAt", n("11")), null, values)).isTrue();
+        assertThat(test(expression, Map.of("leaseKey", s("lease#3"), "expiresAt", n("11")), null, values)).isFalse();
+        assertThat(test(expression, Map.of("leaseKey", n("3"), "expiresAt", n("11")), null, values)).isFalse();
+        assertThat(test(expression, Map.of("leaseKey", s("shard#3"), "expiresAt", n("10")), null, values)).isFalse();
+    }
+
+    @Test
+    void betweenIsInclusiveAndComparesByType() {
+        String expression = "#bucket BETWEEN :from AND :to";
+        Map<String, String> names = Map.of("#bucket", "bucket");
+        Map<String, AttributeValue> strings = Map.of(":from", s("2024-01-01T00"), ":to", s("2024-01-01T23"));
+
+        assertThat(test(expression, Map.of("bucket", s("2024-01-01T00")), names, strings)).isTrue();
+        assertThat(test(expression, Map.of("bucket", s("2024-01-01T23")), names, strings)).isTrue();
+        assertThat(test(expression, Map.of("bucket", s("2024-01-02T00")), names, strings)).isFalse();
+        // A number never falls between two strings
+        assertThat(test(expression, Map.of("bucket", n("5")), names, strings)).isFalse();
+
+        Map<String, AttributeValue> numbers = Map.of(":from", n("2"), ":to", n("10"));
+        assertThat(test(expression, Map.of("bucket", n("9.5")), names, numbers)).isTrue();
+        assertThat(test(expression, Map.of("bucket", n("10.0")), names, numbers)).isTrue();
+        assertThat(test(expression, Map.of("bucket", n("11")), names, numbers)).isFalse();
+    }
+
+    @Test
+    void comparisonsWithMissingAttributesAreFalseExceptNotEquals() {
+        Map<String, AttributeValue> values = Map.of(":v", n("1"));
+
+        assertThat(test("a = :v", Map.of(), null, values)).isFalse();
+        assertThat(test("a < :v", Map.of(), null, values)).isFalse();
+        assertThat(test("a <> :v", Map.of(), null, values)).isTrue();
+        assertThat(test("NOT a = :v", Map.of(), null, values)).isTrue();
+    }
+
+    @Test
+    void numbersCompareByValue() {
+        assertThat(test("a = :v", Map.of("a", n("1.50")), null, Map.of(":v", n("1.5")))).isTrue();
+        assertThat(test("a < :v", Map.of("a", n("9")), null, Map.of(":v", n("10")))).isTrue();
+        assertThat(test("a < :v", Map.of("a", s("9")), null, Map.of(":v", s("10")))).isFalse();
+    }
+
+    @Test
+    void inMatchesAnyCandidate() {
+        Map<String, AttributeValue> values = Map.of(":a", s("x"), ":b", s("y"));
+
+        assertThat(test("k IN (:a, :b)", Map.of("k", s("y")), null, values)).isTrue();
+        assertThat(test("k IN (:a, :b)", Map.of("k", s("z")), null, values)).isFalse();
+    }
+
+    @Test
+    void setWithIfNotExistsKeepsExistingValues() {
+        Expressions.Update update = Expressions.update("SET createdAt = if_not_exists(createdAt, :now), updatedAt = :now");
+        Expressions.Context context = new Expressions.Context(null, Map.of(":now", n("200")));
+
+        Map<String, AttributeValue> created = update.apply(Map.of("id", s("a")), context);
+        assertThat(created).containsEntry("createdAt", n("200")).containsEntry("updatedAt", n("200"));
+
+        Map<String, AttributeValue> updated = update.apply(Map.of("id", s("a"), "createdAt", n("100")), context);
+        assertThat(updated).containsEntry("createdAt", n("100")).containsEntry("updatedAt", n("200"));
+    }
+
+    @Test
+    void arithmeticAddsToIfNotExistsDefault() {
+        Expressions.Update update = Expressions.update("SET #count = if_not_exists(#count, :zero) + :one");
+        Expressions.Context context = new Expressions.Context(Map.of("#count", "count"),
+                Map.of(":zero", n("0"), ":one", n("1")));
+
+        Map<String, AttributeValue> first = update.apply(Map.of("id", s("a")), context);
+        assertThat(first).containsEntry("count", n("1"));
+        assertThat(update.apply(first, context)).containsEntry("count", n("2"));
+    }
+
+    @Test
+    void setAndRemoveInOneUpdate() {
+        // FireInstanceRepository's completion
+        Expressions.Update update = Expressions.update("SET #status = :completed, expiresAt = :expiresAt REMOVE leaseUntil");
+        Expressions.Context context = new Expressions.Context(Map.of("#status", "status"),
+                Map.of(":completed", s("COMPLETED"), ":expiresAt", n("99")));
+        Map<String, AttributeValue> item = new HashMap<>(Map.of(
+                "fireInstanceId", s("f"), "status", s("RUNNING"), "leaseUntil", n("50")));
+
+        Map<String, AttributeValue> updated = update.apply(item, context);
+
+        assertThat(updated).containsEntry("status", s("COMPLETED")).containsEntry("expiresAt", n("99"))
+                .doesNotContainKey("leaseUntil");
+        assertThat(update.attributeNames(context)).containsExactly("status", "expiresAt", "leaseUntil");
+    }
+
+    @Test
+    void rightHandSidesSeeTheItemBeforeTheUpdate() {
+        Expressions.Update update = Expressions.update("SET a = b, b = a");
+        Map<String, AttributeValue> swapped = update.apply(Map.of("a", n("1"), "b", n("2")),
+                new Expressions.Context(null, null));
+
+        assertThat(swapped).containsEntry("a", n("2")).containsEntry("b", n("1"));
+    }
+
+    @Test
+    void setFromMissingAttributeIsRejected() {
+        Expressions.Update update = Expressions.update("SET a = missing");
+
+        assertThatThrownBy(() -> update.apply(Map.of(), new Expressions.Context(null, null)))
+                .isInstanceOf(DynamoDbException.class);
+    }
+
+    @Test
+    void undefinedPlaceholdersAreRejected() {
+        assertThatThrownBy(() -> test("#a = :v", Map.of(), null, Map.of(":v", n("1"))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("#a");
+        assertThatThrownBy(() -> test("a = :v", Map.of("a", n("1")), null, Map.of()))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining(":v");
+    }
+
+    @Test
+    void malformedExpressionsAreRejected() {
+        assertThatThrownBy(() -> Expressions.condition("a = :v AND")).isInstanceOf(DynamoDbException.class);
+        assertThatThrownBy(() -> Expressions.condition("a ~ :v")).isInstanceOf(DynamoDbException.class);
+        assertThatThrownBy(() -> Expressions.condition("begins_with(a)")).isInstanceOf(DynamoDbException.class);
+        assertThatThrownBy(() -> Expressions.update("ADD a :v")).isInstanceOf(DynamoDbException.class);
+    }
+}
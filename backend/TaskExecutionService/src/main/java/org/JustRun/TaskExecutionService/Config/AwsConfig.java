@@ -1,31 +1,89 @@
 package org.JustRun.TaskExecutionService.Config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 
+import java.time.Duration;
+
 @Configuration
 public class AwsConfig {
-    @Value("${aws.accessKey}")
+    @Value("${aws.accessKey:}")
     private String accessKey;
 
-    @Value("${aws.secretKey}")
+    @Value("${aws.secretKey:}")
     private String secretKey;
 
     @Value("${aws.region}")
     private String region;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // 0 = 50 on platform threads, 1000 on virtual threads
+    @Value("${aws.http.max-connections:0}")
+    private int maxConnections;
+
+    @Value("${aws.http.connection-timeout-ms:2000}")
+    private long connectionTimeoutMs;
+
+    @Value("${aws.http.socket-timeout-ms:30000}")
+    private long socketTimeoutMs;
+
+    @Value("${aws.http.connection-acquisition-timeout-ms:10000}")
+    private long connectionAcquisitionTimeoutMs;
+
+    @Value("${aws.http.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMs;
+
+    // 0 = connections are kept as long as they stay usable
+    @Value("${aws.http.connection-ttl-ms:0}")
+    private long connectionTtlMs;
+
+    @Value("${aws.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    // -1 = the SDK's default for the service
+    @Value("${aws.retry.max-retries:-1}")
+    private int maxRetries;
+
+    // 0 = no limit
+    @Value("${aws.api-call-timeout-ms:0}")
+    private long apiCallTimeoutMs;
+
+    @Value("${aws.api-call-attempt-timeout-ms:0}")
+    private long apiCallAttemptTimeoutMs;
+
+    @Value("${aws.async.max-concurrency:500}")
+    private int asyncMaxConcurrency;
+
+    @Value("${aws.async.max-pending-acquires:10000}")
+    private int asyncMaxPendingAcquires;
+
+    // Backs off when a surrounding context (single-node mode) already provides the client
     @Bean
+    @ConditionalOnMissingBean
     public DynamoDbClient dynamoDbClient() {
         return DynamoDbClient.builder()
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(accessKey, secretKey)))
+                .credentialsProvider(credentials())
+                .overrideConfiguration(overrides())
+                .httpClientBuilder(httpClient())
                 .build();
     }
 
@@ -33,8 +91,91 @@ public class AwsConfig {
     public SqsClient sqsClient() {
         return SqsClient.builder()
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(accessKey, secretKey)))
+                .credentialsProvider(credentials())
+                .overrideConfiguration(overrides())
+                .httpClientBuilder(httpClient())
+                .build();
+    }
+
+    // Used by the hot-path writes and sends when present; they run on the sync clients otherwise
+    @Bean
+    @ConditionalOnProperty(name = "aws.async.enabled", havingValue = "true")
+    @ConditionalOnMissingBean
+    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+        return DynamoDbAsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials())
+                .overrideConfiguration(overrides())
+                .httpClientBuilder(asyncHttpClient())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aws.async.enabled", havingValue = "true")
+    @ConditionalOnMissingBean
+    public SqsAsyncClient sqsAsyncClient() {
+        return SqsAsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials())
+                .overrideConfiguration(overrides())
+                .httpClientBuilder(asyncHttpClient())
                 .build();
     }
+
+    // Explicit keys when configured, otherwise the default chain (environment, profile, container or instance role)
+    private AwsCredentialsProvider credentials() {
+        if (accessKey == null || accessKey.isBlank()) {
+            return DefaultCredentialsProvider.create();
+        }
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+    }
+
+    private ClientOverrideConfiguration overrides() {
+        ClientOverrideConfiguration.Builder overrides = ClientOverrideConfiguration.builder();
+        if (maxRetries >= 0) {
+            overrides.retryPolicy(RetryPolicy.builder().numRetries(maxRetries).build());
+        }
+        if (apiCallTimeoutMs > 0) {
+            overrides.apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs));
+        }
+        if (apiCallAttemptTimeoutMs > 0) {
+            overrides.apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMs));
+        }
+        return overrides.build();
+    }
+
+    // A caller waiting for a pooled connection pins its carrier thread while it waits (the Apache
+    // client leases inside a synchronized block), so on virtual threads the pool is sized for the
+    // calls in flight instead of queueing them there
+    private ApacheHttpClient.Builder httpClient() {
+        int connections = maxConnections > 0 ? maxConnections : virtualThreads ? 1000 : 50;
+        ApacheHttpClient.Builder httpClient = ApacheHttpClient.builder()
+                .maxConnections(connections)
+                .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMs))
+                .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+                .tcpKeepAlive(tcpKeepAlive);
+        if (connectionTtlMs > 0) {
+            httpClient.connectionTimeToLive(Duration.ofMillis(connectionTtlMs));
+        }
+        return httpClient;
+    }
+
+    // Calls wait for a connection without holding a thread, so the pool can be far larger than a thread pool
+    private NettyNioAsyncHttpClient.Builder asyncHttpClient() {
+        NettyNioAsyncHttpClient.Builder httpClient = NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(asyncMaxConcurrency)
+                .maxPendingConnectionAcquires(asyncMaxPendingAcquires)
+                .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                .readTimeout(Duration.ofMillis(socketTimeoutMs))
+                .writeTimeout(Duration.ofMillis(socketTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMs))
+                .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+                .tcpKeepAlive(tcpKeepAlive);
+        if (connectionTtlMs > 0) {
+            httpClient.connectionTimeToLive(Duration.ofMillis(connectionTtlMs));
+        }
+        return httpClient;
+    }
 }
@@ -0,0 +1,32 @@
+package org.JustRun.TaskExecutionService.Config;
+
+import org.JustRun.TaskExecutionService.queue.InProcessTaskQueue;
+import org.JustRun.TaskExecutionService.queue.SqsTaskQueue;
+import org.JustRun.TaskExecutionService.queue.TaskQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.util.Optional;
+
+@Configuration
+public class QueueTransportConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "queue.transport", havingValue = "sqs", matchIfMissing = true)
+    public TaskQueue sqsTaskQueue(SqsClient sqsClient, Optional<SqsAsyncClient> sqsAsyncClient) {
+        return new SqsTaskQueue(sqsClient, sqsAsyncClient.orElse(null));
+    }
+
+    // A queue provided by a parent context (single-JVM mode) takes precedence
+    @Bean
+    @ConditionalOnProperty(name = "queue.transport", havingValue = "in-process")
+    @ConditionalOnMissingBean(TaskQueue.class)
+    public TaskQueue inProcessTaskQueue(@Value("${queue.in-process.capacity:100000}") int capacity) {
+        return new InProcessTaskQueue(capacity);
+    }
+}
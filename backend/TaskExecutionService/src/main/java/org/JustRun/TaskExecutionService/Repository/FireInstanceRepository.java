@@ -0,0 +1,113 @@
+package org.JustRun.TaskExecutionService.Repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One item per fire instance that an executor has started, keyed by "fireInstanceId".
+ * "status" is RUNNING or COMPLETED, "leaseUntil" (epoch ms) bounds how long a RUNNING claim
+ * blocks other executors, and "expiresAt" (epoch seconds) is the table's TTL attribute.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class FireInstanceRepository {
+
+    private final DynamoDbClient dynamoDbClient;
+    private static final String TABLE_NAME = "task_fire_instances";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    /**
+     * Claims the fire instance unless it has completed or another executor's claim is still live.
+     */
+    public boolean tryClaim(String fireInstanceId, String owner, long now, long leaseUntil, long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("fireInstanceId", AttributeValue.builder().s(fireInstanceId).build());
+        item.put("status", AttributeValue.builder().s(STATUS_RUNNING).build());
+        item.put("owner", AttributeValue.builder().s(owner).build());
+        item.put("leaseUntil", AttributeValue.builder().n(Long.toString(leaseUntil)).build());
+        item.put("expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(fireInstanceId) OR (#status = :running AND leaseUntil < :now)")
+                    .expressionAttributeNames(Map.of("#status", "status"))
+                    .expressionAttributeValues(Map.of(
+                            ":running", AttributeValue.builder().s(STATUS_RUNNING).build(),
+                            ":now", AttributeValue.builder().n(Long.toString(now)).build()))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    public String findStatus(String fireInstanceId) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(key(fireInstanceId))
+                .consistentRead(true)
+                .projectionExpression("#status")
+                .expressionAttributeNames(Map.of("#status", "status"))
+                .build());
+        return response.hasItem() && response.item().containsKey("status") ? response.item().get("status").s() : null;
+    }
+
+    /**
+     * When the current claim's lease ends (epoch ms), or null when the fire instance holds no lease.
+     */
+    public Long findLeaseUntil(String fireInstanceId) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(key(fireInstanceId))
+                .consistentRead(true)
+                .projectionExpression("leaseUntil")
+                .build());
+        return response.hasItem() && response.item().containsKey("leaseUntil")
+                ? Long.valueOf(response.item().get("leaseUntil").n()) : null;
+    }
+
+    public void markCompleted(String fireInstanceId, long expiresAt) {
+        dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(key(fireInstanceId))
+                .updateExpression("SET #status = :completed, expiresAt = :expiresAt REMOVE leaseUntil")
+                .expressionAttributeNames(Map.of("#status", "status"))
+                .expressionAttributeValues(Map.of(
+                        ":completed", AttributeValue.builder().s(STATUS_COMPLETED).build(),
+                        ":expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build()))
+                .build());
+    }
+
+    /**
+     * Drops this executor's claim so a redelivery can run the fire instance again.
+     */
+    public void release(String fireInstanceId, String owner) {
+        try {
+            dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .key(key(fireInstanceId))
+                    .conditionExpression("#owner = :me AND #status = :running")
+                    .expressionAttributeNames(Map.of("#owner", "owner", "#status", "status"))
+                    .expressionAttributeValues(Map.of(
+                            ":me", AttributeValue.builder().s(owner).build(),
+                            ":running", AttributeValue.builder().s(STATUS_RUNNING).build()))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Fire instance {} is no longer claimed by this executor.", fireInstanceId);
+        }
+    }
+
+    private Map<String, AttributeValue> key(String fireInstanceId) {
+        return Map.of("fireInstanceId", AttributeValue.builder().s(fireInstanceId).build());
+    }
+}
@@ -3,7 +3,9 @@ package org.JustRun.TaskExecutionService.Repository;
 
 import lombok.RequiredArgsConstructor;
 import org.JustRun.TaskExecutionService.model.TaskExecution;
+import org.JustRun.TaskExecutionService.service.ExecutionRetentionPolicy;
 import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -12,7 +14,9 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Repository
@@ -20,10 +24,29 @@ import java.util.stream.Collectors;
 public class TaskExecutionRepository {
 
     private final DynamoDbClient dynamoDbClient;
+    // Present when aws.async.enabled
+    private final Optional<DynamoDbAsyncClient> dynamoDbAsyncClient;
+    private final ExecutionRetentionPolicy retentionPolicy;
     private static final String TABLE_NAME = "task_executions";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
 
     public TaskExecution save(TaskExecution execution) {
+        dynamoDbClient.putItem(putRequest(execution));
+        return execution;
+    }
+
+    /**
+     * {@link #save} on the async client when there is one; otherwise saves on the calling thread.
+     * The id is assigned before this returns.
+     */
+    public CompletableFuture<TaskExecution> saveAsync(TaskExecution execution) {
+        if (dynamoDbAsyncClient.isEmpty()) {
+            return CompletableFuture.completedFuture(save(execution));
+        }
+        return dynamoDbAsyncClient.get().putItem(putRequest(execution)).thenApply(response -> execution);
+    }
+
+    private PutItemRequest putRequest(TaskExecution execution) {
         if (execution.getId() == null) {
             execution.setId(UUID.randomUUID().toString());
         }
@@ -34,10 +57,31 @@ public class TaskExecutionRepository {
         item.put("executionTime", AttributeValue.builder().s(execution.getExecutionTime().format(DATE_FORMATTER)).build());
         item.put("status", AttributeValue.builder().s(execution.getStatus()).build());
 
+        if (execution.getUserId() != null) {
+            item.put("userId", AttributeValue.builder().s(execution.getUserId()).build());
+        }
+
+        if (execution.getFireInstanceId() != null) {
+            item.put("fireInstanceId", AttributeValue.builder().s(execution.getFireInstanceId()).build());
+        }
+
+        // Key of the workflowRunId-executionTime-index
+        if (execution.getWorkflowRunId() != null) {
+            item.put("workflowRunId", AttributeValue.builder().s(execution.getWorkflowRunId()).build());
+        }
+
+        if (execution.getParentExecutionId() != null) {
+            item.put("parentExecutionId", AttributeValue.builder().s(execution.getParentExecutionId()).build());
+        }
+
         if (execution.getStatusCode() != null) {
             item.put("statusCode", AttributeValue.builder().n(execution.getStatusCode().toString()).build());
         }
 
+        if (execution.getDurationMs() != null) {
+            item.put("durationMs", AttributeValue.builder().n(execution.getDurationMs().toString()).build());
+        }
+
         if (execution.getResponse() != null) {
             item.put("response", AttributeValue.builder().s(execution.getResponse()).build());
         }
@@ -54,13 +98,16 @@ public class TaskExecutionRepository {
             item.put("nextRetry", AttributeValue.builder().s(execution.getNextRetry().format(DATE_FORMATTER)).build());
         }
 
-        PutItemRequest request = PutItemRequest.builder()
+        // DynamoDB TTL attribute; the scanner's rollups keep the aggregate history
+        Long expiresAt = retentionPolicy.expiresAt(execution);
+        if (expiresAt != null) {
+            item.put("expiresAt", AttributeValue.builder().n(expiresAt.toString()).build());
+        }
+
+        return PutItemRequest.builder()
                 .tableName(TABLE_NAME)
                 .item(item)
                 .build();
-
-        dynamoDbClient.putItem(request);
-        return execution;
     }
 
     private TaskExecution mapToTaskExecution(Map<String, AttributeValue> item) {
@@ -70,10 +117,30 @@ public class TaskExecutionRepository {
         execution.setExecutionTime(LocalDateTime.parse(item.get("executionTime").s(), DATE_FORMATTER));
         execution.setStatus(item.get("status").s());
 
+        if (item.containsKey("userId")) {
+            execution.setUserId(item.get("userId").s());
+        }
+
+        if (item.containsKey("fireInstanceId")) {
+            execution.setFireInstanceId(item.get("fireInstanceId").s());
+        }
+
+        if (item.containsKey("workflowRunId")) {
+            execution.setWorkflowRunId(item.get("workflowRunId").s());
+        }
+
+        if (item.containsKey("parentExecutionId")) {
+            execution.setParentExecutionId(item.get("parentExecutionId").s());
+        }
+
         if (item.containsKey("statusCode")) {
             execution.setStatusCode(Integer.parseInt(item.get("statusCode").n()));
         }
 
+        if (item.containsKey("durationMs")) {
+            execution.setDurationMs(Long.parseLong(item.get("durationMs").n()));
+        }
+
         if (item.containsKey("response")) {
             execution.setResponse(item.get("response").s());
         }
@@ -4,16 +4,26 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.codec.TaskPayloadCodec;
+import org.JustRun.TaskExecutionService.model.ChainCondition;
+import org.JustRun.TaskExecutionService.model.ChainExtraction;
+import org.JustRun.TaskExecutionService.model.JoinMode;
+import org.JustRun.TaskExecutionService.model.MisfirePolicy;
 import org.JustRun.TaskExecutionService.model.Task;
 import org.JustRun.TaskExecutionService.model.TaskChain;
 import org.JustRun.TaskExecutionService.model.TaskPriority;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Repository
@@ -22,12 +32,17 @@ import java.util.stream.Collectors;
 public class TaskRepository {
 
     private final DynamoDbClient dynamoDbClient;
+    // Present when aws.async.enabled
+    private final Optional<DynamoDbAsyncClient> dynamoDbAsyncClient;
     private static final String TABLE_NAME = "tasks";
 //    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Value("${task.payload.binary-encoding:false}")
+    private boolean binaryPayloadEncoding;
+
     public Task save(Task task) {
         if (task.getId() == null) {
             task.setId(UUID.randomUUID().toString());
@@ -52,7 +67,15 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
             item.put("description", AttributeValue.builder().s(task.getDescription()).build());
         }
 
-        if (task.getBody() != null) {
+        // An undecoded payload is written back untouched
+        byte[] payload = task.getPayload();
+        if (payload == null && binaryPayloadEncoding && (task.getBody() != null || task.getHeaders() != null)) {
+            payload = TaskPayloadCodec.encode(task.getBody(), task.getHeaders());
+        }
+
+        if (payload != null) {
+            item.put(TaskPayloadCodec.ATTRIBUTE, AttributeValue.builder().b(SdkBytes.fromByteArray(payload)).build());
+        } else if (task.getBody() != null) {
             Map<String, AttributeValue> bodyMap = new HashMap<>();
             task.getBody().forEach((key, value) -> {
                 bodyMap.put(key, AttributeValue.builder().s(value.toString()).build()); // or handle types more carefully if needed
@@ -74,6 +97,10 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
             item.put("exponentialBackoff", AttributeValue.builder().bool(task.getExponentialBackoff()).build());
         }
 
+        if (task.getTimeoutMs() != null) {
+            item.put("timeoutMs", AttributeValue.builder().n(task.getTimeoutMs().toString()).build());
+        }
+
         if (task.getWebhookUrl() != null) {
             item.put("webhookUrl", AttributeValue.builder().s(task.getWebhookUrl()).build());
         }
@@ -89,11 +116,27 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
         if (task.getFailureCount() != null) {
             item.put("failureCount", AttributeValue.builder().n(task.getFailureCount().toString()).build());
         }
+
+        if (task.getSpreadWindowSeconds() != null) {
+            item.put("spreadWindowSeconds", AttributeValue.builder().n(task.getSpreadWindowSeconds().toString()).build());
+        }
+
+        if (task.getMisfirePolicy() != null) {
+            item.put("misfirePolicy", AttributeValue.builder().s(task.getMisfirePolicy().name()).build());
+        }
+
+        if (task.getMisfireMaxCatchUp() != null) {
+            item.put("misfireMaxCatchUp", AttributeValue.builder().n(task.getMisfireMaxCatchUp().toString()).build());
+        }
+
+        if (task.getJoinMode() != null) {
+            item.put("joinMode", AttributeValue.builder().s(task.getJoinMode().name()).build());
+        }
         if (task.getNextExecutionTime() != null) {
             item.put("nextExecutionTime", AttributeValue.builder().s(task.getNextExecutionTime().format(DATE_FORMATTER)).build());
         }
         // Store headers as JSON
-        if (task.getHeaders() != null && !task.getHeaders().isEmpty()) {
+        if (payload == null && task.getHeaders() != null && !task.getHeaders().isEmpty()) {
             Map<String, AttributeValue> headersMap = new HashMap<>();
             task.getHeaders().forEach((key, value) ->
                     headersMap.put(key, AttributeValue.builder().s(value).build())
@@ -108,8 +151,19 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
                 Map<String, AttributeValue> chainMap = new HashMap<>();
                 chainMap.put("id", AttributeValue.builder().s(chain.getId()).build());
                 chainMap.put("taskId", AttributeValue.builder().s(chain.getTaskId()).build());
-                chainMap.put("statusCode", AttributeValue.builder().n(chain.getStatusCode().toString()).build());
+                if (chain.getStatusCode() != null) {
+                    chainMap.put("statusCode", AttributeValue.builder().n(chain.getStatusCode().toString()).build());
+                }
+                if (chain.getStatusClass() != null) {
+                    chainMap.put("statusClass", AttributeValue.builder().s(chain.getStatusClass()).build());
+                }
                 chainMap.put("nextTaskId", AttributeValue.builder().s(chain.getNextTaskId()).build());
+                if (chain.getConditions() != null && !chain.getConditions().isEmpty()) {
+                    chainMap.put("conditions", chainConditionsToAttribute(chain.getConditions()));
+                }
+                if (chain.getExtractions() != null && !chain.getExtractions().isEmpty()) {
+                    chainMap.put("extractions", chainExtractionsToAttribute(chain.getExtractions()));
+                }
 
                 chains.add(AttributeValue.builder().m(chainMap).build());
             }
@@ -125,6 +179,76 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
         return task;
     }
 
+    /**
+     * Counts one run of the task in place (an atomic increment, so concurrent runs and stale
+     * in-memory copies cannot lose counts). Does nothing if the task has been deleted.
+     */
+    public void recordRun(String id, boolean success, LocalDateTime executedAt) {
+        try {
+            dynamoDbClient.updateItem(recordRunRequest(id, success, executedAt));
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Task {} no longer exists, skipping update.", id);
+        }
+    }
+
+    /**
+     * {@link #recordRun} on the async client when there is one; otherwise runs it on the calling thread.
+     */
+    public CompletableFuture<Void> recordRunAsync(String id, boolean success, LocalDateTime executedAt) {
+        if (dynamoDbAsyncClient.isEmpty()) {
+            recordRun(id, success, executedAt);
+            return CompletableFuture.completedFuture(null);
+        }
+        return dynamoDbAsyncClient.get().updateItem(recordRunRequest(id, success, executedAt))
+                .handle((response, e) -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof ConditionalCheckFailedException) {
+                        log.info("Task {} no longer exists, skipping update.", id);
+                    } else if (cause != null) {
+                        throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+                    }
+                    return null;
+                });
+    }
+
+    private UpdateItemRequest recordRunRequest(String id, boolean success, LocalDateTime executedAt) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":zero", AttributeValue.builder().n("0").build());
+        expressionValues.put(":one", AttributeValue.builder().n("1").build());
+        expressionValues.put(":failed", AttributeValue.builder().n(success ? "0" : "1").build());
+        expressionValues.put(":executedAt", AttributeValue.builder().s(executedAt.format(DATE_FORMATTER)).build());
+
+        return updateIfExistsRequest(id, "SET executionCount = if_not_exists(executionCount, :zero) + :one, "
+                + "failureCount = if_not_exists(failureCount, :zero) + :failed, "
+                + "lastExecutedAt = :executedAt, updatedAt = :executedAt", expressionValues);
+    }
+
+    public void updateNextExecutionTime(String id, LocalDateTime nextExecutionTime) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":next", AttributeValue.builder().s(nextExecutionTime.format(DATE_FORMATTER)).build());
+
+        updateIfExists(id, "SET nextExecutionTime = :next", expressionValues);
+    }
+
+    private void updateIfExists(String id, String updateExpression, Map<String, AttributeValue> expressionValues) {
+        try {
+            dynamoDbClient.updateItem(updateIfExistsRequest(id, updateExpression, expressionValues));
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Task {} no longer exists, skipping update.", id);
+        }
+    }
+
+    private static UpdateItemRequest updateIfExistsRequest(String id, String updateExpression,
+                                                           Map<String, AttributeValue> expressionValues) {
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of("id", AttributeValue.builder().s(id).build()))
+                .updateExpression(updateExpression)
+                .conditionExpression("attribute_exists(id)")
+                .expressionAttributeValues(expressionValues)
+                .build();
+    }
+
     public List<Task> findByUserId(String userId) {
         Map<String, AttributeValue> expressionValues = new HashMap<>();
         expressionValues.put(":userId", AttributeValue.builder().s(userId).build());
@@ -195,7 +319,10 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
             builder.description(item.get("description").s());
         }
 
-        if (item.containsKey("body")) {
+        // Binary payloads stay encoded until the request is built
+        if (item.containsKey(TaskPayloadCodec.ATTRIBUTE)) {
+            builder.payload(item.get(TaskPayloadCodec.ATTRIBUTE).b().asByteArray());
+        } else if (item.containsKey("body")) {
             Map<String, AttributeValue> bodyAttrMap = item.get("body").m();
             Map<String, Object> bodyMap = convertAttributeMap(bodyAttrMap);
             builder.body(bodyMap);
@@ -214,6 +341,10 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
             builder.exponentialBackoff(item.get("exponentialBackoff").bool());
         }
 
+        if (item.containsKey("timeoutMs")) {
+            builder.timeoutMs(Integer.parseInt(item.get("timeoutMs").n()));
+        }
+
         if (item.containsKey("webhookUrl")) {
             builder.webhookUrl(item.get("webhookUrl").s());
         }
@@ -230,6 +361,22 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
             builder.failureCount(Integer.parseInt(item.get("failureCount").n()));
         }
 
+        if (item.containsKey("spreadWindowSeconds")) {
+            builder.spreadWindowSeconds(Integer.parseInt(item.get("spreadWindowSeconds").n()));
+        }
+
+        if (item.containsKey("misfirePolicy")) {
+            builder.misfirePolicy(MisfirePolicy.valueOf(item.get("misfirePolicy").s()));
+        }
+
+        if (item.containsKey("misfireMaxCatchUp")) {
+            builder.misfireMaxCatchUp(Integer.parseInt(item.get("misfireMaxCatchUp").n()));
+        }
+
+        if (item.containsKey("joinMode")) {
+            builder.joinMode(JoinMode.valueOf(item.get("joinMode").s()));
+        }
+
         // Extract headers
         if (item.containsKey("headers")) {
             Map<String, String> headers = new HashMap<>();
@@ -250,8 +397,11 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
                 TaskChain chain = TaskChain.builder()
                         .id(chainMap.get("id").s())
                         .taskId(chainMap.get("taskId").s())
-                        .statusCode(Integer.parseInt(chainMap.get("statusCode").n()))
+                        .statusCode(chainMap.containsKey("statusCode") ? Integer.valueOf(chainMap.get("statusCode").n()) : null)
+                        .statusClass(chainMap.containsKey("statusClass") ? chainMap.get("statusClass").s() : null)
                         .nextTaskId(chainMap.get("nextTaskId").s())
+                        .conditions(mapToChainConditions(chainMap.get("conditions")))
+                        .extractions(mapToChainExtractions(chainMap.get("extractions")))
                         .build();
 
                 chains.add(chain);
@@ -289,4 +439,74 @@ private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPatt
         return result;
     }
 
+    private AttributeValue chainConditionsToAttribute(List<ChainCondition> conditions) {
+        List<AttributeValue> values = new ArrayList<>();
+        for (ChainCondition condition : conditions) {
+            Map<String, AttributeValue> conditionMap = new HashMap<>();
+            putString(conditionMap, "source", condition.getSource());
+            putString(conditionMap, "path", condition.getPath());
+            putString(conditionMap, "operator", condition.getOperator());
+            putString(conditionMap, "value", condition.getValue());
+            values.add(AttributeValue.builder().m(conditionMap).build());
+        }
+        return AttributeValue.builder().l(values).build();
+    }
+
+    private AttributeValue chainExtractionsToAttribute(List<ChainExtraction> extractions) {
+        List<AttributeValue> values = new ArrayList<>();
+        for (ChainExtraction extraction : extractions) {
+            Map<String, AttributeValue> extractionMap = new HashMap<>();
+            putString(extractionMap, "source", extraction.getSource());
+            putString(extractionMap, "path", extraction.getPath());
+            putString(extractionMap, "into", extraction.getInto());
+            putString(extractionMap, "name", extraction.getName());
+            values.add(AttributeValue.builder().m(extractionMap).build());
+        }
+        return AttributeValue.builder().l(values).build();
+    }
+
+    private static void putString(Map<String, AttributeValue> map, String key, String value) {
+        if (value != null) {
+            map.put(key, AttributeValue.builder().s(value).build());
+        }
+    }
+
+    private List<ChainCondition> mapToChainConditions(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        List<ChainCondition> conditions = new ArrayList<>();
+        for (AttributeValue conditionValue : value.l()) {
+            Map<String, AttributeValue> conditionMap = conditionValue.m();
+            conditions.add(ChainCondition.builder()
+                    .source(stringOf(conditionMap, "source"))
+                    .path(stringOf(conditionMap, "path"))
+                    .operator(stringOf(conditionMap, "operator"))
+                    .value(stringOf(conditionMap, "value"))
+                    .build());
+        }
+        return conditions;
+    }
+
+    private List<ChainExtraction> mapToChainExtractions(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        List<ChainExtraction> extractions = new ArrayList<>();
+        for (AttributeValue extractionValue : value.l()) {
+            Map<String, AttributeValue> extractionMap = extractionValue.m();
+            extractions.add(ChainExtraction.builder()
+                    .source(stringOf(extractionMap, "source"))
+                    .path(stringOf(extractionMap, "path"))
+                    .into(stringOf(extractionMap, "into"))
+                    .name(stringOf(extractionMap, "name"))
+                    .build());
+        }
+        return extractions;
+    }
+
+    private static String stringOf(Map<String, AttributeValue> map, String key) {
+        AttributeValue value = map.get(key);
+        return value != null ? value.s() : null;
+    }
 }
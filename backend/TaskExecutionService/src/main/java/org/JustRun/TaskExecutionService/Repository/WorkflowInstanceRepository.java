@@ -0,0 +1,114 @@
+package org.JustRun.TaskExecutionService.Repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.model.JoinMode;
+import org.JustRun.TaskExecutionService.model.WorkflowContext;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One item per workflow instance, keyed by "instanceId", holding the state of its forks as flat
+ * attributes: "branch_{fork}_{n}" marks branch n as settled (with the join it reached, or "-" if it
+ * ended elsewhere), "settled_{fork}" counts settled branches, and "arrived_{fork}_{join}" and
+ * "join_{fork}_{join}" hold the arrivals at a join and its mode. "expiresAt" (epoch seconds) is the
+ * table's TTL attribute.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class WorkflowInstanceRepository {
+
+    private final DynamoDbClient dynamoDbClient;
+    private static final String TABLE_NAME = "workflow_instances";
+    private static final String ENDED = "-";
+
+    /**
+     * Settles a branch, either at a join or (with a null join) by ending. Returns the instance
+     * item after the update, or null when the branch had already been settled.
+     */
+    public Map<String, AttributeValue> settleBranch(String instanceId, WorkflowContext.Branch branch,
+                                                    String joinTaskId, JoinMode joinMode, long expiresAt) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#branch", branchAttribute(branch));
+        names.put("#settled", settledAttribute(branch.getForkId()));
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":zero", AttributeValue.builder().n("0").build());
+        values.put(":one", AttributeValue.builder().n("1").build());
+        values.put(":expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+
+        StringBuilder update = new StringBuilder(
+                "SET #settled = if_not_exists(#settled, :zero) + :one, expiresAt = :expiresAt, #branch = :settledBy");
+        if (joinTaskId != null) {
+            names.put("#arrived", arrivedAttribute(branch.getForkId(), joinTaskId));
+            names.put("#join", "join_" + branch.getForkId() + "_" + joinTaskId);
+            values.put(":settledBy", AttributeValue.builder().s(joinTaskId).build());
+            values.put(":joinMode", AttributeValue.builder().s(joinMode.name()).build());
+            update.append(", #arrived = if_not_exists(#arrived, :zero) + :one, #join = :joinMode");
+        } else {
+            values.put(":settledBy", AttributeValue.builder().s(ENDED).build());
+        }
+
+        try {
+            return dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .key(Map.of("instanceId", AttributeValue.builder().s(instanceId).build()))
+                    .updateExpression(update.toString())
+                    .conditionExpression("attribute_not_exists(#branch)")
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .returnValues(ReturnValue.ALL_NEW)
+                    .build()).attributes();
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Branch {} of fork {} in workflow {} was already settled.",
+                    branch.getBranch(), branch.getForkId(), instanceId);
+            return null;
+        }
+    }
+
+    /**
+     * The instance item as it is now (a strongly consistent read), or null when there is none.
+     */
+    public Map<String, AttributeValue> find(String instanceId) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of("instanceId", AttributeValue.builder().s(instanceId).build()))
+                .consistentRead(true)
+                .build());
+        return response.hasItem() ? response.item() : null;
+    }
+
+    /**
+     * The attribute marking {@code branch} as settled; its value is the join it reached.
+     */
+    public static String branchAttribute(WorkflowContext.Branch branch) {
+        return "branch_" + branch.getForkId() + "_" + branch.getBranch();
+    }
+
+    public static String settledAttribute(String forkId) {
+        return "settled_" + forkId;
+    }
+
+    public static String arrivedAttribute(String forkId, String joinTaskId) {
+        return "arrived_" + forkId + "_" + joinTaskId;
+    }
+
+    /**
+     * The joins branches of {@code forkId} have reached in this instance item, with their modes.
+     */
+    public static Map<String, JoinMode> joinsOf(Map<String, AttributeValue> instance, String forkId) {
+        String prefix = "join_" + forkId + "_";
+        Map<String, JoinMode> joins = new HashMap<>();
+        instance.forEach((name, value) -> {
+            if (name.startsWith(prefix)) {
+                joins.put(name.substring(prefix.length()), JoinMode.valueOf(value.s()));
+            }
+        });
+        return joins;
+    }
+}
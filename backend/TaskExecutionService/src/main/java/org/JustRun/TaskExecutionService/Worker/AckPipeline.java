@@ -0,0 +1,87 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.queue.TaskQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects receipt handles of finished messages per queue and deletes them in batches (DeleteMessageBatch on SQS).
+ * A queue is flushed as soon as it has a full batch of ten, otherwise after the linger interval,
+ * and everything still pending is flushed on shutdown.
+ */
+@Component
+@Slf4j
+public class AckPipeline {
+
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private final TaskQueue taskQueue;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Queue<String>> pending = new ConcurrentHashMap<>();
+
+    public AckPipeline(TaskQueue taskQueue,
+                       @Value("${executor.ack.linger-ms:200}") long lingerMs) {
+        this.taskQueue = taskQueue;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ack-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushAll, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void ack(String queueUrl, String receiptHandle) {
+        Queue<String> queue = pending.computeIfAbsent(queueUrl, url -> new ConcurrentLinkedQueue<>());
+        queue.add(receiptHandle);
+        if (queue.size() >= MAX_BATCH_SIZE) {
+            scheduler.execute(() -> flush(queueUrl, queue));
+        }
+    }
+
+    private void flushAll() {
+        pending.forEach(this::flush);
+    }
+
+    private void flush(String queueUrl, Queue<String> queue) {
+        List<String> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        String receiptHandle;
+        while ((receiptHandle = queue.poll()) != null) {
+            batch.add(receiptHandle);
+            if (batch.size() == MAX_BATCH_SIZE) {
+                delete(queueUrl, batch);
+                batch = new ArrayList<>(MAX_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            delete(queueUrl, batch);
+        }
+    }
+
+    private void delete(String queueUrl, List<String> receiptHandles) {
+        try {
+            // A message that fails to delete becomes visible again and is deduplicated by fire instance on redelivery
+            List<String> failed = taskQueue.delete(queueUrl, receiptHandles);
+            log.info("Deleted {} message(s) from queue: {}", receiptHandles.size() - failed.size(), queueUrl);
+        } catch (Exception e) {
+            log.error("Batch delete of {} message(s) from {} failed: {}", receiptHandles.size(), queueUrl, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flushAll();
+    }
+}
@@ -0,0 +1,110 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.service.IdempotencyService;
+import org.JustRun.TaskExecutionService.service.TaskExecutionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the next steps of a workflow on this executor as soon as their parent finishes, instead of
+ * waiting for a queue poll. Every step has already been enqueued, delayed, as a checkpoint; the
+ * inline run holds the step's fire instance claim, so the queued copy is dropped once the step
+ * completes and takes over if this executor dies first. Steps past the depth limit, or that find
+ * the pool full, are simply left to their checkpoint.
+ */
+@Component
+@Slf4j
+public class ChainContinuation {
+
+    private final TaskExecutionService taskExecutionService;
+    private final IdempotencyService idempotencyService;
+    private final ReleasePacer releasePacer;
+    private final ThreadPoolExecutor executor;
+
+    // Bounds how long one workflow keeps this executor busy, and breaks chain cycles
+    @Value("${executor.chain.inline.max-depth:10}")
+    private int maxDepth;
+
+    public ChainContinuation(TaskExecutionService taskExecutionService,
+                             IdempotencyService idempotencyService,
+                             ReleasePacer releasePacer,
+                             @Value("${executor.chain.inline.threads:16}") int threads,
+                             @Value("${executor.chain.inline.queue-capacity:100}") int queueCapacity) {
+        this.taskExecutionService = taskExecutionService;
+        this.idempotencyService = idempotencyService;
+        this.releasePacer = releasePacer;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "chain-inline-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Continues the chained tasks a queued task just enqueued.
+     */
+    public void continueWith(List<Task> chained) {
+        continueWith(chained, 1);
+    }
+
+    private void continueWith(List<Task> chained, int depth) {
+        if (chained.isEmpty() || !taskExecutionService.continuesChainsInline()) {
+            return;
+        }
+        if (depth > maxDepth) {
+            log.info("Chain reached inline depth {}, {} step(s) continue from the queue.", maxDepth, chained.size());
+            return;
+        }
+
+        for (Task task : chained) {
+            try {
+                executor.execute(() -> run(task, depth));
+            } catch (RejectedExecutionException e) {
+                log.info("Inline chain pool is full, task {} continues from the queue.", task.getId());
+            }
+        }
+    }
+
+    private void run(Task task, int depth) {
+        String fireInstanceId = task.getFireInstanceId();
+        IdempotencyService.Claim claim = idempotencyService.claim(task);
+        if (claim != IdempotencyService.Claim.ACQUIRED) {
+            log.info("Fire instance {} was already picked up ({}), not running it inline.", fireInstanceId, claim);
+            return;
+        }
+
+        List<Task> next;
+        try {
+            releasePacer.acquire();
+            log.info("Executing chained task {} inline (depth {})", task.getId(), depth);
+            next = taskExecutionService.executeTask(task);
+        } catch (RuntimeException e) {
+            // The checkpoint on the queue runs it again, at the latest when this claim's lease would have ended
+            idempotencyService.release(fireInstanceId);
+            log.error("Inline run of chained task {} failed: {}", task.getId(), e.getMessage(), e);
+            return;
+        }
+        idempotencyService.complete(fireInstanceId);
+
+        continueWith(next, depth + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted steps keep their claim until the lease runs out, then run from the queue
+        executor.shutdownNow();
+    }
+}
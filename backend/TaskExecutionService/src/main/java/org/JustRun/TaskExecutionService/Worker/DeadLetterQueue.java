@@ -0,0 +1,63 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.queue.QueueMessage;
+import org.JustRun.TaskExecutionService.queue.TaskQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Moves messages that cannot be processed (undecodable, or received too many times without
+ * completing) to the dead-letter queue with the reason attached, then acks the original.
+ * Without a configured dead-letter queue the message is left where it is.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterQueue {
+
+    private final TaskQueue taskQueue;
+    private final AckPipeline ackPipeline;
+
+    @Value("${aws.sqs.dead-letter-queue:}")
+    private String deadLetterQueueUrl;
+
+    // Deliveries after which a message that keeps failing is dead-lettered (0 = never)
+    @Value("${executor.dlq.max-receives:5}")
+    private int maxReceives;
+
+    public boolean exceedsMaxReceives(int receiveCount) {
+        return maxReceives > 0 && receiveCount > maxReceives;
+    }
+
+    public void deadLetter(String queueUrl, QueueMessage message, String reason) {
+        if (deadLetterQueueUrl == null || deadLetterQueueUrl.isBlank()) {
+            log.warn("No dead-letter queue configured, leaving message {} on {}: {}", message.getMessageId(), queueUrl, reason);
+            return;
+        }
+
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("failureReason", reason.length() > 1024 ? reason.substring(0, 1024) : reason);
+        attributes.put("sourceQueue", queueUrl);
+        attributes.put("sourceMessageId", message.getMessageId());
+
+        QueueMessage deadLetter = QueueMessage.builder()
+                .body(message.getBody())
+                .groupId(message.getMessageId())
+                .deduplicationId(message.getMessageId())
+                .attributes(attributes)
+                .build();
+
+        try {
+            taskQueue.send(deadLetterQueueUrl, deadLetter);
+            ackPipeline.ack(queueUrl, message.getReceiptHandle());
+            log.warn("Moved message {} from {} to the dead-letter queue: {}", message.getMessageId(), queueUrl, reason);
+        } catch (Exception e) {
+            log.error("Failed to dead-letter message {} from {}: {}", message.getMessageId(), queueUrl, e.getMessage(), e);
+        }
+    }
+}
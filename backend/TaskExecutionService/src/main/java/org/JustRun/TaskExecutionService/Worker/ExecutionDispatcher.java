@@ -0,0 +1,71 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs received tasks. With spring.threads.virtual.enabled every task gets its own virtual thread,
+ * up to max-in-flight at once, so a poll hands its batch off and keeps receiving while earlier
+ * tasks wait on their calls. Otherwise tasks run on the calling thread, one after another.
+ */
+@Component
+@Slf4j
+public class ExecutionDispatcher {
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    public ExecutionDispatcher(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                               @Value("${executor.worker.max-in-flight:1000}") int maxInFlight) {
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-run-", 0).factory())
+                : null;
+    }
+
+    public boolean isAsync() {
+        return executor != null;
+    }
+
+    /**
+     * Runs {@code work} on its own virtual thread, waiting for a slot while max-in-flight tasks are
+     * running, or on the calling thread when virtual threads are off.
+     */
+    public void dispatch(Runnable work) {
+        if (executor == null) {
+            work.run();
+            return;
+        }
+
+        inFlight.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    log.error("Error running task: {}", e.getMessage(), e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the message stays on the queue and is redelivered
+            inFlight.release();
+            log.info("Executor is shutting down, leaving the task on the queue.");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
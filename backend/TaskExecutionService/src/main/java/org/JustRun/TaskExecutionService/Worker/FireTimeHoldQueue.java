@@ -0,0 +1,79 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds tasks that were claimed ahead of time until their scheduled fire time.
+ * Held messages are still in flight on the queue, so a shutdown simply lets them be redelivered.
+ */
+@Component
+@Slf4j
+public class FireTimeHoldQueue {
+
+    private final ScheduledExecutorService scheduler;
+
+    // Longest single wait; the fire time is checked again after each one
+    @Value("${executor.hold.max-hold-ms:25000}")
+    private long maxHoldMs;
+
+    public FireTimeHoldQueue(@Value("${executor.hold.threads:4}") int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "fire-time-hold-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules {@code work} for the task's fire time. Returns false when the task is already due,
+     * in which case the caller should run it directly.
+     */
+    public boolean holdUntilFireTime(Task task, Runnable work) {
+        LocalDateTime fireTime = task.getScheduledFireTime();
+        if (fireTime == null) {
+            return false;
+        }
+
+        long delayMs = Duration.between(LocalDateTime.now(), fireTime).toMillis();
+        if (delayMs <= 0) {
+            return false;
+        }
+
+        log.info("Holding task {} for {} ms until its fire time {}", task.getId(), delayMs, fireTime);
+        hold(task, fireTime, work, delayMs);
+        return true;
+    }
+
+    // The visibility heartbeat keeps the message in flight however many waits this takes
+    private void hold(Task task, LocalDateTime fireTime, Runnable work, long delayMs) {
+        scheduler.schedule(() -> {
+            long remainingMs = Duration.between(LocalDateTime.now(), fireTime).toMillis();
+            if (remainingMs > 0) {
+                hold(task, fireTime, work, remainingMs);
+                return;
+            }
+            try {
+                work.run();
+            } catch (Exception e) {
+                log.error("Error running held task {}: {}", task.getId(), e.getMessage(), e);
+            }
+        }, Math.min(delayMs, Math.max(1, maxHoldMs)), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -4,15 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.queue.QueueMessage;
+import org.JustRun.TaskExecutionService.queue.TaskQueue;
+import org.JustRun.TaskExecutionService.service.IdempotencyService;
 import org.JustRun.TaskExecutionService.service.TaskExecutionService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
-import software.amazon.awssdk.services.sqs.model.Message;
-import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
-import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
 
 import java.io.IOException;
 import java.util.List;
@@ -22,9 +20,21 @@ import java.util.List;
 @Slf4j
 public class QueueWorker {
 
-    private final SqsClient sqsClient;
+    private static final int RECEIVE_BATCH = 10;
+    // SQS caps a message's visibility timeout at 12 hours
+    private static final int MAX_VISIBILITY_SECONDS = 43200;
+
+    private final TaskQueue taskQueue;
     private final ObjectMapper objectMapper;
     private final TaskExecutionService taskExecutionService;
+    private final FireTimeHoldQueue fireTimeHoldQueue;
+    private final ReleasePacer releasePacer;
+    private final IdempotencyService idempotencyService;
+    private final VisibilityHeartbeat visibilityHeartbeat;
+    private final AckPipeline ackPipeline;
+    private final DeadLetterQueue deadLetterQueue;
+    private final ChainContinuation chainContinuation;
+    private final ExecutionDispatcher executionDispatcher;
 
     @Value("${aws.sqs.high-priority-queue}")
     private String highPriorityQueueUrl;
@@ -55,47 +65,104 @@ public class QueueWorker {
 
     private void processQueue(String queueUrl) {
         log.info("Starting to fetch messages from queue: {}", queueUrl);
-        ReceiveMessageRequest receiveRequest = ReceiveMessageRequest.builder()
-                .queueUrl(queueUrl)
-                .maxNumberOfMessages(10)
-                .visibilityTimeout(30)
-                .waitTimeSeconds(5)
-                .build();
-
         try {
-            ReceiveMessageResponse response = sqsClient.receiveMessage(receiveRequest);
-            List<Message> messages = response.messages();
+            List<QueueMessage> messages;
+            // Tasks handed to their own threads don't hold up the poll: keep receiving while batches come back full
+            do {
+                messages = taskQueue.receive(queueUrl, RECEIVE_BATCH,
+                        visibilityHeartbeat.getVisibilityTimeoutSeconds(), 5);
+                log.info("Fetched {} message(s) from queue: {}", messages.size(), queueUrl);
+                dispatchAll(queueUrl, messages);
+            } while (executionDispatcher.isAsync() && messages.size() == RECEIVE_BATCH);
 
-            log.info("Fetched {} message(s) from queue: {}", messages.size(), queueUrl);
+            log.info("Finished processing all messages from queue: {}", queueUrl);
+        } catch (Exception e) {
+            log.error("Error receiving messages from queue {}: {}", queueUrl, e.getMessage(), e);
+        }
+    }
 
-            for (Message message : messages) {
-                try {
-                    log.debug("Received raw message: {}", message.body());
+    private void dispatchAll(String queueUrl, List<QueueMessage> messages) {
+        for (QueueMessage message : messages) {
+            visibilityHeartbeat.track(queueUrl, message.getReceiptHandle());
+            try {
+                log.debug("Received raw message: {}", message.getBody());
 
-                    Task task = objectMapper.readValue(message.body(), Task.class);
-                    log.info("Deserialized task: {}", task.getId());
+                Task task = objectMapper.readValue(message.getBody(), Task.class);
+                log.info("Deserialized task: {}", task.getId());
 
-                    log.info("Executing task: {}", task.getId());
-                    taskExecutionService.executeTask(task);
-                    log.info("Successfully executed task: {}", task.getId());
+                Runnable run = () -> executeAndDelete(queueUrl, message, task);
+                if (!fireTimeHoldQueue.holdUntilFireTime(task, () -> executionDispatcher.dispatch(run))) {
+                    executionDispatcher.dispatch(run);
+                }
 
-                    DeleteMessageRequest deleteRequest = DeleteMessageRequest.builder()
-                            .queueUrl(queueUrl)
-                            .receiptHandle(message.receiptHandle())
-                            .build();
-                    sqsClient.deleteMessage(deleteRequest);
-                    log.info("Deleted message from queue: {}", task.getId());
+            } catch (IOException e) {
+                visibilityHeartbeat.untrack(message.getReceiptHandle());
+                log.error("Error deserializing message: {}", e.getMessage(), e);
+                deadLetterQueue.deadLetter(queueUrl, message, "Undecodable message: " + e.getMessage());
+            } catch (Exception e) {
+                visibilityHeartbeat.untrack(message.getReceiptHandle());
+                log.error("Error processing task: {}", e.getMessage(), e);
+            }
+        }
+    }
 
-                } catch (IOException e) {
-                    log.error("Error deserializing message: {}", e.getMessage(), e);
-                } catch (Exception e) {
-                    log.error("Error processing task: {}", e.getMessage(), e);
-                }
+    private void executeAndDelete(String queueUrl, QueueMessage message, Task task) {
+        try {
+            // Read before executing: retries and chains hand out their own fire instance ids
+            String fireInstanceId = task.getFireInstanceId();
+            IdempotencyService.Claim claim = idempotencyService.claim(task);
+            if (claim == IdempotencyService.Claim.COMPLETED) {
+                log.info("Fire instance {} already ran, dropping duplicate delivery.", fireInstanceId);
+                deleteMessage(queueUrl, message, task);
+                return;
+            }
+            if (claim == IdempotencyService.Claim.IN_PROGRESS) {
+                // Left on the queue, out of sight until the other run's lease ends: it comes back in case
+                // that run dies, without burning deliveries towards the dead-letter limit meanwhile
+                log.info("Fire instance {} is running on another executor, skipping this delivery.", fireInstanceId);
+                deferUntilLeaseEnds(queueUrl, message, fireInstanceId);
+                return;
+            }
+            // Checked only once the claim is held, so deliveries skipped above never dead-letter a message
+            if (deadLetterQueue.exceedsMaxReceives(message.getReceiveCount())) {
+                idempotencyService.release(fireInstanceId);
+                deadLetterQueue.deadLetter(queueUrl, message, "Received " + message.getReceiveCount() + " times without completing");
+                return;
             }
 
-            log.info("Finished processing all messages from queue: {}", queueUrl);
+            releasePacer.acquire();
+            log.info("Executing task: {}", task.getId());
+            List<Task> chained;
+            try {
+                chained = taskExecutionService.executeTask(task);
+            } catch (RuntimeException e) {
+                idempotencyService.release(fireInstanceId);
+                throw e;
+            }
+            idempotencyService.complete(fireInstanceId);
+            log.info("Successfully executed task: {}", task.getId());
+
+            deleteMessage(queueUrl, message, task);
+            chainContinuation.continueWith(chained);
+        } finally {
+            visibilityHeartbeat.untrack(message.getReceiptHandle());
+        }
+    }
+
+    private void deferUntilLeaseEnds(String queueUrl, QueueMessage message, String fireInstanceId) {
+        visibilityHeartbeat.untrack(message.getReceiptHandle());
+        long leaseSeconds = (idempotencyService.leaseRemainingMs(fireInstanceId) + 999) / 1000 + 1;
+        int visibilitySeconds = (int) Math.min(MAX_VISIBILITY_SECONDS,
+                Math.max(visibilityHeartbeat.getVisibilityTimeoutSeconds(), leaseSeconds));
+        try {
+            taskQueue.changeVisibility(queueUrl, List.of(message.getReceiptHandle()), visibilitySeconds);
         } catch (Exception e) {
-            log.error("Error receiving messages from queue {}: {}", queueUrl, e.getMessage(), e);
+            log.warn("Could not defer message for fire instance {}: {}", fireInstanceId, e.getMessage());
         }
     }
+
+    private void deleteMessage(String queueUrl, QueueMessage message, Task task) {
+        ackPipeline.ack(queueUrl, message.getReceiptHandle());
+        log.info("Queued message for deletion: {}", task.getId());
+    }
 }
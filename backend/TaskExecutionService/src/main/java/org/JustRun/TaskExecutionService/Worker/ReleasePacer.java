@@ -0,0 +1,45 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces releases evenly at a fixed rate so a burst of received tasks reaches target endpoints as a
+ * steady stream. A rate of 0 disables pacing.
+ */
+@Component
+@Slf4j
+public class ReleasePacer {
+
+    private final long intervalNanos;
+    private long nextFreeAt = System.nanoTime();
+
+    public ReleasePacer(@Value("${executor.release.max-per-second:0}") double maxPerSecond) {
+        this.intervalNanos = maxPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxPerSecond) : 0;
+    }
+
+    public void acquire() {
+        if (intervalNanos == 0) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextFreeAt);
+            nextFreeAt = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.JustRun.TaskExecutionService.Worker;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.queue.TaskQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps received messages invisible while their tasks are still held or executing, so a slow
+ * endpoint does not cause the queue to hand the same message to another worker. Tracked messages
+ * are extended per queue in batches (ChangeMessageVisibilityBatch on SQS); on shutdown they are
+ * made visible again straight away instead of waiting out the timeout.
+ * Runs on its own thread because the worker's scheduling thread is busy while tasks execute.
+ */
+@Component
+@Slf4j
+public class VisibilityHeartbeat {
+
+    // SQS never keeps a message in flight longer than 12 hours from receipt
+    private static final long MAX_IN_FLIGHT_MS = TimeUnit.HOURS.toMillis(12);
+
+    private final TaskQueue taskQueue;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${executor.visibility.timeout-seconds:30}")
+    private int visibilityTimeoutSeconds;
+
+    private record InFlight(String queueUrl, long receivedAt) {
+    }
+
+    public VisibilityHeartbeat(TaskQueue taskQueue,
+                               @Value("${executor.visibility.heartbeat-interval-ms:10000}") long heartbeatIntervalMs) {
+        this.taskQueue = taskQueue;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "visibility-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::extendAll, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public int getVisibilityTimeoutSeconds() {
+        return visibilityTimeoutSeconds;
+    }
+
+    public void track(String queueUrl, String receiptHandle) {
+        inFlight.put(receiptHandle, new InFlight(queueUrl, System.currentTimeMillis()));
+    }
+
+    public void untrack(String receiptHandle) {
+        inFlight.remove(receiptHandle);
+    }
+
+    private void extendAll() {
+        long now = System.currentTimeMillis();
+        Map<String, List<String>> byQueue = new HashMap<>();
+        inFlight.forEach((receiptHandle, message) -> {
+            if (now - message.receivedAt() + visibilityTimeoutSeconds * 1000L >= MAX_IN_FLIGHT_MS) {
+                log.warn("Message on {} reached the SQS in-flight limit, no longer extending it.", message.queueUrl());
+                inFlight.remove(receiptHandle);
+                return;
+            }
+            byQueue.computeIfAbsent(message.queueUrl(), queueUrl -> new ArrayList<>()).add(receiptHandle);
+        });
+
+        byQueue.forEach((queueUrl, receiptHandles) -> changeVisibility(queueUrl, receiptHandles, visibilityTimeoutSeconds));
+    }
+
+    private void changeVisibility(String queueUrl, List<String> receiptHandles, int timeoutSeconds) {
+        try {
+            // Usually the message was already deleted or its receipt handle expired
+            taskQueue.changeVisibility(queueUrl, receiptHandles, timeoutSeconds).forEach(inFlight::remove);
+            log.debug("Set visibility of {} message(s) on {} to {}s", receiptHandles.size(), queueUrl, timeoutSeconds);
+        } catch (Exception e) {
+            log.error("Visibility heartbeat for {} failed: {}", queueUrl, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        scheduler.shutdownNow();
+
+        Map<String, List<String>> byQueue = new HashMap<>();
+        inFlight.forEach((receiptHandle, message) ->
+                byQueue.computeIfAbsent(message.queueUrl(), queueUrl -> new ArrayList<>()).add(receiptHandle));
+        inFlight.clear();
+
+        byQueue.forEach((queueUrl, receiptHandles) -> changeVisibility(queueUrl, receiptHandles, 0));
+        log.info("Released {} in-flight message(s) on shutdown.", byQueue.values().stream().mapToInt(List::size).sum());
+    }
+}
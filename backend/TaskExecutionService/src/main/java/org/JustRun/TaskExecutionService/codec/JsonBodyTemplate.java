@@ -0,0 +1,192 @@
+package org.JustRun.TaskExecutionService.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A JSON request body serialized once, with the places a run fills in located up front. Strings
+ * in the body may hold placeholders like {{fireTime}}; their offsets are recorded, so rendering
+ * copies the bytes around them and writes only the values. Top-level fields can be replaced or
+ * added per run the same way: each field's bytes are kept apart, and only the new values are
+ * serialized. A body without placeholders renders to the same array every time.
+ */
+public final class JsonBodyTemplate {
+
+    private static final JsonStringEncoder JSON_STRINGS = JsonStringEncoder.getInstance();
+    private static final byte[] EMPTY = new byte[0];
+
+    // Null when the task has no body
+    private final byte[] json;
+    private final List<Member> members;
+    private final List<Placeholder> placeholders;
+
+    // A top-level field: "name":value at [start, end) of the serialized body
+    private record Member(String name, int start, int end) {
+    }
+
+    private record Placeholder(int start, int end, String variable) {
+    }
+
+    private JsonBodyTemplate(byte[] json, List<Member> members, List<Placeholder> placeholders) {
+        this.json = json;
+        this.members = members;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Serializes {@code body}; placeholders whose variable {@code isVariable} rejects stay literal text.
+     */
+    public static JsonBodyTemplate compile(ObjectMapper objectMapper, Map<String, Object> body,
+                                           Predicate<String> isVariable) {
+        if (body == null) {
+            return new JsonBodyTemplate(null, List.of(), List.of());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        List<Member> members = new ArrayList<>(body.size());
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> field : body.entrySet()) {
+                generator.flush();
+                int start = out.size();
+                generator.writeFieldName(field.getKey());
+                generator.writeObject(field.getValue());
+                generator.flush();
+                members.add(new Member(field.getKey(), start, out.size()));
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize request body", e);
+        }
+
+        byte[] json = out.toByteArray();
+        // The separator is written with the next field name; leave it out of the field
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            int start = member.start();
+            while (start < member.end() && json[start] != '"') {
+                start++;
+            }
+            members.set(i, new Member(member.name(), start, member.end()));
+        }
+        return new JsonBodyTemplate(json, List.copyOf(members), findPlaceholders(json, isVariable));
+    }
+
+    public boolean hasPlaceholders() {
+        return !placeholders.isEmpty();
+    }
+
+    /**
+     * The body with {@code values} filled in and {@code fields} set over its top-level fields, as
+     * UTF-8 JSON; null when there is no body and no fields to set. Fields keep their position when
+     * replaced and are appended otherwise. The result may be shared and must not be modified.
+     */
+    public byte[] render(ObjectMapper objectMapper, Function<String, String> values, Map<String, Object> fields) {
+        boolean setsFields = fields != null && !fields.isEmpty();
+        if (!setsFields && placeholders.isEmpty()) {
+            return json;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream((json != null ? json.length : 0) + 64);
+        if (!setsFields) {
+            copy(0, json.length, values, out);
+            return out.toByteArray();
+        }
+
+        try {
+            Set<String> appended = new LinkedHashSet<>(fields.keySet());
+            out.write('{');
+            boolean first = true;
+            for (Member member : members) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                if (fields.containsKey(member.name())) {
+                    writeField(objectMapper, member.name(), fields.get(member.name()), out);
+                    appended.remove(member.name());
+                } else {
+                    copy(member.start(), member.end(), values, out);
+                }
+            }
+            for (String name : appended) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                writeField(objectMapper, name, fields.get(name), out);
+            }
+            out.write('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render request body", e);
+        }
+        return out.toByteArray();
+    }
+
+    private void copy(int from, int to, Function<String, String> values, ByteArrayOutputStream out) {
+        int at = from;
+        for (Placeholder placeholder : placeholders) {
+            if (placeholder.start() < from || placeholder.end() > to) {
+                continue;
+            }
+            out.write(json, at, placeholder.start() - at);
+            String value = values.apply(placeholder.variable());
+            // Placeholders only occur inside JSON strings
+            byte[] escaped = value != null ? JSON_STRINGS.quoteAsUTF8(value) : EMPTY;
+            out.write(escaped, 0, escaped.length);
+            at = placeholder.end();
+        }
+        out.write(json, at, to - at);
+    }
+
+    private static void writeField(ObjectMapper objectMapper, String name, Object value,
+                                   ByteArrayOutputStream out) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(name));
+        out.write(':');
+        out.write(objectMapper.writeValueAsBytes(value));
+    }
+
+    // {{name}} where name is made of letters, digits, '_', '.' and '-'
+    private static List<Placeholder> findPlaceholders(byte[] json, Predicate<String> isVariable) {
+        List<Placeholder> placeholders = new ArrayList<>();
+        int i = 0;
+        while (i < json.length - 3) {
+            if (json[i] != '{' || json[i + 1] != '{') {
+                i++;
+                continue;
+            }
+            int end = i + 2;
+            while (end < json.length && isNameByte(json[end])) {
+                end++;
+            }
+            if (end > i + 2 && end + 1 < json.length && json[end] == '}' && json[end + 1] == '}') {
+                String variable = new String(json, i + 2, end - i - 2, StandardCharsets.US_ASCII);
+                if (isVariable.test(variable)) {
+                    placeholders.add(new Placeholder(i, end + 2, variable));
+                    i = end + 2;
+                    continue;
+                }
+            }
+            i++;
+        }
+        return List.copyOf(placeholders);
+    }
+
+    private static boolean isNameByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '_' || b == '.' || b == '-';
+    }
+}
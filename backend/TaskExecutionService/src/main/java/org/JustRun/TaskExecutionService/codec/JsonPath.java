@@ -0,0 +1,94 @@
+package org.JustRun.TaskExecutionService.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled JSONPath made of field names and array indexes: "$.order.items[0].id" or
+ * "$['order id'][2]". Wildcards, slices and filters are not supported, so a path names at most one
+ * value and a streaming scan can stop as soon as it has read it.
+ */
+public final class JsonPath {
+
+    private final String expression;
+    // Each segment is a field name (String) or an array index (Integer)
+    private final List<Object> segments;
+
+    private JsonPath(String expression, List<Object> segments) {
+        this.expression = expression;
+        this.segments = segments;
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code expression} is not a supported path
+     */
+    public static JsonPath compile(String expression) {
+        if (expression == null || !expression.startsWith("$")) {
+            throw new IllegalArgumentException("JSONPath must start with '$': " + expression);
+        }
+
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '.') {
+                int end = i + 1;
+                while (end < expression.length() && expression.charAt(end) != '.' && expression.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i + 1) {
+                    throw new IllegalArgumentException("Empty field name in JSONPath: " + expression);
+                }
+                segments.add(expression.substring(i + 1, end));
+                i = end;
+            } else if (c == '[') {
+                int close = expression.indexOf(']', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '[' in JSONPath: " + expression);
+                }
+                String inner = expression.substring(i + 1, close);
+                if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"')
+                        && inner.charAt(inner.length() - 1) == inner.charAt(0)) {
+                    segments.add(inner.substring(1, inner.length() - 1));
+                } else {
+                    try {
+                        int index = Integer.parseInt(inner);
+                        if (index < 0) {
+                            throw new IllegalArgumentException("Negative index in JSONPath: " + expression);
+                        }
+                        segments.add(index);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Unsupported JSONPath segment [" + inner + "]: " + expression);
+                    }
+                }
+                i = close + 1;
+            } else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' in JSONPath: " + expression);
+            }
+        }
+        return new JsonPath(expression, List.copyOf(segments));
+    }
+
+    int length() {
+        return segments.size();
+    }
+
+    Object segment(int i) {
+        return segments.get(i);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof JsonPath path && segments.equals(path.segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return segments.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
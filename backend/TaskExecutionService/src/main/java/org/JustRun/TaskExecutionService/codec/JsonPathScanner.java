@@ -0,0 +1,128 @@
+package org.JustRun.TaskExecutionService.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the values at a set of {@link JsonPath}s from a JSON document in one streaming pass.
+ * Subtrees no path leads into are skipped without being parsed into objects, only the values the
+ * paths name are materialized, and the scan stops as soon as every path has been found.
+ */
+public final class JsonPathScanner {
+
+    private JsonPathScanner() {
+    }
+
+    /**
+     * The values found, by path; a path missing from the result is absent from the document. A
+     * document that is not JSON yields whatever was found before the parser gave up.
+     */
+    public static Map<JsonPath, JsonNode> scan(ObjectMapper objectMapper, String json, Set<JsonPath> paths) {
+        Map<JsonPath, JsonNode> found = new HashMap<>();
+        if (paths.isEmpty() || json == null || json.isBlank()) {
+            return found;
+        }
+
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != null) {
+                visit(parser, new ArrayList<>(), paths, found);
+            }
+        } catch (IOException e) {
+            // Not JSON, or not all of it; paths past the error read as missing
+        }
+        return found;
+    }
+
+    // The parser is on the first token of the value at {@code at}; returns with that value consumed, or early once done
+    private static void visit(JsonParser parser, List<Object> at, Set<JsonPath> paths,
+                              Map<JsonPath, JsonNode> found) throws IOException {
+        JsonPath target = null;
+        boolean descends = false;
+        for (JsonPath path : paths) {
+            if (found.containsKey(path) || !startsWith(path, at)) {
+                continue;
+            }
+            if (path.length() == at.size()) {
+                target = path;
+            } else {
+                descends = true;
+            }
+        }
+
+        if (target != null) {
+            JsonNode value = parser.readValueAsTree();
+            found.put(target, value);
+            if (descends) {
+                // Paths deeper inside the value read from the tree just built
+                for (JsonPath path : paths) {
+                    if (!found.containsKey(path) && path.length() > at.size() && startsWith(path, at)) {
+                        JsonNode nested = resolve(value, path, at.size());
+                        if (nested != null) {
+                            found.put(path, nested);
+                        }
+                    }
+                }
+            }
+            return;
+        }
+        if (!descends) {
+            parser.skipChildren();
+            return;
+        }
+
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                at.add(parser.currentName());
+                parser.nextToken();
+                visit(parser, at, paths, found);
+                at.remove(at.size() - 1);
+                if (found.size() == paths.size()) {
+                    return;
+                }
+            }
+        } else if (parser.currentToken() == JsonToken.START_ARRAY) {
+            int index = 0;
+            for (JsonToken token = parser.nextToken(); token != null && token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                at.add(index++);
+                visit(parser, at, paths, found);
+                at.remove(at.size() - 1);
+                if (found.size() == paths.size()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean startsWith(JsonPath path, List<Object> prefix) {
+        if (path.length() < prefix.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (!path.segment(i).equals(prefix.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JsonNode resolve(JsonNode node, JsonPath path, int from) {
+        for (int i = from; i < path.length() && node != null; i++) {
+            Object segment = path.segment(i);
+            if (segment instanceof Integer index) {
+                node = node.isArray() ? node.get(index) : null;
+            } else {
+                node = node.isObject() ? node.get((String) segment) : null;
+            }
+        }
+        return node;
+    }
+}
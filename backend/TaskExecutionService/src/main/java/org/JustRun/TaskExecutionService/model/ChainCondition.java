@@ -0,0 +1,23 @@
+package org.JustRun.TaskExecutionService.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A test on the response a chain fires on. With source HEADER, {@code path} is a header name; with
+ * source BODY it is a JSONPath into the response body, such as "$.order.items[0].id".
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChainCondition {
+    private String source;
+    private String path;
+    // EXISTS, EQUALS, NOT_EQUALS, or MATCHES (a regular expression the whole value must match;
+    // values over 4096 characters never match)
+    private String operator;
+    private String value;
+}
@@ -0,0 +1,27 @@
+package org.JustRun.TaskExecutionService.model;
+
+/**
+ * Deterministic per-task offset inside a task's spread window, used to move fires away from
+ * the top of the minute/hour. The same task id always maps to the same offset, so its period
+ * is unchanged; the window should be shorter than the cron period.
+ */
+public final class FireTimeSpread {
+
+    private FireTimeSpread() {
+    }
+
+    public static long offsetSeconds(String taskId, Integer windowSeconds) {
+        if (taskId == null || windowSeconds == null || windowSeconds <= 1) {
+            return 0;
+        }
+
+        // murmur3 finalizer so ids that share prefixes still spread evenly
+        int h = taskId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, windowSeconds);
+    }
+}
@@ -0,0 +1,7 @@
+package org.JustRun.TaskExecutionService.model;
+
+
+public enum JoinMode {
+    ALL,   // Runs once every branch of the fork has arrived
+    ANY    // Runs when the first branch arrives; later arrivals are dropped
+}
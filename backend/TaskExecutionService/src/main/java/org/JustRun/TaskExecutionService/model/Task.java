@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Task {
@@ -22,12 +22,18 @@ public class Task {
     private String method;
     private Map<String, String> headers;
     private Map<String, Object> body;
+    private byte[] payload;
     private String cronExpression;
+    private Integer spreadWindowSeconds;
+    private MisfirePolicy misfirePolicy;
+    private Integer misfireMaxCatchUp;
     private TaskPriority priority;
     private List<TaskChain> chains;
     private Integer maxRetries;
     private Integer retryDelay;
     private Boolean exponentialBackoff;
+    // Deadline for one run's outbound call, in ms; unset uses the executor's default for the priority
+    private Integer timeoutMs;
     private String webhookUrl;
     private String status;
     private LocalDateTime createdAt;
@@ -37,6 +43,19 @@ public class Task {
     private Integer failureCount;
     private LocalDateTime nextExecutionTime;
     private TaskType taskType;
+    // Set on join nodes: how the branches of a fork are merged into one run of this task
+    private JoinMode joinMode;
+    // Exact time this run should fire; set for runs claimed ahead of time
+    private LocalDateTime scheduledFireTime;
+    // Stable id of this run (task id + fire time), used to drop duplicate deliveries
+    private String fireInstanceId;
+    // Workflow position of a chained run
+    private WorkflowContext workflow;
+    // 1 on a run's first attempt, counting up on its retries
+    private Integer attempt;
+    // Values the chain that started this run read from the upstream response, set over the body and headers
+    private Map<String, Object> extractedBody;
+    private Map<String, String> extractedHeaders;
 
     public enum TaskType {
         ROOT,     // Scheduled by cron
@@ -15,9 +15,15 @@ import java.time.LocalDateTime;
 public class TaskExecution {
     private String id;
     private String taskId;
+    private String userId;
+    private String fireInstanceId;
+    // Set on the runs of a workflow only, which keeps its index sparse
+    private String workflowRunId;
+    private String parentExecutionId;
     private LocalDateTime executionTime;
     private String status;
     private Integer statusCode;
+    private Long durationMs;
     private String response;
     private String error;
     private Integer retryCount;
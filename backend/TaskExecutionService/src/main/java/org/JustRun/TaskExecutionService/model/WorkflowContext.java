@@ -0,0 +1,32 @@
+package org.JustRun.TaskExecutionService.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Where a chained run sits in its workflow: the workflow instance it belongs to, the execution
+ * that chained to it, and the fork branches it is on, outermost first. Travels with the task on
+ * the queue.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowContext {
+    private String instanceId;
+    private String parentExecutionId;
+    private List<Branch> branches;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Branch {
+        private String forkId;
+        private int branchCount;
+        private int branch;
+    }
+}
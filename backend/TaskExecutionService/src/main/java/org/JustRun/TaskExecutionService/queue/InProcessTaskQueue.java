@@ -0,0 +1,243 @@
+package org.JustRun.TaskExecutionService.queue;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link TaskQueue} held in memory, for single-JVM deployments and tests. Each queue is a bounded
+ * lock-free queue of ready messages plus a map of invisible ones (in flight or delayed), which
+ * gives the same delete / visibility-timeout / redelivery and deduplication-window behaviour as SQS.
+ * Visibility timeouts and deduplication windows wait in delay queues, so a receive only touches
+ * the ones that have run out.
+ * Unlike a FIFO queue it does not serialize messages of one group. Nothing survives a restart.
+ */
+@Slf4j
+public class InProcessTaskQueue implements TaskQueue {
+
+    // Same window SQS FIFO queues use for deduplication ids
+    private static final long DEDUPLICATION_WINDOW_MS = TimeUnit.MINUTES.toMillis(5);
+    // Upper bound on one park, so expired visibility timeouts and delays are noticed while waiting
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final int capacity;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public InProcessTaskQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    private static final class Entry {
+        private final String messageId;
+        private final String body;
+        private final Map<String, String> attributes;
+        private volatile long visibleAt;
+        private volatile int receiveCount;
+
+        private Entry(String messageId, String body, Map<String, String> attributes) {
+            this.messageId = messageId;
+            this.body = body;
+            this.attributes = attributes;
+        }
+    }
+
+    // When the invisible entry or deduplication id under key runs out; compared by identity
+    private static final class Deadline implements Delayed {
+        private final String key;
+        private final long at;
+
+        private Deadline(String key, long at) {
+            this.key = key;
+            this.at = at;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(at - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(at, ((Deadline) other).at);
+        }
+    }
+
+    private static final class Channel {
+        private final ConcurrentLinkedQueue<Entry> ready = new ConcurrentLinkedQueue<>();
+        // Keyed by receipt handle for in-flight messages and by message id for delayed ones
+        private final Map<String, Entry> invisible = new ConcurrentHashMap<>();
+        // One deadline per visibleAt an invisible entry was given; stale ones are skipped when they come due
+        private final DelayQueue<Deadline> visibilityDeadlines = new DelayQueue<>();
+        private final Map<String, Deadline> deduplicationIds = new ConcurrentHashMap<>();
+        private final DelayQueue<Deadline> deduplicationDeadlines = new DelayQueue<>();
+        private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    @Override
+    public String send(String queue, QueueMessage message) {
+        Channel channel = channel(queue);
+        long now = System.currentTimeMillis();
+
+        String deduplicationId = message.getDeduplicationId();
+        Deadline window = null;
+        if (deduplicationId != null) {
+            Deadline fresh = new Deadline(deduplicationId, now + DEDUPLICATION_WINDOW_MS);
+            window = channel.deduplicationIds.compute(deduplicationId,
+                    (id, previous) -> previous != null && previous.at > now ? previous : fresh);
+            if (window != fresh) {
+                log.debug("Dropped duplicate message {} on {}", deduplicationId, queue);
+                return deduplicationId;
+            }
+            channel.deduplicationDeadlines.add(window);
+        }
+
+        if (channel.size.incrementAndGet() > capacity) {
+            channel.size.decrementAndGet();
+            if (window != null) {
+                channel.deduplicationIds.remove(deduplicationId, window);
+            }
+            throw new IllegalStateException("In-process queue " + queue + " is full (" + capacity + " messages)");
+        }
+
+        Entry entry = new Entry(Long.toString(sequence.incrementAndGet()), message.getBody(),
+                message.getAttributes() != null ? new HashMap<>(message.getAttributes()) : null);
+        int delaySeconds = message.getDelaySeconds() != null ? message.getDelaySeconds() : 0;
+        if (delaySeconds > 0) {
+            hide(channel, entry.messageId, entry, now + TimeUnit.SECONDS.toMillis(delaySeconds));
+        } else {
+            makeReady(channel, entry);
+        }
+        return entry.messageId;
+    }
+
+    @Override
+    public List<QueueMessage> receive(String queue, int maxMessages, int visibilityTimeoutSeconds, int waitTimeSeconds) {
+        Channel channel = channel(queue);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitTimeSeconds);
+        List<QueueMessage> messages = new ArrayList<>(maxMessages);
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            requeueVisible(channel);
+
+            Entry entry;
+            while (messages.size() < maxMessages && (entry = channel.ready.poll()) != null) {
+                entry.receiveCount++;
+                String receiptHandle = entry.messageId + "#" + UUID.randomUUID();
+                hide(channel, receiptHandle, entry, now + TimeUnit.SECONDS.toMillis(visibilityTimeoutSeconds));
+                messages.add(QueueMessage.builder()
+                        .messageId(entry.messageId)
+                        .receiptHandle(receiptHandle)
+                        .body(entry.body)
+                        .attributes(entry.attributes)
+                        .receiveCount(entry.receiveCount)
+                        .build());
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (!messages.isEmpty() || remaining <= 0) {
+                return messages;
+            }
+
+            Thread current = Thread.currentThread();
+            channel.waiters.add(current);
+            if (channel.ready.isEmpty()) {
+                LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+            }
+            channel.waiters.remove(current);
+            if (current.isInterrupted()) {
+                return messages;
+            }
+        }
+    }
+
+    @Override
+    public List<String> delete(String queue, List<String> receiptHandles) {
+        Channel channel = channel(queue);
+        List<String> failed = new ArrayList<>();
+        for (String receiptHandle : receiptHandles) {
+            if (channel.invisible.remove(receiptHandle) != null) {
+                channel.size.decrementAndGet();
+            } else {
+                // Timed out and requeued (or already deleted), as with an expired SQS receipt handle
+                failed.add(receiptHandle);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public List<String> changeVisibility(String queue, List<String> receiptHandles, int visibilityTimeoutSeconds) {
+        Channel channel = channel(queue);
+        List<String> failed = new ArrayList<>();
+        for (String receiptHandle : receiptHandles) {
+            Entry entry = channel.invisible.get(receiptHandle);
+            if (entry == null) {
+                failed.add(receiptHandle);
+                continue;
+            }
+
+            if (visibilityTimeoutSeconds <= 0) {
+                if (channel.invisible.remove(receiptHandle, entry)) {
+                    makeReady(channel, entry);
+                } else {
+                    failed.add(receiptHandle);
+                }
+            } else {
+                long visibleAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(visibilityTimeoutSeconds);
+                entry.visibleAt = visibleAt;
+                channel.visibilityDeadlines.add(new Deadline(receiptHandle, visibleAt));
+                if (channel.invisible.get(receiptHandle) != entry) {
+                    failed.add(receiptHandle);
+                }
+            }
+        }
+        return failed;
+    }
+
+    private Channel channel(String queue) {
+        return channels.computeIfAbsent(queue, name -> new Channel());
+    }
+
+    private void makeReady(Channel channel, Entry entry) {
+        channel.ready.add(entry);
+        Thread waiter = channel.waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private void hide(Channel channel, String key, Entry entry, long visibleAt) {
+        entry.visibleAt = visibleAt;
+        channel.invisible.put(key, entry);
+        channel.visibilityDeadlines.add(new Deadline(key, visibleAt));
+    }
+
+    private void requeueVisible(Channel channel) {
+        Deadline due;
+        while ((due = channel.visibilityDeadlines.poll()) != null) {
+            Entry entry = channel.invisible.get(due.key);
+            // Skipped when the message was deleted or its visibility timeout changed since
+            if (entry != null && entry.visibleAt == due.at && channel.invisible.remove(due.key, entry)) {
+                makeReady(channel, entry);
+            }
+        }
+        while ((due = channel.deduplicationDeadlines.poll()) != null) {
+            channel.deduplicationIds.remove(due.key, due);
+        }
+    }
+}
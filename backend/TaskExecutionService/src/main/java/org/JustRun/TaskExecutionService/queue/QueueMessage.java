@@ -0,0 +1,27 @@
+package org.JustRun.TaskExecutionService.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * A message as the {@link TaskQueue} transport sees it. Senders fill in the body and delivery
+ * options; received messages also carry their id, receipt handle and delivery count.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueMessage {
+    private String messageId;
+    private String receiptHandle;
+    private String body;
+    private String groupId;
+    private String deduplicationId;
+    private Integer delaySeconds;
+    private Map<String, String> attributes;
+    private int receiveCount;
+}
@@ -0,0 +1,227 @@
+package org.JustRun.TaskExecutionService.queue;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link TaskQueue} on Amazon SQS. Batch operations are split into requests of up to ten entries;
+ * batch sends retry entries that failed for transient reasons one by one.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class SqsTaskQueue implements TaskQueue {
+
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private final SqsClient sqsClient;
+
+    // Null unless aws.async.enabled
+    private final SqsAsyncClient sqsAsyncClient;
+
+    @Override
+    public String send(String queue, QueueMessage message) {
+        SendMessageResponse response = sqsClient.sendMessage(sendRequest(queue, message));
+        log.debug("Sent message {} to {} (HTTP {})", response.messageId(), queue, response.sdkHttpResponse().statusCode());
+        return response.messageId();
+    }
+
+    @Override
+    public List<String> sendBatch(String queue, List<QueueMessage> messages) {
+        String[] messageIds = new String[messages.size()];
+        for (int start = 0; start < messages.size(); start += MAX_BATCH_SIZE) {
+            SendMessageBatchResponse response = sqsClient.sendMessageBatch(batchRequest(queue, messages, start));
+            for (SendMessageBatchResultEntry sent : response.successful()) {
+                messageIds[start + Integer.parseInt(sent.id())] = sent.messageId();
+            }
+            for (BatchResultErrorEntry error : response.failed()) {
+                int index = start + Integer.parseInt(error.id());
+                checkResendable(queue, error);
+                messageIds[index] = send(queue, messages.get(index));
+            }
+        }
+        return Arrays.asList(messageIds);
+    }
+
+    /**
+     * Like {@link #sendBatch}, on the async client when there is one: all batches are in flight at once.
+     */
+    @Override
+    public CompletableFuture<List<String>> sendBatchAsync(String queue, List<QueueMessage> messages) {
+        if (sqsAsyncClient == null) {
+            return TaskQueue.super.sendBatchAsync(queue, messages);
+        }
+
+        String[] messageIds = new String[messages.size()];
+        List<CompletableFuture<?>> batches = new ArrayList<>();
+        for (int start = 0; start < messages.size(); start += MAX_BATCH_SIZE) {
+            int offset = start;
+            batches.add(sqsAsyncClient.sendMessageBatch(batchRequest(queue, messages, offset)).thenCompose(response -> {
+                for (SendMessageBatchResultEntry sent : response.successful()) {
+                    messageIds[offset + Integer.parseInt(sent.id())] = sent.messageId();
+                }
+                List<CompletableFuture<?>> resends = new ArrayList<>();
+                for (BatchResultErrorEntry error : response.failed()) {
+                    int index = offset + Integer.parseInt(error.id());
+                    checkResendable(queue, error);
+                    resends.add(sqsAsyncClient.sendMessage(sendRequest(queue, messages.get(index)))
+                            .thenAccept(resent -> messageIds[index] = resent.messageId()));
+                }
+                return CompletableFuture.allOf(resends.toArray(new CompletableFuture<?>[0]));
+            }));
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0]))
+                .thenApply(sent -> Arrays.asList(messageIds));
+    }
+
+    @Override
+    public List<QueueMessage> receive(String queue, int maxMessages, int visibilityTimeoutSeconds, int waitTimeSeconds) {
+        ReceiveMessageResponse response = sqsClient.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queue)
+                .maxNumberOfMessages(maxMessages)
+                .visibilityTimeout(visibilityTimeoutSeconds)
+                .waitTimeSeconds(waitTimeSeconds)
+                .attributeNamesWithStrings(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT.toString())
+                .build());
+
+        List<QueueMessage> messages = new ArrayList<>(response.messages().size());
+        for (Message message : response.messages()) {
+            messages.add(QueueMessage.builder()
+                    .messageId(message.messageId())
+                    .receiptHandle(message.receiptHandle())
+                    .body(message.body())
+                    .receiveCount(Integer.parseInt(message.attributes()
+                            .getOrDefault(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, "1")))
+                    .build());
+        }
+        return messages;
+    }
+
+    @Override
+    public List<String> delete(String queue, List<String> receiptHandles) {
+        List<String> failed = new ArrayList<>();
+        for (int start = 0; start < receiptHandles.size(); start += MAX_BATCH_SIZE) {
+            List<String> batch = receiptHandles.subList(start, Math.min(start + MAX_BATCH_SIZE, receiptHandles.size()));
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(batch.get(i))
+                        .build());
+            }
+
+            DeleteMessageBatchResponse response = sqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                    .queueUrl(queue)
+                    .entries(entries)
+                    .build());
+            for (BatchResultErrorEntry error : response.failed()) {
+                log.warn("Failed to delete a message from {}: {} ({})", queue, error.message(), error.code());
+                failed.add(batch.get(Integer.parseInt(error.id())));
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public List<String> changeVisibility(String queue, List<String> receiptHandles, int visibilityTimeoutSeconds) {
+        List<String> failed = new ArrayList<>();
+        for (int start = 0; start < receiptHandles.size(); start += MAX_BATCH_SIZE) {
+            List<String> batch = receiptHandles.subList(start, Math.min(start + MAX_BATCH_SIZE, receiptHandles.size()));
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(batch.get(i))
+                        .visibilityTimeout(visibilityTimeoutSeconds)
+                        .build());
+            }
+
+            ChangeMessageVisibilityBatchResponse response = sqsClient.changeMessageVisibilityBatch(
+                    ChangeMessageVisibilityBatchRequest.builder()
+                            .queueUrl(queue)
+                            .entries(entries)
+                            .build());
+            for (BatchResultErrorEntry error : response.failed()) {
+                // Usually the message was already deleted or its receipt handle expired
+                log.warn("Could not change visibility of a message on {}: {}", queue, error.message());
+                failed.add(batch.get(Integer.parseInt(error.id())));
+            }
+        }
+        return failed;
+    }
+
+    // Sender faults (a bad message) would fail again; anything else gets one more try on its own
+    private static void checkResendable(String queue, BatchResultErrorEntry error) {
+        if (Boolean.TRUE.equals(error.senderFault())) {
+            throw new IllegalArgumentException("Message rejected by " + queue + ": " + error.message());
+        }
+        log.warn("Batch send to {} failed for one message, resending it alone: {}", queue, error.message());
+    }
+
+    private static SendMessageRequest sendRequest(String queue, QueueMessage message) {
+        SendMessageRequest.Builder request = SendMessageRequest.builder()
+                .queueUrl(queue)
+                .messageBody(message.getBody());
+        // Group and deduplication ids exist only on FIFO queues, which in turn reject per-message delays
+        if (queue.endsWith(".fifo")) {
+            if (message.getGroupId() != null) {
+                request.messageGroupId(message.getGroupId());
+            }
+            if (message.getDeduplicationId() != null) {
+                request.messageDeduplicationId(message.getDeduplicationId());
+            }
+        } else if (message.getDelaySeconds() != null && message.getDelaySeconds() > 0) {
+            request.delaySeconds(message.getDelaySeconds());
+        }
+        if (message.getAttributes() != null && !message.getAttributes().isEmpty()) {
+            request.messageAttributes(attributesOf(message));
+        }
+        return request.build();
+    }
+
+    // The batch of up to ten messages starting at start
+    private static SendMessageBatchRequest batchRequest(String queue, List<QueueMessage> messages, int start) {
+        List<QueueMessage> batch = messages.subList(start, Math.min(start + MAX_BATCH_SIZE, messages.size()));
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            QueueMessage message = batch.get(i);
+            SendMessageBatchRequestEntry.Builder entry = SendMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .messageBody(message.getBody());
+            if (queue.endsWith(".fifo")) {
+                if (message.getGroupId() != null) {
+                    entry.messageGroupId(message.getGroupId());
+                }
+                if (message.getDeduplicationId() != null) {
+                    entry.messageDeduplicationId(message.getDeduplicationId());
+                }
+            } else if (message.getDelaySeconds() != null && message.getDelaySeconds() > 0) {
+                entry.delaySeconds(message.getDelaySeconds());
+            }
+            if (message.getAttributes() != null && !message.getAttributes().isEmpty()) {
+                entry.messageAttributes(attributesOf(message));
+            }
+            entries.add(entry.build());
+        }
+        return SendMessageBatchRequest.builder()
+                .queueUrl(queue)
+                .entries(entries)
+                .build();
+    }
+
+    private static Map<String, MessageAttributeValue> attributesOf(QueueMessage message) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        message.getAttributes().forEach((name, value) -> attributes.put(name,
+                MessageAttributeValue.builder().dataType("String").stringValue(value).build()));
+        return attributes;
+    }
+}
@@ -0,0 +1,55 @@
+package org.JustRun.TaskExecutionService.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport between the scanner and executors. Queues are addressed by the configured queue
+ * names (SQS queue URLs for the SQS transport). Received messages stay invisible to other
+ * receivers for the visibility timeout and are redelivered unless deleted first.
+ */
+public interface TaskQueue {
+
+    /**
+     * Sends a message and returns its id.
+     */
+    String send(String queue, QueueMessage message);
+
+    /**
+     * Sends several messages to one queue and returns their ids in order. Transports with a batch
+     * API send them in as few requests as they can.
+     */
+    default List<String> sendBatch(String queue, List<QueueMessage> messages) {
+        List<String> messageIds = new ArrayList<>(messages.size());
+        for (QueueMessage message : messages) {
+            messageIds.add(send(queue, message));
+        }
+        return messageIds;
+    }
+
+    /**
+     * {@link #sendBatch} without waiting for the sends, for transports with a non-blocking client.
+     * Others send on the calling thread and return a completed future.
+     */
+    default CompletableFuture<List<String>> sendBatchAsync(String queue, List<QueueMessage> messages) {
+        try {
+            return CompletableFuture.completedFuture(sendBatch(queue, messages));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    List<QueueMessage> receive(String queue, int maxMessages, int visibilityTimeoutSeconds, int waitTimeSeconds);
+
+    /**
+     * Deletes received messages. Returns the receipt handles that could not be deleted.
+     */
+    List<String> delete(String queue, List<String> receiptHandles);
+
+    /**
+     * Resets the visibility timeout of received messages; 0 makes them visible right away.
+     * Returns the receipt handles that could not be changed.
+     */
+    List<String> changeVisibility(String queue, List<String> receiptHandles, int visibilityTimeoutSeconds);
+}
@@ -0,0 +1,314 @@
+package org.JustRun.TaskExecutionService.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.codec.JsonPath;
+import org.JustRun.TaskExecutionService.codec.JsonPathScanner;
+import org.JustRun.TaskExecutionService.model.ChainCondition;
+import org.JustRun.TaskExecutionService.model.ChainExtraction;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.model.TaskChain;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves which tasks a finished task chains to. Each task's chains are compiled once into a
+ * routing table keyed by status code, with a fallback per status class (2xx, 4xx, 5xx); an exact
+ * code beats its class. A chain may also carry conditions on the response headers and body, which
+ * must all hold for it to fire, and extractions that hand response values to the next task. The
+ * first matcher level with a chain whose conditions hold wins, and every such chain on it is
+ * followed, so several chains on one code fan out into parallel branches. Body paths are read in
+ * one streaming pass that stops once they have all been seen, and only when a candidate chain
+ * needs them. Tables are recompiled when the chain list they were built from changes.
+ */
+@Component
+@Slf4j
+public class ChainRouter {
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Routes> compiled;
+
+    /**
+     * A chain that fires, with the values its extractions read for the next task.
+     */
+    public record Route(String nextTaskId, Map<String, Object> bodyValues, Map<String, String> headerValues) {
+    }
+
+    public ChainRouter(ObjectMapper objectMapper,
+                       @Value("${executor.chain.routing-cache-size:10000}") int cacheSize) {
+        this.objectMapper = objectMapper;
+        this.compiled = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Routes> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * The chains {@code task} follows on a response, in chain order; one per next task.
+     */
+    public List<Route> route(Task task, int statusCode, HttpHeaders headers, String body) {
+        List<TaskChain> chains = task.getChains();
+        if (chains == null || chains.isEmpty()) {
+            return List.of();
+        }
+
+        Routes routes = compiled.get(task.getId());
+        // Chains arrive with every message; the table is reused while they are the same list
+        if (routes == null || !routes.source().equals(chains)) {
+            routes = Routes.compile(task.getId(), chains);
+            compiled.put(task.getId(), routes);
+        }
+        return routes.route(statusCode, new Response(headers, body, routes.bodyPaths()));
+    }
+
+    private record Routes(List<TaskChain> source, Map<Integer, List<CompiledChain>> byStatusCode,
+                          List<List<CompiledChain>> byStatusClass, Set<JsonPath> bodyPaths) {
+
+        static Routes compile(String taskId, List<TaskChain> chains) {
+            Map<Integer, List<CompiledChain>> byStatusCode = new HashMap<>();
+            List<List<CompiledChain>> byStatusClass = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                byStatusClass.add(new ArrayList<>());
+            }
+            Set<JsonPath> bodyPaths = new HashSet<>();
+
+            for (TaskChain chain : chains) {
+                if (chain.getNextTaskId() == null) {
+                    continue;
+                }
+                CompiledChain compiledChain;
+                try {
+                    compiledChain = CompiledChain.compile(chain);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Chain {} of task {} does not compile and will not fire: {}", chain.getId(), taskId, e.getMessage());
+                    continue;
+                }
+                compiledChain.collectBodyPaths(bodyPaths);
+
+                if (chain.getStatusCode() != null) {
+                    byStatusCode.computeIfAbsent(chain.getStatusCode(), code -> new ArrayList<>()).add(compiledChain);
+                }
+                int statusClass = parseStatusClass(chain.getStatusClass());
+                if (statusClass > 0) {
+                    byStatusClass.get(statusClass).add(compiledChain);
+                }
+            }
+            return new Routes(List.copyOf(chains), byStatusCode, byStatusClass, Set.copyOf(bodyPaths));
+        }
+
+        List<Route> route(int statusCode, Response response) {
+            List<Route> routes = follow(byStatusCode.get(statusCode), response);
+            if (!routes.isEmpty()) {
+                return routes;
+            }
+            int statusClass = statusCode / 100;
+            return statusClass > 0 && statusClass < byStatusClass.size()
+                    ? follow(byStatusClass.get(statusClass), response) : List.of();
+        }
+
+        private List<Route> follow(List<CompiledChain> candidates, Response response) {
+            if (candidates == null || candidates.isEmpty()) {
+                return List.of();
+            }
+
+            List<Route> routes = new ArrayList<>(candidates.size());
+            Set<String> nextTaskIds = new HashSet<>();
+            for (CompiledChain chain : candidates) {
+                // A task chained twice on the same matcher still runs once
+                if (nextTaskIds.contains(chain.nextTaskId()) || !chain.matches(response)) {
+                    continue;
+                }
+                nextTaskIds.add(chain.nextTaskId());
+                routes.add(chain.extract(response));
+            }
+            return routes;
+        }
+
+        private static int parseStatusClass(String statusClass) {
+            if (statusClass == null || statusClass.length() != 3 || !statusClass.endsWith("xx")) {
+                return 0;
+            }
+            int digit = Character.digit(statusClass.charAt(0), 10);
+            return digit >= 1 && digit <= 5 ? digit : 0;
+        }
+    }
+
+    // The response a task's chains are evaluated against; the body is scanned at most once, for every path the task uses
+    private final class Response {
+        private final HttpHeaders headers;
+        private final String body;
+        private final Set<JsonPath> bodyPaths;
+        private Map<JsonPath, JsonNode> bodyValues;
+
+        Response(HttpHeaders headers, String body, Set<JsonPath> bodyPaths) {
+            this.headers = headers;
+            this.body = body;
+            this.bodyPaths = bodyPaths;
+        }
+
+        JsonNode read(Operand operand) {
+            if (operand.headerName() != null) {
+                String value = headers != null ? headers.getFirst(operand.headerName()) : null;
+                return value != null ? TextNode.valueOf(value) : null;
+            }
+            if (bodyValues == null) {
+                bodyValues = JsonPathScanner.scan(objectMapper, body, bodyPaths);
+            }
+            return bodyValues.get(operand.path());
+        }
+
+        Object toBodyValue(JsonNode value) {
+            return objectMapper.convertValue(value, Object.class);
+        }
+    }
+
+    // A header (by name) or a body value (by JSONPath)
+    private record Operand(String headerName, JsonPath path) {
+
+        static Operand compile(String source, String path) {
+            if (path == null || path.isBlank()) {
+                throw new IllegalArgumentException("Missing path");
+            }
+            if ("HEADER".equals(source)) {
+                return new Operand(path, null);
+            }
+            if ("BODY".equals(source)) {
+                return new Operand(null, JsonPath.compile(path));
+            }
+            throw new IllegalArgumentException("Unknown source " + source);
+        }
+    }
+
+    private record Condition(Operand operand, String operator, String value, Pattern pattern) {
+
+        // MATCHES runs on at most this much of a value, which bounds how long a backtracking pattern can take
+        static final int MAX_MATCH_INPUT_CHARS = 4096;
+
+        static Condition compile(ChainCondition condition) {
+            Operand operand = Operand.compile(condition.getSource(), condition.getPath());
+            String operator = condition.getOperator() != null ? condition.getOperator() : "EXISTS";
+            switch (operator) {
+                case "EXISTS":
+                    return new Condition(operand, operator, null, null);
+                case "EQUALS":
+                case "NOT_EQUALS":
+                    return new Condition(operand, operator, condition.getValue(), null);
+                case "MATCHES":
+                    if (condition.getValue() == null) {
+                        throw new IllegalArgumentException("MATCHES needs a pattern");
+                    }
+                    return new Condition(operand, operator, condition.getValue(), Pattern.compile(condition.getValue()));
+                default:
+                    throw new IllegalArgumentException("Unknown operator " + operator);
+            }
+        }
+
+        boolean holds(JsonNode actual) {
+            switch (operator) {
+                case "EXISTS":
+                    return actual != null;
+                case "EQUALS":
+                    return actual != null && text(actual).equals(value);
+                case "NOT_EQUALS":
+                    return actual == null || !text(actual).equals(value);
+                default: {
+                    if (actual == null) {
+                        return false;
+                    }
+                    String text = text(actual);
+                    return text.length() <= MAX_MATCH_INPUT_CHARS && pattern.matcher(text).matches();
+                }
+            }
+        }
+    }
+
+    private record Extraction(Operand operand, boolean intoHeader, String name) {
+
+        static Extraction compile(ChainExtraction extraction) {
+            if (extraction.getName() == null || extraction.getName().isBlank()) {
+                throw new IllegalArgumentException("Missing extraction target name");
+            }
+            if (!"BODY".equals(extraction.getInto()) && !"HEADER".equals(extraction.getInto())) {
+                throw new IllegalArgumentException("Unknown extraction target " + extraction.getInto());
+            }
+            return new Extraction(Operand.compile(extraction.getSource(), extraction.getPath()),
+                    "HEADER".equals(extraction.getInto()), extraction.getName());
+        }
+    }
+
+    private record CompiledChain(String nextTaskId, List<Condition> conditions, List<Extraction> extractions) {
+
+        static CompiledChain compile(TaskChain chain) {
+            List<Condition> conditions = new ArrayList<>();
+            if (chain.getConditions() != null) {
+                chain.getConditions().forEach(condition -> conditions.add(Condition.compile(condition)));
+            }
+            List<Extraction> extractions = new ArrayList<>();
+            if (chain.getExtractions() != null) {
+                chain.getExtractions().forEach(extraction -> extractions.add(Extraction.compile(extraction)));
+            }
+            return new CompiledChain(chain.getNextTaskId(), List.copyOf(conditions), List.copyOf(extractions));
+        }
+
+        void collectBodyPaths(Set<JsonPath> paths) {
+            conditions.forEach(condition -> addBodyPath(condition.operand(), paths));
+            extractions.forEach(extraction -> addBodyPath(extraction.operand(), paths));
+        }
+
+        boolean matches(Response response) {
+            for (Condition condition : conditions) {
+                if (!condition.holds(response.read(condition.operand()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Route extract(Response response) {
+            if (extractions.isEmpty()) {
+                return new Route(nextTaskId, Map.of(), Map.of());
+            }
+
+            Map<String, Object> bodyValues = new LinkedHashMap<>();
+            Map<String, String> headerValues = new LinkedHashMap<>();
+            for (Extraction extraction : extractions) {
+                JsonNode value = response.read(extraction.operand());
+                if (value == null) {
+                    continue;
+                }
+                if (extraction.intoHeader()) {
+                    headerValues.put(extraction.name(), text(value));
+                } else {
+                    bodyValues.put(extraction.name(), response.toBodyValue(value));
+                }
+            }
+            return new Route(nextTaskId, bodyValues, headerValues);
+        }
+
+        private static void addBodyPath(Operand operand, Set<JsonPath> paths) {
+            if (operand.path() != null) {
+                paths.add(operand.path());
+            }
+        }
+    }
+
+    // Scalars compare by their text, containers by their JSON
+    private static String text(JsonNode value) {
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package org.JustRun.TaskExecutionService.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One circuit breaker per target (a task endpoint's host, or the endpoint itself), so an outage at
+ * one customer does not tie up the executor. Each breaker keeps a rolling window of call outcomes
+ * in time buckets; once the window has enough calls and their failure rate reaches the threshold,
+ * the breaker opens and calls to the target are refused until the open period ends. Then a
+ * limited number of probe calls go through (half-open): a successful probe closes the breaker, a
+ * failed one opens it again. Server errors (5xx) and I/O failures count as failures; any other
+ * response shows the target is up.
+ * <p>
+ * Exported metrics: executor.breaker.open and executor.breaker.half_open (breakers per state),
+ * executor.breaker.rejected, executor.breaker.transitions (tagged by state), and
+ * executor.breaker.state per target (0 closed, 1 half-open, 2 open) for targets that have opened.
+ */
+@Component
+@Slf4j
+public class CircuitBreakerRegistry {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    /**
+     * Whether a call to {@code target} may go ahead; a refused call should not be retried before
+     * {@code retryAtMs} (epoch millis).
+     */
+    public record Permit(String target, boolean permitted, boolean probe, long retryAtMs) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Breaker> breakers;
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final AtomicInteger halfOpenCount = new AtomicInteger();
+    private final Counter rejected;
+
+    @Value("${executor.breaker.enabled:true}")
+    private boolean enabled;
+
+    // host: one breaker per scheme://host:port; endpoint: one per URL without its query
+    @Value("${executor.breaker.scope:host}")
+    private String scope;
+
+    @Value("${executor.breaker.window-ms:60000}")
+    private long windowMs;
+
+    @Value("${executor.breaker.window-buckets:10}")
+    private int windowBuckets;
+
+    @Value("${executor.breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${executor.breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${executor.breaker.open-ms:30000}")
+    private long openMs;
+
+    @Value("${executor.breaker.half-open-probes:1}")
+    private int halfOpenProbes;
+
+    // A probe that has not reported back within this long is presumed lost and another is let through
+    @Value("${executor.breaker.probe-timeout-ms:60000}")
+    private long probeTimeoutMs;
+
+    // How long calls refused while probes are out wait before trying again
+    @Value("${executor.breaker.half-open-wait-ms:5000}")
+    private long halfOpenWaitMs;
+
+    public CircuitBreakerRegistry(MeterRegistry meterRegistry,
+                                  @Value("${executor.breaker.max-targets:10000}") int maxTargets) {
+        this.meterRegistry = meterRegistry;
+        this.breakers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Breaker> eldest) {
+                if (size() <= maxTargets) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        });
+        this.rejected = Counter.builder("executor.breaker.rejected")
+                .description("Task executions refused by an open circuit breaker")
+                .register(meterRegistry);
+        Gauge.builder("executor.breaker.open", openCount, AtomicInteger::get)
+                .description("Circuit breakers currently open")
+                .register(meterRegistry);
+        Gauge.builder("executor.breaker.half_open", halfOpenCount, AtomicInteger::get)
+                .description("Circuit breakers currently probing their target")
+                .register(meterRegistry);
+    }
+
+    public Permit acquire(String endpoint) {
+        String target = targetOf(endpoint);
+        if (!enabled || target == null) {
+            return new Permit(target, true, false, 0);
+        }
+
+        Permit permit = breakers.computeIfAbsent(target, Breaker::new).acquire(System.currentTimeMillis());
+        if (!permit.permitted()) {
+            rejected.increment();
+        }
+        return permit;
+    }
+
+    /**
+     * Records the outcome of a permitted call.
+     */
+    public void record(Permit permit, boolean failure) {
+        Breaker breaker = breakerOf(permit);
+        if (breaker != null) {
+            breaker.record(permit, failure, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Gives back a permitted call that ended without telling anything about the target.
+     */
+    public void release(Permit permit) {
+        Breaker breaker = breakerOf(permit);
+        if (breaker != null) {
+            breaker.release(permit);
+        }
+    }
+
+    /**
+     * When calls to {@code endpoint} may next go through (epoch millis), or 0 if they may now.
+     */
+    public long openUntil(String endpoint) {
+        String target = targetOf(endpoint);
+        Breaker breaker = enabled && target != null ? breakers.get(target) : null;
+        return breaker != null ? breaker.openUntil(System.currentTimeMillis()) : 0;
+    }
+
+    private Breaker breakerOf(Permit permit) {
+        return enabled && permit.target() != null && permit.permitted() ? breakers.get(permit.target()) : null;
+    }
+
+    private String targetOf(String endpoint) {
+        if (endpoint == null) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(endpoint);
+            if (uri.getHost() == null) {
+                return endpoint;
+            }
+            String host = uri.getScheme() + "://" + uri.getHost() + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+            return "endpoint".equals(scope) && uri.getRawPath() != null ? host + uri.getRawPath() : host;
+        } catch (IllegalArgumentException e) {
+            return endpoint;
+        }
+    }
+
+    private final class Breaker {
+        private final String target;
+        private final long[] bucketStarts = new long[Math.max(1, windowBuckets)];
+        private final int[] calls = new int[bucketStarts.length];
+        private final int[] failures = new int[bucketStarts.length];
+        private State state = State.CLOSED;
+        private long openedUntil;
+        private int probesOut;
+        private long lastProbeAt;
+        private Meter stateGauge;
+
+        Breaker(String target) {
+            this.target = target;
+        }
+
+        synchronized Permit acquire(long now) {
+            if (state == State.OPEN) {
+                if (now < openedUntil) {
+                    return new Permit(target, false, false, openedUntil);
+                }
+                transition(State.HALF_OPEN);
+                probesOut = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesOut > 0 && now - lastProbeAt > probeTimeoutMs) {
+                    probesOut = 0;
+                }
+                if (probesOut >= halfOpenProbes) {
+                    return new Permit(target, false, false, now + halfOpenWaitMs);
+                }
+                probesOut++;
+                lastProbeAt = now;
+                return new Permit(target, true, true, 0);
+            }
+            return new Permit(target, true, false, 0);
+        }
+
+        synchronized void record(Permit permit, boolean failure, long now) {
+            if (permit.probe()) {
+                if (state != State.HALF_OPEN) {
+                    return;
+                }
+                probesOut = Math.max(0, probesOut - 1);
+                if (failure) {
+                    open(now);
+                } else {
+                    clearWindow();
+                    transition(State.CLOSED);
+                }
+                return;
+            }
+            if (state != State.CLOSED) {
+                // A call that started before the breaker opened
+                return;
+            }
+
+            int bucket = bucketFor(now);
+            calls[bucket]++;
+            if (failure) {
+                failures[bucket]++;
+            }
+
+            long windowCalls = 0;
+            long windowFailures = 0;
+            for (int i = 0; i < calls.length; i++) {
+                if (now - bucketStarts[i] < windowMs) {
+                    windowCalls += calls[i];
+                    windowFailures += failures[i];
+                }
+            }
+            if (failure && windowCalls >= minimumCalls && windowFailures >= failureRateThreshold * windowCalls) {
+                log.warn("Circuit breaker for {} opens: {} of {} call(s) failed in the last {} ms",
+                        target, windowFailures, windowCalls, windowMs);
+                open(now);
+            }
+        }
+
+        synchronized void release(Permit permit) {
+            if (permit.probe() && state == State.HALF_OPEN) {
+                probesOut = Math.max(0, probesOut - 1);
+            }
+        }
+
+        synchronized long openUntil(long now) {
+            return state == State.OPEN && now < openedUntil ? openedUntil : 0;
+        }
+
+        synchronized void evict() {
+            transition(State.CLOSED);
+            if (stateGauge != null) {
+                meterRegistry.remove(stateGauge);
+            }
+        }
+
+        private void open(long now) {
+            openedUntil = now + openMs;
+            clearWindow();
+            transition(State.OPEN);
+            if (stateGauge == null) {
+                stateGauge = Gauge.builder("executor.breaker.state", this, breaker -> breaker.stateValue())
+                        .description("Circuit breaker state per target: 0 closed, 1 half-open, 2 open")
+                        .tag("target", target)
+                        .register(meterRegistry);
+            }
+        }
+
+        private void transition(State next) {
+            if (state == next) {
+                return;
+            }
+            adjust(state, -1);
+            adjust(next, 1);
+            log.info("Circuit breaker for {}: {} -> {}", target, state, next);
+            state = next;
+            meterRegistry.counter("executor.breaker.transitions", "state", next.name()).increment();
+        }
+
+        private synchronized double stateValue() {
+            return state.ordinal();
+        }
+
+        private int bucketFor(long now) {
+            long bucketMs = Math.max(1, windowMs / calls.length);
+            long start = now - now % bucketMs;
+            int bucket = (int) ((now / bucketMs) % calls.length);
+            if (bucketStarts[bucket] != start) {
+                bucketStarts[bucket] = start;
+                calls[bucket] = 0;
+                failures[bucket] = 0;
+            }
+            return bucket;
+        }
+
+        private void clearWindow() {
+            for (int i = 0; i < calls.length; i++) {
+                bucketStarts[i] = 0;
+                calls[i] = 0;
+                failures[i] = 0;
+            }
+        }
+    }
+
+    private void adjust(State state, int delta) {
+        if (state == State.OPEN) {
+            openCount.addAndGet(delta);
+        } else if (state == State.HALF_OPEN) {
+            halfOpenCount.addAndGet(delta);
+        }
+    }
+}
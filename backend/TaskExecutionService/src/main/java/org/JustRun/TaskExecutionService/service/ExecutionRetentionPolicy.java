@@ -0,0 +1,72 @@
+package org.JustRun.TaskExecutionService.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.model.TaskExecution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How long raw execution rows are kept before DynamoDB TTL removes them. A per-task override
+ * wins over a per-user one, which wins over the default; 0 days keeps rows forever. Older
+ * history survives as the scanner's hourly and daily rollups.
+ */
+@Component
+@Slf4j
+public class ExecutionRetentionPolicy {
+
+    private final long defaultDays;
+    private final Map<String, Long> userDays;
+    private final Map<String, Long> taskDays;
+
+    public ExecutionRetentionPolicy(@Value("${executor.retention.days:30}") long defaultDays,
+                                    @Value("${executor.retention.user-days:}") String userDays,
+                                    @Value("${executor.retention.task-days:}") String taskDays) {
+        this.defaultDays = defaultDays;
+        this.userDays = parseOverrides(userDays);
+        this.taskDays = parseOverrides(taskDays);
+    }
+
+    public long retentionDays(String userId, String taskId) {
+        Long days = taskId != null ? taskDays.get(taskId) : null;
+        if (days == null && userId != null) {
+            days = userDays.get(userId);
+        }
+        return days != null ? days : defaultDays;
+    }
+
+    /**
+     * Epoch seconds after which {@code execution} may be deleted, or null to keep it.
+     */
+    public Long expiresAt(TaskExecution execution) {
+        long days = retentionDays(execution.getUserId(), execution.getTaskId());
+        if (days <= 0 || execution.getExecutionTime() == null) {
+            return null;
+        }
+        return execution.getExecutionTime().plusDays(days).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    // "id=days,id=days"
+    private static Map<String, Long> parseOverrides(String value) {
+        Map<String, Long> overrides = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return overrides;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                log.warn("Ignoring malformed retention override '{}'", entry);
+                continue;
+            }
+            try {
+                overrides.put(parts[0].trim(), Long.parseLong(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring retention override '{}': {} is not a number of days", entry, parts[1]);
+            }
+        }
+        return overrides;
+    }
+}
@@ -0,0 +1,139 @@
+package org.JustRun.TaskExecutionService.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.Repository.FireInstanceRepository;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Makes sure each fire instance runs at most once across executors. Completed ids are kept in a
+ * local LRU so the common duplicate (a redelivery to the same executor) costs no DynamoDB call;
+ * everything else goes through a conditional write in {@link FireInstanceRepository}.
+ * Store errors fail open: the task runs, as it would have without deduplication.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public enum Claim {
+        ACQUIRED,
+        COMPLETED,
+        IN_PROGRESS
+    }
+
+    // Room after a run's deadline for its writes and enqueues before the lease runs out
+    private static final long LEASE_MARGIN_MS = 60_000;
+
+    private final FireInstanceRepository fireInstanceRepository;
+    private final TaskHttpClient taskHttpClient;
+    private final Map<String, Boolean> completedCache;
+    private final String executorId = UUID.randomUUID().toString();
+
+    @Value("${executor.idempotency.enabled:true}")
+    private boolean enabled;
+
+    // Minimum lease; a task whose deadline is further out holds its claim until then plus a margin,
+    // so a live run is never taken over
+    @Value("${executor.idempotency.lease-seconds:300}")
+    private long leaseSeconds;
+
+    // How long completed fire instances are remembered (DynamoDB TTL)
+    @Value("${executor.idempotency.retention-hours:48}")
+    private long retentionHours;
+
+    public IdempotencyService(FireInstanceRepository fireInstanceRepository,
+                              TaskHttpClient taskHttpClient,
+                              @Value("${executor.idempotency.cache-size:10000}") int cacheSize) {
+        this.fireInstanceRepository = fireInstanceRepository;
+        this.taskHttpClient = taskHttpClient;
+        this.completedCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Claims the task's fire instance for one run, leased for as long as that run may take.
+     */
+    public Claim claim(Task task) {
+        String fireInstanceId = task.getFireInstanceId();
+        if (!enabled || fireInstanceId == null) {
+            return Claim.ACQUIRED;
+        }
+        if (completedCache.containsKey(fireInstanceId)) {
+            return Claim.COMPLETED;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            long leaseMs = Math.max(leaseSeconds * 1000, taskHttpClient.timeoutMsFor(task) + LEASE_MARGIN_MS);
+            if (fireInstanceRepository.tryClaim(fireInstanceId, executorId, now, now + leaseMs, expiresAt(now))) {
+                return Claim.ACQUIRED;
+            }
+
+            if (FireInstanceRepository.STATUS_COMPLETED.equals(fireInstanceRepository.findStatus(fireInstanceId))) {
+                completedCache.put(fireInstanceId, Boolean.TRUE);
+                return Claim.COMPLETED;
+            }
+            return Claim.IN_PROGRESS;
+        } catch (Exception e) {
+            log.warn("Idempotency check failed for fire instance {}, running it anyway: {}", fireInstanceId, e.getMessage());
+            return Claim.ACQUIRED;
+        }
+    }
+
+    /**
+     * How long the live claim on the fire instance still blocks other executors; 0 when unknown.
+     */
+    public long leaseRemainingMs(String fireInstanceId) {
+        if (!enabled || fireInstanceId == null) {
+            return 0;
+        }
+        try {
+            Long leaseUntil = fireInstanceRepository.findLeaseUntil(fireInstanceId);
+            return leaseUntil != null ? Math.max(0, leaseUntil - System.currentTimeMillis()) : 0;
+        } catch (Exception e) {
+            log.warn("Failed to read the lease of fire instance {}: {}", fireInstanceId, e.getMessage());
+            return 0;
+        }
+    }
+
+    public void complete(String fireInstanceId) {
+        if (!enabled || fireInstanceId == null) {
+            return;
+        }
+        completedCache.put(fireInstanceId, Boolean.TRUE);
+        try {
+            fireInstanceRepository.markCompleted(fireInstanceId, expiresAt(System.currentTimeMillis()));
+        } catch (Exception e) {
+            log.warn("Failed to mark fire instance {} completed: {}", fireInstanceId, e.getMessage());
+        }
+    }
+
+    public void release(String fireInstanceId) {
+        if (!enabled || fireInstanceId == null) {
+            return;
+        }
+        try {
+            fireInstanceRepository.release(fireInstanceId, executorId);
+        } catch (Exception e) {
+            log.warn("Failed to release fire instance {}: {}", fireInstanceId, e.getMessage());
+        }
+    }
+
+    private long expiresAt(long now) {
+        return now / 1000 + retentionHours * 3600;
+    }
+}
@@ -7,18 +7,30 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.JustRun.TaskExecutionService.model.Task;
 import org.JustRun.TaskExecutionService.model.TaskPriority;
+import org.JustRun.TaskExecutionService.queue.QueueMessage;
+import org.JustRun.TaskExecutionService.queue.TaskQueue;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class QueueService {
 
-    private final SqsClient sqsClient;
+    // SQS caps message delays at 15 minutes
+    private static final int MAX_DELAY_SECONDS = 900;
+
+    private final TaskQueue taskQueue;
     private final ObjectMapper objectMapper;
 
     @Value("${aws.sqs.high-priority-queue}")
@@ -37,19 +49,9 @@ public class QueueService {
             String queueUrl = getQueueUrlForPriority(task.getPriority());
             log.debug("📤 Determined SQS queue URL: {}", queueUrl);
 
-            String messageBody = objectMapper.writeValueAsString(task);
-            log.debug("📝 Serialized task to JSON: {}", messageBody);
-
-            SendMessageRequest sendMessageRequest = SendMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .messageBody(messageBody)
-                    .messageGroupId(task.getId())
-                    .build();
-
-            SendMessageResponse response = sqsClient.sendMessage(sendMessageRequest);
+            String messageId = taskQueue.send(queueUrl, messageFor(task));
 
-            log.info("Task [{}] successfully sent to SQS queue [{}]. Message ID: {}, HTTP Status: {}",
-                    task.getId(), queueUrl, response.messageId(), response.sdkHttpResponse().statusCode());
+            log.info("Task [{}] successfully sent to queue [{}]. Message ID: {}", task.getId(), queueUrl, messageId);
 
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize task [{}]: {}", task.getId(), e.getMessage(), e);
@@ -60,6 +62,109 @@ public class QueueService {
         }
     }
 
+    /**
+     * Enqueues several tasks with one batch send per priority queue. A positive delay keeps the
+     * messages invisible for that long on standard queues; on FIFO queues the receiving executor
+     * holds them for it.
+     */
+    public void enqueueTasks(List<Task> tasks, int delaySeconds) {
+        Map<String, List<QueueMessage>> byQueue = messagesByQueue(tasks, delaySeconds);
+        byQueue.forEach((queueUrl, messages) -> {
+            try {
+                if (messages.size() == 1) {
+                    String messageId = taskQueue.send(queueUrl, messages.get(0));
+                    log.info("Task successfully sent to queue [{}]. Message ID: {}", queueUrl, messageId);
+                } else {
+                    taskQueue.sendBatch(queueUrl, messages);
+                    log.info("{} task(s) successfully sent to queue [{}] in one batch.", messages.size(), queueUrl);
+                }
+            } catch (Exception e) {
+                log.error("Unexpected error while enqueuing {} task(s) to [{}]: {}", messages.size(), queueUrl, e.getMessage(), e);
+                throw new RuntimeException("Failed to enqueue tasks", e);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #enqueueTasks}, without waiting for the sends when the queue has a non-blocking
+     * client; the future fails like enqueueTasks would throw.
+     */
+    public CompletableFuture<Void> enqueueTasksAsync(List<Task> tasks, int delaySeconds) {
+        Map<String, List<QueueMessage>> byQueue;
+        try {
+            byQueue = messagesByQueue(tasks, delaySeconds);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(byQueue.size());
+        byQueue.forEach((queueUrl, messages) -> sends.add(taskQueue.sendBatchAsync(queueUrl, messages)
+                .handle((messageIds, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("Unexpected error while enqueuing {} task(s) to [{}]: {}", messages.size(), queueUrl, cause.getMessage(), cause);
+                        throw new RuntimeException("Failed to enqueue tasks", cause);
+                    }
+                    log.info("{} task(s) successfully sent to queue [{}]. Message IDs: {}", messages.size(), queueUrl, messageIds);
+                    return null;
+                })));
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private Map<String, List<QueueMessage>> messagesByQueue(List<Task> tasks, int delaySeconds) {
+        Map<String, List<QueueMessage>> byQueue = new LinkedHashMap<>();
+        try {
+            for (Task task : tasks) {
+                String queueUrl = getQueueUrlForPriority(task.getPriority());
+                QueueMessage message;
+                if (delaySeconds > 0 && queueUrl.endsWith(".fifo")) {
+                    message = messageFor(heldUntil(task, delaySeconds));
+                } else {
+                    message = messageFor(task);
+                    if (delaySeconds > 0) {
+                        message.setDelaySeconds(Math.min(delaySeconds, MAX_DELAY_SECONDS));
+                    }
+                }
+                byQueue.computeIfAbsent(queueUrl, url -> new ArrayList<>()).add(message);
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize a batch of {} task(s): {}", tasks.size(), e.getMessage(), e);
+            throw new RuntimeException("Failed to serialize task", e);
+        }
+        return byQueue;
+    }
+
+    // FIFO queues reject per-message delays: the copy on the queue carries the time instead, and the
+    // executor that receives it holds it until then
+    private static Task heldUntil(Task task, int delaySeconds) {
+        LocalDateTime until = LocalDateTime.now().plusSeconds(delaySeconds);
+        if (task.getScheduledFireTime() != null && !task.getScheduledFireTime().isBefore(until)) {
+            return task;
+        }
+        return task.toBuilder().scheduledFireTime(until).build();
+    }
+
+    private QueueMessage messageFor(Task task) throws JsonProcessingException {
+        String messageBody = objectMapper.writeValueAsString(task);
+        log.debug("📝 Serialized task to JSON: {}", messageBody);
+
+        return QueueMessage.builder()
+                .body(messageBody)
+                .groupId(task.getId())
+                .deduplicationId(task.getFireInstanceId() != null ? deduplicationIdFor(task.getFireInstanceId()) : null)
+                // Lets a workflow's messages be traced on the queue without parsing the body
+                .attributes(task.getWorkflow() != null ? Map.of("workflowRunId", task.getWorkflow().getInstanceId()) : null)
+                .build();
+    }
+
+    private String deduplicationIdFor(String fireInstanceId) {
+        // SQS caps deduplication ids at 128 characters
+        if (fireInstanceId.length() <= 128) {
+            return fireInstanceId;
+        }
+        return DigestUtils.md5DigestAsHex(fireInstanceId.getBytes(StandardCharsets.UTF_8));
+    }
+
     private String getQueueUrlForPriority(TaskPriority priority) {
         switch (priority) {
             case HIGH:
@@ -0,0 +1,228 @@
+package org.JustRun.TaskExecutionService.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.JustRun.TaskExecutionService.codec.JsonBodyTemplate;
+import org.JustRun.TaskExecutionService.codec.TaskPayloadCodec;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Builds the outbound request of a run. Each task's request (URI, method, header block and body
+ * bytes) is rendered once and cached by task id; an entry is reused while the task's definition
+ * is unchanged, so most runs neither decode the stored payload nor serialize the body.
+ * <p>
+ * With templating on, strings in the body and header values may use {{fireTime}}, {{attempt}},
+ * {{executionId}}, {{fireInstanceId}} and {{upstream.NAME}}, which reads a value the chain that
+ * started the run extracted from the upstream response. Other {{...}} text is sent as is.
+ */
+@Component
+public class RequestRenderer {
+
+    private static final String UPSTREAM_PREFIX = "upstream.";
+    // Without a Content-Type, bodies were always sent as text in ISO-8859-1; kept for receivers that expect it
+    private static final MediaType DEFAULT_CONTENT_TYPE = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.ISO_8859_1);
+    private static final MediaType APPLICATION_PLUS_JSON = new MediaType("application", "*+json");
+
+    private final ObjectMapper objectMapper;
+    private final TaskHttpClient taskHttpClient;
+    private final Map<String, Template> templates;
+
+    @Value("${executor.request.templating.enabled:false}")
+    private boolean templating;
+
+    /**
+     * A request ready to send; {@code body} is null for a request without one and must not be modified.
+     */
+    public record RenderedRequest(URI uri, HttpMethod method, HttpHeaders headers, byte[] body) {
+    }
+
+    public RequestRenderer(ObjectMapper objectMapper, TaskHttpClient taskHttpClient,
+                           @Value("${executor.request.cache-size:10000}") int cacheSize) {
+        this.objectMapper = objectMapper;
+        this.taskHttpClient = taskHttpClient;
+        this.templates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public RenderedRequest render(Task task, String executionId) {
+        Template template = templates.get(task.getId());
+        if (template == null || !template.renders(task)) {
+            template = compile(task);
+            templates.put(task.getId(), template);
+        }
+
+        Map<String, Object> upstreamBody = task.getExtractedBody() != null ? task.getExtractedBody() : Map.of();
+        Map<String, String> upstreamHeaders = task.getExtractedHeaders() != null ? task.getExtractedHeaders() : Map.of();
+        Function<String, String> values = variable -> valueOf(variable, task, executionId, upstreamBody, upstreamHeaders);
+
+        byte[] json = template.body().render(objectMapper, values, upstreamBody);
+        boolean headersVary = !template.templatedHeaders().isEmpty() || !upstreamHeaders.isEmpty()
+                || (json != null) != template.hasBody();
+        if (!headersVary) {
+            byte[] body = json == null || template.body().hasPlaceholders() || !upstreamBody.isEmpty()
+                    ? encode(json, template.charset()) : template.encodedBody();
+            return new RenderedRequest(template.uri(), template.method(), template.headers(), body);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        template.headers().forEach((name, headerValues) -> headers.put(name, new ArrayList<>(headerValues)));
+        template.templatedHeaders().forEach((name, value) -> headers.set(name, fill(value, values)));
+        upstreamHeaders.forEach(headers::set);
+        Charset charset = json != null ? withContentType(headers) : null;
+        return new RenderedRequest(template.uri(), template.method(), headers, encode(json, charset));
+    }
+
+    private Template compile(Task task) {
+        TaskPayloadCodec.materialize(task);
+
+        HttpHeaders headers = new HttpHeaders();
+        Map<String, String> templatedHeaders = new LinkedHashMap<>();
+        if (task.getHeaders() != null) {
+            task.getHeaders().forEach((name, value) -> {
+                if (templating && value != null && value.contains("{{")) {
+                    templatedHeaders.put(name, value);
+                } else {
+                    headers.set(name, value);
+                }
+            });
+        }
+
+        JsonBodyTemplate body = JsonBodyTemplate.compile(objectMapper, task.getBody(), this::isVariable);
+        boolean hasBody = task.getBody() != null;
+        Charset charset = hasBody && templatedHeaders.isEmpty() ? withContentType(headers) : null;
+        byte[] encodedBody = hasBody && !body.hasPlaceholders()
+                ? encode(body.render(objectMapper, variable -> null, Map.of()), charset) : null;
+
+        return new Template(task.getPayload(), task.getPayload() == null ? task.getBody() : null,
+                task.getPayload() == null ? task.getHeaders() : null, task.getEndpoint(), task.getMethod(),
+                taskHttpClient.toUri(task.getEndpoint()), HttpMethod.valueOf(task.getMethod()),
+                HttpHeaders.readOnlyHttpHeaders(headers), Map.copyOf(templatedHeaders), body, hasBody, charset, encodedBody);
+    }
+
+    private boolean isVariable(String variable) {
+        if (!templating) {
+            return false;
+        }
+        switch (variable) {
+            case "fireTime":
+            case "attempt":
+            case "executionId":
+            case "fireInstanceId":
+                return true;
+            default:
+                return variable.startsWith(UPSTREAM_PREFIX) && variable.length() > UPSTREAM_PREFIX.length();
+        }
+    }
+
+    private String valueOf(String variable, Task task, String executionId,
+                           Map<String, Object> upstreamBody, Map<String, String> upstreamHeaders) {
+        switch (variable) {
+            case "fireTime":
+                return (task.getScheduledFireTime() != null ? task.getScheduledFireTime() : LocalDateTime.now()).toString();
+            case "attempt":
+                return Integer.toString(task.getAttempt() != null ? task.getAttempt() : 1);
+            case "executionId":
+                return executionId;
+            case "fireInstanceId":
+                return task.getFireInstanceId();
+            default:
+                String name = variable.substring(UPSTREAM_PREFIX.length());
+                Object value = upstreamBody.containsKey(name) ? upstreamBody.get(name) : upstreamHeaders.get(name);
+                return text(value);
+        }
+    }
+
+    private String text(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return value.toString();
+        }
+    }
+
+    private String fill(String value, Function<String, String> values) {
+        StringBuilder filled = new StringBuilder(value.length() + 32);
+        int at = 0;
+        int open;
+        while ((open = value.indexOf("{{", at)) >= 0) {
+            int close = value.indexOf("}}", open + 2);
+            if (close < 0) {
+                break;
+            }
+            String variable = value.substring(open + 2, close);
+            if (!isVariable(variable)) {
+                filled.append(value, at, open + 2);
+                at = open + 2;
+                continue;
+            }
+            String replacement = values.apply(variable);
+            filled.append(value, at, open).append(replacement != null ? replacement : "");
+            at = close + 2;
+        }
+        return filled.append(value, at, value.length()).toString();
+    }
+
+    // The charset bodies are sent in (as the String converter picked it), adding the default Content-Type when there is none
+    private static Charset withContentType(HttpHeaders headers) {
+        MediaType contentType = headers.getContentType();
+        if (contentType == null) {
+            headers.setContentType(DEFAULT_CONTENT_TYPE);
+            return StandardCharsets.ISO_8859_1;
+        }
+        if (contentType.getCharset() != null) {
+            return contentType.getCharset();
+        }
+        return contentType.isCompatibleWith(MediaType.APPLICATION_JSON) || contentType.isCompatibleWith(APPLICATION_PLUS_JSON)
+                ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+    }
+
+    // Bodies render as UTF-8
+    private static byte[] encode(byte[] json, Charset charset) {
+        if (json == null || charset == null || StandardCharsets.UTF_8.equals(charset)) {
+            return json;
+        }
+        return new String(json, StandardCharsets.UTF_8).getBytes(charset);
+    }
+
+    private record Template(byte[] payload, Map<String, Object> sourceBody, Map<String, String> sourceHeaders,
+                            String endpoint, String sourceMethod, URI uri, HttpMethod method, HttpHeaders headers,
+                            Map<String, String> templatedHeaders, JsonBodyTemplate body, boolean hasBody,
+                            Charset charset, byte[] encodedBody) {
+
+        // Whether this template was built from the same definition as the task's
+        boolean renders(Task task) {
+            if (!Objects.equals(endpoint, task.getEndpoint()) || !Objects.equals(sourceMethod, task.getMethod())) {
+                return false;
+            }
+            if (payload != null) {
+                return Arrays.equals(payload, task.getPayload());
+            }
+            return task.getPayload() == null && Objects.equals(sourceBody, task.getBody())
+                    && Objects.equals(sourceHeaders, task.getHeaders());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.JustRun.TaskExecutionService.service;
+
+import org.JustRun.TaskExecutionService.Repository.TaskRepository;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local cache of chain targets, so resolving the next step of a workflow does not read DynamoDB
+ * every time. Task definitions do not change after creation, so an entry only has to expire to
+ * notice a deleted task (missing tasks are cached too). Callers get their own copy, since the
+ * execution path sets per-run fields on the task it runs.
+ */
+@Component
+public class TaskDefinitionCache {
+
+    private final TaskRepository taskRepository;
+    private final Map<String, CachedTask> entries;
+    private final long ttlMs;
+
+    private record CachedTask(Task task, long loadedAt) {
+    }
+
+    public TaskDefinitionCache(TaskRepository taskRepository,
+                               @Value("${executor.chain.definition-cache-size:10000}") int cacheSize,
+                               @Value("${executor.chain.definition-ttl-ms:60000}") long ttlMs) {
+        this.taskRepository = taskRepository;
+        this.ttlMs = ttlMs;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTask> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public Optional<Task> find(String userId, String taskId) {
+        long now = System.currentTimeMillis();
+        CachedTask entry = entries.get(taskId);
+        if (entry == null || now - entry.loadedAt() > ttlMs) {
+            entry = new CachedTask(taskRepository.findById(userId, taskId).orElse(null), now);
+            entries.put(taskId, entry);
+        }
+        return Optional.ofNullable(entry.task()).map(task -> task.toBuilder().build());
+    }
+
+    public void invalidate(String taskId) {
+        entries.remove(taskId);
+    }
+}
@@ -1,27 +1,32 @@
 package org.JustRun.TaskExecutionService.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.JustRun.TaskExecutionService.Repository.TaskExecutionRepository;
 import org.JustRun.TaskExecutionService.Repository.TaskRepository;
+import org.JustRun.TaskExecutionService.model.FireTimeSpread;
 import org.JustRun.TaskExecutionService.model.Task;
-import org.JustRun.TaskExecutionService.model.TaskChain;
 import org.JustRun.TaskExecutionService.model.TaskExecution;
+import org.JustRun.TaskExecutionService.model.WorkflowContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.scheduling.support.SimpleTriggerContext;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
@@ -33,11 +38,43 @@ public class TaskExecutionService {
 //    private final WebhookService webhookService;
     private final QueueService queueService;
     private final PostHogService postHogService;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ChainRouter chainRouter;
+    private final TaskDefinitionCache taskDefinitionCache;
+    private final IdempotencyService idempotencyService;
+    private final WorkflowCoordinator workflowCoordinator;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final TaskHttpClient taskHttpClient;
+    private final RequestRenderer requestRenderer;
+
+    // Run chained steps on this executor right away; the queued copy is only a checkpoint
+    @Value("${executor.chain.inline.enabled:false}")
+    private boolean inlineChains;
+
+    // How long the checkpoint stays invisible, giving the inline run time to claim and finish it
+    @Value("${executor.chain.inline.checkpoint-delay-seconds:30}")
+    private int checkpointDelaySeconds;
+
+    /**
+     * Whether chained steps continue on this executor. Needs fire instance claims, which keep the
+     * inline run and its queued checkpoint from both running.
+     */
+    public boolean continuesChainsInline() {
+        return inlineChains && idempotencyService.isEnabled();
+    }
 
+/**
+ * Runs the task and returns the chained tasks it enqueued.
+ */
+public List<Task> executeTask(Task task) {
+    CircuitBreakerRegistry.Permit permit = circuitBreakerRegistry.acquire(task.getEndpoint());
+    if (!permit.permitted()) {
+        deferUntilBreakerCloses(task, permit);
+        return List.of();
+    }
 
-public void executeTask(Task task) {
     log.info("🔥 === [START] Executing task: {} ===", task.getId());
+    // The whole run shares one deadline; whatever is left of it bounds the outbound call
+    long deadline = System.currentTimeMillis() + taskHttpClient.timeoutMsFor(task);
     Map<String, Object> startProps = new HashMap<>();
     startProps.put("taskId", task.getId());
     startProps.put("status", "STARTED");
@@ -45,70 +82,68 @@ public void executeTask(Task task) {
     postHogService.trackEvent(task.getUserId(), "task_execution_started", startProps);
 
     // Create task execution record
+    String executionId = UUID.randomUUID().toString();
     TaskExecution execution = TaskExecution.builder()
-            .id(UUID.randomUUID().toString())
+            .id(executionId)
             .taskId(task.getId())
+            .userId(task.getUserId())
+            .fireInstanceId(task.getFireInstanceId())
+            .workflowRunId(workflowCoordinator.workflowRunId(task, instanceOf(task, executionId)))
+            .parentExecutionId(task.getWorkflow() != null ? task.getWorkflow().getParentExecutionId() : null)
             .executionTime(LocalDateTime.now())
             .status("RUNNING")
-            .retryCount(0)
+            .retryCount(task.getAttempt() != null ? task.getAttempt() - 1 : 0)
             .build();
 
     execution = taskExecutionRepository.save(execution);
+    long startedAt = System.currentTimeMillis();
+    List<Task> chained = List.of();
 
     try {
-        // Prepare HTTP request headers
-        HttpHeaders headers = new HttpHeaders();
-        if (task.getHeaders() != null) {
-            task.getHeaders().forEach(headers::set); // Add each header to HttpHeaders
-        }
-
-        // Prepare HTTP request body
-        String jsonBody = null;
-        if (task.getBody() != null) {
-            ObjectMapper objectMapper = new ObjectMapper();
-            jsonBody = objectMapper.writeValueAsString(task.getBody());
-        }
-
-        HttpEntity<String> requestEntity = new HttpEntity<>(jsonBody, headers);
+        // Headers and body come pre-rendered; only this run's values are filled in
+        RequestRenderer.RenderedRequest request = requestRenderer.render(task, executionId);
+        HttpEntity<byte[]> requestEntity = new HttpEntity<>(request.body(), request.headers());
 
         // Log the request body and headers
         log.info("🔥 [REQUEST] Sending {} request to {} with headers: {}",
-                HttpMethod.valueOf(task.getMethod()),
-                task.getEndpoint(),
-                headers);
-        log.info("🔥 Request Body: {}", jsonBody);
-
-        // Determine HTTP method
-        HttpMethod method = HttpMethod.valueOf(task.getMethod());
+                request.method(),
+                request.uri(),
+                request.headers());
+        if (log.isDebugEnabled() && request.body() != null) {
+            log.debug("🔥 Request Body: {}", new String(request.body(), StandardCharsets.UTF_8));
+        }
 
         // Execute HTTP request
-        ResponseEntity<String> response = restTemplate.exchange(
-                task.getEndpoint(),
-                method,
+        ResponseEntity<String> response = taskHttpClient.exchange(
+                request.uri(),
+                request.method(),
                 requestEntity,
-                String.class
+                deadline
         );
 
-        log.info("🔥 [RESPONSE] Received status {} for task {}", response.getStatusCodeValue(), task.getId());
+        circuitBreakerRegistry.record(permit, false);
+        log.info("🔥 [RESPONSE] Received status {} for task {}", response.getStatusCode().value(), task.getId());
         log.info("🔥 Response Body: {}", response.getBody());
 
         // Update execution with success
         execution.setStatus("COMPLETED");
-        execution.setStatusCode(response.getStatusCodeValue());
+        execution.setStatusCode(response.getStatusCode().value());
         execution.setResponse(response.getBody());
-        taskExecutionRepository.save(execution);
-
-        updateTaskStats(task, true);
-        processTaskChain(task, response.getStatusCodeValue());
+        execution.setDurationMs(System.currentTimeMillis() - startedAt);
+        chained = resolveTaskChain(task, execution, response.getStatusCode().value(), response.getHeaders(),
+                response.getBody(), false);
+        completeExecution(task, execution, true, chained);
         Map<String, Object> successProps = new HashMap<>();
         successProps.put("taskId", task.getId());
         successProps.put("status", "COMPLETED");
-        successProps.put("statusCode", response.getStatusCodeValue());
+        successProps.put("statusCode", response.getStatusCode().value());
         successProps.put("timestamp", LocalDateTime.now().toString());
         postHogService.trackEvent(task.getUserId(), "task_execution_completed", successProps);
 
     } catch (HttpClientErrorException | HttpServerErrorException ex) {
-        log.warn("🔥 [HTTP ERROR] Request failed for task {} with status {}", task.getId(), ex.getRawStatusCode());
+        // A 4xx is the target answering; only server errors count against it
+        circuitBreakerRegistry.record(permit, ex instanceof HttpServerErrorException);
+        log.warn("🔥 [HTTP ERROR] Request failed for task {} with status {}", task.getId(), ex.getStatusCode().value());
         log.info("🔥 Error Response Body: {}", ex.getResponseBodyAsString());
         Map<String, Object> failProps = new HashMap<>();
         failProps.put("taskId", task.getId());
@@ -119,19 +154,47 @@ public void executeTask(Task task) {
         postHogService.trackEvent(task.getUserId(), "task_execution_failed", failProps);
 
         execution.setStatus("FAILED");
-        execution.setStatusCode(ex.getRawStatusCode());
+        execution.setStatusCode(ex.getStatusCode().value());
         execution.setError(ex.getResponseBodyAsString());
-        taskExecutionRepository.save(execution);
-
-        updateTaskStats(task, false);
-        processTaskChain(task, ex.getRawStatusCode());
+        execution.setDurationMs(System.currentTimeMillis() - startedAt);
+        chained = resolveTaskChain(task, execution, ex.getStatusCode().value(), ex.getResponseHeaders(),
+                ex.getResponseBodyAsString(), shouldRetry(task, execution));
+        completeExecution(task, execution, false, chained);
 
         if (shouldRetry(task, execution)) {
             log.info("🔥 Retrying task {} due to HTTP error", task.getId());
             scheduleRetry(task, execution);
         }
 
+    } catch (TaskHttpClient.DeadlineExceededException ex) {
+        // A target that does not answer in time counts against it like one that is down
+        circuitBreakerRegistry.record(permit, true);
+        log.warn("🔥 [TIMED OUT] Task {} missed its deadline: {}", task.getId(), ex.getMessage());
+        Map<String, Object> timeoutProps = new HashMap<>();
+        timeoutProps.put("taskId", task.getId());
+        timeoutProps.put("status", "TIMED_OUT");
+        timeoutProps.put("timeoutMs", taskHttpClient.timeoutMsFor(task));
+        timeoutProps.put("timestamp", LocalDateTime.now().toString());
+        postHogService.trackEvent(task.getUserId(), "task_execution_timed_out", timeoutProps);
+
+        execution.setStatus("TIMED_OUT");
+        execution.setError(ex.getMessage());
+        execution.setDurationMs(System.currentTimeMillis() - startedAt);
+        // No status to route on; this only ends the run's workflow branch
+        chained = resolveTaskChain(task, execution, null, null, null, shouldRetry(task, execution));
+        completeExecution(task, execution, false, chained);
+
+        if (shouldRetry(task, execution)) {
+            log.info("🔥 Retrying task {} after it timed out", task.getId());
+            scheduleRetry(task, execution);
+        }
+
     } catch (Exception ex) {
+        if (ex instanceof ResourceAccessException) {
+            circuitBreakerRegistry.record(permit, true);
+        } else {
+            circuitBreakerRegistry.release(permit);
+        }
         log.error("🔥 [UNEXPECTED ERROR] while executing task {}: {}", task.getId(), ex.getMessage(), ex);
         Map<String, Object> errorProps = new HashMap<>();
         errorProps.put("taskId", task.getId());
@@ -143,9 +206,10 @@ public void executeTask(Task task) {
 
         execution.setStatus("FAILED");
         execution.setError("Unexpected error: " + ex.getMessage());
-        taskExecutionRepository.save(execution);
-
-        updateTaskStats(task, false);
+        execution.setDurationMs(System.currentTimeMillis() - startedAt);
+        // No status to route on; this only ends the run's workflow branch
+        chained = resolveTaskChain(task, execution, null, null, null, shouldRetry(task, execution));
+        completeExecution(task, execution, false, chained);
 
         if (shouldRetry(task, execution)) {
             log.info("🔥 Retrying task {} due to unexpected error", task.getId());
@@ -185,13 +249,16 @@ public void executeTask(Task task) {
                         .atZone(ZoneId.systemDefault())
                         .toLocalDateTime();
 
-                if (now.getSecond() != 0) {
+                long spreadOffset = FireTimeSpread.offsetSeconds(task.getId(), task.getSpreadWindowSeconds());
+                if (spreadOffset > 0) {
+                    nextExecution = nextExecution.plusSeconds(spreadOffset);
+                } else if (now.getSecond() != 0) {
                     nextExecution = nextExecution.plusSeconds(now.getSecond());
                 }
 
                 task.setNextExecutionTime(nextExecution);
                 log.info("🔥 Updating task {} with next execution time: {}", task.getId(), nextExecution);
-                taskRepository.save(task);
+                taskRepository.updateNextExecutionTime(task.getId(), nextExecution);
                 Map<String, Object> metadata = new HashMap<>();
                 metadata.put("taskId", task.getId());
                 metadata.put("userId", task.getUserId());
@@ -208,9 +275,38 @@ public void executeTask(Task task) {
     }
 
     log.info("🔥 === [END] Task execution finished: {} ===", task.getId());
+    return chained;
 }
 
-    private void updateTaskStats(Task task, boolean success) {
+    /**
+     * Writes the finished execution and the task's run counters and enqueues the chained tasks in
+     * one batch. Chained tasks are resolved beforehand, so nothing is read between the writes; with
+     * the async clients all three are in flight at once, otherwise they run one after another.
+     */
+    private void completeExecution(Task task, TaskExecution execution, boolean success, List<Task> chained) {
+        CompletableFuture<?> saved = taskExecutionRepository.saveAsync(execution);
+        CompletableFuture<?> counted = updateTaskStats(task, success);
+        CompletableFuture<?> enqueued = chained.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : queueService.enqueueTasksAsync(chained, continuesChainsInline() ? checkpointDelaySeconds : 0);
+        try {
+            CompletableFuture.allOf(saved, counted, enqueued).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+
+        for (Task nextTask : chained) {
+            Map<String, Object> chainedProps = new HashMap<>();
+            chainedProps.put("taskId", task.getId());
+            chainedProps.put("nextTaskId", nextTask.getId());
+            chainedProps.put("status", "TASK_CHAINED");
+            chainedProps.put("timestamp", LocalDateTime.now().toString());
+
+            postHogService.trackEvent(task.getUserId(), "task_chained", chainedProps);
+        }
+    }
+
+    private CompletableFuture<Void> updateTaskStats(Task task, boolean success) {
         Integer executionCount = task.getExecutionCount() != null ? task.getExecutionCount() : 0;
         task.setExecutionCount(executionCount + 1);
         task.setLastExecutedAt(LocalDateTime.now());
@@ -220,7 +316,8 @@ public void executeTask(Task task) {
             task.setFailureCount(failureCount + 1);
         }
 
-        taskRepository.save(task);
+        // Counters are incremented in place; the task in hand may be an older copy of the stored one
+        return taskRepository.recordRunAsync(task.getId(), success, task.getLastExecutedAt());
     }
 
     private boolean shouldRetry(Task task, TaskExecution execution) {
@@ -246,55 +343,115 @@ public void executeTask(Task task) {
         }
 
         LocalDateTime nextRetry = LocalDateTime.now().plusSeconds(delaySeconds);
+        // A retry into an open breaker would only be refused; it waits for the breaker's next probe
+        long openUntil = circuitBreakerRegistry.openUntil(task.getEndpoint());
+        LocalDateTime breakerRetry = openUntil > 0 ? toLocalDateTime(openUntil) : null;
+        if (breakerRetry != null && breakerRetry.isAfter(nextRetry)) {
+            nextRetry = breakerRetry;
+            task.setScheduledFireTime(nextRetry);
+        }
 
         execution.setRetryCount(retryCount);
         execution.setNextRetry(nextRetry);
-        execution.setStatus("RETRY_SCHEDULED");
+        // A timeout stays told apart from failures; nextRetry shows it is being retried
+        if (!"TIMED_OUT".equals(execution.getStatus())) {
+            execution.setStatus("RETRY_SCHEDULED");
+        }
         taskExecutionRepository.save(execution);
 
-        // Enqueue the task for retry
-        queueService.enqueueTask(task);
+        // A retried first run stays in the workflow run it started
+        if (task.getWorkflow() == null && execution.getWorkflowRunId() != null) {
+            task.setWorkflow(WorkflowContext.builder()
+                    .instanceId(execution.getWorkflowRunId())
+                    .branches(List.of())
+                    .build());
+        }
+
+        // Enqueue the task for retry; the retry is its own fire instance, tied to this attempt
+        task.setFireInstanceId(task.getId() + "@retry-" + execution.getId());
+        task.setAttempt(retryCount + 1);
+        if (breakerRetry != null) {
+            queueService.enqueueTasks(List.of(task), secondsUntil(openUntil));
+        } else {
+            queueService.enqueueTask(task);
+        }
 
         log.info("Scheduled retry {} of {} for task {} at {} (delay: {}s)",
                 retryCount, task.getMaxRetries(), task.getId(), nextRetry, delaySeconds);
 
     }
 
-    private void processTaskChain(Task task, int statusCode) {
-        if (task.getChains() == null || task.getChains().isEmpty()) {
-            return;
+    /**
+     * Puts a task refused by its target's breaker back on the queue for when the breaker lets
+     * calls through again. The run is not recorded: the target was never called.
+     */
+    private void deferUntilBreakerCloses(Task task, CircuitBreakerRegistry.Permit permit) {
+        String fireInstanceId = task.getFireInstanceId() != null ? task.getFireInstanceId() : task.getId();
+        int deferred = fireInstanceId.indexOf("@deferred-");
+        if (deferred >= 0) {
+            fireInstanceId = fireInstanceId.substring(0, deferred);
         }
+        // A new fire instance, as the refused one is completed once this returns
+        task.setFireInstanceId(fireInstanceId + "@deferred-" + permit.retryAtMs());
+        task.setScheduledFireTime(toLocalDateTime(permit.retryAtMs()));
+        queueService.enqueueTasks(List.of(task), secondsUntil(permit.retryAtMs()));
+
+        log.info("Circuit breaker for {} is open; task {} deferred until {}",
+                permit.target(), task.getId(), task.getScheduledFireTime());
+    }
 
-        // Find a chain that matches the status code
-        for (TaskChain chain : task.getChains()) {
-            log.debug("😶‍🌫️ Inspecting task chain: {}", chain);
-            if (chain.getStatusCode() == statusCode) {
-                String nextTaskId = chain.getNextTaskId();
-                log.info("😶‍🌫️ Matching status code found! Task [{}] chains to [{}] on status code [{}]",
-                        task.getId(), nextTaskId, statusCode);
-
-                log.info("Processing task chain: {} -> {} for status code {}",
-                        task.getId(), nextTaskId, statusCode);
-
-                // Find and execute the next task
-                taskRepository.findById(task.getUserId(), nextTaskId).ifPresentOrElse(nextTask -> {
-                    log.info("😶‍🌫️ Found next task [{}] - [{}], enqueuing for execution",
-                            nextTask.getId(), nextTask.getName());
-                    queueService.enqueueTask(nextTask);
-                    Map<String, Object> chainedProps = new HashMap<>();
-                    chainedProps.put("taskId", task.getId());
-                    chainedProps.put("nextTaskId", nextTaskId);
-                    chainedProps.put("status", "TASK_CHAINED");
-                    chainedProps.put("timestamp", LocalDateTime.now().toString());
-
-                    postHogService.trackEvent(task.getUserId(), "task_chained", chainedProps);
-
-                }, () -> {
-                    log.warn("😶‍🌫️ No next task found for id [{}] and user [{}]", nextTaskId, task.getUserId());
-                });
-
-                break; // Process only the first matching chain
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    // Queue delay up to a moment; the fire time hold covers the last part of it
+    private static int secondsUntil(long epochMillis) {
+        return (int) Math.max(0, (epochMillis - System.currentTimeMillis()) / 1000);
+    }
+
+    private List<Task> resolveTaskChain(Task task, TaskExecution execution, Integer statusCode,
+                                        HttpHeaders responseHeaders, String responseBody, boolean retrying) {
+        List<Task> successors = new ArrayList<>();
+        List<ChainRouter.Route> routes = statusCode != null
+                ? chainRouter.route(task, statusCode, responseHeaders, responseBody) : List.of();
+        for (ChainRouter.Route route : routes) {
+            String nextTaskId = route.nextTaskId();
+            log.info("Processing task chain: {} -> {} for status code {}", task.getId(), nextTaskId, statusCode);
+
+            Optional<Task> nextTask = taskDefinitionCache.find(task.getUserId(), nextTaskId);
+            if (nextTask.isEmpty()) {
+                log.warn("😶‍🌫️ No next task found for id [{}] and user [{}]", nextTaskId, task.getUserId());
+                continue;
             }
+
+            log.info("😶‍🌫️ Found next task [{}] - [{}], enqueuing for execution",
+                    nextTask.get().getId(), nextTask.get().getName());
+            applyExtractions(nextTask.get(), route);
+            successors.add(nextTask.get());
         }
+
+        return workflowCoordinator.advance(task, instanceOf(task, execution.getId()), execution.getId(),
+                successors, retrying);
     }
-}
\ No newline at end of file
+
+    // The next task is a copy of its definition, so the extracted values only reach this run of it
+    private static void applyExtractions(Task next, ChainRouter.Route route) {
+        // Set over the stored body and headers when the request is rendered, which keeps the payload as stored
+        if (!route.bodyValues().isEmpty()) {
+            next.setExtractedBody(route.bodyValues());
+        }
+        if (!route.headerValues().isEmpty()) {
+            next.setExtractedHeaders(route.headerValues());
+        }
+    }
+
+    // Derived from the fire instance, so a redelivered run chains to the same instances in the same run
+    private static String instanceOf(Task task, String executionId) {
+        String instance = task.getFireInstanceId() != null ? task.getFireInstanceId() : executionId;
+        if (instance.length() > 64) {
+            // Long chains would otherwise grow the id by a step each time
+            instance = DigestUtils.md5DigestAsHex(instance.getBytes(StandardCharsets.UTF_8));
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,172 @@
+package org.JustRun.TaskExecutionService.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.model.TaskPriority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes a task's outbound call within the task's deadline. The connect timeout and the timeout of
+ * each read are capped by the time left, and a watchdog closes the connection once the deadline
+ * passes, so neither a silent socket nor a response trickling in byte by byte holds the executing
+ * thread past it. A task without its own timeoutMs gets the default for its priority.
+ */
+@Component
+@Slf4j
+public class TaskHttpClient {
+
+    // The deadline of the call made on this thread, read when its connection is opened
+    private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+    private final RestTemplate restTemplate = new RestTemplate(new DeadlineRequestFactory());
+    private final ScheduledExecutorService watchdog;
+
+    @Value("${executor.timeout.connect-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${executor.timeout.high-priority-ms:10000}")
+    private int highPriorityTimeoutMs;
+
+    @Value("${executor.timeout.normal-priority-ms:30000}")
+    private int normalPriorityTimeoutMs;
+
+    @Value("${executor.timeout.low-priority-ms:60000}")
+    private int lowPriorityTimeoutMs;
+
+    // Caps the timeouts tasks set for themselves
+    @Value("${executor.timeout.max-ms:900000}")
+    private int maxTimeoutMs;
+
+    /**
+     * The call ran out of the task's time; the target may or may not have acted on it.
+     */
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public TaskHttpClient() {
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "call-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public long timeoutMsFor(Task task) {
+        if (task.getTimeoutMs() != null && task.getTimeoutMs() > 0) {
+            return Math.min(task.getTimeoutMs(), maxTimeoutMs);
+        }
+        TaskPriority priority = task.getPriority() != null ? task.getPriority() : TaskPriority.NORMAL;
+        switch (priority) {
+            case HIGH:
+                return highPriorityTimeoutMs;
+            case LOW:
+                return lowPriorityTimeoutMs;
+            default:
+                return normalPriorityTimeoutMs;
+        }
+    }
+
+    /**
+     * The URI RestTemplate would call for {@code endpoint}, for callers that expand it once up front.
+     */
+    public URI toUri(String endpoint) {
+        return restTemplate.getUriTemplateHandler().expand(endpoint);
+    }
+
+    /**
+     * Like {@link RestTemplate#exchange}, cut off at {@code deadline} (epoch millis).
+     *
+     * @throws DeadlineExceededException when the deadline passes before the response is read
+     */
+    public ResponseEntity<String> exchange(URI url, HttpMethod method, HttpEntity<byte[]> request, long deadline) {
+        Call call = new Call(deadline);
+        if (call.remainingMs() <= 0) {
+            throw new DeadlineExceededException("Deadline passed before the call to " + url + " was made", null);
+        }
+
+        CURRENT.set(call);
+        try {
+            return restTemplate.exchange(url, method, request, String.class);
+        } catch (ResourceAccessException e) {
+            if (call.expired()) {
+                throw new DeadlineExceededException("No response from " + url + " within the task's deadline", e);
+            }
+            throw e;
+        } finally {
+            CURRENT.remove();
+            call.finish();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    private final class DeadlineRequestFactory extends SimpleClientHttpRequestFactory {
+
+        @Override
+        protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+            super.prepareConnection(connection, httpMethod);
+            Call call = CURRENT.get();
+            if (call != null) {
+                call.watch(connection);
+            }
+        }
+    }
+
+    private final class Call {
+        private final long deadline;
+        private volatile boolean cutOff;
+        private ScheduledFuture<?> cutOffTask;
+
+        Call(long deadline) {
+            this.deadline = deadline;
+        }
+
+        long remainingMs() {
+            return deadline - System.currentTimeMillis();
+        }
+
+        void watch(HttpURLConnection connection) {
+            int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, remainingMs()));
+            connection.setConnectTimeout(Math.min(connectTimeoutMs, remaining));
+            connection.setReadTimeout(remaining);
+            // Closing the socket fails the blocked read on the calling thread
+            cutOffTask = watchdog.schedule(() -> {
+                cutOff = true;
+                log.warn("Cutting off the call to {} at its deadline", connection.getURL());
+                connection.disconnect();
+            }, remaining, TimeUnit.MILLISECONDS);
+        }
+
+        boolean expired() {
+            return cutOff || remainingMs() <= 0;
+        }
+
+        void finish() {
+            if (cutOffTask != null) {
+                cutOffTask.cancel(false);
+            }
+        }
+    }
+}
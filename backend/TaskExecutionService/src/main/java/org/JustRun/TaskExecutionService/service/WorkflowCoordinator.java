@@ -0,0 +1,186 @@
+package org.JustRun.TaskExecutionService.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskExecutionService.Repository.WorkflowInstanceRepository;
+import org.JustRun.TaskExecutionService.model.JoinMode;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.model.WorkflowContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fans chained runs out and merges them back. A run with several successors opens a fork whose
+ * branches run in parallel; each chained run carries its fork branches in its
+ * {@link WorkflowContext}. A branch settles when it reaches a join node or ends without
+ * successors. An ALL join runs once every branch of the fork has reached it, an ANY join on the
+ * first arrival, and a fork whose branches all settled without firing a join ends the branch it
+ * was opened on. Runs that never fork write nothing here.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WorkflowCoordinator {
+
+    private final WorkflowInstanceRepository workflowInstanceRepository;
+
+    @Value("${executor.workflow.retention-hours:72}")
+    private long retentionHours;
+
+    /**
+     * The workflow run an execution of {@code task} belongs to, or null when it is not part of one.
+     * A workflow run is named after the fire instance of its first run.
+     */
+    public String workflowRunId(Task task, String instance) {
+        if (task.getWorkflow() != null) {
+            return task.getWorkflow().getInstanceId();
+        }
+        return task.getChains() != null && !task.getChains().isEmpty() ? instance : null;
+    }
+
+    /**
+     * Turns the successors of a finished run into the chained runs to enqueue: places each in the
+     * workflow, opens a fork when there are several, and holds back joins that are not complete.
+     * {@code parentInstance} is the finished run's fire instance id. A run that will be retried
+     * does not end its branch.
+     */
+    public List<Task> advance(Task parent, String parentInstance, String parentExecutionId,
+                              List<Task> successors, boolean retrying) {
+        WorkflowContext context = parent.getWorkflow() != null ? parent.getWorkflow()
+                : WorkflowContext.builder().instanceId(parentInstance).branches(List.of()).build();
+        List<WorkflowContext.Branch> branches = context.getBranches() != null ? context.getBranches() : List.of();
+
+        if (successors.isEmpty()) {
+            if (!retrying) {
+                endBranch(context.getInstanceId(), branches);
+            }
+            return List.of();
+        }
+
+        // Derived from the parent's fire instance, so a redelivered parent reopens the same fork
+        String forkId = successors.size() > 1 ? md5(parentInstance) : null;
+        List<Task> runs = new ArrayList<>(successors.size());
+        for (int i = 0; i < successors.size(); i++) {
+            Task next = successors.get(i);
+            List<WorkflowContext.Branch> nextBranches = new ArrayList<>(branches);
+            if (forkId != null) {
+                nextBranches.add(new WorkflowContext.Branch(forkId, successors.size(), i));
+            }
+            next.setFireInstanceId(next.getId() + "@chain-" + parentInstance);
+
+            if (next.getJoinMode() != null && !nextBranches.isEmpty()) {
+                WorkflowContext.Branch branch = nextBranches.remove(nextBranches.size() - 1);
+                if (!arrive(context.getInstanceId(), branch, next, nextBranches)) {
+                    continue;
+                }
+                // Every branch that could fire the join agrees on this id
+                next.setFireInstanceId(next.getId() + "@join-" + branch.getForkId());
+            }
+
+            next.setWorkflow(WorkflowContext.builder()
+                    .instanceId(context.getInstanceId())
+                    .parentExecutionId(parentExecutionId)
+                    .branches(List.copyOf(nextBranches))
+                    .build());
+            runs.add(next);
+        }
+        return runs;
+    }
+
+    /**
+     * Settles {@code branch} at {@code join}; true when this arrival fires the join.
+     */
+    private boolean arrive(String instanceId, WorkflowContext.Branch branch, Task join,
+                           List<WorkflowContext.Branch> outer) {
+        Map<String, AttributeValue> instance = workflowInstanceRepository.settleBranch(instanceId, branch,
+                join.getId(), join.getJoinMode(), expiresAt());
+        if (instance == null) {
+            return refiresAfterRedelivery(instanceId, branch, join);
+        }
+
+        long arrived = count(instance, WorkflowInstanceRepository.arrivedAttribute(branch.getForkId(), join.getId()));
+        boolean fires = join.getJoinMode() == JoinMode.ANY ? arrived == 1 : arrived == branch.getBranchCount();
+        if (fires) {
+            log.info("Join {} fires for fork {} of workflow {} ({} of {} branch(es) arrived)",
+                    join.getId(), branch.getForkId(), instanceId, arrived, branch.getBranchCount());
+        } else {
+            log.info("Branch {} of fork {} arrived at join {} ({} of {})",
+                    branch.getBranch(), branch.getForkId(), join.getId(), arrived, branch.getBranchCount());
+            closeIfSettled(instanceId, branch, instance, outer);
+        }
+        return fires;
+    }
+
+    // A redelivered parent finds its branch already settled here, but the enqueue of the join it
+    // fired may have been lost: while the join has fired, it is sent again under the same fire
+    // instance id, so the idempotency store drops the copy if the first one did get through
+    private boolean refiresAfterRedelivery(String instanceId, WorkflowContext.Branch branch, Task join) {
+        Map<String, AttributeValue> instance = workflowInstanceRepository.find(instanceId);
+        if (instance == null) {
+            return false;
+        }
+        AttributeValue settledBy = instance.get(WorkflowInstanceRepository.branchAttribute(branch));
+        if (settledBy == null || !join.getId().equals(settledBy.s())) {
+            return false;
+        }
+
+        long arrived = count(instance, WorkflowInstanceRepository.arrivedAttribute(branch.getForkId(), join.getId()));
+        boolean fired = join.getJoinMode() == JoinMode.ANY ? arrived > 0 : arrived == branch.getBranchCount();
+        if (fired) {
+            log.info("Join {} of fork {} in workflow {} had already fired; sending it again for the redelivered branch {}",
+                    join.getId(), branch.getForkId(), instanceId, branch.getBranch());
+        }
+        return fired;
+    }
+
+    private void endBranch(String instanceId, List<WorkflowContext.Branch> branches) {
+        if (branches.isEmpty()) {
+            return;
+        }
+
+        WorkflowContext.Branch branch = branches.get(branches.size() - 1);
+        Map<String, AttributeValue> instance = workflowInstanceRepository.settleBranch(instanceId, branch,
+                null, null, expiresAt());
+        if (instance != null) {
+            closeIfSettled(instanceId, branch, instance, branches.subList(0, branches.size() - 1));
+        }
+    }
+
+    // A fork whose branches all settled without firing a join ends the branch that opened it
+    private void closeIfSettled(String instanceId, WorkflowContext.Branch branch, Map<String, AttributeValue> instance,
+                                List<WorkflowContext.Branch> outer) {
+        if (count(instance, WorkflowInstanceRepository.settledAttribute(branch.getForkId())) < branch.getBranchCount()) {
+            return;
+        }
+
+        for (Map.Entry<String, JoinMode> join : WorkflowInstanceRepository.joinsOf(instance, branch.getForkId()).entrySet()) {
+            long arrived = count(instance, WorkflowInstanceRepository.arrivedAttribute(branch.getForkId(), join.getKey()));
+            if (join.getValue() == JoinMode.ANY ? arrived > 0 : arrived == branch.getBranchCount()) {
+                return;
+            }
+        }
+
+        log.info("Fork {} of workflow {} settled without completing a join.", branch.getForkId(), instanceId);
+        endBranch(instanceId, outer);
+    }
+
+    private static long count(Map<String, AttributeValue> instance, String attribute) {
+        AttributeValue value = instance.get(attribute);
+        return value != null ? Long.parseLong(value.n()) : 0;
+    }
+
+    private long expiresAt() {
+        return System.currentTimeMillis() / 1000 + retentionHours * 3600;
+    }
+
+    private static String md5(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
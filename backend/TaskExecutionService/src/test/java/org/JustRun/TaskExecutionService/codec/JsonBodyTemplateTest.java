@@ -0,0 +1,173 @@
+package org.JustRun.TaskExecutionService.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonBodyTemplateTest {
+
+    private static final Set<String> VARIABLES = Set.of("fireTime", "attempt", "upstream.id");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JsonBodyTemplate compile(Map<String, Object> body) {
+        return JsonBodyTemplate.compile(objectMapper, body, VARIABLES::contains);
+    }
+
+    private static Map<String, Object> body(Object... namesAndValues) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            body.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return body;
+    }
+
+    private static String text(byte[] json) {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+    private JsonNode parse(byte[] json) throws IOException {
+        return objectMapper.readTree(json);
+    }
+
+    @Test
+    void bodyWithoutPlaceholdersRendersToTheSameArray() throws IOException {
+        Map<String, Object> body = body("name", "héllo", "n", 1, "nested", Map.of("k", List.of(true)));
+        JsonBodyTemplate template = compile(body);
+
+        byte[] first = template.render(objectMapper, variable -> "x", Map.of());
+
+        assertThat(template.hasPlaceholders()).isFalse();
+        assertThat(template.render(objectMapper, variable -> "x", null)).isSameAs(first);
+        assertThat(first).isEqualTo(objectMapper.writeValueAsBytes(body));
+    }
+
+    @Test
+    void noBodyRendersToNull() {
+        JsonBodyTemplate template = compile(null);
+
+        assertThat(template.hasPlaceholders()).isFalse();
+        assertThat(template.render(objectMapper, variable -> "x", Map.of())).isNull();
+        assertThat(template.render(objectMapper, variable -> "x", null)).isNull();
+    }
+
+    @Test
+    void noBodyWithFieldsRendersJustTheFields() throws IOException {
+        byte[] json = compile(null).render(objectMapper, variable -> null, body("orderId", "o-1", "total", 12.5));
+
+        assertThat(parse(json)).isEqualTo(objectMapper.readTree("{\"orderId\":\"o-1\",\"total\":12.5}"));
+    }
+
+    @Test
+    void fillsPlaceholdersWhereverStringsHoldThem() throws IOException {
+        JsonBodyTemplate template = compile(body(
+                "at", "{{fireTime}}",
+                "label", "run {{attempt}} of job at {{fireTime}}",
+                "nested", Map.of("list", List.of("{{upstream.id}}", 3))));
+        Map<String, String> values = Map.of("fireTime", "2024-01-01T00:00", "attempt", "2", "upstream.id", "u-9");
+
+        JsonNode rendered = parse(template.render(objectMapper, values::get, Map.of()));
+
+        assertThat(template.hasPlaceholders()).isTrue();
+        assertThat(rendered.get("at").asText()).isEqualTo("2024-01-01T00:00");
+        assertThat(rendered.get("label").asText()).isEqualTo("run 2 of job at 2024-01-01T00:00");
+        assertThat(rendered.at("/nested/list/0").asText()).isEqualTo("u-9");
+        assertThat(rendered.at("/nested/list/1").asInt()).isEqualTo(3);
+    }
+
+    @Test
+    void escapesValuesInsideTheJsonString() throws IOException {
+        String hostile = "quote\" backslash\\ newline\n tab\t control\u0001 unicode é€ \"},\"injected\":\"1";
+        JsonBodyTemplate template = compile(body("value", "<{{upstream.id}}>"));
+
+        byte[] json = template.render(objectMapper, variable -> hostile, Map.of());
+
+        JsonNode rendered = parse(json);
+        assertThat(rendered.get("value").asText()).isEqualTo("<" + hostile + ">");
+        assertThat(rendered.has("injected")).isFalse();
+    }
+
+    @Test
+    void missingValuesRenderEmpty() throws IOException {
+        JsonBodyTemplate template = compile(body("value", "[{{attempt}}]"));
+
+        assertThat(parse(template.render(objectMapper, variable -> null, Map.of())).get("value").asText()).isEqualTo("[]");
+    }
+
+    @Test
+    void unknownAndMalformedPlaceholdersStayLiteral() throws IOException {
+        JsonBodyTemplate template = compile(body(
+                "unknown", "{{notAVariable}}",
+                "unclosed", "{{fireTime",
+                "spaced", "{{ fireTime }}",
+                "single", "{fireTime}",
+                "known", "{{fireTime}}"));
+        Function<String, String> values = variable -> "T";
+
+        JsonNode rendered = parse(template.render(objectMapper, values, Map.of()));
+
+        assertThat(rendered.get("unknown").asText()).isEqualTo("{{notAVariable}}");
+        assertThat(rendered.get("unclosed").asText()).isEqualTo("{{fireTime");
+        assertThat(rendered.get("spaced").asText()).isEqualTo("{{ fireTime }}");
+        assertThat(rendered.get("single").asText()).isEqualTo("{fireTime}");
+        assertThat(rendered.get("known").asText()).isEqualTo("T");
+    }
+
+    @Test
+    void noVariablesMeansNoPlaceholders() {
+        JsonBodyTemplate template = JsonBodyTemplate.compile(objectMapper, body("at", "{{fireTime}}"), variable -> false);
+
+        assertThat(template.hasPlaceholders()).isFalse();
+        assertThat(text(template.render(objectMapper, variable -> "x", Map.of()))).isEqualTo("{\"at\":\"{{fireTime}}\"}");
+    }
+
+    @Test
+    void replacedFieldsKeepTheirPositionAndNewOnesAreAppended() {
+        JsonBodyTemplate template = compile(body("a", 1, "b", "keep", "c", List.of(1, 2)));
+
+        byte[] json = template.render(objectMapper, variable -> null, body("c", Map.of("x", "y"), "a", "new", "d", null));
+
+        assertThat(text(json)).isEqualTo("{\"a\":\"new\",\"b\":\"keep\",\"c\":{\"x\":\"y\"},\"d\":null}");
+    }
+
+    @Test
+    void fieldsAndPlaceholdersCombine() throws IOException {
+        JsonBodyTemplate template = compile(body("at", "{{fireTime}}", "replaced", "{{fireTime}}", "n", 1));
+
+        JsonNode rendered = parse(template.render(objectMapper, variable -> "T",
+                body("replaced", "{{fireTime}}", "extra", List.of("x"))));
+
+        assertThat(rendered.get("at").asText()).isEqualTo("T");
+        // Extracted values are data, not templates
+        assertThat(rendered.get("replaced").asText()).isEqualTo("{{fireTime}}");
+        assertThat(rendered.get("n").asInt()).isEqualTo(1);
+        assertThat(rendered.get("extra").get(0).asText()).isEqualTo("x");
+    }
+
+    @Test
+    void fieldNamesAreEscaped() throws IOException {
+        JsonBodyTemplate template = compile(body("a", 1));
+
+        JsonNode rendered = parse(template.render(objectMapper, variable -> null, body("we\"ird", "v")));
+
+        assertThat(rendered.get("we\"ird").asText()).isEqualTo("v");
+    }
+
+    @Test
+    void emptyBodyTakesFields() {
+        JsonBodyTemplate template = compile(Map.of());
+
+        assertThat(text(template.render(objectMapper, variable -> null, Map.of()))).isEqualTo("{}");
+        assertThat(text(template.render(objectMapper, variable -> null, body("a", 1)))).isEqualTo("{\"a\":1}");
+    }
+}
@@ -0,0 +1,160 @@
+package org.JustRun.TaskExecutionService.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonPathScannerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Map<JsonPath, JsonNode> scan(String json, String... paths) {
+        Set<JsonPath> compiled = Set.of(paths).stream().map(JsonPath::compile).collect(Collectors.toSet());
+        return JsonPathScanner.scan(objectMapper, json, compiled);
+    }
+
+    private static JsonPath path(String expression) {
+        return JsonPath.compile(expression);
+    }
+
+    @Test
+    void readsScalarsAndContainers() {
+        Map<JsonPath, JsonNode> found = scan("{\"id\":7,\"name\":\"x\",\"tags\":[\"a\"],\"meta\":{\"k\":true}}",
+                "$.id", "$.name", "$.tags", "$.meta");
+
+        assertThat(found.get(path("$.id")).asInt()).isEqualTo(7);
+        assertThat(found.get(path("$.name")).asText()).isEqualTo("x");
+        assertThat(found.get(path("$.tags")).toString()).isEqualTo("[\"a\"]");
+        assertThat(found.get(path("$.meta")).toString()).isEqualTo("{\"k\":true}");
+    }
+
+    @Test
+    void overlappingPathsAreBothRead() {
+        Map<JsonPath, JsonNode> found = scan("{\"a\":{\"b\":{\"c\":1},\"d\":[5,6]}}",
+                "$.a", "$.a.b.c", "$.a.d[1]", "$.a.missing");
+
+        assertThat(found.get(path("$.a")).toString()).isEqualTo("{\"b\":{\"c\":1},\"d\":[5,6]}");
+        assertThat(found.get(path("$.a.b.c")).asInt()).isEqualTo(1);
+        assertThat(found.get(path("$.a.d[1]")).asInt()).isEqualTo(6);
+        assertThat(found).doesNotContainKey(path("$.a.missing"));
+    }
+
+    @Test
+    void nestedPathsAreReadWhenTheirParentIsNotAsked() {
+        Map<JsonPath, JsonNode> found = scan("{\"a\":{\"x\":0,\"b\":{\"y\":[1],\"c\":\"deep\"}}}", "$.a.b.c");
+
+        assertThat(found.get(path("$.a.b.c")).asText()).isEqualTo("deep");
+    }
+
+    @Test
+    void fieldsOnlyMatchAtTheirOwnDepth() {
+        Map<JsonPath, JsonNode> found = scan("{\"x\":{\"a\":2},\"a\":1}", "$.a");
+
+        assertThat(found.get(path("$.a")).asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void readsArrayIndexes() {
+        Map<JsonPath, JsonNode> found = scan("{\"items\":[{\"id\":\"first\"},{\"id\":\"second\"}],\"top\":[[1,2],[3,4]]}",
+                "$.items[1].id", "$.items[2].id", "$.top[1][0]");
+
+        assertThat(found.get(path("$.items[1].id")).asText()).isEqualTo("second");
+        assertThat(found.get(path("$.top[1][0]")).asInt()).isEqualTo(3);
+        assertThat(found).doesNotContainKey(path("$.items[2].id"));
+    }
+
+    @Test
+    void indexesDoNotMatchObjectsAndNamesDoNotMatchArrays() {
+        Map<JsonPath, JsonNode> found = scan("{\"a\":{\"0\":\"field\"},\"b\":[\"element\"]}", "$.a[0]", "$.b.x");
+
+        assertThat(found).isEmpty();
+    }
+
+    @Test
+    void readsQuotedFieldNames() {
+        Map<JsonPath, JsonNode> found = scan("{\"order id\":\"o-1\",\"a.b\":2}", "$['order id']", "$['a.b']");
+
+        assertThat(found.get(path("$['order id']")).asText()).isEqualTo("o-1");
+        assertThat(found.get(path("$['a.b']")).asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void rootPathReadsTheWholeDocument() {
+        assertThat(scan("42", "$").get(path("$")).asInt()).isEqualTo(42);
+        assertThat(scan("[1,2]", "$[1]").get(path("$[1]")).asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void nonJsonBodiesYieldNothing() {
+        assertThat(scan("<html><body>error</body></html>", "$.a")).isEmpty();
+        assertThat(scan("plain text", "$.a")).isEmpty();
+        assertThat(scan("", "$.a")).isEmpty();
+        assertThat(scan(null, "$.a")).isEmpty();
+        assertThat(scan("\"just a string\"", "$.a")).isEmpty();
+    }
+
+    @Test
+    void truncatedDocumentsYieldWhatWasReadBeforeTheError() {
+        Map<JsonPath, JsonNode> found = scan("{\"a\":1,\"b\":{\"c\":", "$.a", "$.b.c");
+
+        assertThat(found.get(path("$.a")).asInt()).isEqualTo(1);
+        assertThat(found).doesNotContainKey(path("$.b.c"));
+    }
+
+    @Test
+    void noPathsMeansNoParse() {
+        assertThat(JsonPathScanner.scan(objectMapper, "{not json", Set.of())).isEmpty();
+    }
+
+    @Test
+    void stopsOnceEveryPathIsFound() {
+        String rest = IntStream.range(0, 1000).mapToObj(Integer::toString).collect(Collectors.joining(","));
+        CountingMapper counting = new CountingMapper();
+
+        Map<JsonPath, JsonNode> found = JsonPathScanner.scan(counting,
+                "{\"a\":{\"b\":1},\"rest\":[" + rest + "]}", Set.of(path("$.a.b")));
+
+        assertThat(found.get(path("$.a.b")).asInt()).isEqualTo(1);
+        assertThat(counting.tokens).isLessThan(10);
+    }
+
+    @Test
+    void skipsSubtreesNoPathLeadsInto() {
+        String big = IntStream.range(0, 1000).mapToObj(i -> "{\"v\":" + i + "}").collect(Collectors.joining(","));
+        CountingMapper counting = new CountingMapper();
+
+        Map<JsonPath, JsonNode> found = JsonPathScanner.scan(counting,
+                "{\"big\":[" + big + "],\"z\":\"last\"}", Set.of(path("$.z")));
+
+        assertThat(found.get(path("$.z")).asText()).isEqualTo("last");
+        // Tokens inside "big" are skipped by the parser itself, not walked one by one
+        assertThat(counting.tokens).isLessThan(10);
+    }
+
+    // Counts the tokens the scanner asks for
+    private static final class CountingMapper extends ObjectMapper {
+        int tokens;
+
+        @Override
+        public JsonParser createParser(String content) throws IOException {
+            return new JsonParserDelegate(super.createParser(content)) {
+                @Override
+                public JsonToken nextToken() throws IOException {
+                    tokens++;
+                    return super.nextToken();
+                }
+            };
+        }
+    }
+}
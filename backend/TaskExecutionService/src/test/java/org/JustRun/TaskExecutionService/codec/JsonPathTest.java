@@ -0,0 +1,56 @@
+package org.JustRun.TaskExecutionService.codec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonPathTest {
+
+    @Test
+    void compilesFieldNamesAndIndexes() {
+        JsonPath path = JsonPath.compile("$.order.items[0].id");
+
+        assertThat(path.length()).isEqualTo(4);
+        assertThat(path.segment(0)).isEqualTo("order");
+        assertThat(path.segment(1)).isEqualTo("items");
+        assertThat(path.segment(2)).isEqualTo(0);
+        assertThat(path.segment(3)).isEqualTo("id");
+        assertThat(path).hasToString("$.order.items[0].id");
+    }
+
+    @Test
+    void compilesQuotedNames() {
+        JsonPath path = JsonPath.compile("$['order id'][\"a.b\"][12]");
+
+        assertThat(path.length()).isEqualTo(3);
+        assertThat(path.segment(0)).isEqualTo("order id");
+        assertThat(path.segment(1)).isEqualTo("a.b");
+        assertThat(path.segment(2)).isEqualTo(12);
+    }
+
+    @Test
+    void rootPathHasNoSegments() {
+        assertThat(JsonPath.compile("$").length()).isZero();
+    }
+
+    @Test
+    void equalPathsCompareEqualWhateverTheirSpelling() {
+        assertThat(JsonPath.compile("$.a.b")).isEqualTo(JsonPath.compile("$['a']['b']"))
+                .hasSameHashCodeAs(JsonPath.compile("$['a'].b"));
+        // A quoted number is a field name, not an index
+        assertThat(JsonPath.compile("$.a[0]")).isNotEqualTo(JsonPath.compile("$.a['0']"));
+    }
+
+    @Test
+    void rejectsUnsupportedPaths() {
+        assertThatThrownBy(() -> JsonPath.compile(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("a.b")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("$..a")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("$.a[*]")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("$.a[-1]")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("$.a[0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("$.a[?(@.b)]")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPath.compile("$a")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
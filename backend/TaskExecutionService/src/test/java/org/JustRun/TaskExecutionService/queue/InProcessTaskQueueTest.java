@@ -0,0 +1,181 @@
+package org.JustRun.TaskExecutionService.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InProcessTaskQueueTest {
+
+    private static final String QUEUE = "tasks";
+
+    private final InProcessTaskQueue queue = new InProcessTaskQueue(1000);
+
+    private static QueueMessage message(String body) {
+        return QueueMessage.builder().body(body).build();
+    }
+
+    private static QueueMessage deduplicated(String body, String deduplicationId) {
+        return QueueMessage.builder().body(body).deduplicationId(deduplicationId).build();
+    }
+
+    private static List<String> bodies(List<QueueMessage> messages) {
+        return messages.stream().map(QueueMessage::getBody).toList();
+    }
+
+    private static List<String> receiptHandles(List<QueueMessage> messages) {
+        return messages.stream().map(QueueMessage::getReceiptHandle).toList();
+    }
+
+    @Test
+    void receivedMessagesStayInvisibleUntilDeleted() {
+        queue.send(QUEUE, message("a"));
+        queue.send(QUEUE, message("b"));
+
+        List<QueueMessage> received = queue.receive(QUEUE, 10, 30, 0);
+        assertThat(bodies(received)).containsExactly("a", "b");
+        assertThat(received).extracting(QueueMessage::getReceiveCount).containsExactly(1, 1);
+        assertThat(queue.receive(QUEUE, 10, 30, 0)).isEmpty();
+
+        assertThat(queue.delete(QUEUE, receiptHandles(received))).isEmpty();
+        assertThat(queue.delete(QUEUE, receiptHandles(received))).isEqualTo(receiptHandles(received));
+    }
+
+    @Test
+    void expiredVisibilityTimeoutRedelivers() {
+        queue.send(QUEUE, message("a"));
+        QueueMessage first = queue.receive(QUEUE, 1, 1, 0).get(0);
+
+        List<QueueMessage> again = queue.receive(QUEUE, 1, 30, 3);
+
+        assertThat(bodies(again)).containsExactly("a");
+        assertThat(again.get(0).getReceiveCount()).isEqualTo(2);
+        // The first receipt handle ran out with its visibility timeout
+        assertThat(queue.delete(QUEUE, List.of(first.getReceiptHandle()))).containsExactly(first.getReceiptHandle());
+        assertThat(queue.delete(QUEUE, receiptHandles(again))).isEmpty();
+    }
+
+    @Test
+    void extendedVisibilityOutlastsTheOriginalTimeout() {
+        queue.send(QUEUE, message("a"));
+        QueueMessage received = queue.receive(QUEUE, 1, 1, 0).get(0);
+
+        assertThat(queue.changeVisibility(QUEUE, List.of(received.getReceiptHandle()), 60)).isEmpty();
+
+        assertThat(queue.receive(QUEUE, 1, 30, 2)).isEmpty();
+        assertThat(queue.delete(QUEUE, List.of(received.getReceiptHandle()))).isEmpty();
+    }
+
+    @Test
+    void shortenedVisibilityRedeliversEarly() {
+        queue.send(QUEUE, message("a"));
+        QueueMessage received = queue.receive(QUEUE, 1, 60, 0).get(0);
+
+        assertThat(queue.changeVisibility(QUEUE, List.of(received.getReceiptHandle()), 1)).isEmpty();
+
+        assertThat(bodies(queue.receive(QUEUE, 1, 30, 3))).containsExactly("a");
+    }
+
+    @Test
+    void zeroVisibilityReleasesAtOnce() {
+        queue.send(QUEUE, message("a"));
+        QueueMessage received = queue.receive(QUEUE, 1, 60, 0).get(0);
+
+        assertThat(queue.changeVisibility(QUEUE, List.of(received.getReceiptHandle()), 0)).isEmpty();
+
+        assertThat(bodies(queue.receive(QUEUE, 1, 60, 0))).containsExactly("a");
+        assertThat(queue.changeVisibility(QUEUE, List.of(received.getReceiptHandle()), 30))
+                .containsExactly(received.getReceiptHandle());
+    }
+
+    @Test
+    void delayedMessagesAppearWhenTheirDelayRunsOut() {
+        queue.send(QUEUE, QueueMessage.builder().body("later").delaySeconds(1).build());
+        queue.send(QUEUE, message("now"));
+
+        assertThat(bodies(queue.receive(QUEUE, 10, 30, 0))).containsExactly("now");
+        assertThat(bodies(queue.receive(QUEUE, 10, 30, 3))).containsExactly("later");
+    }
+
+    @Test
+    void duplicatesWithinTheWindowAreDropped() {
+        String id = queue.send(QUEUE, deduplicated("a", "dedup-1"));
+        queue.send(QUEUE, deduplicated("a again", "dedup-1"));
+        queue.send(QUEUE, deduplicated("b", "dedup-2"));
+
+        List<QueueMessage> received = queue.receive(QUEUE, 10, 30, 0);
+        assertThat(bodies(received)).containsExactly("a", "b");
+        assertThat(received.get(0).getMessageId()).isEqualTo(id);
+
+        // Still a duplicate after the first copy was deleted
+        queue.delete(QUEUE, receiptHandles(received));
+        queue.send(QUEUE, deduplicated("a once more", "dedup-1"));
+        assertThat(queue.receive(QUEUE, 10, 30, 0)).isEmpty();
+    }
+
+    @Test
+    void concurrentDuplicatesAreSentOnce() throws Exception {
+        int senders = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(senders);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> sends = new ArrayList<>();
+            for (int i = 0; i < senders; i++) {
+                sends.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < 200; n++) {
+                        queue.send(QUEUE, deduplicated("m" + n, "dedup-" + n));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> send : sends) {
+                send.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Set<String> received = new HashSet<>();
+        List<QueueMessage> batch;
+        int count = 0;
+        while (!(batch = queue.receive(QUEUE, 10, 30, 0)).isEmpty()) {
+            received.addAll(bodies(batch));
+            count += batch.size();
+        }
+        assertThat(count).isEqualTo(200);
+        assertThat(received).hasSize(200);
+    }
+
+    @Test
+    void fullQueueRejectsAndReleasesTheDeduplicationId() {
+        InProcessTaskQueue small = new InProcessTaskQueue(1);
+        small.send(QUEUE, message("a"));
+
+        assertThatThrownBy(() -> small.send(QUEUE, deduplicated("b", "dedup-b")))
+                .isInstanceOf(IllegalStateException.class);
+
+        small.delete(QUEUE, receiptHandles(small.receive(QUEUE, 1, 30, 0)));
+        small.send(QUEUE, deduplicated("b", "dedup-b"));
+        assertThat(bodies(small.receive(QUEUE, 1, 30, 0))).containsExactly("b");
+    }
+
+    @Test
+    void queuesAreIndependent() {
+        queue.send(QUEUE, deduplicated("a", "dedup-1"));
+        queue.send("other", deduplicated("a", "dedup-1"));
+
+        assertThat(queue.receive(QUEUE, 10, 30, 0)).hasSize(1);
+        assertThat(queue.receive("other", 10, 30, 0)).hasSize(1);
+    }
+}
@@ -0,0 +1,188 @@
+package org.JustRun.TaskExecutionService.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.JustRun.TaskExecutionService.model.ChainCondition;
+import org.JustRun.TaskExecutionService.model.ChainExtraction;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.model.TaskChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChainRouterTest {
+
+    private final ChainRouter router = new ChainRouter(new ObjectMapper(), 100);
+
+    private static Task task(TaskChain... chains) {
+        return Task.builder().id("task").chains(List.of(chains)).build();
+    }
+
+    private static TaskChain onCode(int statusCode, String nextTaskId, ChainCondition... conditions) {
+        return TaskChain.builder().statusCode(statusCode).nextTaskId(nextTaskId).conditions(List.of(conditions)).build();
+    }
+
+    private static TaskChain onClass(String statusClass, String nextTaskId, ChainCondition... conditions) {
+        return TaskChain.builder().statusClass(statusClass).nextTaskId(nextTaskId).conditions(List.of(conditions)).build();
+    }
+
+    private static ChainCondition body(String path, String operator, String value) {
+        return ChainCondition.builder().source("BODY").path(path).operator(operator).value(value).build();
+    }
+
+    private static ChainCondition header(String name, String operator, String value) {
+        return ChainCondition.builder().source("HEADER").path(name).operator(operator).value(value).build();
+    }
+
+    private static ChainExtraction extraction(String source, String path, String into, String name) {
+        return ChainExtraction.builder().source(source).path(path).into(into).name(name).build();
+    }
+
+    private static List<String> nextTaskIds(List<ChainRouter.Route> routes) {
+        return routes.stream().map(ChainRouter.Route::nextTaskId).toList();
+    }
+
+    @Test
+    void noChainsRouteNowhere() {
+        assertThat(router.route(Task.builder().id("task").build(), 200, null, null)).isEmpty();
+        assertThat(router.route(task(), 200, null, null)).isEmpty();
+    }
+
+    @Test
+    void exactCodeBeatsItsClass() {
+        Task task = task(onClass("2xx", "any-success"), onCode(201, "created"));
+
+        assertThat(nextTaskIds(router.route(task, 201, null, null))).containsExactly("created");
+        assertThat(nextTaskIds(router.route(task, 200, null, null))).containsExactly("any-success");
+        assertThat(router.route(task, 500, null, null)).isEmpty();
+    }
+
+    @Test
+    void exactCodeWhoseConditionsFailFallsBackToTheClass() {
+        Task task = task(onClass("2xx", "fallback"), onCode(200, "ready", body("$.state", "EQUALS", "ready")));
+
+        assertThat(nextTaskIds(router.route(task, 200, null, "{\"state\":\"ready\"}"))).containsExactly("ready");
+        assertThat(nextTaskIds(router.route(task, 200, null, "{\"state\":\"pending\"}"))).containsExactly("fallback");
+    }
+
+    @Test
+    void everyMatchingChainOnTheWinningLevelFansOut() {
+        Task task = task(onClass("2xx", "a"), onClass("2xx", "b"), onClass("2xx", "c", header("X-Skip", "EXISTS", null)));
+
+        assertThat(nextTaskIds(router.route(task, 200, new HttpHeaders(), null))).containsExactly("a", "b");
+    }
+
+    @Test
+    void aTaskChainedTwiceOnOneLevelRunsOnce() {
+        Task task = task(
+                onClass("2xx", "next", body("$.ok", "EQUALS", "false")),
+                onClass("2xx", "next"),
+                onClass("2xx", "other"),
+                onClass("2xx", "next"));
+
+        assertThat(nextTaskIds(router.route(task, 200, null, "{\"ok\":true}"))).containsExactly("next", "other");
+    }
+
+    @Test
+    void theFirstMatchingDuplicateSuppliesTheExtractions() {
+        TaskChain first = onClass("2xx", "next", body("$.ok", "EQUALS", "false"));
+        first.setExtractions(List.of(extraction("BODY", "$.id", "BODY", "fromFirst")));
+        TaskChain second = onClass("2xx", "next");
+        second.setExtractions(List.of(extraction("BODY", "$.id", "BODY", "fromSecond")));
+
+        List<ChainRouter.Route> routes = router.route(task(first, second), 200, null, "{\"ok\":true,\"id\":5}");
+
+        assertThat(routes).hasSize(1);
+        assertThat(routes.get(0).bodyValues()).containsOnlyKeys("fromSecond");
+    }
+
+    @Test
+    void headerConditions() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Status", "done-42");
+
+        assertThat(router.route(task(onClass("2xx", "n", header("x-status", "EQUALS", "done-42"))), 200, headers, null)).hasSize(1);
+        assertThat(router.route(task(onClass("2xx", "n", header("X-Status", "MATCHES", "done-\\d+"))), 200, headers, null)).hasSize(1);
+        assertThat(router.route(task(onClass("2xx", "n", header("X-Status", "MATCHES", "done"))), 200, headers, null)).isEmpty();
+        assertThat(router.route(task(onClass("2xx", "n", header("X-Missing", "NOT_EQUALS", "x"))), 200, headers, null)).hasSize(1);
+        assertThat(router.route(task(onClass("2xx", "n", header("X-Missing", "EXISTS", null))), 200, headers, null)).isEmpty();
+    }
+
+    @Test
+    void allConditionsOfAChainMustHold() {
+        Task task = task(onClass("2xx", "n", body("$.a", "EQUALS", "1"), body("$.b", "EXISTS", null)));
+
+        assertThat(router.route(task, 200, null, "{\"a\":1,\"b\":null}")).hasSize(1);
+        assertThat(router.route(task, 200, null, "{\"a\":1}")).isEmpty();
+        assertThat(router.route(task, 200, null, "{\"a\":2,\"b\":0}")).isEmpty();
+    }
+
+    @Test
+    void containersCompareByTheirJson() {
+        Task task = task(onClass("2xx", "n", body("$.items", "EQUALS", "[1,2]")));
+
+        assertThat(router.route(task, 200, null, "{\"items\":[1,2]}")).hasSize(1);
+        assertThat(router.route(task, 200, null, "{\"items\":[2,1]}")).isEmpty();
+    }
+
+    @Test
+    void nonJsonBodiesHaveNoValues() {
+        Task exists = task(onClass("5xx", "alert", body("$.error", "EXISTS", null)));
+        Task notEquals = task(onClass("5xx", "alert", body("$.error", "NOT_EQUALS", "timeout")));
+
+        assertThat(router.route(exists, 502, null, "<html>Bad Gateway</html>")).isEmpty();
+        assertThat(router.route(notEquals, 502, null, "<html>Bad Gateway</html>")).hasSize(1);
+    }
+
+    @Test
+    void matchesIgnoresValuesOverTheInputCap() {
+        Task task = task(onClass("2xx", "n", body("$.text", "MATCHES", "a*")));
+
+        assertThat(router.route(task, 200, null, "{\"text\":\"" + "a".repeat(4096) + "\"}")).hasSize(1);
+        assertThat(router.route(task, 200, null, "{\"text\":\"" + "a".repeat(4097) + "\"}")).isEmpty();
+    }
+
+    @Test
+    void extractionsReadBodyAndHeaderValues() {
+        TaskChain chain = onClass("2xx", "next");
+        chain.setExtractions(List.of(
+                extraction("BODY", "$.order.id", "BODY", "orderId"),
+                extraction("BODY", "$.order.items", "BODY", "items"),
+                extraction("BODY", "$.order.total", "HEADER", "X-Total"),
+                extraction("HEADER", "ETag", "HEADER", "If-Match"),
+                extraction("BODY", "$.missing", "BODY", "missing")));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("ETag", "\"v1\"");
+
+        List<ChainRouter.Route> routes = router.route(task(chain), 200, headers,
+                "{\"order\":{\"id\":\"o-1\",\"items\":[{\"sku\":\"x\"}],\"total\":12.5}}");
+
+        assertThat(routes).hasSize(1);
+        assertThat(routes.get(0).bodyValues())
+                .containsEntry("orderId", "o-1")
+                .containsEntry("items", List.of(Map.of("sku", "x")))
+                .doesNotContainKey("missing");
+        assertThat(routes.get(0).headerValues())
+                .containsEntry("X-Total", "12.5")
+                .containsEntry("If-Match", "\"v1\"");
+    }
+
+    @Test
+    void chainsThatDoNotCompileAreSkipped() {
+        Task task = task(
+                onClass("2xx", "bad-path", body("$.items[*]", "EXISTS", null)),
+                onClass("2xx", "bad-regex", body("$.a", "MATCHES", "(")),
+                onClass("2xx", "good"));
+
+        assertThat(nextTaskIds(router.route(task, 200, null, "{}"))).containsExactly("good");
+    }
+
+    @Test
+    void changedChainsAreRecompiled() {
+        assertThat(nextTaskIds(router.route(task(onClass("2xx", "before")), 200, null, null))).containsExactly("before");
+        assertThat(nextTaskIds(router.route(task(onClass("2xx", "after")), 200, null, null))).containsExactly("after");
+    }
+}
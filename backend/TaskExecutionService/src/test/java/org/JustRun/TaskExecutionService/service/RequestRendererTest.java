@@ -0,0 +1,175 @@
+package org.JustRun.TaskExecutionService.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestRendererTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private RequestRenderer renderer(boolean templating) {
+        RequestRenderer renderer = new RequestRenderer(objectMapper, new TaskHttpClient(), 100);
+        ReflectionTestUtils.setField(renderer, "templating", templating);
+        return renderer;
+    }
+
+    private static Task task(Map<String, String> headers, Map<String, Object> body) {
+        return Task.builder()
+                .id("task")
+                .endpoint("http://localhost:9/hook")
+                .method("POST")
+                .headers(headers)
+                .body(body)
+                .scheduledFireTime(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .attempt(2)
+                .fireInstanceId("fire-1")
+                .build();
+    }
+
+    private static Map<String, Object> body() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("text", "héllo € ✓");
+        body.put("n", 1);
+        body.put("nested", Map.of("list", List.of("ü")));
+        return body;
+    }
+
+    // What the executor sent before requests were rendered: the body as a String through RestTemplate's String converter
+    private MockHttpOutputMessage legacy(Map<String, String> taskHeaders, Map<String, Object> body) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        if (taskHeaders != null) {
+            taskHeaders.forEach(message.getHeaders()::set);
+        }
+        new StringHttpMessageConverter().write(objectMapper.writeValueAsString(body),
+                message.getHeaders().getContentType(), message);
+        return message;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "application/json",
+            "application/json;charset=UTF-8",
+            "application/vnd.api+json",
+            "text/plain",
+            "text/plain;charset=UTF-8",
+            "application/xml;charset=UTF-16",
+            "text/csv;charset=ISO-8859-1"})
+    void bodyBytesAndContentTypeMatchTheStringPath(String contentType) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Trace", "abc");
+        if (!contentType.isEmpty()) {
+            headers.put("Content-Type", contentType);
+        }
+        MockHttpOutputMessage expected = legacy(headers, body());
+
+        for (boolean templating : new boolean[]{false, true}) {
+            RequestRenderer.RenderedRequest rendered = renderer(templating).render(task(headers, body()), "exec-1");
+
+            assertThat(rendered.body()).isEqualTo(expected.getBodyAsBytes());
+            assertThat(rendered.headers().getContentType()).isEqualTo(expected.getHeaders().getContentType());
+            assertThat(rendered.headers().getFirst("X-Trace")).isEqualTo("abc");
+        }
+    }
+
+    @Test
+    void bodyWithoutContentTypeIsSentAsLatin1Text() {
+        RequestRenderer.RenderedRequest rendered = renderer(false).render(task(null, Map.of("text", "é")), "exec-1");
+
+        assertThat(rendered.headers().getContentType())
+                .isEqualTo(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.ISO_8859_1));
+        assertThat(rendered.body()).isEqualTo("{\"text\":\"é\"}".getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void requestWithoutBodyHasNoBodyOrContentType() {
+        RequestRenderer.RenderedRequest rendered = renderer(true).render(task(Map.of("X-Trace", "abc"), null), "exec-1");
+
+        assertThat(rendered.body()).isNull();
+        assertThat(rendered.headers().getContentType()).isNull();
+        assertThat(rendered.headers().getFirst("X-Trace")).isEqualTo("abc");
+    }
+
+    @Test
+    void extractedFieldsKeepTheCharsetOfTheStringPath() throws IOException {
+        Map<String, String> headers = Map.of("Content-Type", "text/plain");
+        Task task = task(headers, body());
+        task.setExtractedBody(Map.of("upstream", "ñ"));
+
+        Map<String, Object> merged = new LinkedHashMap<>(body());
+        merged.put("upstream", "ñ");
+        MockHttpOutputMessage expected = legacy(headers, merged);
+
+        RequestRenderer.RenderedRequest rendered = renderer(false).render(task, "exec-1");
+        assertThat(rendered.body()).isEqualTo(expected.getBodyAsBytes());
+        assertThat(rendered.headers().getContentType()).isEqualTo(expected.getHeaders().getContentType());
+    }
+
+    @Test
+    void placeholdersAreSentAsIsWhenTemplatingIsOff() {
+        Map<String, String> headers = Map.of("Content-Type", "application/json", "X-Run", "{{executionId}}");
+        Task task = task(headers, Map.of("at", "{{fireTime}}"));
+
+        RequestRenderer.RenderedRequest rendered = renderer(false).render(task, "exec-1");
+
+        assertThat(new String(rendered.body(), StandardCharsets.UTF_8)).isEqualTo("{\"at\":\"{{fireTime}}\"}");
+        assertThat(rendered.headers().getFirst("X-Run")).isEqualTo("{{executionId}}");
+    }
+
+    @Test
+    void placeholdersAreFilledWhenTemplatingIsOn() throws IOException {
+        Map<String, String> headers = Map.of("Content-Type", "application/json", "X-Run", "{{executionId}}/{{attempt}}");
+        Task task = task(headers, Map.of("at", "{{fireTime}}", "fire", "{{fireInstanceId}}", "up", "{{upstream.id}}"));
+        task.setExtractedHeaders(Map.of("id", "u-1"));
+
+        RequestRenderer.RenderedRequest rendered = renderer(true).render(task, "exec-1");
+
+        assertThat(objectMapper.readTree(rendered.body()))
+                .isEqualTo(objectMapper.readTree("{\"at\":\"2024-01-01T00:00\",\"fire\":\"fire-1\",\"up\":\"u-1\"}"));
+        assertThat(rendered.headers().getFirst("X-Run")).isEqualTo("exec-1/2");
+        // Extracted headers are also sent as headers
+        assertThat(rendered.headers().getFirst("id")).isEqualTo("u-1");
+        assertThat(rendered.headers().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void templatedHeadersKeepTheDefaultContentType() {
+        Task task = task(Map.of("X-Run", "{{executionId}}"), Map.of("text", "é"));
+
+        RequestRenderer.RenderedRequest rendered = renderer(true).render(task, "exec-1");
+
+        assertThat(rendered.headers().getContentType())
+                .isEqualTo(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.ISO_8859_1));
+        assertThat(rendered.body()).isEqualTo("{\"text\":\"é\"}".getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void cachedRequestsFollowDefinitionChanges() {
+        RequestRenderer renderer = renderer(false);
+        Map<String, String> headers = Map.of("Content-Type", "application/json");
+
+        byte[] first = renderer.render(task(headers, Map.of("v", 1)), "exec-1").body();
+        byte[] again = renderer.render(task(headers, Map.of("v", 1)), "exec-2").body();
+        byte[] changed = renderer.render(task(headers, Map.of("v", 2)), "exec-3").body();
+
+        assertThat(again).isSameAs(first);
+        assertThat(new String(changed, StandardCharsets.UTF_8)).isEqualTo("{\"v\":2}");
+    }
+}
@@ -0,0 +1,325 @@
+package org.JustRun.TaskExecutionService.service;
+
+import org.JustRun.TaskExecutionService.Repository.WorkflowInstanceRepository;
+import org.JustRun.TaskExecutionService.model.JoinMode;
+import org.JustRun.TaskExecutionService.model.Task;
+import org.JustRun.TaskExecutionService.model.TaskChain;
+import org.JustRun.TaskExecutionService.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowCoordinatorTest {
+
+    private final InMemoryWorkflowInstances instances = new InMemoryWorkflowInstances();
+    private final WorkflowCoordinator coordinator = new WorkflowCoordinator(instances);
+
+    /**
+     * The fork state of every workflow instance in a map, with settleBranch's conditional update.
+     */
+    private static final class InMemoryWorkflowInstances extends WorkflowInstanceRepository {
+        private final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+
+        InMemoryWorkflowInstances() {
+            super(null);
+        }
+
+        @Override
+        public synchronized Map<String, AttributeValue> settleBranch(String instanceId, WorkflowContext.Branch branch,
+                                                                     String joinTaskId, JoinMode joinMode, long expiresAt) {
+            Map<String, AttributeValue> item = items.computeIfAbsent(instanceId, id -> new HashMap<>());
+            if (item.containsKey(branchAttribute(branch))) {
+                return null;
+            }
+            increment(item, settledAttribute(branch.getForkId()));
+            item.put(branchAttribute(branch), AttributeValue.builder().s(joinTaskId != null ? joinTaskId : "-").build());
+            if (joinTaskId != null) {
+                increment(item, arrivedAttribute(branch.getForkId(), joinTaskId));
+                item.put("join_" + branch.getForkId() + "_" + joinTaskId, AttributeValue.builder().s(joinMode.name()).build());
+            }
+            return Map.copyOf(item);
+        }
+
+        @Override
+        public synchronized Map<String, AttributeValue> find(String instanceId) {
+            Map<String, AttributeValue> item = items.get(instanceId);
+            return item != null ? Map.copyOf(item) : null;
+        }
+
+        String settledBy(String instanceId, WorkflowContext.Branch branch) {
+            AttributeValue value = items.getOrDefault(instanceId, Map.of()).get(branchAttribute(branch));
+            return value != null ? value.s() : null;
+        }
+
+        private static void increment(Map<String, AttributeValue> item, String attribute) {
+            AttributeValue count = item.get(attribute);
+            long next = count != null ? Long.parseLong(count.n()) + 1 : 1;
+            item.put(attribute, AttributeValue.builder().n(Long.toString(next)).build());
+        }
+    }
+
+    // A fresh copy of a task definition, as the executor loads one for every chained run
+    private static Task task(String id) {
+        return Task.builder().id(id).build();
+    }
+
+    private static Task join(String id, JoinMode mode) {
+        return Task.builder().id(id).joinMode(mode).build();
+    }
+
+    private static Task root(String fireInstanceId) {
+        return Task.builder()
+                .id("root")
+                .fireInstanceId(fireInstanceId)
+                .chains(List.of(TaskChain.builder().statusClass("2xx").nextTaskId("a").build()))
+                .build();
+    }
+
+    private List<Task> finish(Task run, Task... successors) {
+        return coordinator.advance(run, run.getFireInstanceId(), "exec-" + run.getId(), List.of(successors), false);
+    }
+
+    private static Task byId(List<Task> runs, String id) {
+        return runs.stream().filter(run -> run.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static WorkflowContext.Branch lastBranch(Task run) {
+        List<WorkflowContext.Branch> branches = run.getWorkflow().getBranches();
+        return branches.get(branches.size() - 1);
+    }
+
+    @Test
+    void workflowRunIdIsTheFirstRunsInstance() {
+        Task root = root("fire-1");
+        Task single = task("single");
+
+        assertThat(coordinator.workflowRunId(root, "fire-1")).isEqualTo("fire-1");
+        assertThat(coordinator.workflowRunId(single, "fire-2")).isNull();
+
+        Task chained = finish(root, task("a")).get(0);
+        assertThat(coordinator.workflowRunId(chained, "other")).isEqualTo("fire-1");
+    }
+
+    @Test
+    void linearChainsWriteNothing() {
+        Task root = root("fire-1");
+
+        Task a = finish(root, task("a")).get(0);
+        Task joinWithoutFork = finish(a, join("j", JoinMode.ALL)).get(0);
+        assertThat(finish(joinWithoutFork)).isEmpty();
+
+        assertThat(a.getWorkflow().getBranches()).isEmpty();
+        assertThat(a.getWorkflow().getParentExecutionId()).isEqualTo("exec-root");
+        assertThat(joinWithoutFork.getFireInstanceId()).isEqualTo("j@chain-a@chain-fire-1");
+        assertThat(instances.find("fire-1")).isNull();
+    }
+
+    @Test
+    void forkPutsEachSuccessorOnItsOwnBranch() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"), task("c"));
+
+        assertThat(runs).extracting(Task::getId).containsExactly("a", "b", "c");
+        for (int i = 0; i < runs.size(); i++) {
+            WorkflowContext.Branch branch = lastBranch(runs.get(i));
+            assertThat(branch.getBranchCount()).isEqualTo(3);
+            assertThat(branch.getBranch()).isEqualTo(i);
+            assertThat(branch.getForkId()).isEqualTo(lastBranch(runs.get(0)).getForkId());
+            assertThat(runs.get(i).getWorkflow().getInstanceId()).isEqualTo("fire-1");
+        }
+    }
+
+    @Test
+    void redeliveredParentReopensTheSameFork() {
+        List<Task> first = finish(root("fire-1"), task("a"), task("b"));
+        List<Task> again = finish(root("fire-1"), task("a"), task("b"));
+
+        assertThat(again).extracting(Task::getFireInstanceId).isEqualTo(first.stream().map(Task::getFireInstanceId).toList());
+        assertThat(lastBranch(again.get(0))).isEqualTo(lastBranch(first.get(0)));
+    }
+
+    @Test
+    void allJoinFiresOnceEveryBranchArrives() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"), task("c"));
+        String forkId = lastBranch(runs.get(0)).getForkId();
+
+        assertThat(finish(runs.get(0), join("j", JoinMode.ALL))).isEmpty();
+        assertThat(finish(runs.get(2), join("j", JoinMode.ALL))).isEmpty();
+        List<Task> fired = finish(runs.get(1), join("j", JoinMode.ALL));
+
+        assertThat(fired).hasSize(1);
+        Task joined = fired.get(0);
+        assertThat(joined.getFireInstanceId()).isEqualTo("j@join-" + forkId);
+        // The join is back on the branch the fork was opened on
+        assertThat(joined.getWorkflow().getBranches()).isEmpty();
+        assertThat(joined.getWorkflow().getParentExecutionId()).isEqualTo("exec-b");
+    }
+
+    @Test
+    void anyJoinFiresOnTheFirstArrivalOnly() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        List<Task> fired = finish(runs.get(1), join("j", JoinMode.ANY));
+        assertThat(fired).extracting(Task::getId).containsExactly("j");
+        assertThat(finish(runs.get(0), join("j", JoinMode.ANY))).isEmpty();
+    }
+
+    @Test
+    void joinOnlyWaitsForTheBranchesOfItsOwnFork() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        // b also forks; its branches join before the outer join
+        List<Task> inner = finish(runs.get(1), task("b1"), task("b2"));
+        assertThat(lastBranch(inner.get(0)).getForkId()).isNotEqualTo(lastBranch(runs.get(0)).getForkId());
+        assertThat(inner.get(0).getWorkflow().getBranches()).hasSize(2);
+
+        assertThat(finish(inner.get(0), join("inner-join", JoinMode.ALL))).isEmpty();
+        Task innerJoin = finish(inner.get(1), join("inner-join", JoinMode.ALL)).get(0);
+        assertThat(innerJoin.getWorkflow().getBranches()).containsExactly(lastBranch(runs.get(1)));
+
+        assertThat(finish(innerJoin, join("outer-join", JoinMode.ALL))).isEmpty();
+        List<Task> fired = finish(runs.get(0), join("outer-join", JoinMode.ALL));
+        assertThat(fired).extracting(Task::getId).containsExactly("outer-join");
+        assertThat(fired.get(0).getWorkflow().getBranches()).isEmpty();
+    }
+
+    @Test
+    void branchEndingWithoutTheJoinKeepsAnAllJoinFromFiring() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+        WorkflowContext.Branch ended = lastBranch(runs.get(0));
+
+        assertThat(finish(runs.get(0))).isEmpty();
+        assertThat(instances.settledBy("fire-1", ended)).isEqualTo("-");
+
+        assertThat(finish(runs.get(1), join("j", JoinMode.ALL))).isEmpty();
+    }
+
+    @Test
+    void branchEndingWithoutTheJoinLeavesAnAnyJoinFree() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        assertThat(finish(runs.get(0))).isEmpty();
+        assertThat(finish(runs.get(1), join("j", JoinMode.ANY))).extracting(Task::getId).containsExactly("j");
+    }
+
+    @Test
+    void retriedRunDoesNotEndItsBranch() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+        WorkflowContext.Branch branch = lastBranch(runs.get(0));
+
+        assertThat(coordinator.advance(runs.get(0), runs.get(0).getFireInstanceId(), "exec-a", List.of(), true)).isEmpty();
+        assertThat(instances.settledBy("fire-1", branch)).isNull();
+
+        // The retry reaches the join after all
+        assertThat(finish(runs.get(1), join("j", JoinMode.ALL))).isEmpty();
+        assertThat(finish(runs.get(0), join("j", JoinMode.ALL))).extracting(Task::getId).containsExactly("j");
+    }
+
+    @Test
+    void redeliveredBranchResendsAJoinItFired() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        assertThat(finish(runs.get(0), join("j", JoinMode.ALL))).isEmpty();
+        Task fired = finish(runs.get(1), join("j", JoinMode.ALL)).get(0);
+
+        // The first delivery's enqueue may have been lost; the copy carries the same fire instance id
+        List<Task> resent = finish(runs.get(1), join("j", JoinMode.ALL));
+        assertThat(resent).extracting(Task::getFireInstanceId).containsExactly(fired.getFireInstanceId());
+        assertThat(resent.get(0).getWorkflow().getBranches()).isEmpty();
+    }
+
+    @Test
+    void redeliveredBranchDoesNotFireAnIncompleteJoin() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        assertThat(finish(runs.get(0), join("j", JoinMode.ALL))).isEmpty();
+        assertThat(finish(runs.get(0), join("j", JoinMode.ALL))).isEmpty();
+        // The redelivery did not count as a second arrival
+        assertThat(finish(runs.get(1), join("j", JoinMode.ALL))).hasSize(1);
+    }
+
+    @Test
+    void redeliveredLaterArrivalAtAnAnyJoinResendsUnderTheSameId() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        Task fired = finish(runs.get(0), join("j", JoinMode.ANY)).get(0);
+        assertThat(finish(runs.get(1), join("j", JoinMode.ANY))).isEmpty();
+
+        // Either branch's redelivery may resend it; the idempotency store keeps one run of the join
+        assertThat(finish(runs.get(1), join("j", JoinMode.ANY)))
+                .extracting(Task::getFireInstanceId).containsExactly(fired.getFireInstanceId());
+    }
+
+    @Test
+    void redeliveredBranchThatEndedElsewhereFiresNothing() {
+        List<Task> runs = finish(root("fire-1"), task("a"), task("b"));
+
+        assertThat(finish(runs.get(0))).isEmpty();
+        assertThat(finish(runs.get(1), join("j", JoinMode.ANY))).hasSize(1);
+        // a settled by ending, so arriving at the join on redelivery is not taken as a settled arrival
+        assertThat(finish(runs.get(0), join("j", JoinMode.ANY))).isEmpty();
+    }
+
+    @Test
+    void settledInnerForkEndsTheBranchItWasOpenedOn() {
+        List<Task> outer = finish(root("fire-1"), task("a"), task("b"));
+        List<Task> inner = finish(outer.get(0), task("a1"), task("a2"));
+        WorkflowContext.Branch outerBranch = lastBranch(outer.get(0));
+
+        assertThat(finish(inner.get(0))).isEmpty();
+        assertThat(instances.settledBy("fire-1", outerBranch)).isNull();
+        assertThat(finish(inner.get(1))).isEmpty();
+
+        assertThat(instances.settledBy("fire-1", outerBranch)).isEqualTo("-");
+        // With a ended, the outer ALL join can no longer complete
+        assertThat(finish(outer.get(1), join("j", JoinMode.ALL))).isEmpty();
+    }
+
+    @Test
+    void closingCascadesThroughEveryLevel() {
+        List<Task> level1 = finish(root("fire-1"), task("a"), task("b"));
+        List<Task> level2 = finish(level1.get(0), task("a1"), task("a2"));
+        List<Task> level3 = finish(level2.get(0), task("a11"), task("a12"));
+
+        assertThat(finish(level2.get(1))).isEmpty();
+        assertThat(finish(level3.get(0))).isEmpty();
+        assertThat(instances.settledBy("fire-1", lastBranch(level2.get(0)))).isNull();
+
+        // The last leaf settles level 3, which ends a1, which settles level 2, which ends a
+        assertThat(finish(level3.get(1))).isEmpty();
+        assertThat(instances.settledBy("fire-1", lastBranch(level2.get(0)))).isEqualTo("-");
+        assertThat(instances.settledBy("fire-1", lastBranch(level1.get(0)))).isEqualTo("-");
+        assertThat(instances.settledBy("fire-1", lastBranch(level1.get(1)))).isNull();
+    }
+
+    @Test
+    void forkWithAnIncompleteJoinClosesWhenItsLastBranchSettles() {
+        List<Task> outer = finish(root("fire-1"), task("a"), task("b"));
+        List<Task> inner = finish(outer.get(0), task("a1"), task("a2"));
+        WorkflowContext.Branch outerBranch = lastBranch(outer.get(0));
+
+        assertThat(finish(inner.get(0), join("inner-join", JoinMode.ALL))).isEmpty();
+        assertThat(finish(inner.get(1))).isEmpty();
+
+        assertThat(instances.settledBy("fire-1", outerBranch)).isEqualTo("-");
+    }
+
+    @Test
+    void forkWhoseJoinFiredStaysOpen() {
+        List<Task> outer = finish(root("fire-1"), task("a"), task("b"));
+        List<Task> inner = finish(outer.get(0), task("a1"), task("a2"));
+        WorkflowContext.Branch outerBranch = lastBranch(outer.get(0));
+
+        Task innerJoin = finish(inner.get(0), join("inner-join", JoinMode.ANY)).get(0);
+        assertThat(finish(inner.get(1))).isEmpty();
+
+        // The join carries the outer branch on
+        assertThat(instances.settledBy("fire-1", outerBranch)).isNull();
+        assertThat(finish(outer.get(1), join("j", JoinMode.ALL))).isEmpty();
+        assertThat(byId(finish(innerJoin, join("j", JoinMode.ALL)), "j").getWorkflow().getBranches()).isEmpty();
+    }
+}
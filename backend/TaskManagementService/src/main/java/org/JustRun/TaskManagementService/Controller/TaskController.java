@@ -73,6 +73,20 @@ public class TaskController {
         return ResponseEntity.ok(executions);
     }
 
+    @GetMapping("/{id}/executions/history")
+    public ResponseEntity<TaskResponse.TaskExecutionHistoryResponse> getExecutionHistory(
+            @PathVariable String id,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(taskService.getExecutionHistory(id, user.getId()));
+    }
+
+    @GetMapping("/workflow-runs/{workflowRunId}")
+    public ResponseEntity<TaskResponse.WorkflowRunResponse> getWorkflowRun(
+            @PathVariable String workflowRunId,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(taskService.getWorkflowRun(workflowRunId, user.getId()));
+    }
+
 
     private TaskResponse mapToTaskResponse(Task task) {
 //        List<TaskResponse.TaskChainResponse> taskChainResponses = task.getChains().stream()
@@ -95,10 +109,15 @@ public class TaskController {
                 .headers(task.getHeaders())
                 .body(task.getBody())
                 .cronExpression(task.getCronExpression())
+                .spreadWindowSeconds(task.getSpreadWindowSeconds())
+                .misfirePolicy(task.getMisfirePolicy() != null ? task.getMisfirePolicy().name() : null)
+                .misfireMaxCatchUp(task.getMisfireMaxCatchUp())
+                .joinMode(task.getJoinMode() != null ? task.getJoinMode().name() : null)
                 .priority(task.getPriority().name())
                 .maxRetries(task.getMaxRetries())
                 .retryDelay(task.getRetryDelay())
                 .exponentialBackoff(task.getExponentialBackoff())
+                .timeoutMs(task.getTimeoutMs())
                 .webhookUrl(task.getWebhookUrl())
                 .status(task.getStatus())
                 .createdAt(task.getCreatedAt())
@@ -119,6 +138,9 @@ public class TaskController {
                 .taskId(taskChain.getTaskId())
                 .nextTaskId(taskChain.getNextTaskId())
                 .statusCode(taskChain.getStatusCode())
+                .statusClass(taskChain.getStatusClass())
+                .conditions(taskChain.getConditions())
+                .extractions(taskChain.getExtractions())
                 .build();
     }
 
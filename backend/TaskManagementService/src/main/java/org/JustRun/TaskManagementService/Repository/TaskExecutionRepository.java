@@ -7,6 +7,7 @@ import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -87,6 +88,49 @@ public class TaskExecutionRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Executions of {@code taskId} that started at or after {@code since}, newest first.
+     */
+    public List<TaskExecution> findByTaskIdSince(String taskId, LocalDateTime since) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":taskId", AttributeValue.builder().s(taskId).build());
+        expressionValues.put(":since", AttributeValue.builder().s(since.format(DATE_FORMATTER)).build());
+
+        QueryRequest request = QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                .indexName("taskId-executionTime-index")
+                .keyConditionExpression("taskId = :taskId AND executionTime >= :since")
+                .expressionAttributeValues(expressionValues)
+                .scanIndexForward(false)
+                .build();
+
+        List<TaskExecution> executions = new ArrayList<>();
+        for (QueryResponse page : dynamoDbClient.queryPaginator(request)) {
+            page.items().forEach(item -> executions.add(mapToTaskExecution(item)));
+        }
+        return executions;
+    }
+
+    /**
+     * Every execution of a workflow run, oldest first, from the sparse workflowRunId-executionTime-index.
+     */
+    public List<TaskExecution> findByWorkflowRunId(String workflowRunId) {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                .indexName("workflowRunId-executionTime-index")
+                .keyConditionExpression("workflowRunId = :workflowRunId")
+                .expressionAttributeValues(Map.of(
+                        ":workflowRunId", AttributeValue.builder().s(workflowRunId).build()
+                ))
+                .build();
+
+        List<TaskExecution> executions = new ArrayList<>();
+        for (QueryResponse page : dynamoDbClient.queryPaginator(request)) {
+            page.items().forEach(item -> executions.add(mapToTaskExecution(item)));
+        }
+        return executions;
+    }
+
     public TaskExecution findById(String id) {
         Map<String, AttributeValue> key = new HashMap<>();
         key.put("id", AttributeValue.builder().s(id).build());
@@ -112,10 +156,30 @@ public class TaskExecutionRepository {
         execution.setExecutionTime(LocalDateTime.parse(item.get("executionTime").s(), DATE_FORMATTER));
         execution.setStatus(item.get("status").s());
 
+        if (item.containsKey("userId")) {
+            execution.setUserId(item.get("userId").s());
+        }
+
+        if (item.containsKey("fireInstanceId")) {
+            execution.setFireInstanceId(item.get("fireInstanceId").s());
+        }
+
+        if (item.containsKey("workflowRunId")) {
+            execution.setWorkflowRunId(item.get("workflowRunId").s());
+        }
+
+        if (item.containsKey("parentExecutionId")) {
+            execution.setParentExecutionId(item.get("parentExecutionId").s());
+        }
+
         if (item.containsKey("statusCode")) {
             execution.setStatusCode(Integer.parseInt(item.get("statusCode").n()));
         }
 
+        if (item.containsKey("durationMs")) {
+            execution.setDurationMs(Long.parseLong(item.get("durationMs").n()));
+        }
+
         if (item.containsKey("response")) {
             execution.setResponse(item.get("response").s());
         }
@@ -0,0 +1,94 @@
+package org.JustRun.TaskManagementService.Repository;
+
+import lombok.RequiredArgsConstructor;
+import org.JustRun.TaskManagementService.model.TaskExecutionRollup;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class TaskExecutionRollupRepository {
+
+    private final DynamoDbClient dynamoDbClient;
+    private static final String TABLE_NAME = "task_execution_rollups";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * Rollups of {@code taskId} at {@code granularity} whose bucket starts in [from, to), oldest first.
+     */
+    public List<TaskExecutionRollup> findByTaskId(String taskId, TaskExecutionRollup.Granularity granularity,
+                                                  LocalDateTime from, LocalDateTime to) {
+        LocalDateTime last = granularity == TaskExecutionRollup.Granularity.HOUR ? to.minusHours(1) : to.minusDays(1);
+        if (last.isBefore(from)) {
+            return List.of();
+        }
+
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":taskId", AttributeValue.builder().s(taskId).build());
+        expressionValues.put(":from", AttributeValue.builder().s(bucketFor(granularity, from)).build());
+        expressionValues.put(":to", AttributeValue.builder().s(bucketFor(granularity, last)).build());
+
+        QueryRequest request = QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                // BUCKET is a DynamoDB reserved word
+                .keyConditionExpression("taskId = :taskId AND #bucket BETWEEN :from AND :to")
+                .expressionAttributeNames(Map.of("#bucket", "bucket"))
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        List<TaskExecutionRollup> rollups = new ArrayList<>();
+        for (QueryResponse page : dynamoDbClient.queryPaginator(request)) {
+            page.items().forEach(item -> rollups.add(mapToRollup(item)));
+        }
+        return rollups;
+    }
+
+    private static String bucketFor(TaskExecutionRollup.Granularity granularity, LocalDateTime bucketStart) {
+        return granularity.name() + "#" + bucketStart.format(
+                granularity == TaskExecutionRollup.Granularity.HOUR ? HOUR_FORMATTER : DAY_FORMATTER);
+    }
+
+    private TaskExecutionRollup mapToRollup(Map<String, AttributeValue> item) {
+        TaskExecutionRollup.TaskExecutionRollupBuilder builder = TaskExecutionRollup.builder()
+                .taskId(item.get("taskId").s())
+                .granularity(TaskExecutionRollup.Granularity.valueOf(item.get("granularity").s()))
+                .bucketStart(LocalDateTime.parse(item.get("bucketStart").s(), DATE_FORMATTER))
+                .executionCount(Long.parseLong(item.get("executionCount").n()))
+                .successCount(Long.parseLong(item.get("successCount").n()))
+                .failureCount(Long.parseLong(item.get("failureCount").n()));
+
+        if (item.containsKey("latencyP50Ms")) {
+            builder.latencyP50Ms(Long.parseLong(item.get("latencyP50Ms").n()));
+        }
+
+        if (item.containsKey("latencyP90Ms")) {
+            builder.latencyP90Ms(Long.parseLong(item.get("latencyP90Ms").n()));
+        }
+
+        if (item.containsKey("latencyP99Ms")) {
+            builder.latencyP99Ms(Long.parseLong(item.get("latencyP99Ms").n()));
+        }
+
+        if (item.containsKey("latencyMaxMs")) {
+            builder.latencyMaxMs(Long.parseLong(item.get("latencyMaxMs").n()));
+        }
+
+        if (item.containsKey("statusCodes")) {
+            Map<String, Long> statusCodes = new HashMap<>();
+            item.get("statusCodes").m().forEach((code, count) -> statusCodes.put(code, Long.parseLong(count.n())));
+            builder.statusCodes(statusCodes);
+        }
+
+        return builder.build();
+    }
+}
@@ -3,10 +3,17 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.JustRun.TaskManagementService.codec.TaskPayloadCodec;
+import org.JustRun.TaskManagementService.model.ChainCondition;
+import org.JustRun.TaskManagementService.model.ChainExtraction;
+import org.JustRun.TaskManagementService.model.JoinMode;
+import org.JustRun.TaskManagementService.model.MisfirePolicy;
 import org.JustRun.TaskManagementService.model.Task;
 import org.JustRun.TaskManagementService.model.TaskChain;
 import org.JustRun.TaskManagementService.model.TaskPriority;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -28,6 +35,9 @@ public class TaskRepository {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Value("${task.payload.binary-encoding:false}")
+    private boolean binaryPayloadEncoding;
+
     public Task save(Task task) {
         if (task.getId() == null) {
             task.setId(UUID.randomUUID().toString());
@@ -66,7 +76,10 @@ public class TaskRepository {
             item.put("description", AttributeValue.builder().s(task.getDescription()).build());
         }
 
-        if (task.getBody() != null) {
+        if (binaryPayloadEncoding && (task.getBody() != null || task.getHeaders() != null)) {
+            byte[] payload = TaskPayloadCodec.encode(task.getBody(), task.getHeaders());
+            item.put(TaskPayloadCodec.ATTRIBUTE, AttributeValue.builder().b(SdkBytes.fromByteArray(payload)).build());
+        } else if (task.getBody() != null) {
             Map<String, AttributeValue> bodyMap = new HashMap<>();
             task.getBody().forEach((key, value) -> {
                 bodyMap.put(key, AttributeValue.builder().s(value.toString()).build()); // or handle types more carefully if needed
@@ -88,6 +101,10 @@ public class TaskRepository {
             item.put("exponentialBackoff", AttributeValue.builder().bool(task.getExponentialBackoff()).build());
         }
 
+        if (task.getTimeoutMs() != null) {
+            item.put("timeoutMs", AttributeValue.builder().n(task.getTimeoutMs().toString()).build());
+        }
+
         if (task.getWebhookUrl() != null) {
             item.put("webhookUrl", AttributeValue.builder().s(task.getWebhookUrl()).build());
         }
@@ -104,8 +121,24 @@ public class TaskRepository {
             item.put("failureCount", AttributeValue.builder().n(task.getFailureCount().toString()).build());
         }
 
+        if (task.getSpreadWindowSeconds() != null) {
+            item.put("spreadWindowSeconds", AttributeValue.builder().n(task.getSpreadWindowSeconds().toString()).build());
+        }
+
+        if (task.getMisfirePolicy() != null) {
+            item.put("misfirePolicy", AttributeValue.builder().s(task.getMisfirePolicy().name()).build());
+        }
+
+        if (task.getMisfireMaxCatchUp() != null) {
+            item.put("misfireMaxCatchUp", AttributeValue.builder().n(task.getMisfireMaxCatchUp().toString()).build());
+        }
+
+        if (task.getJoinMode() != null) {
+            item.put("joinMode", AttributeValue.builder().s(task.getJoinMode().name()).build());
+        }
+
         // Store headers as JSON
-        if (task.getHeaders() != null && !task.getHeaders().isEmpty()) {
+        if (!binaryPayloadEncoding && task.getHeaders() != null && !task.getHeaders().isEmpty()) {
             Map<String, AttributeValue> headersMap = new HashMap<>();
             task.getHeaders().forEach((key, value) ->
                     headersMap.put(key, AttributeValue.builder().s(value).build())
@@ -120,8 +153,19 @@ public class TaskRepository {
                 Map<String, AttributeValue> chainMap = new HashMap<>();
                 chainMap.put("id", AttributeValue.builder().s(chain.getId()).build());
                 chainMap.put("taskId", AttributeValue.builder().s(chain.getTaskId()).build());
-                chainMap.put("statusCode", AttributeValue.builder().n(chain.getStatusCode().toString()).build());
+                if (chain.getStatusCode() != null) {
+                    chainMap.put("statusCode", AttributeValue.builder().n(chain.getStatusCode().toString()).build());
+                }
+                if (chain.getStatusClass() != null) {
+                    chainMap.put("statusClass", AttributeValue.builder().s(chain.getStatusClass()).build());
+                }
                 chainMap.put("nextTaskId", AttributeValue.builder().s(chain.getNextTaskId()).build());
+                if (chain.getConditions() != null && !chain.getConditions().isEmpty()) {
+                    chainMap.put("conditions", chainConditionsToAttribute(chain.getConditions()));
+                }
+                if (chain.getExtractions() != null && !chain.getExtractions().isEmpty()) {
+                    chainMap.put("extractions", chainExtractionsToAttribute(chain.getExtractions()));
+                }
 
                 chains.add(AttributeValue.builder().m(chainMap).build());
             }
@@ -186,6 +230,7 @@ public class TaskRepository {
         dynamoDbClient.deleteItem(request);
     }
 
+    @SuppressWarnings("unchecked")
     private Task mapToTask(Map<String, AttributeValue> item) {
         Task.TaskBuilder builder = Task.builder()
                 .id(item.get("id").s())
@@ -203,7 +248,11 @@ public class TaskRepository {
             builder.description(item.get("description").s());
         }
 
-        if (item.containsKey("body")) {
+        if (item.containsKey(TaskPayloadCodec.ATTRIBUTE)) {
+            Map<String, Object> document = TaskPayloadCodec.decode(item.get(TaskPayloadCodec.ATTRIBUTE).b().asByteArray());
+            builder.body((Map<String, Object>) document.get("b"));
+            builder.headers((Map<String, String>) document.get("h"));
+        } else if (item.containsKey("body")) {
             Map<String, AttributeValue> bodyAttrMap = item.get("body").m();
             Map<String, Object> bodyMap = convertAttributeMap(bodyAttrMap);
             builder.body(bodyMap);
@@ -222,6 +271,10 @@ public class TaskRepository {
             builder.exponentialBackoff(item.get("exponentialBackoff").bool());
         }
 
+        if (item.containsKey("timeoutMs")) {
+            builder.timeoutMs(Integer.parseInt(item.get("timeoutMs").n()));
+        }
+
         if (item.containsKey("webhookUrl")) {
             builder.webhookUrl(item.get("webhookUrl").s());
         }
@@ -237,6 +290,22 @@ public class TaskRepository {
         if (item.containsKey("failureCount")) {
             builder.failureCount(Integer.parseInt(item.get("failureCount").n()));
         }
+
+        if (item.containsKey("spreadWindowSeconds")) {
+            builder.spreadWindowSeconds(Integer.parseInt(item.get("spreadWindowSeconds").n()));
+        }
+
+        if (item.containsKey("misfirePolicy")) {
+            builder.misfirePolicy(MisfirePolicy.valueOf(item.get("misfirePolicy").s()));
+        }
+
+        if (item.containsKey("misfireMaxCatchUp")) {
+            builder.misfireMaxCatchUp(Integer.parseInt(item.get("misfireMaxCatchUp").n()));
+        }
+
+        if (item.containsKey("joinMode")) {
+            builder.joinMode(JoinMode.valueOf(item.get("joinMode").s()));
+        }
     if (item.containsKey("nextExecutionTime")) {
         builder.nextExecutionTime(LocalDateTime.parse(item.get("nextExecutionTime").s(), DATE_FORMATTER));
     }
@@ -288,13 +357,16 @@ public class TaskRepository {
 
                 // Check if the required fields are present and not null
                 if (chainMap.containsKey("id") && chainMap.containsKey("taskId") &&
-                        chainMap.containsKey("statusCode") && chainMap.containsKey("nextTaskId")) {
+                        (chainMap.containsKey("statusCode") || chainMap.containsKey("statusClass")) && chainMap.containsKey("nextTaskId")) {
 
                     TaskChain chain = TaskChain.builder()
                             .id(chainMap.get("id").s()) // Ensure this exists
                             .taskId(chainMap.get("taskId").s()) // Ensure this exists
-                            .statusCode(Integer.parseInt(chainMap.get("statusCode").n())) // Ensure this exists
+                            .statusCode(chainMap.containsKey("statusCode") ? Integer.valueOf(chainMap.get("statusCode").n()) : null)
+                            .statusClass(chainMap.containsKey("statusClass") ? chainMap.get("statusClass").s() : null)
                             .nextTaskId(chainMap.get("nextTaskId").s()) // Ensure this exists
+                            .conditions(mapToChainConditions(chainMap.get("conditions")))
+                            .extractions(mapToChainExtractions(chainMap.get("extractions")))
                             .build();
 
                     chains.add(chain);
@@ -338,4 +410,74 @@ public class TaskRepository {
         return result;
     }
 
+    private AttributeValue chainConditionsToAttribute(List<ChainCondition> conditions) {
+        List<AttributeValue> values = new ArrayList<>();
+        for (ChainCondition condition : conditions) {
+            Map<String, AttributeValue> conditionMap = new HashMap<>();
+            putString(conditionMap, "source", condition.getSource());
+            putString(conditionMap, "path", condition.getPath());
+            putString(conditionMap, "operator", condition.getOperator());
+            putString(conditionMap, "value", condition.getValue());
+            values.add(AttributeValue.builder().m(conditionMap).build());
+        }
+        return AttributeValue.builder().l(values).build();
+    }
+
+    private AttributeValue chainExtractionsToAttribute(List<ChainExtraction> extractions) {
+        List<AttributeValue> values = new ArrayList<>();
+        for (ChainExtraction extraction : extractions) {
+            Map<String, AttributeValue> extractionMap = new HashMap<>();
+            putString(extractionMap, "source", extraction.getSource());
+            putString(extractionMap, "path", extraction.getPath());
+            putString(extractionMap, "into", extraction.getInto());
+            putString(extractionMap, "name", extraction.getName());
+            values.add(AttributeValue.builder().m(extractionMap).build());
+        }
+        return AttributeValue.builder().l(values).build();
+    }
+
+    private static void putString(Map<String, AttributeValue> map, String key, String value) {
+        if (value != null) {
+            map.put(key, AttributeValue.builder().s(value).build());
+        }
+    }
+
+    private List<ChainCondition> mapToChainConditions(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        List<ChainCondition> conditions = new ArrayList<>();
+        for (AttributeValue conditionValue : value.l()) {
+            Map<String, AttributeValue> conditionMap = conditionValue.m();
+            conditions.add(ChainCondition.builder()
+                    .source(stringOf(conditionMap, "source"))
+                    .path(stringOf(conditionMap, "path"))
+                    .operator(stringOf(conditionMap, "operator"))
+                    .value(stringOf(conditionMap, "value"))
+                    .build());
+        }
+        return conditions;
+    }
+
+    private List<ChainExtraction> mapToChainExtractions(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        List<ChainExtraction> extractions = new ArrayList<>();
+        for (AttributeValue extractionValue : value.l()) {
+            Map<String, AttributeValue> extractionMap = extractionValue.m();
+            extractions.add(ChainExtraction.builder()
+                    .source(stringOf(extractionMap, "source"))
+                    .path(stringOf(extractionMap, "path"))
+                    .into(stringOf(extractionMap, "into"))
+                    .name(stringOf(extractionMap, "name"))
+                    .build());
+        }
+        return extractions;
+    }
+
+    private static String stringOf(Map<String, AttributeValue> map, String key) {
+        AttributeValue value = map.get(key);
+        return value != null ? value.s() : null;
+    }
 }
@@ -4,21 +4,26 @@ package org.JustRun.TaskManagementService.Service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.JustRun.TaskManagementService.Repository.TaskExecutionRepository;
+import org.JustRun.TaskManagementService.Repository.TaskExecutionRollupRepository;
 import org.JustRun.TaskManagementService.Repository.TaskRepository;
 import org.JustRun.TaskManagementService.dto.TaskRequest;
 import org.JustRun.TaskManagementService.dto.TaskResponse;
 import org.JustRun.TaskManagementService.exceptions.ResourceNotFoundException;
 import org.JustRun.TaskManagementService.exceptions.UnauthorizedException;
 import org.JustRun.TaskManagementService.model.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.scheduling.support.SimpleTriggerContext;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,8 +34,19 @@ public class TaskService {
 
     private final TaskRepository taskRepository;
     private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskExecutionRollupRepository taskExecutionRollupRepository;
 //    private final QueueService queueService;
 
+    // Execution history: raw rows this recent, hourly rollups for the days before, daily rollups before that
+    @Value("${executions.history.raw-hours:24}")
+    private long historyRawHours;
+
+    @Value("${executions.history.hourly-days:7}")
+    private long historyHourlyDays;
+
+    @Value("${executions.history.daily-days:90}")
+    private long historyDailyDays;
+
     private Task mapRequestToTask(TaskRequest request) {
         return Task.builder()
                 .id(UUID.randomUUID().toString())
@@ -41,10 +57,15 @@ public class TaskService {
                 .headers(request.getHeaders())
                 .body(request.getBody())
                 .cronExpression(request.getCronExpression())
+                .spreadWindowSeconds(request.getSpreadWindowSeconds())
+                .misfirePolicy(request.getMisfirePolicy() != null ? MisfirePolicy.valueOf(request.getMisfirePolicy()) : null)
+                .misfireMaxCatchUp(request.getMisfireMaxCatchUp())
+                .joinMode(request.getJoinMode() != null ? JoinMode.valueOf(request.getJoinMode()) : null)
                 .priority(request.getPriority() != null ? TaskPriority.valueOf(request.getPriority()) : TaskPriority.NORMAL)
                 .maxRetries(request.getMaxRetries())
                 .retryDelay(request.getRetryDelay())
                 .exponentialBackoff(request.getExponentialBackoff())
+                .timeoutMs(request.getTimeoutMs())
                 .webhookUrl(request.getWebhookUrl())
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
@@ -76,7 +97,10 @@ public class TaskService {
                     LocalDateTime nextExecution = nextExecutionDate.toInstant()
                             .atZone(ZoneId.systemDefault())
                             .toLocalDateTime();
-                    if (now.getSecond() != 0) {
+                    long spreadOffset = FireTimeSpread.offsetSeconds(task.getId(), task.getSpreadWindowSeconds());
+                    if (spreadOffset > 0) {
+                        nextExecution = nextExecution.plusSeconds(spreadOffset);
+                    } else if (now.getSecond() != 0) {
                         nextExecution = nextExecution.plusSeconds(now.getSecond());
                     }
                     task.setNextExecutionTime(nextExecution);
@@ -94,7 +118,24 @@ public class TaskService {
                         .id(UUID.randomUUID().toString())
                         .taskId(task.getId()) // Will be set after saving
                         .statusCode(chainRequest.getStatusCode())
+                        .statusClass(chainRequest.getStatusClass())
                         .nextTaskId(chainRequest.getNextTaskId())
+                        .conditions(chainRequest.getConditions() != null ? chainRequest.getConditions().stream()
+                                .map(condition -> ChainCondition.builder()
+                                        .source(condition.getSource())
+                                        .path(condition.getPath())
+                                        .operator(condition.getOperator() != null ? condition.getOperator() : "EXISTS")
+                                        .value(condition.getValue())
+                                        .build())
+                                .collect(Collectors.toList()) : null)
+                        .extractions(chainRequest.getExtractions() != null ? chainRequest.getExtractions().stream()
+                                .map(extraction -> ChainExtraction.builder()
+                                        .source(extraction.getSource())
+                                        .path(extraction.getPath())
+                                        .into(extraction.getInto())
+                                        .name(extraction.getName())
+                                        .build())
+                                .collect(Collectors.toList()) : null)
                         .build();
                 chains.add(chain);
             }
@@ -155,12 +196,117 @@ public class TaskService {
                 .collect(Collectors.toList());
     }
 
+    public TaskResponse.TaskExecutionHistoryResponse getExecutionHistory(String id, String userId) {
+        // Verify user has access to task
+        getTask(id, userId);
+
+        LocalDateTime recentSince = LocalDateTime.now().minusHours(historyRawHours).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime hourlySince = recentSince.minusDays(historyHourlyDays).truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime dailySince = hourlySince.minusDays(historyDailyDays);
+
+        List<TaskResponse.TaskExecutionResponse> recent = taskExecutionRepository.findByTaskIdSince(id, recentSince).stream()
+                .map(this::mapToExecutionResponse)
+                .collect(Collectors.toList());
+        List<TaskResponse.TaskExecutionRollupResponse> hourly = taskExecutionRollupRepository
+                .findByTaskId(id, TaskExecutionRollup.Granularity.HOUR, hourlySince, recentSince).stream()
+                .map(this::mapToRollupResponse)
+                .collect(Collectors.toList());
+        List<TaskResponse.TaskExecutionRollupResponse> daily = taskExecutionRollupRepository
+                .findByTaskId(id, TaskExecutionRollup.Granularity.DAY, dailySince, hourlySince).stream()
+                .map(this::mapToRollupResponse)
+                .collect(Collectors.toList());
+
+        return TaskResponse.TaskExecutionHistoryResponse.builder()
+                .recentSince(recentSince)
+                .recent(recent)
+                .hourly(hourly)
+                .daily(daily)
+                .build();
+    }
+
+    /**
+     * The execution graph of one workflow run, read with a single query on the run's index.
+     */
+    public TaskResponse.WorkflowRunResponse getWorkflowRun(String workflowRunId, String userId) {
+        // Another user's run reads as missing
+        List<TaskExecution> executions = taskExecutionRepository.findByWorkflowRunId(workflowRunId).stream()
+                .filter(execution -> userId.equals(execution.getUserId()))
+                .collect(Collectors.toList());
+        if (executions.isEmpty()) {
+            throw new ResourceNotFoundException("Workflow run", "id", workflowRunId);
+        }
+
+        Map<String, List<String>> children = new HashMap<>();
+        LocalDateTime startedAt = executions.get(0).getExecutionTime();
+        LocalDateTime finishedAt = startedAt;
+        int failureCount = 0;
+        for (TaskExecution execution : executions) {
+            if (execution.getParentExecutionId() != null) {
+                children.computeIfAbsent(execution.getParentExecutionId(), parent -> new ArrayList<>()).add(execution.getId());
+            }
+            LocalDateTime finished = execution.getDurationMs() != null
+                    ? execution.getExecutionTime().plus(execution.getDurationMs(), ChronoUnit.MILLIS)
+                    : execution.getExecutionTime();
+            if (finished.isAfter(finishedAt)) {
+                finishedAt = finished;
+            }
+            if ("FAILED".equals(execution.getStatus()) || "RETRY_SCHEDULED".equals(execution.getStatus())
+                    || "TIMED_OUT".equals(execution.getStatus())) {
+                failureCount++;
+            }
+        }
+
+        List<TaskResponse.WorkflowRunExecutionResponse> nodes = executions.stream()
+                .map(execution -> TaskResponse.WorkflowRunExecutionResponse.builder()
+                        .id(execution.getId())
+                        .taskId(execution.getTaskId())
+                        .fireInstanceId(execution.getFireInstanceId())
+                        .parentExecutionId(execution.getParentExecutionId())
+                        .childExecutionIds(children.getOrDefault(execution.getId(), List.of()))
+                        .executionTime(execution.getExecutionTime())
+                        .status(execution.getStatus())
+                        .statusCode(execution.getStatusCode())
+                        .durationMs(execution.getDurationMs())
+                        .error(execution.getError())
+                        .retryCount(execution.getRetryCount())
+                        .build())
+                .collect(Collectors.toList());
+
+        return TaskResponse.WorkflowRunResponse.builder()
+                .workflowRunId(workflowRunId)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .durationMs(ChronoUnit.MILLIS.between(startedAt, finishedAt))
+                .executionCount(executions.size())
+                .failureCount(failureCount)
+                .executions(nodes)
+                .build();
+    }
+
+    private TaskResponse.TaskExecutionRollupResponse mapToRollupResponse(TaskExecutionRollup rollup) {
+        return TaskResponse.TaskExecutionRollupResponse.builder()
+                .bucketStart(rollup.getBucketStart())
+                .granularity(rollup.getGranularity().name())
+                .executionCount(rollup.getExecutionCount())
+                .successCount(rollup.getSuccessCount())
+                .failureCount(rollup.getFailureCount())
+                .successRate(rollup.getExecutionCount() > 0 ? (double) rollup.getSuccessCount() / rollup.getExecutionCount() : null)
+                .latencyP50Ms(rollup.getLatencyP50Ms())
+                .latencyP90Ms(rollup.getLatencyP90Ms())
+                .latencyP99Ms(rollup.getLatencyP99Ms())
+                .latencyMaxMs(rollup.getLatencyMaxMs())
+                .statusCodes(rollup.getStatusCodes())
+                .build();
+    }
+
     private TaskResponse.TaskExecutionResponse mapToExecutionResponse(TaskExecution execution) {
         return TaskResponse.TaskExecutionResponse.builder()
                 .id(execution.getId())
+                .workflowRunId(execution.getWorkflowRunId())
                 .executionTime(execution.getExecutionTime())
                 .status(execution.getStatus())
                 .statusCode(execution.getStatusCode())
+                .durationMs(execution.getDurationMs())
                 .response(execution.getResponse())
                 .error(execution.getError())
                 .retryCount(execution.getRetryCount())
@@ -0,0 +1,84 @@
+package org.JustRun.TaskManagementService.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodes a task's body and headers into the single binary "payload" attribute.
+ * Layout: [schema version][flags][Smile document], where flag bit 0 marks a deflated document.
+ */
+public final class TaskPayloadCodec {
+
+    public static final String ATTRIBUTE = "payload";
+
+    private static final byte VERSION_1 = 1;
+    private static final byte FLAG_DEFLATED = 0x01;
+    private static final int COMPRESSION_THRESHOLD_BYTES = 512;
+
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
+    private static final TypeReference<Map<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {};
+
+    private TaskPayloadCodec() {
+    }
+
+    public static byte[] encode(Map<String, Object> body, Map<String, String> headers) {
+        Map<String, Object> document = new HashMap<>();
+        if (body != null) {
+            document.put("b", body);
+        }
+        if (headers != null && !headers.isEmpty()) {
+            document.put("h", headers);
+        }
+
+        try {
+            byte[] smile = SMILE_MAPPER.writeValueAsBytes(document);
+            boolean deflate = smile.length > COMPRESSION_THRESHOLD_BYTES;
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(smile.length + 2);
+            out.write(VERSION_1);
+            out.write(deflate ? FLAG_DEFLATED : 0);
+            if (deflate) {
+                try (DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED))) {
+                    deflater.write(smile);
+                }
+            } else {
+                out.write(smile);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode task payload", e);
+        }
+    }
+
+    public static Map<String, Object> decode(byte[] payload) {
+        if (payload.length < 2) {
+            throw new IllegalArgumentException("Task payload is truncated");
+        }
+        if (payload[0] != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported task payload version: " + payload[0]);
+        }
+
+        try {
+            if ((payload[1] & FLAG_DEFLATED) != 0) {
+                try (InflaterInputStream in = new InflaterInputStream(
+                        new ByteArrayInputStream(payload, 2, payload.length - 2))) {
+                    return SMILE_MAPPER.readValue(in, DOCUMENT_TYPE);
+                }
+            }
+            return SMILE_MAPPER.readValue(payload, 2, payload.length - 2, DOCUMENT_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode task payload", e);
+        }
+    }
+}
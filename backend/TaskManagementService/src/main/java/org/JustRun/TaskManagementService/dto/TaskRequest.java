@@ -1,6 +1,11 @@
 package org.JustRun.TaskManagementService.dto;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -8,7 +13,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.JustRun.TaskManagementService.model.FireTimeSpread;
+import org.springframework.scheduling.support.CronExpression;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -37,10 +45,26 @@ public class TaskRequest {
 //    @NotBlank(message = "Cron expression is required")
     private String cronExpression;
 
+    // Optional: spread this task's fires over a window of this many seconds after each cron time
+    @Min(value = 0, message = "Spread window must not be negative")
+    @Max(value = 3600, message = "Spread window must be at most 3600 seconds")
+    private Integer spreadWindowSeconds;
+
+    @Pattern(regexp = "^(FIRE_ONCE|FIRE_ALL|SKIP)$", message = "Misfire policy must be one of: FIRE_ONCE, FIRE_ALL, SKIP")
+    private String misfirePolicy;
+
+    @Min(value = 1, message = "Misfire catch-up limit must be at least 1")
+    private Integer misfireMaxCatchUp;
+
+    // Optional: makes this task a join node that merges the parallel branches chaining to it
+    @Pattern(regexp = "^(ALL|ANY)$", message = "Join mode must be one of: ALL, ANY")
+    private String joinMode;
+
     @NotNull(message = "Priority is required")
     @Pattern(regexp = "^(HIGH|NORMAL|LOW)$", message = "Priority must be one of: HIGH, NORMAL, LOW")
     private String priority;
 
+    @Valid
     private List<TaskChainRequest> chains;
 
     private Integer maxRetries;
@@ -49,6 +73,11 @@ public class TaskRequest {
 
     private Boolean exponentialBackoff;
 
+    // Optional: deadline for each run's outbound call; defaults per priority on the executor
+    @Min(value = 100, message = "Timeout must be at least 100 ms")
+    @Max(value = 900000, message = "Timeout must be at most 900000 ms")
+    private Integer timeoutMs;
+
     @Pattern(regexp = "^https?://.*", message = "Webhook URL must be a valid URL")
     private String webhookUrl;
 
@@ -56,14 +85,184 @@ public class TaskRequest {
     @Pattern(regexp = "^(ROOT|CHAINED)$", message = "Task type must be either ROOT or CHAINED")
     private String taskType; // Added field
 
+    // A window as long as the cron period would let one fire's offset pass the next cron time
+    @JsonIgnore
+    @AssertTrue(message = "Spread window must be shorter than the interval between cron fires")
+    public boolean isSpreadWindowWithinPeriod() {
+        if (spreadWindowSeconds == null || spreadWindowSeconds <= 0 || cronExpression == null || cronExpression.isEmpty()) {
+            return true;
+        }
+        CronExpression cron;
+        try {
+            cron = CronExpression.parse(cronExpression);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        return spreadWindowSeconds < FireTimeSpread.shortestPeriodSeconds(cron, LocalDateTime.now());
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
     public static class TaskChainRequest {
-        @NotNull(message = "Status code is required for task chain")
         private Integer statusCode;
 
+        @Pattern(regexp = "^[1-5]xx$", message = "Status class must be one of: 1xx, 2xx, 3xx, 4xx, 5xx")
+        private String statusClass;
+
         @NotBlank(message = "Next task ID is required for task chain")
         private String nextTaskId;
+
+        // Response tests that must all hold for the chain to fire
+        @Valid
+        private List<ChainConditionRequest> conditions;
+
+        // Response values copied into the next task's body or headers
+        @Valid
+        private List<ChainExtractionRequest> extractions;
+
+        @JsonIgnore
+        @AssertTrue(message = "Status code or status class is required for task chain")
+        public boolean isStatusMatcherPresent() {
+            return statusCode != null || statusClass != null;
+        }
+    }
+
+    // Field names and array indexes only, e.g. $.order.items[0].id or $['order id']
+    private static final java.util.regex.Pattern JSON_PATH =
+            java.util.regex.Pattern.compile("^\\$(\\.[^.\\[\\]]+|\\[(\\d+|'[^']*'|\"[^\"]*\")])*$");
+
+    private static final int MAX_MATCHES_PATTERN_LENGTH = 256;
+
+    // A repeated group that itself repeats, such as (a+)+ or (x*y?)*, can backtrack exponentially
+    static boolean hasNestedRepetition(String regex) {
+        java.util.Deque<Boolean> groups = new java.util.ArrayDeque<>();
+        boolean repeats = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                // Skip the character class; a ']' right after '[' or '[^' is literal
+                int j = i + 1;
+                if (j < regex.length() && regex.charAt(j) == '^') {
+                    j++;
+                }
+                if (j < regex.length() && regex.charAt(j) == ']') {
+                    j++;
+                }
+                while (j < regex.length() && regex.charAt(j) != ']') {
+                    if (regex.charAt(j) == '\\') {
+                        j++;
+                    }
+                    j++;
+                }
+                i = j;
+            } else if (c == '(') {
+                groups.push(repeats);
+                repeats = false;
+            } else if (c == ')') {
+                boolean inner = repeats;
+                repeats = groups.isEmpty() ? inner : groups.pop() || inner;
+                if (inner && isRepetition(regex, i + 1)) {
+                    return true;
+                }
+            } else if (isRepetition(regex, i)) {
+                repeats = true;
+            }
+        }
+        return false;
+    }
+
+    // An unbounded quantifier (*, + or {n,}) starts at i
+    private static boolean isRepetition(String regex, int i) {
+        if (i >= regex.length()) {
+            return false;
+        }
+        char c = regex.charAt(i);
+        if (c == '*' || c == '+') {
+            return true;
+        }
+        if (c == '{') {
+            int close = regex.indexOf('}', i);
+            return close > i && regex.substring(i + 1, close).matches("\\d+,");
+        }
+        return false;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChainConditionRequest {
+        @NotNull(message = "Condition source is required")
+        @Pattern(regexp = "^(HEADER|BODY)$", message = "Condition source must be HEADER or BODY")
+        private String source;
+
+        @NotBlank(message = "Condition path is required")
+        private String path;
+
+        @Pattern(regexp = "^(EXISTS|EQUALS|NOT_EQUALS|MATCHES)$",
+                message = "Condition operator must be one of: EXISTS, EQUALS, NOT_EQUALS, MATCHES")
+        private String operator;
+
+        private String value;
+
+        @JsonIgnore
+        @AssertTrue(message = "Body condition paths must be JSONPaths of field names and indexes, such as $.items[0].id")
+        public boolean isPathValid() {
+            return !"BODY".equals(source) || path == null || JSON_PATH.matcher(path).matches();
+        }
+
+        @JsonIgnore
+        @AssertTrue(message = "EQUALS, NOT_EQUALS and MATCHES conditions need a valid value")
+        public boolean isValueValid() {
+            if (operator == null || "EXISTS".equals(operator)) {
+                return true;
+            }
+            return value != null;
+        }
+
+        @JsonIgnore
+        @AssertTrue(message = "MATCHES patterns must be valid regular expressions of at most 256 characters, "
+                + "without repeated groups that themselves repeat, such as (a+)+")
+        public boolean isPatternSafe() {
+            if (!"MATCHES".equals(operator) || value == null) {
+                return true;
+            }
+            if (value.length() > MAX_MATCHES_PATTERN_LENGTH || hasNestedRepetition(value)) {
+                return false;
+            }
+            try {
+                java.util.regex.Pattern.compile(value);
+            } catch (java.util.regex.PatternSyntaxException e) {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChainExtractionRequest {
+        @NotNull(message = "Extraction source is required")
+        @Pattern(regexp = "^(HEADER|BODY)$", message = "Extraction source must be HEADER or BODY")
+        private String source;
+
+        @NotBlank(message = "Extraction path is required")
+        private String path;
+
+        @NotNull(message = "Extraction target is required")
+        @Pattern(regexp = "^(BODY|HEADER)$", message = "Extraction target must be BODY or HEADER")
+        private String into;
+
+        @NotBlank(message = "Extraction target name is required")
+        private String name;
+
+        @JsonIgnore
+        @AssertTrue(message = "Body extraction paths must be JSONPaths of field names and indexes, such as $.items[0].id")
+        public boolean isPathValid() {
+            return !"BODY".equals(source) || path == null || JSON_PATH.matcher(path).matches();
+        }
     }
 }
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.JustRun.TaskManagementService.model.ChainCondition;
+import org.JustRun.TaskManagementService.model.ChainExtraction;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -24,10 +26,15 @@ public class TaskResponse {
     private Map<String, String> headers;
     private Map<String, Object>  body;
     private String cronExpression;
+    private Integer spreadWindowSeconds;
+    private String misfirePolicy;
+    private Integer misfireMaxCatchUp;
+    private String joinMode;
     private String priority;
     private Integer maxRetries;
     private Integer retryDelay;
     private Boolean exponentialBackoff;
+    private Integer timeoutMs;
     private String webhookUrl;
     private String status;
     private LocalDateTime createdAt;
@@ -47,7 +54,10 @@ public class TaskResponse {
         private String id;
         private String taskId;
         private Integer statusCode;
+        private String statusClass;
         private String nextTaskId;
+        private List<ChainCondition> conditions;
+        private List<ChainExtraction> extractions;
     }
 
     @Data
@@ -56,13 +66,78 @@ public class TaskResponse {
     @AllArgsConstructor
     public static class TaskExecutionResponse {
         private String id;
+        private String workflowRunId;
         private LocalDateTime executionTime;
         private String status;
         private Integer statusCode;
+        private Long durationMs;
         private String response;
         private String error;
         private Integer retryCount;
         private LocalDateTime nextRetry;
 
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TaskExecutionRollupResponse {
+        private LocalDateTime bucketStart;
+        private String granularity;
+        private long executionCount;
+        private long successCount;
+        private long failureCount;
+        private Double successRate;
+        private Long latencyP50Ms;
+        private Long latencyP90Ms;
+        private Long latencyP99Ms;
+        private Long latencyMaxMs;
+        private Map<String, Long> statusCodes;
+    }
+
+    // Raw rows for the recent window, hourly aggregates before that, daily aggregates before those
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TaskExecutionHistoryResponse {
+        private LocalDateTime recentSince;
+        private List<TaskExecutionResponse> recent;
+        private List<TaskExecutionRollupResponse> hourly;
+        private List<TaskExecutionRollupResponse> daily;
+    }
+
+    // One workflow run: its executions with the execution that chained to each, and the run's overall span
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WorkflowRunResponse {
+        private String workflowRunId;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private Long durationMs;
+        private int executionCount;
+        private int failureCount;
+        private List<WorkflowRunExecutionResponse> executions;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WorkflowRunExecutionResponse {
+        private String id;
+        private String taskId;
+        private String fireInstanceId;
+        private String parentExecutionId;
+        private List<String> childExecutionIds;
+        private LocalDateTime executionTime;
+        private String status;
+        private Integer statusCode;
+        private Long durationMs;
+        private String error;
+        private Integer retryCount;
+    }
 }
@@ -0,0 +1,53 @@
+package org.JustRun.TaskManagementService.model;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Deterministic per-task offset inside a task's spread window, used to move fires away from
+ * the top of the minute/hour. The same task id always maps to the same offset, so its period
+ * is unchanged; the window should be shorter than the cron period.
+ */
+public final class FireTimeSpread {
+
+    // Upcoming fires compared when looking for the shortest cron period
+    private static final int PERIOD_SAMPLE_FIRES = 500;
+
+    private FireTimeSpread() {
+    }
+
+    public static long offsetSeconds(String taskId, Integer windowSeconds) {
+        if (taskId == null || windowSeconds == null || windowSeconds <= 1) {
+            return 0;
+        }
+
+        // murmur3 finalizer so ids that share prefixes still spread evenly
+        int h = taskId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, windowSeconds);
+    }
+
+    /**
+     * The shortest gap in seconds between consecutive fires of {@code cron} among its next fires
+     * after {@code from}, or Long.MAX_VALUE when it fires at most once.
+     */
+    public static long shortestPeriodSeconds(CronExpression cron, LocalDateTime from) {
+        long shortest = Long.MAX_VALUE;
+        LocalDateTime previous = cron.next(from);
+        for (int i = 0; previous != null && i < PERIOD_SAMPLE_FIRES; i++) {
+            LocalDateTime next = cron.next(previous);
+            if (next == null) {
+                break;
+            }
+            shortest = Math.min(shortest, ChronoUnit.SECONDS.between(previous, next));
+            previous = next;
+        }
+        return shortest;
+    }
+}
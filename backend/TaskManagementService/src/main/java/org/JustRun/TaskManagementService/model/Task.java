@@ -23,11 +23,17 @@ public class Task {
     private Map<String, String> headers;
     private Map<String, Object> body;
     private String cronExpression;
+    private Integer spreadWindowSeconds;
+    private MisfirePolicy misfirePolicy;
+    private Integer misfireMaxCatchUp;
+    private JoinMode joinMode;
     private TaskPriority priority;
     private List<TaskChain> chains;
     private Integer maxRetries;
     private Integer retryDelay;
     private Boolean exponentialBackoff;
+    // Deadline for one run's outbound call, in ms; unset uses the executor's default for the priority
+    private Integer timeoutMs;
     private String webhookUrl;
     private String status;
     private LocalDateTime createdAt;
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -13,5 +15,11 @@ public class TaskChain {
     private String id;
     private String taskId;
     private Integer statusCode;
+    // "2xx", "4xx", ...: matches any code of the class; an exact statusCode chain takes precedence
+    private String statusClass;
     private String nextTaskId;
+    // Response tests that must all hold for the chain to fire
+    private List<ChainCondition> conditions;
+    // Response values handed to the next task
+    private List<ChainExtraction> extractions;
 }
\ No newline at end of file
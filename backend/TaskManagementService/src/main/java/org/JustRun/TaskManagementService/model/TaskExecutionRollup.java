@@ -0,0 +1,36 @@
+package org.JustRun.TaskManagementService.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Hourly or daily aggregate of a task's executions, written by the scanner's rollup job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskExecutionRollup {
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    private String taskId;
+    private Granularity granularity;
+    private LocalDateTime bucketStart;
+    private long executionCount;
+    private long successCount;
+    private long failureCount;
+    private Long latencyP50Ms;
+    private Long latencyP90Ms;
+    private Long latencyP99Ms;
+    private Long latencyMaxMs;
+    private Map<String, Long> statusCodes;
+}
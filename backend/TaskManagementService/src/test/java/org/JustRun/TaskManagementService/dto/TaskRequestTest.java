@@ -0,0 +1,96 @@
+package org.JustRun.TaskManagementService.dto;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskRequestTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private Set<ConstraintViolation<TaskRequest.ChainConditionRequest>> validate(String operator, String value) {
+        return validator.validate(new TaskRequest.ChainConditionRequest("BODY", "$.status", operator, value));
+    }
+
+    private Set<ConstraintViolation<TaskRequest>> validateSpread(String cronExpression, Integer spreadWindowSeconds) {
+        TaskRequest request = TaskRequest.builder().cronExpression(cronExpression).spreadWindowSeconds(spreadWindowSeconds).build();
+        return validator.validateProperty(request, "spreadWindowWithinPeriod");
+    }
+
+    @Test
+    void acceptsOrdinaryPatterns() {
+        assertThat(validate("MATCHES", "done-\\d+")).isEmpty();
+        assertThat(validate("MATCHES", "^(ok|ready)$")).isEmpty();
+        assertThat(validate("MATCHES", "(ab)+c*")).isEmpty();
+        assertThat(validate("MATCHES", "(a{2,5})+")).isEmpty();
+    }
+
+    @Test
+    void rejectsInvalidPatterns() {
+        assertThat(validate("MATCHES", "(unclosed")).isNotEmpty();
+        assertThat(validate("MATCHES", null)).isNotEmpty();
+    }
+
+    @Test
+    void rejectsOverlongPatterns() {
+        assertThat(validate("MATCHES", "a".repeat(256))).isEmpty();
+        assertThat(validate("MATCHES", "a".repeat(257))).isNotEmpty();
+    }
+
+    @Test
+    void rejectsNestedRepetition() {
+        assertThat(validate("MATCHES", "(a+)+")).isNotEmpty();
+        assertThat(validate("MATCHES", "^(\\w+\\s?)*$")).isNotEmpty();
+    }
+
+    @Test
+    void otherOperatorsTakeAnyValue() {
+        assertThat(validate("EQUALS", "(a+)+")).isEmpty();
+        assertThat(validate("EXISTS", null)).isEmpty();
+        assertThat(validate("EQUALS", null)).isNotEmpty();
+    }
+
+    @Test
+    void detectsNestedRepetition() {
+        assertThat(TaskRequest.hasNestedRepetition("(a*)*")).isTrue();
+        assertThat(TaskRequest.hasNestedRepetition("((a+)b)+")).isTrue();
+        assertThat(TaskRequest.hasNestedRepetition("((a)+)+")).isTrue();
+        assertThat(TaskRequest.hasNestedRepetition("(a{2,})+")).isTrue();
+        assertThat(TaskRequest.hasNestedRepetition("(?:x+y)*")).isTrue();
+
+        assertThat(TaskRequest.hasNestedRepetition("(a+)?")).isFalse();
+        assertThat(TaskRequest.hasNestedRepetition("(a+)b+")).isFalse();
+        assertThat(TaskRequest.hasNestedRepetition("[(a+)]+")).isFalse();
+        assertThat(TaskRequest.hasNestedRepetition("\\(a+\\)+")).isFalse();
+        assertThat(TaskRequest.hasNestedRepetition("[^]a+)]+")).isFalse();
+    }
+
+    @Test
+    void spreadWindowMustBeShorterThanTheCronPeriod() {
+        assertThat(validateSpread("0 */5 * * * *", 299)).isEmpty();
+        assertThat(validateSpread("0 */5 * * * *", 300)).isNotEmpty();
+        assertThat(validateSpread("*/10 * * * * *", 60)).isNotEmpty();
+        assertThat(validateSpread("0 0 * * * *", 3600)).isNotEmpty();
+        assertThat(validateSpread("0 0 0 1 * *", 3600)).isEmpty();
+    }
+
+    @Test
+    void spreadWindowIsCheckedAgainstTheShortestGap() {
+        // Fires 30 minutes apart during the day, hours apart overnight
+        assertThat(validateSpread("0 15,45 8-18 * * MON-FRI", 1799)).isEmpty();
+        assertThat(validateSpread("0 15,45 8-18 * * MON-FRI", 1800)).isNotEmpty();
+    }
+
+    @Test
+    void spreadWindowWithoutCronIsNotChecked() {
+        assertThat(validateSpread(null, 3600)).isEmpty();
+        assertThat(validateSpread("", 3600)).isEmpty();
+        assertThat(validateSpread("*/10 * * * * *", null)).isEmpty();
+        assertThat(validateSpread("*/10 * * * * *", 0)).isEmpty();
+    }
+}